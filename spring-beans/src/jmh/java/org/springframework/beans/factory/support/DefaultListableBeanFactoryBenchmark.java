@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+/**
+ * Benchmarks for {@link DefaultListableBeanFactory#getBean}, covering singleton
+ * lookups by name and by type as well as prototype creation with constructor
+ * and property injection.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultListableBeanFactoryBenchmark {
+
+	@Benchmark
+	public Object singletonByName(BeanFactoryState state) {
+		return state.beanFactory.getBean("service");
+	}
+
+	@Benchmark
+	public Object singletonByType(BeanFactoryState state) {
+		return state.beanFactory.getBean(Service.class);
+	}
+
+	@Benchmark
+	public Object prototypeWithConstructorInjection(BeanFactoryState state) {
+		return state.beanFactory.getBean("constructorPrototype");
+	}
+
+	@Benchmark
+	public Object prototypeWithPropertyInjection(BeanFactoryState state) {
+		return state.beanFactory.getBean("propertyPrototype");
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class BeanFactoryState {
+
+		@Param({"10", "1000"})
+		public int beanCount;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			for (int i = 0; i < this.beanCount; i++) {
+				this.beanFactory.registerBeanDefinition("repository" + i, new RootBeanDefinition(Repository.class));
+			}
+			this.beanFactory.registerBeanDefinition("service", new RootBeanDefinition(Service.class));
+
+			RootBeanDefinition constructorPrototype = new RootBeanDefinition(Consumer.class);
+			constructorPrototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			constructorPrototype.getConstructorArgumentValues().addGenericArgumentValue(
+					new RuntimeBeanReference("service"));
+			this.beanFactory.registerBeanDefinition("constructorPrototype", constructorPrototype);
+
+			RootBeanDefinition propertyPrototype = new RootBeanDefinition(Consumer.class);
+			propertyPrototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			propertyPrototype.getPropertyValues().add("service", new RuntimeBeanReference("service"));
+			propertyPrototype.getPropertyValues().add("name", "consumer");
+			this.beanFactory.registerBeanDefinition("propertyPrototype", propertyPrototype);
+
+			this.beanFactory.preInstantiateSingletons();
+		}
+	}
+
+
+	public static class Repository {
+	}
+
+
+	public static class Service {
+	}
+
+
+	public static class Consumer {
+
+		private Service service;
+
+		private String name;
+
+		public Consumer() {
+		}
+
+		public Consumer(Service service) {
+			this.service = service;
+		}
+
+		public void setService(Service service) {
+			this.service = service;
+		}
+
+		public Service getService() {
+			return this.service;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+}
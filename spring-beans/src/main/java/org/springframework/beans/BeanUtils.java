@@ -200,7 +200,7 @@ public abstract class BeanUtils {
 						argsWithDefaultValues[i] = args[i];
 					}
 				}
-				return ctor.newInstance(argsWithDefaultValues);
+				return CachedAccessors.newInstance(ctor, argsWithDefaultValues);
 			}
 		}
 		catch (InstantiationException ex) {
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cglib.core.SpringNamingPolicy;
+import org.springframework.cglib.reflect.FastClass;
+import org.springframework.core.SpringProperties;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Invokes constructors, methods and fields of bean classes through generated
+ * accessors instead of through reflection, once a member has been used often
+ * enough to make the generation worthwhile: typically for prototype and scoped
+ * beans that are created and injected over and over again.
+ *
+ * <p>Each member is invoked reflectively for its first
+ * {@value #GENERATION_THRESHOLD} invocations, not generating anything for the
+ * common case of singleton beans. After that, constructors and methods are
+ * invoked through a CGLIB {@link FastClass} generated once per declaring class,
+ * and fields are written through a {@link MethodHandle}. Members which cannot
+ * be accessed that way (e.g. private constructors and methods, or classes in
+ * a non-definable package) keep using reflection, as do invocations with
+ * arguments that do not match the parameter types, in order to retain the
+ * exact reflective exception semantics.
+ *
+ * <p>Callers are expected to have made the given members accessible already,
+ * e.g. through {@link org.springframework.util.ReflectionUtils#makeAccessible}.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see #IGNORE_GENERATED_ACCESSORS_PROPERTY_NAME
+ */
+public abstract class CachedAccessors {
+
+	/**
+	 * System property that instructs Spring to always invoke bean members
+	 * through reflection, never generating any accessors: {@code "true"}
+	 * for skipping accessor generation, e.g. in environments without support
+	 * for defining classes at runtime.
+	 * <p>The default is "false", generating accessors for frequently used members.
+	 */
+	public static final String IGNORE_GENERATED_ACCESSORS_PROPERTY_NAME = "spring.accessors.ignore";
+
+	/**
+	 * The number of reflective invocations of a member after which an accessor
+	 * gets generated for it.
+	 */
+	public static final int GENERATION_THRESHOLD = 16;
+
+
+	private static final boolean shouldIgnoreGeneratedAccessors =
+			SpringProperties.getFlag(IGNORE_GENERATED_ACCESSORS_PROPERTY_NAME);
+
+	private static final MethodType FIELD_SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final Object NO_FAST_CLASS = new Object();
+
+	private static final Log logger = LogFactory.getLog(CachedAccessors.class);
+
+	/** Cache of generated FastClasses, keyed by declaring class. */
+	private static final Map<Class<?>, Object> fastClassCache = new ConcurrentReferenceHashMap<>(64);
+
+	/** Cache of member accessors, keyed by constructor, method or field. */
+	private static final Map<Member, Accessor> accessorCache = new ConcurrentReferenceHashMap<>(256);
+
+
+	/**
+	 * Create a new instance through the given constructor.
+	 * @param ctor the constructor to invoke
+	 * @param args the constructor arguments
+	 * @return the new instance
+	 * @see Constructor#newInstance
+	 */
+	public static <T> T newInstance(Constructor<T> ctor, Object... args)
+			throws InstantiationException, IllegalAccessException, InvocationTargetException {
+
+		ExecutableAccessor accessor = getExecutableAccessor(ctor, args);
+		if (accessor != null) {
+			@SuppressWarnings("unchecked")
+			T instance = (T) accessor.fastClass.newInstance(accessor.index, args);
+			return instance;
+		}
+		return ctor.newInstance(args);
+	}
+
+	/**
+	 * Invoke the given method on the given target.
+	 * @param method the method to invoke
+	 * @param target the target to invoke the method on ({@code null} for static methods)
+	 * @param args the method arguments
+	 * @return the method's return value
+	 * @see Method#invoke
+	 */
+	@Nullable
+	public static Object invoke(Method method, @Nullable Object target, Object... args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		if (target != null || Modifier.isStatic(method.getModifiers())) {
+			ExecutableAccessor accessor = getExecutableAccessor(method, args);
+			if (accessor != null && (target == null || method.getDeclaringClass().isInstance(target))) {
+				return accessor.fastClass.invoke(accessor.index, target, args);
+			}
+		}
+		return method.invoke(target, args);
+	}
+
+	/**
+	 * Set the given field on the given target to the given value.
+	 * @param field the field to set
+	 * @param target the target to set the field on ({@code null} for static fields)
+	 * @param value the value to set
+	 * @see Field#set
+	 */
+	public static void set(Field field, @Nullable Object target, @Nullable Object value) throws IllegalAccessException {
+		if (target != null && ClassUtils.isAssignableValue(field.getType(), value) &&
+				field.getDeclaringClass().isInstance(target)) {
+			FieldAccessor accessor = (FieldAccessor) getAccessor(field);
+			if (accessor != null) {
+				try {
+					accessor.setter.invokeExact(target, value);
+					return;
+				}
+				catch (RuntimeException | Error ex) {
+					throw ex;
+				}
+				catch (Throwable ex) {
+					throw new IllegalStateException("Unexpected exception from field setter: " + field, ex);
+				}
+			}
+		}
+		field.set(target, value);
+	}
+
+	/**
+	 * Clear the accessor cache, releasing all generated accessors.
+	 */
+	public static void clearCache() {
+		accessorCache.clear();
+		fastClassCache.clear();
+	}
+
+
+	@Nullable
+	private static ExecutableAccessor getExecutableAccessor(Executable executable, Object[] args) {
+		ExecutableAccessor accessor = (ExecutableAccessor) getAccessor(executable);
+		return (accessor != null && accessor.isApplicable(args) ? accessor : null);
+	}
+
+	/**
+	 * Return the generated accessor for the given member, counting the current
+	 * invocation towards the generation threshold if not generated yet.
+	 * @return the accessor, or {@code null} if reflection is to be used
+	 */
+	@Nullable
+	private static Accessor getAccessor(Member member) {
+		if (shouldIgnoreGeneratedAccessors) {
+			return null;
+		}
+		Accessor accessor = accessorCache.get(member);
+		if (accessor == null) {
+			accessor = (member instanceof Field ? new FieldAccessor((Field) member) :
+					new ExecutableAccessor((Executable) member));
+			Accessor existing = accessorCache.putIfAbsent(member, accessor);
+			if (existing != null) {
+				accessor = existing;
+			}
+		}
+		return (accessor.resolve() ? accessor : null);
+	}
+
+	@Nullable
+	private static FastClass getFastClass(Class<?> type) {
+		Object fastClass = fastClassCache.get(type);
+		if (fastClass == null) {
+			try {
+				FastClass.Generator generator = new FastClass.Generator();
+				generator.setType(type);
+				generator.setContextClass(type);
+				generator.setClassLoader(type.getClassLoader());
+				generator.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+				fastClass = generator.create();
+			}
+			catch (Exception | LinkageError ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Cannot generate accessors for [" + type.getName() +
+							"] - falling back to reflection: " + ex);
+				}
+				fastClass = NO_FAST_CLASS;
+			}
+			fastClassCache.put(type, fastClass);
+		}
+		return (fastClass != NO_FAST_CLASS ? (FastClass) fastClass : null);
+	}
+
+
+	/**
+	 * Base class for a generated accessor: counting the reflective invocations
+	 * until the generation threshold is reached.
+	 */
+	private abstract static class Accessor {
+
+		private final AtomicInteger invocationCount = new AtomicInteger();
+
+		private volatile boolean resolved;
+
+		private boolean available;
+
+		/**
+		 * Count the current invocation, generating the accessor once the
+		 * threshold is reached.
+		 * @return whether the generated accessor is available
+		 */
+		boolean resolve() {
+			if (!this.resolved) {
+				if (this.invocationCount.incrementAndGet() < GENERATION_THRESHOLD) {
+					return false;
+				}
+				synchronized (this) {
+					if (!this.resolved) {
+						this.available = generate();
+						this.resolved = true;
+					}
+				}
+			}
+			return this.available;
+		}
+
+		protected abstract boolean generate();
+	}
+
+
+	/**
+	 * Accessor for a constructor or method, invoking it through the
+	 * {@link FastClass} of its declaring class.
+	 */
+	private static class ExecutableAccessor extends Accessor {
+
+		private final Executable executable;
+
+		private final Class<?>[] parameterTypes;
+
+		@Nullable
+		FastClass fastClass;
+
+		int index = -1;
+
+		ExecutableAccessor(Executable executable) {
+			this.executable = executable;
+			this.parameterTypes = executable.getParameterTypes();
+		}
+
+		@Override
+		protected boolean generate() {
+			Class<?> declaringClass = this.executable.getDeclaringClass();
+			if (Modifier.isPrivate(this.executable.getModifiers()) || declaringClass.getClassLoader() == null ||
+					(this.executable instanceof Constructor && Modifier.isAbstract(declaringClass.getModifiers()))) {
+				return false;
+			}
+			FastClass fastClass = getFastClass(declaringClass);
+			if (fastClass == null) {
+				return false;
+			}
+			int index = (this.executable instanceof Constructor ? fastClass.getIndex(this.parameterTypes) :
+					fastClass.getIndex(this.executable.getName(), this.parameterTypes));
+			if (index < 0) {
+				return false;
+			}
+			this.fastClass = fastClass;
+			this.index = index;
+			return true;
+		}
+
+		/**
+		 * Determine whether the given arguments match the parameter types,
+		 * as otherwise reflection is needed for the corresponding exception.
+		 */
+		boolean isApplicable(Object[] args) {
+			if (args.length != this.parameterTypes.length) {
+				return false;
+			}
+			for (int i = 0; i < args.length; i++) {
+				if (!ClassUtils.isAssignableValue(this.parameterTypes[i], args[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+
+	/**
+	 * Accessor for a field, writing it through a {@link MethodHandle}.
+	 */
+	private static class FieldAccessor extends Accessor {
+
+		private final Field field;
+
+		@Nullable
+		MethodHandle setter;
+
+		FieldAccessor(Field field) {
+			this.field = field;
+		}
+
+		@Override
+		protected boolean generate() {
+			if (Modifier.isStatic(this.field.getModifiers()) || Modifier.isFinal(this.field.getModifiers())) {
+				return false;
+			}
+			try {
+				this.setter = MethodHandles.lookup().unreflectSetter(this.field).asType(FIELD_SETTER_TYPE);
+				return true;
+			}
+			catch (IllegalAccessException ex) {
+				return false;
+			}
+		}
+	}
+
+}
@@ -29,6 +29,7 @@ import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.CachedAccessors;
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.PropertyValues;
 import org.springframework.beans.factory.support.RootBeanDefinition;
@@ -236,7 +237,7 @@ public class InjectionMetadata {
 			if (this.isField) {
 				Field field = (Field) this.member;
 				ReflectionUtils.makeAccessible(field);
-				field.set(target, getResourceToInject(target, requestingBeanName));
+				CachedAccessors.set(field, target, getResourceToInject(target, requestingBeanName));
 			}
 			else {
 				if (checkPropertySkipping(pvs)) {
@@ -245,7 +246,7 @@ public class InjectionMetadata {
 				try {
 					Method method = (Method) this.member;
 					ReflectionUtils.makeAccessible(method);
-					method.invoke(target, getResourceToInject(target, requestingBeanName));
+					CachedAccessors.invoke(method, target, getResourceToInject(target, requestingBeanName));
 				}
 				catch (InvocationTargetException ex) {
 					throw ex.getTargetException();
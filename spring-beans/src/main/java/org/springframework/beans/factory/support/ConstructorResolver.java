@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -44,6 +44,7 @@ import org.springframework.beans.TypeConverter;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.InjectionPoint;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
@@ -786,12 +787,15 @@ class ConstructorResolver {
 							"] - did you specify the correct bean references as arguments?");
 				}
 				try {
+					Set<String> paramBeanNames = new LinkedHashSet<>(2);
 					Object autowiredArgument = resolveAutowiredArgument(
-							methodParam, beanName, autowiredBeanNames, converter, fallback);
+							methodParam, beanName, paramBeanNames, converter, fallback);
 					args.rawArguments[paramIndex] = autowiredArgument;
 					args.arguments[paramIndex] = autowiredArgument;
-					args.preparedArguments[paramIndex] = autowiredArgumentMarker;
+					args.preparedArguments[paramIndex] =
+							prepareAutowiredArgument(methodParam, autowiredArgument, paramBeanNames);
 					args.resolveNecessary = true;
+					autowiredBeanNames.addAll(paramBeanNames);
 				}
 				catch (BeansException ex) {
 					throw new UnsatisfiedDependencyException(
@@ -812,6 +816,26 @@ class ConstructorResolver {
 		return args;
 	}
 
+	/**
+	 * Determine the prepared form of the given autowired argument: a shortcut
+	 * to the single bean that the argument has been resolved to, if possible,
+	 * sparing a by-type lookup when re-creating the same bean.
+	 */
+	private Object prepareAutowiredArgument(
+			MethodParameter param, @Nullable Object autowiredArgument, Set<String> autowiredBeanNames) {
+
+		Class<?> paramType = param.getParameterType();
+		if (autowiredBeanNames.size() == 1 && paramType.isInstance(autowiredArgument) &&
+				!InjectionPoint.class.isAssignableFrom(paramType)) {
+			String autowiredBeanName = autowiredBeanNames.iterator().next();
+			if (this.beanFactory.containsBean(autowiredBeanName) &&
+					this.beanFactory.isTypeMatch(autowiredBeanName, paramType)) {
+				return new ShortcutDependencyDescriptor(param, autowiredBeanName, paramType);
+			}
+		}
+		return autowiredArgumentMarker;
+	}
+
 	/**
 	 * Resolve the prepared arguments stored in the given bean definition.
 	 */
@@ -831,6 +855,10 @@ class ConstructorResolver {
 			if (argValue == autowiredArgumentMarker) {
 				argValue = resolveAutowiredArgument(methodParam, beanName, null, converter, fallback);
 			}
+			else if (argValue instanceof ShortcutDependencyDescriptor) {
+				argValue = this.beanFactory.resolveDependency(
+						(ShortcutDependencyDescriptor) argValue, beanName, null, converter);
+			}
 			else if (argValue instanceof BeanMetadataElement) {
 				argValue = valueResolver.resolveValueIfNecessary("constructor argument", argValue);
 			}
@@ -982,6 +1010,33 @@ class ConstructorResolver {
 	}
 
 
+	/**
+	 * DependencyDescriptor variant with a pre-resolved target bean name,
+	 * stored as prepared argument for an autowired parameter.
+	 */
+	@SuppressWarnings("serial")
+	private static class ShortcutDependencyDescriptor extends DependencyDescriptor {
+
+		private final String shortcut;
+
+		private final Class<?> requiredType;
+
+		public ShortcutDependencyDescriptor(MethodParameter param, String shortcut, Class<?> requiredType) {
+			super(param, true);
+			this.shortcut = shortcut;
+			this.requiredType = requiredType;
+		}
+
+		@Override
+		@Nullable
+		public Object resolveShortcut(BeanFactory beanFactory) {
+			// Fall back to regular resolution if the target bean has been removed in the meantime
+			return (beanFactory.containsBean(this.shortcut) ?
+					beanFactory.getBean(this.shortcut, this.requiredType) : null);
+		}
+	}
+
+
 	/**
 	 * Delegate for checking Java 6's {@link ConstructorProperties} annotation.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,7 +30,9 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -39,7 +41,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -48,6 +54,7 @@ import javax.inject.Provider;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -71,8 +78,10 @@ import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.MergedAnnotation;
@@ -156,6 +165,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	@Nullable
 	private Comparator<Object> dependencyComparator;
 
+	/** Optional Executor for pre-instantiating independent singletons concurrently. */
+	@Nullable
+	private Executor bootstrapExecutor;
+
 	/** Resolver to use for checking if a bean definition is an autowire candidate. */
 	private AutowireCandidateResolver autowireCandidateResolver = new SimpleAutowireCandidateResolver();
 
@@ -287,6 +300,38 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.dependencyComparator;
 	}
 
+	/**
+	 * Set an {@link Executor} for pre-instantiating singletons concurrently.
+	 * <p>Default is none, creating all non-lazy singletons one after the other in
+	 * the calling thread. If specified, {@link #preInstantiateSingletons()} groups
+	 * the singletons into subgraphs which are independent according to their merged
+	 * bean definitions - that is, not connected through bean references, factory
+	 * beans or "depends-on" declarations - and instantiates each subgraph as a
+	 * separate task on the given Executor, waiting for all of them to complete.
+	 * <p>This is primarily useful for beans with expensive and independent
+	 * initialization steps, e.g. warming up connection pools. Dependencies
+	 * that are only discovered during creation (e.g. through autowiring) are
+	 * coordinated between the creating threads: a thread asking for a singleton
+	 * that is currently in creation in another thread waits for it to be fully
+	 * initialized. Note that this requires the singleton beans and their
+	 * post-processors to be safe for concurrent initialization.
+	 * @since 5.2.4
+	 * @see #preInstantiateSingletons()
+	 * @see #setConcurrentSingletonCreation
+	 */
+	public void setBootstrapExecutor(@Nullable Executor bootstrapExecutor) {
+		this.bootstrapExecutor = bootstrapExecutor;
+	}
+
+	/**
+	 * Return the Executor for pre-instantiating singletons concurrently, if any.
+	 * @since 5.2.4
+	 */
+	@Nullable
+	public Executor getBootstrapExecutor() {
+		return this.bootstrapExecutor;
+	}
+
 	/**
 	 * Set a custom autowire candidate resolver for this BeanFactory to use
 	 * when deciding whether a bean definition should be considered as a
@@ -324,6 +369,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.dependencyComparator = otherListableFactory.dependencyComparator;
+			this.bootstrapExecutor = otherListableFactory.bootstrapExecutor;
 			// A clone of the AutowireCandidateResolver since it is potentially BeanFactoryAware...
 			setAutowireCandidateResolver(
 					BeanUtils.instantiateClass(otherListableFactory.getAutowireCandidateResolver().getClass()));
@@ -853,30 +899,14 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		List<String> beanNames = new ArrayList<>(this.beanDefinitionNames);
 
 		// Trigger initialization of all non-lazy singleton beans...
-		for (String beanName : beanNames) {
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				if (isFactoryBean(beanName)) {
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						final FactoryBean<?> factory = (FactoryBean<?>) bean;
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
-											((SmartFactoryBean<?>) factory)::isEagerInit,
-									getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-				}
-				else {
-					getBean(beanName);
+		Executor executor = this.bootstrapExecutor;
+		if (executor != null) {
+			preInstantiateSingletonsConcurrently(beanNames, executor);
+		}
+		else {
+			for (String beanName : beanNames) {
+				if (isPreInstantiationCandidate(beanName)) {
+					preInstantiateSingleton(beanName);
 				}
 			}
 		}
@@ -899,6 +929,181 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+	/**
+	 * Determine whether the specified bean is to be pre-instantiated:
+	 * that is, a non-abstract, non-lazy singleton.
+	 */
+	private boolean isPreInstantiationCandidate(String beanName) {
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		return (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit());
+	}
+
+	/**
+	 * Pre-instantiate the specified singleton, for a FactoryBean only
+	 * including its object if it is a {@link SmartFactoryBean} asking for it.
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		if (isFactoryBean(beanName)) {
+			Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+			if (bean instanceof FactoryBean) {
+				final FactoryBean<?> factory = (FactoryBean<?>) bean;
+				boolean isEagerInit;
+				if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+					isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
+									((SmartFactoryBean<?>) factory)::isEagerInit,
+							getAccessControlContext());
+				}
+				else {
+					isEagerInit = (factory instanceof SmartFactoryBean &&
+							((SmartFactoryBean<?>) factory).isEagerInit());
+				}
+				if (isEagerInit) {
+					getBean(beanName);
+				}
+			}
+		}
+		else {
+			getBean(beanName);
+		}
+	}
+
+	/**
+	 * Pre-instantiate the given singletons on the given Executor, with each
+	 * subgraph of singletons that are connected through their merged bean
+	 * definitions created in a task of its own.
+	 * @param beanNames the names of all bean definitions, in registration order
+	 * @param executor the Executor to submit the creation tasks to
+	 * @see #setBootstrapExecutor
+	 */
+	private void preInstantiateSingletonsConcurrently(List<String> beanNames, Executor executor) {
+		Map<String, String> subgraphRoots = new HashMap<>(beanNames.size());
+		List<String> candidates = new ArrayList<>(beanNames.size());
+		for (String beanName : beanNames) {
+			if (isPreInstantiationCandidate(beanName)) {
+				candidates.add(beanName);
+				Set<String> dependencies = new LinkedHashSet<>();
+				collectDeclaredDependencies(getMergedLocalBeanDefinition(beanName), dependencies);
+				for (String dependency : dependencies) {
+					String root = findSubgraphRoot(subgraphRoots, beanName);
+					String dependencyRoot = findSubgraphRoot(subgraphRoots, transformedBeanName(dependency));
+					if (!root.equals(dependencyRoot)) {
+						subgraphRoots.put(dependencyRoot, root);
+					}
+				}
+			}
+		}
+		Map<String, List<String>> subgraphs = new LinkedHashMap<>();
+		for (String candidate : candidates) {
+			subgraphs.computeIfAbsent(findSubgraphRoot(subgraphRoots, candidate), root -> new ArrayList<>()).add(candidate);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Pre-instantiating " + candidates.size() + " singletons in " +
+					subgraphs.size() + " independent subgraphs concurrently");
+		}
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>(subgraphs.size());
+		setConcurrentSingletonCreation(true);
+		try {
+			for (List<String> subgraph : subgraphs.values()) {
+				Runnable task = () -> subgraph.forEach(this::preInstantiateSingleton);
+				try {
+					futures.add(CompletableFuture.runAsync(task, executor));
+				}
+				catch (RejectedExecutionException ex) {
+					// Executor saturated -> create the subgraph in the calling thread.
+					futures.add(CompletableFuture.completedFuture(null).thenRun(task));
+				}
+			}
+			RuntimeException failure = null;
+			for (CompletableFuture<Void> future : futures) {
+				try {
+					future.join();
+				}
+				catch (CompletionException ex) {
+					RuntimeException cause = (ex.getCause() instanceof RuntimeException ?
+							(RuntimeException) ex.getCause() : ex);
+					if (failure == null) {
+						failure = cause;
+					}
+					else if (failure != cause) {
+						failure.addSuppressed(cause);
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+		finally {
+			setConcurrentSingletonCreation(false);
+		}
+	}
+
+	/**
+	 * Collect the names of the beans that the given bean definition declares
+	 * dependencies on, including the dependencies of its inner beans.
+	 * @param value a bean definition or a (nested) property or argument value
+	 * @param dependencies the Set to add the bean names to
+	 */
+	private void collectDeclaredDependencies(@Nullable Object value, Set<String> dependencies) {
+		if (value instanceof BeanDefinitionHolder) {
+			collectDeclaredDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), dependencies);
+		}
+		else if (value instanceof BeanDefinition) {
+			BeanDefinition bd = (BeanDefinition) value;
+			if (bd.getFactoryBeanName() != null) {
+				dependencies.add(bd.getFactoryBeanName());
+			}
+			String[] dependsOn = bd.getDependsOn();
+			if (dependsOn != null) {
+				Collections.addAll(dependencies, dependsOn);
+			}
+			for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+				collectDeclaredDependencies(pv.getValue(), dependencies);
+			}
+			for (ValueHolder valueHolder : bd.getConstructorArgumentValues().getIndexedArgumentValues().values()) {
+				collectDeclaredDependencies(valueHolder.getValue(), dependencies);
+			}
+			for (ValueHolder valueHolder : bd.getConstructorArgumentValues().getGenericArgumentValues()) {
+				collectDeclaredDependencies(valueHolder.getValue(), dependencies);
+			}
+		}
+		else if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			if (!reference.isToParent()) {
+				dependencies.add(reference.getBeanName());
+			}
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectDeclaredDependencies(element, dependencies);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectDeclaredDependencies(entry.getKey(), dependencies);
+				collectDeclaredDependencies(entry.getValue(), dependencies);
+			}
+		}
+	}
+
+	/**
+	 * Find the root of the subgraph that the given bean belongs to,
+	 * compressing the path to it along the way.
+	 */
+	private static String findSubgraphRoot(Map<String, String> subgraphRoots, String beanName) {
+		String root = beanName;
+		String parent;
+		while ((parent = subgraphRoots.get(root)) != null) {
+			root = parent;
+		}
+		String current = beanName;
+		while (!current.equals(root)) {
+			current = subgraphRoots.put(current, root);
+		}
+		return root;
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
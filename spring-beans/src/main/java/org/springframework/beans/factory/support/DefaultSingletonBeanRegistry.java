@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -94,6 +94,15 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	@Nullable
 	private Set<Exception> suppressedExceptions;
 
+	/** Whether singletons may currently be created by several threads at the same time. */
+	private volatile boolean concurrentSingletonCreation = false;
+
+	/** Threads creating singletons concurrently: bean name to creating thread. */
+	private final Map<String, Thread> singletonCreationThreads = new ConcurrentHashMap<>(16);
+
+	/** Threads waiting for a singleton created by another thread: thread to bean name. */
+	private final Map<Thread, String> singletonWaitingThreads = new HashMap<>(16);
+
 	/** Flag that indicates whether we're currently within destroySingletons. */
 	private boolean singletonsCurrentlyInDestruction = false;
 
@@ -175,7 +184,8 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	@Nullable
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
 		Object singletonObject = this.singletonObjects.get(beanName);
-		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName) &&
+				isEarlySingletonAccessible(beanName)) {
 			synchronized (this.singletonObjects) {
 				singletonObject = this.earlySingletonObjects.get(beanName);
 				if (singletonObject == null && allowEarlyReference) {
@@ -201,6 +211,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
+		if (this.concurrentSingletonCreation) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			Object singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
@@ -252,6 +265,157 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for concurrent singleton
+	 * creation: instead of holding the registry-wide lock during the entire creation,
+	 * only the given bean is guarded, with other threads asking for it waiting until
+	 * its creation thread has fully initialized it.
+	 * <p>A circular reference across creation threads is resolved through an early
+	 * singleton reference, just like a circular reference within a single thread.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to lazily create the singleton
+	 * with, if necessary
+	 * @return the registered singleton object
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory<?> singletonFactory) {
+		Thread currentThread = Thread.currentThread();
+		synchronized (this.singletonObjects) {
+			Object singletonObject = this.singletonObjects.get(beanName);
+			Thread creationThread = this.singletonCreationThreads.get(beanName);
+			while (singletonObject == null && creationThread != null && creationThread != currentThread) {
+				if (isWaitingFor(creationThread, currentThread)) {
+					singletonObject = this.earlySingletonObjects.get(beanName);
+					if (singletonObject == null) {
+						ObjectFactory<?> earlySingletonFactory = this.singletonFactories.remove(beanName);
+						if (earlySingletonFactory == null) {
+							throw new BeanCurrentlyInCreationException(beanName,
+									"Requested bean is currently in creation in thread '" + creationThread.getName() +
+									"' which in turn waits for a bean created in the current thread: " +
+									"Is there an unresolvable circular reference?");
+						}
+						singletonObject = earlySingletonFactory.getObject();
+						this.earlySingletonObjects.put(beanName, singletonObject);
+					}
+					return singletonObject;
+				}
+				this.singletonWaitingThreads.put(currentThread, beanName);
+				try {
+					this.singletonObjects.wait();
+				}
+				catch (InterruptedException ex) {
+					currentThread.interrupt();
+					throw new BeanCreationException(beanName,
+							"Interrupted while waiting for creation of singleton in thread '" + creationThread.getName() + "'");
+				}
+				finally {
+					this.singletonWaitingThreads.remove(currentThread);
+				}
+				singletonObject = this.singletonObjects.get(beanName);
+				creationThread = this.singletonCreationThreads.get(beanName);
+			}
+			if (singletonObject != null) {
+				return singletonObject;
+			}
+			if (this.singletonsCurrentlyInDestruction) {
+				throw new BeanCreationNotAllowedException(beanName,
+						"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+						"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+			}
+			beforeSingletonCreation(beanName);
+		}
+		Object singletonObject = null;
+		boolean newSingleton = false;
+		try {
+			singletonObject = singletonFactory.getObject();
+			newSingleton = true;
+		}
+		catch (IllegalStateException ex) {
+			// Has the singleton object implicitly appeared in the meantime ->
+			// if yes, proceed with it since the exception indicates that state.
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				throw ex;
+			}
+		}
+		finally {
+			synchronized (this.singletonObjects) {
+				if (newSingleton) {
+					addSingleton(beanName, singletonObject);
+				}
+				afterSingletonCreation(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Determine whether the given thread is - directly or transitively - waiting
+	 * for a singleton that is currently created by the target thread.
+	 * <p>To be called with the singleton lock held.
+	 * @param thread the thread to start from
+	 * @param targetThread the thread to look for
+	 */
+	private boolean isWaitingFor(Thread thread, Thread targetThread) {
+		Set<Thread> visitedThreads = new HashSet<>();
+		Thread currentThread = thread;
+		while (visitedThreads.add(currentThread)) {
+			String awaitedBeanName = this.singletonWaitingThreads.get(currentThread);
+			Thread creationThread = (awaitedBeanName != null ? this.singletonCreationThreads.get(awaitedBeanName) : null);
+			if (creationThread == null) {
+				return false;
+			}
+			if (creationThread == targetThread) {
+				return true;
+			}
+			currentThread = creationThread;
+		}
+		return false;
+	}
+
+	/**
+	 * Determine whether an early reference to the specified singleton, which is
+	 * currently in creation, may be exposed to the current thread.
+	 * <p>With concurrent singleton creation, this is only the case for the thread
+	 * that creates the singleton: any other thread has to wait for the fully
+	 * initialized instance.
+	 * @param beanName the name of the bean
+	 * @see #setConcurrentSingletonCreation
+	 */
+	private boolean isEarlySingletonAccessible(String beanName) {
+		if (!this.concurrentSingletonCreation) {
+			return true;
+		}
+		Thread creationThread = this.singletonCreationThreads.get(beanName);
+		return (creationThread == null || creationThread == Thread.currentThread());
+	}
+
+	/**
+	 * Set whether singletons may currently be created by several threads at the
+	 * same time, e.g. during concurrent pre-instantiation of singletons.
+	 * <p>Default is "false", creating singletons under a registry-wide lock. If
+	 * switched on, the creation of each singleton is guarded individually instead,
+	 * with other threads asking for a singleton in creation waiting for its
+	 * completion. Circular references across threads are resolved through early
+	 * singleton references where possible.
+	 * @since 5.2.4
+	 */
+	protected void setConcurrentSingletonCreation(boolean concurrentSingletonCreation) {
+		this.concurrentSingletonCreation = concurrentSingletonCreation;
+	}
+
+	/**
+	 * Return whether singletons may currently be created by several threads
+	 * at the same time.
+	 * @since 5.2.4
+	 * @see #setConcurrentSingletonCreation
+	 */
+	protected boolean isConcurrentSingletonCreation() {
+		return this.concurrentSingletonCreation;
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
@@ -338,6 +502,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (!this.inCreationCheckExclusions.contains(beanName) && !this.singletonsCurrentlyInCreation.add(beanName)) {
 			throw new BeanCurrentlyInCreationException(beanName);
 		}
+		if (this.concurrentSingletonCreation) {
+			this.singletonCreationThreads.put(beanName, Thread.currentThread());
+		}
 	}
 
 	/**
@@ -350,6 +517,12 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (!this.inCreationCheckExclusions.contains(beanName) && !this.singletonsCurrentlyInCreation.remove(beanName)) {
 			throw new IllegalStateException("Singleton '" + beanName + "' isn't currently in creation");
 		}
+		if (this.singletonCreationThreads.remove(beanName) != null) {
+			// Wake up threads waiting for the concurrently created singleton
+			synchronized (this.singletonObjects) {
+				this.singletonObjects.notifyAll();
+			}
+		}
 	}
 
 
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.testfixture.beans.TestBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link CachedAccessors}.
+ */
+public class CachedAccessorsTests {
+
+	@AfterEach
+	public void clearCache() {
+		CachedAccessors.clearCache();
+	}
+
+
+	@Test
+	public void constructorInvokedThroughGeneratedAccessorAfterThreshold() throws Exception {
+		Constructor<CallerRecordingBean> ctor = CallerRecordingBean.class.getConstructor(String.class);
+		for (int i = 1; i < CachedAccessors.GENERATION_THRESHOLD; i++) {
+			CallerRecordingBean bean = CachedAccessors.newInstance(ctor, "name" + i);
+			assertThat(bean.name).isEqualTo("name" + i);
+			assertThat(bean.generatedCaller).isFalse();
+		}
+		CallerRecordingBean bean = CachedAccessors.newInstance(ctor, "generated");
+		assertThat(bean.name).isEqualTo("generated");
+		assertThat(bean.generatedCaller).isTrue();
+	}
+
+	@Test
+	public void methodInvokedThroughGeneratedAccessorAfterThreshold() throws Exception {
+		Method method = CallerRecordingBean.class.getMethod("concat", String.class, int.class);
+		CallerRecordingBean bean = new CallerRecordingBean("bean");
+		for (int i = 0; i < CachedAccessors.GENERATION_THRESHOLD; i++) {
+			assertThat(CachedAccessors.invoke(method, bean, "value", i)).isEqualTo("beanvalue" + i);
+		}
+		assertThat(bean.generatedCaller).isTrue();
+	}
+
+	@Test
+	public void generatedAccessorRetainsReflectiveExceptions() throws Exception {
+		Method method = CallerRecordingBean.class.getMethod("concat", String.class, int.class);
+		CallerRecordingBean bean = new CallerRecordingBean(null);
+		for (int i = 0; i < CachedAccessors.GENERATION_THRESHOLD; i++) {
+			CachedAccessors.invoke(method, bean, "value", i);
+		}
+		assertThat(bean.generatedCaller).isTrue();
+
+		assertThatIllegalArgumentException().isThrownBy(() -> CachedAccessors.invoke(method, bean, "value", null));
+		assertThatIllegalArgumentException().isThrownBy(() -> CachedAccessors.invoke(method, bean, 1, 1));
+		assertThatIllegalArgumentException().isThrownBy(() -> CachedAccessors.invoke(method, "other", "value", 1));
+		assertThatExceptionOfType(InvocationTargetException.class)
+				.isThrownBy(() -> CachedAccessors.invoke(method, bean, "fail", 1))
+				.satisfies(ex -> assertThat(ex.getTargetException()).isInstanceOf(IllegalStateException.class));
+	}
+
+	@Test
+	public void privateConstructorInvokedThroughReflection() throws Exception {
+		Constructor<CallerRecordingBean> ctor = CallerRecordingBean.class.getDeclaredConstructor();
+		ctor.setAccessible(true);
+		for (int i = 0; i < CachedAccessors.GENERATION_THRESHOLD * 2; i++) {
+			assertThat(CachedAccessors.newInstance(ctor).generatedCaller).isFalse();
+		}
+	}
+
+	@Test
+	public void fieldSetThroughGeneratedAccessorAfterThreshold() throws Exception {
+		Field nameField = CallerRecordingBean.class.getDeclaredField("name");
+		Field countField = CallerRecordingBean.class.getDeclaredField("count");
+		nameField.setAccessible(true);
+		countField.setAccessible(true);
+		CallerRecordingBean bean = new CallerRecordingBean("bean");
+		for (int i = 0; i < CachedAccessors.GENERATION_THRESHOLD * 2; i++) {
+			CachedAccessors.set(nameField, bean, "name" + i);
+			CachedAccessors.set(countField, bean, i);
+			assertThat(bean.name).isEqualTo("name" + i);
+			assertThat(bean.count).isEqualTo(i);
+		}
+		CachedAccessors.set(nameField, bean, null);
+		assertThat(bean.name).isNull();
+		assertThatIllegalArgumentException().isThrownBy(() -> CachedAccessors.set(countField, bean, null));
+		assertThatIllegalArgumentException().isThrownBy(() -> CachedAccessors.set(countField, bean, "1"));
+	}
+
+	@Test
+	public void prototypesCreatedAndInjectedRepeatedly() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setBeanFactory(beanFactory);
+		beanFactory.addBeanPostProcessor(bpp);
+		beanFactory.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition prototype = new RootBeanDefinition(InjectedBean.class);
+		prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		prototype.getConstructorArgumentValues().addGenericArgumentValue("constructed");
+		prototype.getPropertyValues().add("friends", Arrays.asList("a", "b"));
+		prototype.getPropertyValues().add("age", 42);
+		prototype.getPropertyValues().add("other", new RuntimeBeanReference("spouse"));
+		beanFactory.registerBeanDefinition("prototype", prototype);
+
+		Object spouse = beanFactory.getBean("spouse");
+		for (int i = 0; i < CachedAccessors.GENERATION_THRESHOLD * 2; i++) {
+			InjectedBean bean = beanFactory.getBean("prototype", InjectedBean.class);
+			assertThat(bean.name).isEqualTo("constructed");
+			assertThat(bean.friends).isEqualTo(Arrays.asList("a", "b"));
+			assertThat(bean.age).isEqualTo(42);
+			assertThat(bean.other).isSameAs(spouse);
+			assertThat(bean.fieldSpouse).isSameAs(spouse);
+			assertThat(bean.methodSpouse).isSameAs(spouse);
+		}
+	}
+
+
+	public static class CallerRecordingBean {
+
+		private String name;
+
+		private int count;
+
+		boolean generatedCaller;
+
+		private CallerRecordingBean() {
+			this.generatedCaller = isGeneratedCaller();
+		}
+
+		public CallerRecordingBean(String name) {
+			this.name = name;
+			this.generatedCaller = isGeneratedCaller();
+		}
+
+		public String concat(String value, int index) {
+			if ("fail".equals(value)) {
+				throw new IllegalStateException("Failure");
+			}
+			this.generatedCaller = isGeneratedCaller();
+			return this.name + value + index;
+		}
+
+		private static boolean isGeneratedCaller() {
+			return Arrays.stream(new Throwable().getStackTrace())
+					.limit(4).anyMatch(element -> element.getClassName().contains("FastClassBySpringCGLIB"));
+		}
+	}
+
+
+	public static class InjectedBean {
+
+		final String name;
+
+		Object friends;
+
+		int age;
+
+		Object other;
+
+		@Autowired
+		TestBean fieldSpouse;
+
+		TestBean methodSpouse;
+
+		public InjectedBean(String name) {
+			this.name = name;
+		}
+
+		public void setFriends(Object friends) {
+			this.friends = friends;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public void setOther(Object other) {
+			this.other = other;
+		}
+
+		@Autowired
+		public void setMethodSpouse(TestBean methodSpouse) {
+			this.methodSpouse = methodSpouse;
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.testfixture.beans.TestBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the reuse of resolved constructors, prepared arguments and
+ * filtered post-processors when repeatedly creating the same bean.
+ */
+public class BeanCreationPlanTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+
+	@Test
+	public void repeatedPrototypeCreationReplaysResolvedConstructor() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.getConstructorArgumentValues().addGenericArgumentValue("name");
+		this.beanFactory.registerBeanDefinition("prototype", bd);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(this.beanFactory.getBean("prototype", TestBean.class).getName()).isEqualTo("name");
+		}
+		assertThat(this.beanFactory.getCreationPlanMissCount()).isEqualTo(1);
+		assertThat(this.beanFactory.getCreationPlanHitCount()).isEqualTo(4);
+
+		this.beanFactory.getBean("prototype", "explicit");
+		assertThat(this.beanFactory.getCreationPlanMissCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void repeatedPrototypeCreationReplaysAutowiredConstructorArguments() {
+		this.beanFactory.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition bd = new RootBeanDefinition(ConstructorBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		this.beanFactory.registerBeanDefinition("prototype", bd);
+
+		Object spouse = this.beanFactory.getBean("spouse");
+		for (int i = 0; i < 5; i++) {
+			assertThat(this.beanFactory.getBean("prototype", ConstructorBean.class).spouse).isSameAs(spouse);
+		}
+		assertThat(this.beanFactory.getCreationPlanHitCount()).isEqualTo(4);
+		assertThat(this.beanFactory.getDependentBeans("spouse")).containsExactly("prototype");
+	}
+
+	@Test
+	public void replayedAutowiredConstructorArgumentFallsBackToRegularResolution() {
+		this.beanFactory.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class));
+		RootBeanDefinition bd = new RootBeanDefinition(ConstructorBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bd.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		this.beanFactory.registerBeanDefinition("prototype", bd);
+		this.beanFactory.getBean("prototype");
+
+		this.beanFactory.removeBeanDefinition("spouse");
+		this.beanFactory.registerBeanDefinition("otherSpouse", new RootBeanDefinition(TestBean.class));
+		assertThat(this.beanFactory.getBean("prototype", ConstructorBean.class).spouse)
+				.isSameAs(this.beanFactory.getBean("otherSpouse"));
+		assertThat(this.beanFactory.getCreationPlanHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void filteredPostProcessorsAreResetOnModification() {
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("prototype", bd);
+		assertThat(this.beanFactory.hasInstantiationAwareBeanPostProcessors()).isFalse();
+		assertThat(this.beanFactory.getBean("prototype", TestBean.class).getName()).isNull();
+
+		BeanPostProcessor bpp = new NamingPostProcessor();
+		this.beanFactory.addBeanPostProcessor(bpp);
+		assertThat(this.beanFactory.hasInstantiationAwareBeanPostProcessors()).isTrue();
+		assertThat(this.beanFactory.getBean("prototype", TestBean.class).getName()).isEqualTo("named");
+
+		this.beanFactory.getBeanPostProcessors().remove(bpp);
+		assertThat(this.beanFactory.hasInstantiationAwareBeanPostProcessors()).isFalse();
+		assertThat(this.beanFactory.getBean("prototype", TestBean.class).getName()).isNull();
+	}
+
+
+	public static class ConstructorBean {
+
+		final TestBean spouse;
+
+		public ConstructorBean(TestBean spouse) {
+			this.spouse = spouse;
+		}
+	}
+
+
+	private static class NamingPostProcessor implements InstantiationAwareBeanPostProcessor {
+
+		@Override
+		public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+			((TestBean) bean).setName("named");
+			return true;
+		}
+	}
+
+}
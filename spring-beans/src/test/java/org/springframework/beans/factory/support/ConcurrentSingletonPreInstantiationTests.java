@@ -0,0 +1,262 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for concurrent pre-instantiation of singletons through
+ * {@link DefaultListableBeanFactory#setBootstrapExecutor}.
+ */
+public class ConcurrentSingletonPreInstantiationTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+
+	@BeforeEach
+	public void setup() {
+		this.beanFactory.setBootstrapExecutor(this.executor);
+	}
+
+	@AfterEach
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void independentSingletonsAreCreatedConcurrently() {
+		CyclicBarrier barrier = new CyclicBarrier(3);
+		for (String beanName : new String[] {"a", "b", "c"}) {
+			this.beanFactory.registerBeanDefinition(beanName,
+					new RootBeanDefinition(ThreadBean.class, () -> new ThreadBean(barrier)));
+		}
+		this.beanFactory.preInstantiateSingletons();
+
+		assertThat(this.beanFactory.getBean("a", ThreadBean.class).thread)
+				.isNotSameAs(this.beanFactory.getBean("b", ThreadBean.class).thread)
+				.isNotSameAs(this.beanFactory.getBean("c", ThreadBean.class).thread)
+				.isNotSameAs(Thread.currentThread());
+		assertThat(this.beanFactory.isConcurrentSingletonCreation()).isFalse();
+	}
+
+	@Test
+	public void connectedSingletonsAreCreatedInSameThread() {
+		RootBeanDefinition a = new RootBeanDefinition(ThreadBean.class);
+		a.getPropertyValues().add("other", new RuntimeBeanReference("b"));
+		RootBeanDefinition b = new RootBeanDefinition(ThreadBean.class);
+		b.setDependsOn("c");
+		RootBeanDefinition c = new RootBeanDefinition(ThreadBean.class);
+		c.setLazyInit(true);
+		this.beanFactory.registerBeanDefinition("a", a);
+		this.beanFactory.registerBeanDefinition("b", b);
+		this.beanFactory.registerBeanDefinition("c", c);
+		this.beanFactory.preInstantiateSingletons();
+
+		ThreadBean beanA = this.beanFactory.getBean("a", ThreadBean.class);
+		assertThat(beanA.other).isSameAs(this.beanFactory.getBean("b"));
+		assertThat(this.beanFactory.getBean("b", ThreadBean.class).thread).isSameAs(beanA.thread);
+		assertThat(this.beanFactory.getBean("c", ThreadBean.class).thread).isSameAs(beanA.thread);
+	}
+
+	@Test
+	public void singletonInCreationInOtherThreadIsAwaited() {
+		CountDownLatch started = new CountDownLatch(1);
+		RootBeanDefinition consumer = new RootBeanDefinition(ConsumerBean.class, () -> new ConsumerBean(started));
+		consumer.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_TYPE);
+		this.beanFactory.registerBeanDefinition("consumer", consumer);
+		this.beanFactory.registerBeanDefinition("slow",
+				new RootBeanDefinition(SlowBean.class, () -> new SlowBean(started)));
+		this.beanFactory.preInstantiateSingletons();
+
+		ConsumerBean consumerBean = this.beanFactory.getBean(ConsumerBean.class);
+		assertThat(consumerBean.slow).isSameAs(this.beanFactory.getBean("slow"));
+		assertThat(consumerBean.slowInitialized).isTrue();
+		assertThat(consumerBean.thread).isNotSameAs(consumerBean.slow.thread);
+	}
+
+	@Test
+	public void circularReferenceAcrossThreadsIsResolved() {
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		RootBeanDefinition x = new RootBeanDefinition(CircularX.class, () -> new CircularX(barrier));
+		x.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_TYPE);
+		RootBeanDefinition y = new RootBeanDefinition(CircularY.class, () -> new CircularY(barrier));
+		y.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_TYPE);
+		this.beanFactory.registerBeanDefinition("x", x);
+		this.beanFactory.registerBeanDefinition("y", y);
+		this.beanFactory.preInstantiateSingletons();
+
+		CircularX beanX = this.beanFactory.getBean(CircularX.class);
+		CircularY beanY = this.beanFactory.getBean(CircularY.class);
+		assertThat(beanX.y).isSameAs(beanY);
+		assertThat(beanY.x).isSameAs(beanX);
+		assertThat(beanX.thread).isNotSameAs(beanY.thread);
+	}
+
+	@Test
+	public void creationFailureIsPropagated() {
+		this.beanFactory.registerBeanDefinition("a", new RootBeanDefinition(ThreadBean.class));
+		RootBeanDefinition failing = new RootBeanDefinition(ThreadBean.class);
+		failing.setInitMethodName("fail");
+		this.beanFactory.registerBeanDefinition("failing", failing);
+
+		assertThatExceptionOfType(BeanCreationException.class)
+				.isThrownBy(this.beanFactory::preInstantiateSingletons)
+				.satisfies(ex -> assertThat(ex.getBeanName()).isEqualTo("failing"));
+		assertThat(this.beanFactory.isConcurrentSingletonCreation()).isFalse();
+	}
+
+	@Test
+	public void rejectedSubgraphIsCreatedInCallingThread() {
+		this.beanFactory.setBootstrapExecutor(task -> {
+			throw new RejectedExecutionException();
+		});
+		this.beanFactory.registerBeanDefinition("a", new RootBeanDefinition(ThreadBean.class));
+		this.beanFactory.preInstantiateSingletons();
+
+		assertThat(this.beanFactory.getBean("a", ThreadBean.class).thread).isSameAs(Thread.currentThread());
+	}
+
+
+	private static void await(CyclicBarrier barrier) {
+		try {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException("Beans not created concurrently", ex);
+		}
+	}
+
+
+	public static class ThreadBean {
+
+		final Thread thread = Thread.currentThread();
+
+		ThreadBean other;
+
+		public ThreadBean() {
+		}
+
+		public ThreadBean(CyclicBarrier barrier) {
+			await(barrier);
+		}
+
+		public void setOther(ThreadBean other) {
+			this.other = other;
+		}
+
+		public void fail() {
+			throw new IllegalStateException("Initialization failure");
+		}
+	}
+
+
+	public static class SlowBean implements InitializingBean {
+
+		final Thread thread = Thread.currentThread();
+
+		final CountDownLatch started;
+
+		volatile boolean initialized;
+
+		public SlowBean(CountDownLatch started) {
+			this.started = started;
+		}
+
+		@Override
+		public void afterPropertiesSet() throws Exception {
+			this.started.countDown();
+			Thread.sleep(100);
+			this.initialized = true;
+		}
+	}
+
+
+	public static class ConsumerBean {
+
+		final Thread thread = Thread.currentThread();
+
+		SlowBean slow;
+
+		boolean slowInitialized;
+
+		public ConsumerBean(CountDownLatch started) {
+			try {
+				assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			}
+			catch (InterruptedException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		public void setSlow(SlowBean slow) {
+			this.slow = slow;
+			this.slowInitialized = slow.initialized;
+		}
+	}
+
+
+	public static class CircularX {
+
+		final Thread thread = Thread.currentThread();
+
+		CircularY y;
+
+		public CircularX(CyclicBarrier barrier) {
+			await(barrier);
+		}
+
+		public void setY(CircularY y) {
+			this.y = y;
+		}
+	}
+
+
+	public static class CircularY {
+
+		final Thread thread = Thread.currentThread();
+
+		CircularX x;
+
+		public CircularY(CyclicBarrier barrier) {
+			await(barrier);
+		}
+
+		public void setX(CircularX x) {
+			this.x = x;
+		}
+	}
+
+}
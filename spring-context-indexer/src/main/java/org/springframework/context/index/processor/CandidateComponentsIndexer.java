@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,10 @@ package org.springframework.context.index.processor;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -40,6 +42,13 @@ import javax.lang.model.element.TypeElement;
  * Annotation {@link Processor} that writes {@link CandidateComponentsMetadata}
  * file for spring components.
  *
+ * <p>For components as well as for any other type that configuration class
+ * processing may have to introspect (types declaring {@code @Bean} methods or
+ * annotated with {@code @Conditional}, {@code @Import}, {@code @ImportResource},
+ * {@code @PropertySource} or {@code @ComponentScan}, directly or as
+ * meta-annotation), the class metadata is written as well, so that it does not
+ * have to be read from the class files at runtime.
+ *
  * @author Stephane Nicoll
  * @author Juergen Hoeller
  * @since 5.0
@@ -49,12 +58,29 @@ public class CandidateComponentsIndexer implements Processor {
 	private static final Set<ElementKind> TYPE_KINDS =
 			Collections.unmodifiableSet(EnumSet.of(ElementKind.CLASS, ElementKind.INTERFACE));
 
+	private static final Set<String> CLASS_METADATA_STEREOTYPES = Collections.unmodifiableSet(new HashSet<>(
+			Arrays.asList("org.springframework.stereotype.Component", "javax.annotation.ManagedBean",
+					"javax.inject.Named")));
+
+	private static final Set<String> CONFIGURATION_ANNOTATIONS = Collections.unmodifiableSet(new HashSet<>(
+			Arrays.asList("org.springframework.context.annotation.Conditional",
+					"org.springframework.context.annotation.Import",
+					"org.springframework.context.annotation.ImportResource",
+					"org.springframework.context.annotation.PropertySource",
+					"org.springframework.context.annotation.PropertySources",
+					"org.springframework.context.annotation.ComponentScan",
+					"org.springframework.context.annotation.ComponentScans")));
+
+	private static final String BEAN_ANNOTATION = "org.springframework.context.annotation.Bean";
+
 	private MetadataStore metadataStore;
 
 	private MetadataCollector metadataCollector;
 
 	private TypeHelper typeHelper;
 
+	private ClassMetadataEncoder classMetadataEncoder;
+
 	private List<StereotypesProvider> stereotypesProviders;
 
 
@@ -77,6 +103,7 @@ public class CandidateComponentsIndexer implements Processor {
 	public synchronized void init(ProcessingEnvironment env) {
 		this.stereotypesProviders = getStereotypesProviders(env);
 		this.typeHelper = new TypeHelper(env);
+		this.classMetadataEncoder = new ClassMetadataEncoder(env);
 		this.metadataStore = new MetadataStore(env);
 		this.metadataCollector = new MetadataCollector(env, this.metadataStore.readMetadata());
 	}
@@ -116,11 +143,39 @@ public class CandidateComponentsIndexer implements Processor {
 	private void addMetadataFor(Element element) {
 		Set<String> stereotypes = new LinkedHashSet<>();
 		this.stereotypesProviders.forEach(p -> stereotypes.addAll(p.getStereotypes(element)));
-		if (!stereotypes.isEmpty()) {
-			this.metadataCollector.add(new ItemMetadata(this.typeHelper.getType(element), stereotypes));
+		String classMetadata = null;
+		if (TYPE_KINDS.contains(element.getKind()) &&
+				(stereotypes.stream().anyMatch(CLASS_METADATA_STEREOTYPES::contains) ||
+						isConfigurationRelevant((TypeElement) element))) {
+			classMetadata = this.classMetadataEncoder.encode((TypeElement) element);
+		}
+		if (!stereotypes.isEmpty() || classMetadata != null) {
+			this.metadataCollector.add(new ItemMetadata(this.typeHelper.getType(element), stereotypes, classMetadata));
 		}
 	}
 
+	private boolean isConfigurationRelevant(TypeElement type) {
+		for (Element enclosed : type.getEnclosedElements()) {
+			if (enclosed.getKind() == ElementKind.METHOD && enclosed.getAnnotationMirrors().stream()
+					.anyMatch(annotation -> BEAN_ANNOTATION.equals(this.typeHelper.getType(annotation)))) {
+				return true;
+			}
+		}
+		return hasConfigurationAnnotation(type, new HashSet<>());
+	}
+
+	private boolean hasConfigurationAnnotation(Element element, Set<Element> seen) {
+		for (AnnotationMirror annotation : this.typeHelper.getAllAnnotationMirrors(element)) {
+			Element annotationElement = annotation.getAnnotationType().asElement();
+			if (CONFIGURATION_ANNOTATIONS.contains(this.typeHelper.getType(annotation)) ||
+					(!annotationElement.toString().startsWith("java.lang") && seen.add(annotationElement) &&
+					hasConfigurationAnnotation(annotationElement, seen))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private void writeMetaData() {
 		CandidateComponentsMetadata metadata = this.metadataCollector.getMetadata();
 		if (!metadata.getItems().isEmpty()) {
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Encodes the class metadata of a type in the form that is replayed by
+ * {@code org.springframework.context.index.CandidateComponentsIndex} at runtime:
+ * the class declaration, its member classes, and its runtime-visible class and
+ * method annotations, the way they appear in the compiled class file.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ */
+class ClassMetadataEncoder {
+
+	private static final String RETENTION_ANNOTATION = "java.lang.annotation.Retention";
+
+	private static final int ACC_PUBLIC = 0x0001;
+
+	private static final int ACC_PRIVATE = 0x0002;
+
+	private static final int ACC_PROTECTED = 0x0004;
+
+	private static final int ACC_STATIC = 0x0008;
+
+	private static final int ACC_FINAL = 0x0010;
+
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ACC_SYNCHRONIZED = 0x0020;
+
+	private static final int ACC_VARARGS = 0x0080;
+
+	private static final int ACC_NATIVE = 0x0100;
+
+	private static final int ACC_INTERFACE = 0x0200;
+
+	private static final int ACC_ABSTRACT = 0x0400;
+
+	private static final int ACC_ANNOTATION = 0x2000;
+
+	private static final int ACC_ENUM = 0x4000;
+
+	private final Elements elements;
+
+	private final Types types;
+
+
+	public ClassMetadataEncoder(ProcessingEnvironment env) {
+		this.elements = env.getElementUtils();
+		this.types = env.getTypeUtils();
+	}
+
+
+	public String encode(TypeElement type) {
+		StringBuilder sb = new StringBuilder("{access=I");
+		sb.append(getClassAccess(type, false));
+		sb.append(",name=");
+		appendString(sb, 's', getInternalName(type));
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() == TypeKind.DECLARED) {
+			sb.append(",super=");
+			appendString(sb, 's', getInternalName(superclass));
+		}
+		List<? extends TypeMirror> interfaces = type.getInterfaces();
+		if (!interfaces.isEmpty()) {
+			sb.append(",interfaces=[");
+			for (int i = 0; i < interfaces.size(); i++) {
+				sb.append(i > 0 ? "," : "");
+				appendString(sb, 's', getInternalName(interfaces.get(i)));
+			}
+			sb.append("]");
+		}
+		List<TypeElement> innerClasses = new ArrayList<>();
+		if (type.getEnclosingElement() instanceof TypeElement) {
+			innerClasses.add(type);
+		}
+		for (Element enclosed : type.getEnclosedElements()) {
+			if (enclosed instanceof TypeElement) {
+				innerClasses.add((TypeElement) enclosed);
+			}
+		}
+		if (!innerClasses.isEmpty()) {
+			sb.append(",inner=[");
+			for (int i = 0; i < innerClasses.size(); i++) {
+				TypeElement innerClass = innerClasses.get(i);
+				sb.append(i > 0 ? "," : "").append("{name=");
+				appendString(sb, 's', getInternalName(innerClass));
+				sb.append(",outer=");
+				appendString(sb, 's', getInternalName((TypeElement) innerClass.getEnclosingElement()));
+				sb.append(",innerName=");
+				appendString(sb, 's', innerClass.getSimpleName().toString());
+				sb.append(",access=I").append(getClassAccess(innerClass, true)).append("}");
+			}
+			sb.append("]");
+		}
+		appendAnnotations(sb, type);
+		List<ExecutableElement> annotatedMethods = new ArrayList<>();
+		for (Element enclosed : type.getEnclosedElements()) {
+			if ((enclosed.getKind() == ElementKind.METHOD || enclosed.getKind() == ElementKind.CONSTRUCTOR) &&
+					enclosed.getAnnotationMirrors().stream().anyMatch(this::isRuntimeVisible)) {
+				annotatedMethods.add((ExecutableElement) enclosed);
+			}
+		}
+		if (!annotatedMethods.isEmpty()) {
+			sb.append(",methods=[");
+			for (int i = 0; i < annotatedMethods.size(); i++) {
+				ExecutableElement method = annotatedMethods.get(i);
+				sb.append(i > 0 ? "," : "").append("{access=I").append(getMethodAccess(method)).append(",name=");
+				appendString(sb, 's', method.getKind() == ElementKind.CONSTRUCTOR ?
+						"<init>" : method.getSimpleName().toString());
+				sb.append(",descriptor=");
+				appendString(sb, 's', getMethodDescriptor(method));
+				appendAnnotations(sb, method);
+				sb.append("}");
+			}
+			sb.append("]");
+		}
+		return sb.append("}").toString();
+	}
+
+	private void appendAnnotations(StringBuilder sb, Element element) {
+		boolean first = true;
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (isRuntimeVisible(annotation)) {
+				sb.append(first ? ",annotations=[" : ",");
+				appendAnnotation(sb, annotation);
+				first = false;
+			}
+		}
+		if (!first) {
+			sb.append("]");
+		}
+	}
+
+	private void appendAnnotation(StringBuilder sb, AnnotationMirror annotation) {
+		appendString(sb, '@', getDescriptor(annotation.getAnnotationType()));
+		sb.append("(");
+		boolean first = true;
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+				annotation.getElementValues().entrySet()) {
+			sb.append(first ? "" : ",").append(entry.getKey().getSimpleName()).append("=");
+			appendValue(sb, entry.getValue());
+			first = false;
+		}
+		sb.append(")");
+	}
+
+	private void appendValue(StringBuilder sb, AnnotationValue annotationValue) {
+		Object value = annotationValue.getValue();
+		if (value instanceof Boolean) {
+			sb.append('Z').append(value);
+		}
+		else if (value instanceof Byte) {
+			sb.append('B').append(value);
+		}
+		else if (value instanceof Character) {
+			sb.append('C').append((int) (Character) value);
+		}
+		else if (value instanceof Short) {
+			sb.append('S').append(value);
+		}
+		else if (value instanceof Integer) {
+			sb.append('I').append(value);
+		}
+		else if (value instanceof Long) {
+			sb.append('J').append(value);
+		}
+		else if (value instanceof Float) {
+			sb.append('F').append(value);
+		}
+		else if (value instanceof Double) {
+			sb.append('D').append(value);
+		}
+		else if (value instanceof String) {
+			appendString(sb, 's', (String) value);
+		}
+		else if (value instanceof TypeMirror) {
+			appendString(sb, 'c', getDescriptor((TypeMirror) value));
+		}
+		else if (value instanceof VariableElement) {
+			VariableElement constant = (VariableElement) value;
+			appendString(sb, 'e', getDescriptor(constant.getEnclosingElement().asType()) + constant.getSimpleName());
+		}
+		else if (value instanceof AnnotationMirror) {
+			appendAnnotation(sb, (AnnotationMirror) value);
+		}
+		else if (value instanceof List) {
+			sb.append("[");
+			boolean first = true;
+			for (Object element : (List<?>) value) {
+				sb.append(first ? "" : ",");
+				appendValue(sb, (AnnotationValue) element);
+				first = false;
+			}
+			sb.append("]");
+		}
+		else {
+			throw new IllegalArgumentException("Unsupported annotation value: " + annotationValue);
+		}
+	}
+
+	private static void appendString(StringBuilder sb, char type, String value) {
+		sb.append(type).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\') {
+				sb.append('\\');
+			}
+			sb.append(ch);
+		}
+		sb.append('"');
+	}
+
+	private boolean isRuntimeVisible(AnnotationMirror annotation) {
+		Element annotationType = annotation.getAnnotationType().asElement();
+		for (AnnotationMirror metaAnnotation : annotationType.getAnnotationMirrors()) {
+			if (RETENTION_ANNOTATION.equals(metaAnnotation.getAnnotationType().toString())) {
+				for (AnnotationValue value : metaAnnotation.getElementValues().values()) {
+					return (value.getValue() instanceof VariableElement &&
+							((VariableElement) value.getValue()).getSimpleName().contentEquals("RUNTIME"));
+				}
+			}
+		}
+		return false;
+	}
+
+	private int getClassAccess(TypeElement type, boolean inner) {
+		Set<Modifier> modifiers = type.getModifiers();
+		boolean inInterface = (type.getEnclosingElement().getKind().isInterface());
+		int access = 0;
+		if (modifiers.contains(Modifier.PUBLIC) || inInterface || (!inner && modifiers.contains(Modifier.PROTECTED))) {
+			access |= ACC_PUBLIC;
+		}
+		if (inner && modifiers.contains(Modifier.PROTECTED)) {
+			access |= ACC_PROTECTED;
+		}
+		if (inner && modifiers.contains(Modifier.PRIVATE)) {
+			access |= ACC_PRIVATE;
+		}
+		if (inner && (modifiers.contains(Modifier.STATIC) || inInterface || type.getKind() != ElementKind.CLASS)) {
+			access |= ACC_STATIC;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		switch (type.getKind()) {
+			case ANNOTATION_TYPE:
+				access |= ACC_ANNOTATION | ACC_INTERFACE | ACC_ABSTRACT;
+				break;
+			case INTERFACE:
+				access |= ACC_INTERFACE | ACC_ABSTRACT;
+				break;
+			case ENUM:
+				access |= ACC_ENUM | (inner ? 0 : ACC_SUPER);
+				break;
+			default:
+				access |= (inner ? 0 : ACC_SUPER);
+				if (modifiers.contains(Modifier.ABSTRACT)) {
+					access |= ACC_ABSTRACT;
+				}
+		}
+		return access;
+	}
+
+	private int getMethodAccess(ExecutableElement method) {
+		Set<Modifier> modifiers = method.getModifiers();
+		boolean inInterface = method.getEnclosingElement().getKind().isInterface();
+		int access = 0;
+		if (modifiers.contains(Modifier.PUBLIC) || (inInterface && !modifiers.contains(Modifier.PRIVATE))) {
+			access |= ACC_PUBLIC;
+		}
+		if (modifiers.contains(Modifier.PROTECTED)) {
+			access |= ACC_PROTECTED;
+		}
+		if (modifiers.contains(Modifier.PRIVATE)) {
+			access |= ACC_PRIVATE;
+		}
+		if (modifiers.contains(Modifier.STATIC)) {
+			access |= ACC_STATIC;
+		}
+		if (modifiers.contains(Modifier.FINAL)) {
+			access |= ACC_FINAL;
+		}
+		if (modifiers.contains(Modifier.SYNCHRONIZED)) {
+			access |= ACC_SYNCHRONIZED;
+		}
+		if (modifiers.contains(Modifier.NATIVE)) {
+			access |= ACC_NATIVE;
+		}
+		if (modifiers.contains(Modifier.ABSTRACT) || (inInterface && !modifiers.contains(Modifier.DEFAULT) &&
+				!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.PRIVATE))) {
+			access |= ACC_ABSTRACT;
+		}
+		if (method.isVarArgs()) {
+			access |= ACC_VARARGS;
+		}
+		return access;
+	}
+
+	private String getMethodDescriptor(ExecutableElement method) {
+		StringBuilder sb = new StringBuilder("(");
+		for (VariableElement parameter : method.getParameters()) {
+			sb.append(getDescriptor(parameter.asType()));
+		}
+		return sb.append(")").append(getDescriptor(method.getReturnType())).toString();
+	}
+
+	private String getDescriptor(TypeMirror type) {
+		TypeMirror erasure = this.types.erasure(type);
+		switch (erasure.getKind()) {
+			case BOOLEAN:
+				return "Z";
+			case BYTE:
+				return "B";
+			case CHAR:
+				return "C";
+			case SHORT:
+				return "S";
+			case INT:
+				return "I";
+			case LONG:
+				return "J";
+			case FLOAT:
+				return "F";
+			case DOUBLE:
+				return "D";
+			case VOID:
+				return "V";
+			case ARRAY:
+				return "[" + getDescriptor(((ArrayType) erasure).getComponentType());
+			default:
+				return "L" + getInternalName(erasure) + ";";
+		}
+	}
+
+	private String getInternalName(TypeMirror type) {
+		TypeMirror erasure = this.types.erasure(type);
+		if (erasure.getKind() == TypeKind.DECLARED) {
+			return getInternalName((TypeElement) ((DeclaredType) erasure).asElement());
+		}
+		return erasure.toString().replace('.', '/');
+	}
+
+	private String getInternalName(TypeElement type) {
+		return this.elements.getBinaryName(type).toString().replace('.', '/');
+	}
+
+}
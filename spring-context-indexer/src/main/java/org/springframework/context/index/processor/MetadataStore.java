@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,8 @@ class MetadataStore {
 
 	static final String METADATA_PATH = "META-INF/spring.components";
 
+	static final String CLASS_METADATA_PATH = "META-INF/spring.components.metadata";
+
 	private final ProcessingEnvironment environment;
 
 
@@ -43,39 +45,65 @@ class MetadataStore {
 
 
 	public CandidateComponentsMetadata readMetadata() {
+		InputStream in = openInputStream(METADATA_PATH);
+		InputStream classMetadataIn = openInputStream(CLASS_METADATA_PATH);
+		if (in == null && classMetadataIn == null) {
+			return null;
+		}
 		try {
-			return readMetadata(getMetadataResource().openInputStream());
+			return PropertiesMarshaller.read(in, classMetadataIn);
 		}
 		catch (IOException ex) {
 			// Failed to read metadata -> ignore.
 			return null;
 		}
+		finally {
+			close(in);
+			close(classMetadataIn);
+		}
 	}
 
 	public void writeMetadata(CandidateComponentsMetadata metadata) throws IOException {
-		if (!metadata.getItems().isEmpty()) {
-			try (OutputStream outputStream = createMetadataResource().openOutputStream()) {
+		if (metadata.getItems().stream().anyMatch(item -> !item.getStereotypes().isEmpty())) {
+			try (OutputStream outputStream = createMetadataResource(METADATA_PATH).openOutputStream()) {
 				PropertiesMarshaller.write(metadata, outputStream);
 			}
 		}
+		if (metadata.getItems().stream().anyMatch(item -> item.getClassMetadata() != null)) {
+			try (OutputStream outputStream = createMetadataResource(CLASS_METADATA_PATH).openOutputStream()) {
+				PropertiesMarshaller.writeClassMetadata(metadata, outputStream);
+			}
+		}
 	}
 
 
-	private CandidateComponentsMetadata readMetadata(InputStream in) throws IOException {
+	private InputStream openInputStream(String path) {
 		try {
-			return PropertiesMarshaller.read(in);
+			return getMetadataResource(path).openInputStream();
 		}
-		finally {
-			in.close();
+		catch (IOException ex) {
+			// No previous metadata
+			return null;
+		}
+	}
+
+	private void close(InputStream in) {
+		if (in != null) {
+			try {
+				in.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
 		}
 	}
 
-	private FileObject getMetadataResource() throws IOException {
-		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+	private FileObject getMetadataResource(String path) throws IOException {
+		return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
 	}
 
-	private FileObject createMetadataResource() throws IOException {
-		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+	private FileObject createMetadataResource(String path) throws IOException {
+		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
 	}
 
 }
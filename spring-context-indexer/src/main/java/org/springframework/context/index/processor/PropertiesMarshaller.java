@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,7 +20,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -35,17 +38,41 @@ abstract class PropertiesMarshaller {
 
 	public static void write(CandidateComponentsMetadata metadata, OutputStream out) throws IOException {
 		Properties props = new SortedProperties(true);
-		metadata.getItems().forEach(m -> props.put(m.getType(), String.join(",", m.getStereotypes())));
+		metadata.getItems().stream().filter(m -> !m.getStereotypes().isEmpty())
+				.forEach(m -> props.put(m.getType(), String.join(",", m.getStereotypes())));
+		props.store(out, null);
+	}
+
+	public static void writeClassMetadata(CandidateComponentsMetadata metadata, OutputStream out) throws IOException {
+		Properties props = new SortedProperties(true);
+		metadata.getItems().stream().filter(m -> m.getClassMetadata() != null)
+				.forEach(m -> props.put(m.getType(), m.getClassMetadata()));
 		props.store(out, null);
 	}
 
 	public static CandidateComponentsMetadata read(InputStream in) throws IOException {
+		return read(in, null);
+	}
+
+	public static CandidateComponentsMetadata read(InputStream in, InputStream classMetadataIn) throws IOException {
 		CandidateComponentsMetadata result = new CandidateComponentsMetadata();
-		Properties props = new Properties();
-		props.load(in);
-		props.forEach((type, value) -> {
-			Set<String> candidates = new HashSet<>(Arrays.asList(((String) value).split(",")));
-			result.add(new ItemMetadata((String) type, candidates));
+		Map<String, Set<String>> stereotypes = new LinkedHashMap<>();
+		if (in != null) {
+			Properties props = new Properties();
+			props.load(in);
+			props.forEach((type, value) ->
+					stereotypes.put((String) type, new HashSet<>(Arrays.asList(((String) value).split(",")))));
+		}
+		Properties classMetadata = new Properties();
+		if (classMetadataIn != null) {
+			classMetadata.load(classMetadataIn);
+		}
+		stereotypes.forEach((type, candidates) ->
+				result.add(new ItemMetadata(type, candidates, classMetadata.getProperty(type))));
+		classMetadata.forEach((type, value) -> {
+			if (!stereotypes.containsKey(type)) {
+				result.add(new ItemMetadata((String) type, Collections.emptySet(), (String) value));
+			}
 		});
 		return result;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,11 @@ package org.springframework.context.index.processor;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.file.Path;
+import java.util.stream.Collectors;
 
 import javax.annotation.ManagedBean;
 import javax.inject.Named;
@@ -33,9 +37,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.index.CandidateComponentsIndex;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.context.index.IndexedMetadataReaderFactory;
 import org.springframework.context.index.sample.AbstractController;
 import org.springframework.context.index.sample.MetaControllerIndexed;
+import org.springframework.context.index.sample.SampleBeanMethods;
 import org.springframework.context.index.sample.SampleComponent;
+import org.springframework.context.index.sample.SampleConditional;
+import org.springframework.context.index.sample.SampleConfiguration;
 import org.springframework.context.index.sample.SampleController;
 import org.springframework.context.index.sample.SampleEmbedded;
 import org.springframework.context.index.sample.SampleMetaController;
@@ -58,6 +69,10 @@ import org.springframework.context.index.sample.type.SampleSpecializedRepo;
 import org.springframework.context.index.sample.type.SmartRepo;
 import org.springframework.context.index.sample.type.SpecializedRepo;
 import org.springframework.context.index.test.TestCompiler;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
@@ -218,6 +233,100 @@ class CandidateComponentsIndexerTests {
 		assertThat(metadata.getItems()).hasSize(0);
 	}
 
+	@Test
+	void configurationClassMetadata() {
+		CandidateComponentsMetadata metadata = compile(SampleConfiguration.class);
+		assertThat(metadata).has(Metadata.of(SampleConfiguration.class, Component.class));
+		assertThat(metadata).has(Metadata.of(SampleConfiguration.NestedConfiguration.class, Component.class));
+		assertThat(getClassMetadata(metadata, SampleConfiguration.class))
+				.startsWith("{access=I33,name=s\"org/springframework/context/index/sample/SampleConfiguration\"")
+				.contains("@\"Lorg/springframework/context/annotation/Profile;\"(value=[s\"dev\",s\"test\"])")
+				.contains("{access=I8,name=s\"sampleService\"," +
+						"descriptor=s\"()Lorg/springframework/context/index/sample/SampleService;\"")
+				.doesNotContain("notABeanMethod");
+	}
+
+	@Test
+	void beanMethodsWithoutStereotype() {
+		CandidateComponentsMetadata metadata = compile(SampleBeanMethods.class);
+		assertThat(metadata).has(Metadata.of(SampleBeanMethods.class));
+		assertThat(getClassMetadata(metadata, SampleBeanMethods.class)).contains(
+				"@\"Lorg/springframework/context/annotation/Bean;\"()");
+	}
+
+	@Test
+	void metaAnnotatedConditionWithoutStereotype() {
+		CandidateComponentsMetadata metadata = compile(SampleConditional.class);
+		assertThat(metadata).has(Metadata.of(SampleConditional.class));
+		assertThat(getClassMetadata(metadata, SampleConditional.class)).contains(
+				"annotations=[@\"Lorg/springframework/context/annotation/Profile;\"(value=[s\"dev\"])]");
+	}
+
+	@Test
+	void nonComponentCandidateHasNoClassMetadata() {
+		CandidateComponentsMetadata metadata = compile(SampleTransactional.class);
+		assertThat(metadata).has(Metadata.of(SampleTransactional.class, Transactional.class));
+		assertThat(getClassMetadata(metadata, SampleTransactional.class)).isNull();
+	}
+
+	@Test
+	void classMetadataMatchesClassFile() throws IOException {
+		compile(SampleConfiguration.class, SampleBeanMethods.class, SampleConditional.class);
+		URL outputLocation = this.compiler.getOutputLocation().toURI().toURL();
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] {outputLocation}, getClass().getClassLoader())) {
+			CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(classLoader);
+			assertThat(index).isNotNull();
+			IndexedMetadataReaderFactory indexedFactory = new IndexedMetadataReaderFactory(index, classLoader);
+			SimpleMetadataReaderFactory classFileFactory = new SimpleMetadataReaderFactory(classLoader);
+			classFileFactory.setPersistentMetadataCache(null);
+			for (Class<?> type : new Class<?>[] {SampleConfiguration.class, SampleConfiguration.NestedConfiguration.class,
+					SampleBeanMethods.class, SampleConditional.class}) {
+				assertThat(index.hasClassMetadata(type.getName())).isTrue();
+				AnnotationMetadata indexed = indexedFactory.getMetadataReader(type.getName()).getAnnotationMetadata();
+				AnnotationMetadata classFile = getMetadataFromClassFile(classFileFactory, outputLocation, type);
+				assertSameMetadata(indexed, classFile);
+			}
+		}
+	}
+
+	private static AnnotationMetadata getMetadataFromClassFile(SimpleMetadataReaderFactory factory,
+			URL outputLocation, Class<?> type) throws IOException {
+
+		return factory.getMetadataReader(new UrlResource(
+				new URL(outputLocation, type.getName().replace('.', '/') + ".class"))).getAnnotationMetadata();
+	}
+
+	private static void assertSameMetadata(AnnotationMetadata actual, AnnotationMetadata expected) {
+		assertThat(actual.getClassName()).isEqualTo(expected.getClassName());
+		assertThat(actual.getSuperClassName()).isEqualTo(expected.getSuperClassName());
+		assertThat(actual.getInterfaceNames()).containsExactly(expected.getInterfaceNames());
+		assertThat(actual.getMemberClassNames()).containsExactlyInAnyOrder(expected.getMemberClassNames());
+		assertThat(actual.getEnclosingClassName()).isEqualTo(expected.getEnclosingClassName());
+		assertThat(actual.isIndependent()).isEqualTo(expected.isIndependent());
+		assertThat(actual.isInterface()).isEqualTo(expected.isInterface());
+		assertThat(actual.isAbstract()).isEqualTo(expected.isAbstract());
+		assertThat(actual.isFinal()).isEqualTo(expected.isFinal());
+		assertThat(actual.getAnnotationTypes()).isEqualTo(expected.getAnnotationTypes());
+		for (String annotationType : expected.getAnnotationTypes()) {
+			assertThat(String.valueOf(actual.getAnnotationAttributes(annotationType, true)))
+					.isEqualTo(String.valueOf(expected.getAnnotationAttributes(annotationType, true)));
+		}
+		assertThat(describe(actual.getAnnotatedMethods(Bean.class.getName())))
+				.isEqualTo(describe(expected.getAnnotatedMethods(Bean.class.getName())));
+	}
+
+	private static String describe(Iterable<MethodMetadata> methods) {
+		StringBuilder sb = new StringBuilder();
+		for (MethodMetadata method : methods) {
+			sb.append(method.getMethodName()).append(':').append(method.getReturnTypeName())
+					.append(':').append(method.isStatic()).append(':').append(method.isOverridable())
+					.append(':').append(method.getAnnotations().stream().map(annotation ->
+							annotation.getType().getName() + annotation.asAnnotationAttributes()).collect(Collectors.toList()))
+					.append(';');
+		}
+		return sb.toString();
+	}
+
 	private void testComponent(Class<?>... classes) {
 		CandidateComponentsMetadata metadata = compile(classes);
 		for (Class<?> c : classes) {
@@ -246,10 +355,12 @@ class CandidateComponentsIndexerTests {
 
 	private CandidateComponentsMetadata readGeneratedMetadata(File outputLocation) {
 		File metadataFile = new File(outputLocation, MetadataStore.METADATA_PATH);
-		if (metadataFile.isFile()) {
-			try (FileInputStream fileInputStream = new FileInputStream(metadataFile)) {
-				CandidateComponentsMetadata metadata = PropertiesMarshaller.read(fileInputStream);
-				return metadata;
+		File classMetadataFile = new File(outputLocation, MetadataStore.CLASS_METADATA_PATH);
+		if (metadataFile.isFile() || classMetadataFile.isFile()) {
+			try (InputStream in = (metadataFile.isFile() ? new FileInputStream(metadataFile) : null);
+					InputStream classMetadataIn = (classMetadataFile.isFile() ?
+							new FileInputStream(classMetadataFile) : null)) {
+				return PropertiesMarshaller.read(in, classMetadataIn);
 			}
 			catch (IOException ex) {
 				throw new IllegalStateException("Failed to read metadata from disk", ex);
@@ -260,4 +371,9 @@ class CandidateComponentsIndexerTests {
 		}
 	}
 
+	private static String getClassMetadata(CandidateComponentsMetadata metadata, Class<?> type) {
+		return metadata.getItems().stream().filter(item -> item.getType().equals(type.getName()))
+				.findFirst().map(ItemMetadata::getClassMetadata).orElse(null);
+	}
+
 }
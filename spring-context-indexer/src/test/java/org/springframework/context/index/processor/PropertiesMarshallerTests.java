@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 
 import org.junit.jupiter.api.Test;
@@ -63,6 +64,30 @@ public class PropertiesMarshallerTests {
 		assertThat(contents.split(System.lineSeparator())).containsExactly("com.a=type", "com.b=type", "com.c=type");
 	}
 
+	@Test
+	public void readWriteWithClassMetadata() throws IOException {
+		CandidateComponentsMetadata metadata = new CandidateComponentsMetadata();
+		metadata.add(new ItemMetadata("com.foo", Collections.singleton("first"), "{access=I33,name=s\"com/foo\"}"));
+		metadata.add(new ItemMetadata("com.bar", Collections.emptySet(), "{access=I33,name=s\"com/bar\"}"));
+		metadata.add(createItem("com.baz", "first"));
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		PropertiesMarshaller.write(metadata, outputStream);
+		ByteArrayOutputStream classMetadataOutputStream = new ByteArrayOutputStream();
+		PropertiesMarshaller.writeClassMetadata(metadata, classMetadataOutputStream);
+		CandidateComponentsMetadata readMetadata = PropertiesMarshaller.read(
+				new ByteArrayInputStream(outputStream.toByteArray()),
+				new ByteArrayInputStream(classMetadataOutputStream.toByteArray()));
+		assertThat(readMetadata).has(Metadata.of("com.foo", "first"));
+		assertThat(readMetadata).has(Metadata.of("com.bar"));
+		assertThat(readMetadata).has(Metadata.of("com.baz", "first"));
+		assertThat(readMetadata.getItems()).hasSize(3);
+		assertThat(readMetadata.getItems()).filteredOn(item -> item.getType().equals("com.foo"))
+				.extracting(ItemMetadata::getClassMetadata).containsExactly("{access=I33,name=s\"com/foo\"}");
+		assertThat(readMetadata.getItems()).filteredOn(item -> item.getType().equals("com.baz"))
+				.extracting(ItemMetadata::getClassMetadata).containsNull();
+	}
+
 	private static ItemMetadata createItem(String type, String... stereotypes) {
 		return new ItemMetadata(type, new HashSet<>(Arrays.asList(stereotypes)));
 	}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.sample;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Test candidate for a {@link Configuration} class.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile({"dev", "test"})
+@Import({SampleBeanMethods.class, SampleComponent.class})
+@PropertySource(name = "sample", value = "classpath:sample.properties", ignoreResourceNotFound = true)
+public class SampleConfiguration {
+
+	@Bean(name = {"first", "second"}, autowireCandidate = false)
+	@Lazy
+	public SampleComponent sampleComponent(String name, int[] counts) {
+		return new SampleComponent();
+	}
+
+	@Bean
+	static SampleService sampleService() {
+		return new SampleService();
+	}
+
+	public void notABeanMethod() {
+	}
+
+
+	@Configuration
+	public static class NestedConfiguration {
+
+		@Bean
+		public String nested() {
+			return "nested";
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -204,4 +204,24 @@ public @interface EnableCaching {
 	 */
 	int order() default Ordered.LOWEST_PRECEDENCE;
 
+	/**
+	 * Indicate whether concurrent cache misses for the same cache entries should
+	 * be coalesced into a single invocation of the underlying method, with the
+	 * other callers waiting for its outcome.
+	 * <p>The default is {@code false}.
+	 * @since 5.2.4
+	 * @see org.springframework.cache.interceptor.CacheAspectSupport#setCoalesceCacheMisses
+	 */
+	boolean coalesceCacheMisses() default false;
+
+	/**
+	 * Indicate whether the values emitted by methods with a reactive return type,
+	 * such as {@code Mono} or {@code Flux}, should be cached rather than the
+	 * returned publisher itself. Requires Project Reactor on the classpath.
+	 * <p>The default is {@code false}.
+	 * @since 5.2.4
+	 * @see org.springframework.cache.interceptor.CacheAspectSupport#setCacheReactiveValues
+	 */
+	boolean cacheReactiveValues() default false;
+
 }
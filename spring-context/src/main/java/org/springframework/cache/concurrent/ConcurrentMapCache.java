@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.CacheStatistics;
 import org.springframework.core.serializer.support.SerializationDelegate;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -41,6 +42,10 @@ import org.springframework.util.Assert;
  * them with a predefined internal object. This behavior can be changed through the
  * {@link #ConcurrentMapCache(String, ConcurrentMap, boolean)} constructor.
  *
+ * <p>The cache is unbounded by default. An {@link EvictingConcurrentMap} can be
+ * specified as store to limit its size and/or expire its entries, in which case
+ * access {@linkplain #getStatistics() statistics} are recorded as well.
+ *
  * @author Costin Leau
  * @author Juergen Hoeller
  * @author Stephane Nicoll
@@ -121,6 +126,18 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 		return (this.serialization != null);
 	}
 
+	/**
+	 * Return the access statistics of this cache, if recorded by its store.
+	 * @return the statistics, or {@code null} if the store is not an
+	 * {@link EvictingConcurrentMap}
+	 * @since 5.2.4
+	 */
+	@Nullable
+	public CacheStatistics getStatistics() {
+		return (this.store instanceof EvictingConcurrentMap ?
+				((EvictingConcurrentMap<?, ?>) this.store).getStatistics() : null);
+	}
+
 	@Override
 	public final String getName() {
 		return this.name;
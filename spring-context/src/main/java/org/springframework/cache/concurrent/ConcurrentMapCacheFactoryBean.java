@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
 import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.beans.factory.BeanNameAware;
@@ -47,6 +48,11 @@ public class ConcurrentMapCacheFactoryBean
 
 	private boolean allowNullValues = true;
 
+	private int maximumSize = -1;
+
+	@Nullable
+	private Duration timeToLive;
+
 	@Nullable
 	private ConcurrentMapCache cache;
 
@@ -77,6 +83,28 @@ public class ConcurrentMapCacheFactoryBean
 		this.allowNullValues = allowNullValues;
 	}
 
+	/**
+	 * Specify the maximum number of entries that the cache may hold,
+	 * evicting entries that have not been recently used beyond that.
+	 * <p>Default is -1, i.e. an unbounded cache. Not applicable if a
+	 * {@link #setStore store} is specified.
+	 * @since 5.2.4
+	 * @see EvictingConcurrentMap
+	 */
+	public void setMaximumSize(int maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Specify the duration after which cache entries expire once written.
+	 * <p>Default is none. Not applicable if a {@link #setStore store} is specified.
+	 * @since 5.2.4
+	 * @see EvictingConcurrentMap
+	 */
+	public void setTimeToLive(@Nullable Duration timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
 	@Override
 	public void setBeanName(String beanName) {
 		if (!StringUtils.hasLength(this.name)) {
@@ -86,7 +114,11 @@ public class ConcurrentMapCacheFactoryBean
 
 	@Override
 	public void afterPropertiesSet() {
-		this.cache = (this.store != null ? new ConcurrentMapCache(this.name, this.store, this.allowNullValues) :
+		ConcurrentMap<Object, Object> store = this.store;
+		if (store == null && (this.maximumSize >= 0 || this.timeToLive != null)) {
+			store = new EvictingConcurrentMap<>(this.maximumSize, this.timeToLive);
+		}
+		this.cache = (store != null ? new ConcurrentMapCache(this.name, store, this.allowNullValues) :
 				new ConcurrentMapCache(this.name, this.allowNullValues));
 	}
 
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.cache.support.CacheStatistics;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A {@link ConcurrentMap} that evicts entries beyond a maximum size and/or
+ * after a time-to-live, for use as the store of a {@link ConcurrentMapCache}.
+ *
+ * <p>Entries are held in a {@link ConcurrentHashMap}, so that reads are
+ * lock-free. Once the maximum size is exceeded, entries are evicted in
+ * insertion order, except that entries which have been read since they were
+ * last considered for eviction get a second chance (the "clock" approximation
+ * of a least-recently-used policy). Entries that outlived the time-to-live
+ * since they were written are treated as absent, removed when encountered,
+ * and purged in bulk at most once per time-to-live period.
+ *
+ * <p>Hits, misses and evictions are recorded as {@link #getStatistics()
+ * statistics}, counting {@link #get} and {@link #computeIfAbsent} calls as
+ * lookups. Note that {@link #size()} and the collection views may include
+ * expired entries that have not been purged yet.
+ *
+ * <p>This map does not allow {@code null} keys or values.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see ConcurrentMapCacheManager#setMaximumSize
+ * @see ConcurrentMapCacheManager#setTimeToLive
+ */
+public class EvictingConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>(256);
+
+	private final int maximumSize;
+
+	private final long timeToLive;
+
+	private final Queue<Node<K, V>> evictionQueue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger evictionQueueSize = new AtomicInteger();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final AtomicLong nextPurge;
+
+	private final Statistics statistics = new Statistics();
+
+	@Nullable
+	private Set<Map.Entry<K, V>> entrySet;
+
+
+	/**
+	 * Create a new {@code EvictingConcurrentMap}.
+	 * @param maximumSize the maximum number of entries, or a negative value
+	 * for no size limit; {@code 0} evicts every entry right after it has been
+	 * written, effectively turning the map into a no-op store
+	 * @param timeToLive the duration after which an entry expires once written,
+	 * or {@code null} for entries not to expire
+	 */
+	public EvictingConcurrentMap(int maximumSize, @Nullable Duration timeToLive) {
+		Assert.isTrue(timeToLive == null || !timeToLive.isNegative() && !timeToLive.isZero(),
+				"Time-to-live must be positive");
+		this.maximumSize = maximumSize;
+		this.timeToLive = (timeToLive != null ? timeToLive.toNanos() : 0);
+		this.nextPurge = new AtomicLong(System.nanoTime() + this.timeToLive);
+	}
+
+
+	/**
+	 * Return the maximum number of entries, or a negative value if unbounded.
+	 */
+	public int getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Return the time-to-live of entries, or {@code null} if they do not expire.
+	 */
+	@Nullable
+	public Duration getTimeToLive() {
+		return (this.timeToLive != 0 ? Duration.ofNanos(this.timeToLive) : null);
+	}
+
+	/**
+	 * Return the live statistics of this map.
+	 */
+	public CacheStatistics getStatistics() {
+		return this.statistics;
+	}
+
+
+	@Override
+	@Nullable
+	public V get(Object key) {
+		Node<K, V> node = getLiveNode(key);
+		if (node != null) {
+			this.statistics.hits.increment();
+			node.markAccessed();
+			return node.value;
+		}
+		this.statistics.misses.increment();
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return (getLiveNode(key) != null);
+	}
+
+	@Override
+	@Nullable
+	public V put(K key, V value) {
+		Node<K, V> node = createNode(key, value);
+		Node<K, V> previous = this.map.put(key, node);
+		onWrite(node);
+		if (previous != null && isExpired(previous)) {
+			this.statistics.evictions.increment();
+			return null;
+		}
+		return (previous != null ? previous.value : null);
+	}
+
+	@Override
+	@Nullable
+	public V putIfAbsent(K key, V value) {
+		Node<K, V> node = createNode(key, value);
+		while (true) {
+			Node<K, V> existing = this.map.putIfAbsent(key, node);
+			if (existing == null) {
+				onWrite(node);
+				return null;
+			}
+			if (!isExpired(existing)) {
+				return existing.value;
+			}
+			if (this.map.replace(key, existing, node)) {
+				this.statistics.evictions.increment();
+				onWrite(node);
+				return null;
+			}
+		}
+	}
+
+	@Override
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		Node<K, V> node = getLiveNode(key);
+		if (node != null) {
+			this.statistics.hits.increment();
+			node.markAccessed();
+			return node.value;
+		}
+		this.statistics.misses.increment();
+		Object[] created = new Object[1];
+		node = this.map.compute(key, (k, existing) -> {
+			if (existing != null) {
+				if (!isExpired(existing)) {
+					return existing;
+				}
+				this.statistics.evictions.increment();
+			}
+			V value = mappingFunction.apply(k);
+			if (value == null) {
+				return null;
+			}
+			Node<K, V> newNode = new Node<>(k, value, currentTime());
+			created[0] = newNode;
+			return newNode;
+		});
+		if (node == null) {
+			return null;
+		}
+		if (created[0] != null) {
+			onWrite((Node<K, V>) created[0]);
+		}
+		return node.value;
+	}
+
+	@Override
+	@Nullable
+	public V remove(Object key) {
+		Node<K, V> node = this.map.remove(key);
+		if (node != null && isExpired(node)) {
+			this.statistics.evictions.increment();
+			return null;
+		}
+		return (node != null ? node.value : null);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		Node<K, V> node = getLiveNode(key);
+		return (node != null && ObjectUtils.nullSafeEquals(node.value, value) && this.map.remove(key, node));
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Node<K, V> node = getLiveNode(key);
+		if (node == null || !ObjectUtils.nullSafeEquals(node.value, oldValue)) {
+			return false;
+		}
+		Node<K, V> newNode = createNode(key, newValue);
+		if (this.map.replace(key, node, newNode)) {
+			onWrite(newNode);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	@Nullable
+	public V replace(K key, V value) {
+		Node<K, V> newNode = createNode(key, value);
+		while (true) {
+			Node<K, V> node = getLiveNode(key);
+			if (node == null) {
+				return null;
+			}
+			if (this.map.replace(key, node, newNode)) {
+				onWrite(newNode);
+				return node.value;
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		this.evictionLock.lock();
+		try {
+			this.map.clear();
+			// Count down per polled node, in line with concurrent offers
+			while (this.evictionQueue.poll() != null) {
+				this.evictionQueueSize.decrementAndGet();
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		return this.map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.map.isEmpty();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+
+	@Nullable
+	private Node<K, V> getLiveNode(Object key) {
+		Node<K, V> node = this.map.get(key);
+		if (node != null && isExpired(node)) {
+			if (this.map.remove(key, node)) {
+				this.statistics.evictions.increment();
+			}
+			return null;
+		}
+		return node;
+	}
+
+	private Node<K, V> createNode(K key, V value) {
+		Assert.notNull(key, "Key must not be null");
+		Assert.notNull(value, "Value must not be null");
+		return new Node<>(key, value, currentTime());
+	}
+
+	private long currentTime() {
+		return (this.timeToLive != 0 ? System.nanoTime() : 0);
+	}
+
+	private boolean isExpired(Node<K, V> node) {
+		return (this.timeToLive != 0 && System.nanoTime() - node.writeTime >= this.timeToLive);
+	}
+
+	private void onWrite(Node<K, V> node) {
+		if (this.maximumSize >= 0) {
+			// Make room among the existing entries first, sparing the new one
+			if (this.map.size() > this.maximumSize) {
+				evict();
+			}
+			this.evictionQueue.offer(node);
+			this.evictionQueueSize.incrementAndGet();
+			if (this.map.size() > this.maximumSize || this.evictionQueueSize.get() > 2 * this.maximumSize + 16) {
+				evict();
+			}
+		}
+		if (this.timeToLive != 0) {
+			long nextPurge = this.nextPurge.get();
+			long now = System.nanoTime();
+			if (now - nextPurge >= 0 && this.nextPurge.compareAndSet(nextPurge, now + this.timeToLive)) {
+				purgeExpired();
+			}
+		}
+	}
+
+	private void evict() {
+		this.evictionLock.lock();
+		try {
+			// Each queued node gets at most one second chance per eviction run
+			int secondChances = this.evictionQueueSize.get();
+			while (this.map.size() > this.maximumSize) {
+				Node<K, V> node = this.evictionQueue.poll();
+				if (node == null) {
+					break;
+				}
+				this.evictionQueueSize.decrementAndGet();
+				if (this.map.get(node.key) != node) {
+					continue;
+				}
+				if (node.accessed && secondChances-- > 0) {
+					node.accessed = false;
+					this.evictionQueue.offer(node);
+					this.evictionQueueSize.incrementAndGet();
+				}
+				else if (this.map.remove(node.key, node)) {
+					this.statistics.evictions.increment();
+				}
+			}
+			// Drop nodes that have been removed or replaced in the meantime
+			if (this.evictionQueueSize.get() > 2 * this.maximumSize + 16) {
+				for (Iterator<Node<K, V>> it = this.evictionQueue.iterator(); it.hasNext();) {
+					Node<K, V> node = it.next();
+					if (this.map.get(node.key) != node) {
+						it.remove();
+						this.evictionQueueSize.decrementAndGet();
+					}
+				}
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	private void purgeExpired() {
+		this.map.forEach((key, node) -> {
+			if (isExpired(node) && this.map.remove(key, node)) {
+				this.statistics.evictions.increment();
+			}
+		});
+	}
+
+
+	private static final class Node<K, V> {
+
+		private final K key;
+
+		private final V value;
+
+		private final long writeTime;
+
+		private volatile boolean accessed;
+
+		Node(K key, V value, long writeTime) {
+			this.key = key;
+			this.value = value;
+			this.writeTime = writeTime;
+		}
+
+		void markAccessed() {
+			// Avoid needless writes to a shared cache line
+			if (!this.accessed) {
+				this.accessed = true;
+			}
+		}
+	}
+
+
+	private static final class Statistics implements CacheStatistics {
+
+		private final LongAdder hits = new LongAdder();
+
+		private final LongAdder misses = new LongAdder();
+
+		private final LongAdder evictions = new LongAdder();
+
+		@Override
+		public long getHitCount() {
+			return this.hits.sum();
+		}
+
+		@Override
+		public long getMissCount() {
+			return this.misses.sum();
+		}
+
+		@Override
+		public long getEvictionCount() {
+			return this.evictions.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount();
+		}
+	}
+
+
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return EvictingConcurrentMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			EvictingConcurrentMap.this.clear();
+		}
+	}
+
+
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private final Iterator<Node<K, V>> delegate = EvictingConcurrentMap.this.map.values().iterator();
+
+		@Override
+		public boolean hasNext() {
+			return this.delegate.hasNext();
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			Node<K, V> node = this.delegate.next();
+			return new SimpleImmutableEntry<>(node.key, node.value);
+		}
+
+		@Override
+		public void remove() {
+			this.delegate.remove();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,11 +25,17 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aop.support.AopUtils;
@@ -42,8 +48,11 @@ import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
 import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -69,6 +78,13 @@ import org.springframework.util.function.SupplierUtils;
  * used for determining caching operations, a {@link KeyGenerator} will build the
  * cache keys, and a {@link CacheResolver} will resolve the actual cache(s) to use.
  *
+ * <p>Methods that return a reactive type supported by the
+ * {@link ReactiveAdapterRegistry} can have the values emitted by the returned
+ * publisher cached rather than the publisher itself, if
+ * {@link #setCacheReactiveValues enabled} and provided that Project Reactor is
+ * present on the classpath: a single value for {@code Mono}-like types and a
+ * {@link List} of all values for {@code Flux}-like types.
+ *
  * <p>Note: A cache aspect is serializable but does not perform any actual caching
  * after deserialization.
  *
@@ -83,6 +99,13 @@ import org.springframework.util.function.SupplierUtils;
 public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		implements BeanFactoryAware, InitializingBean, SmartInitializingSingleton {
 
+	/**
+	 * Project Reactor present on the classpath?
+	 */
+	private static final boolean reactorPresent =
+			ClassUtils.isPresent("reactor.core.publisher.Mono", CacheAspectSupport.class.getClassLoader());
+
+
 	protected final Log logger = LogFactory.getLog(getClass());
 
 	private final Map<CacheOperationCacheKey, CacheOperationMetadata> metadataCache = new ConcurrentHashMap<>(1024);
@@ -100,6 +123,13 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	@Nullable
 	private BeanFactory beanFactory;
 
+	private boolean coalesceCacheMisses = false;
+
+	private final Map<Object, InFlightInvocation> inFlightInvocations = new ConcurrentHashMap<>(64);
+
+	@Nullable
+	private ReactiveCachingHandler reactiveCachingHandler;
+
 	private boolean initialized = false;
 
 
@@ -194,6 +224,65 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		this.cacheResolver = SingletonSupplier.of(new SimpleCacheResolver(cacheManager));
 	}
 
+	/**
+	 * Set whether concurrent cache misses for the same cache entries should be
+	 * coalesced into a single invocation of the underlying method.
+	 * <p>If enabled, the first caller that misses the cache for a
+	 * {@link CacheableOperation} invokes the method and populates the cache,
+	 * while concurrent callers missing the same keys in the same caches wait
+	 * for and share its outcome, including any exception thrown. This prevents
+	 * a stampede of invocations for a hot key, independent of the cache
+	 * provider and in contrast to {@link CacheableOperation#isSync() sync}
+	 * also in combination with {@code unless} and multiple caches.
+	 * <p>Invocations that are subject to a {@link CachePutOperation} are never
+	 * coalesced, since such an operation mandates that the method is invoked.
+	 * <p>The default is {@code false}.
+	 * @since 5.2.4
+	 * @see org.springframework.cache.annotation.EnableCaching#coalesceCacheMisses()
+	 */
+	public void setCoalesceCacheMisses(boolean coalesceCacheMisses) {
+		this.coalesceCacheMisses = coalesceCacheMisses;
+	}
+
+	/**
+	 * Return whether concurrent cache misses for the same cache entries are
+	 * coalesced into a single invocation of the underlying method.
+	 * @since 5.2.4
+	 */
+	public boolean isCoalesceCacheMisses() {
+		return this.coalesceCacheMisses;
+	}
+
+	/**
+	 * Set whether the values emitted by the publisher returned from a method
+	 * with a reactive return type should be cached, rather than the publisher
+	 * itself.
+	 * <p>If enabled, the cache operations are performed when a subscriber
+	 * subscribes to the returned publisher, and concurrent subscribers that miss
+	 * the same cache entries share a single invocation of the method. A single
+	 * value is cached for {@code Mono}-like types and a {@link List} of all
+	 * values for {@code Flux}-like types; completion without a value is only
+	 * cached by caches that allow {@code null} values. Reactive methods do not
+	 * support {@link CacheableOperation#isSync() sync} in this mode.
+	 * <p>This requires Project Reactor on the classpath. The default is
+	 * {@code false}.
+	 * @since 5.2.4
+	 * @see org.springframework.cache.annotation.EnableCaching#cacheReactiveValues()
+	 */
+	public void setCacheReactiveValues(boolean cacheReactiveValues) {
+		Assert.isTrue(!cacheReactiveValues || reactorPresent,
+				"Caching reactive values requires Project Reactor on the classpath");
+		this.reactiveCachingHandler = (cacheReactiveValues ? new ReactiveCachingHandler() : null);
+	}
+
+	/**
+	 * Return whether the values emitted by reactive return types are cached.
+	 * @since 5.2.4
+	 */
+	public boolean isCacheReactiveValues() {
+		return (this.reactiveCachingHandler != null);
+	}
+
 	/**
 	 * Set the containing {@link BeanFactory} for {@link CacheManager} and other
 	 * service lookups.
@@ -371,6 +460,19 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 	@Nullable
 	private Object execute(final CacheOperationInvoker invoker, Method method, CacheOperationContexts contexts) {
+		// Special handling of reactive return types, caching the emitted values
+		ReactiveCachingHandler reactiveCachingHandler = this.reactiveCachingHandler;
+		if (reactiveCachingHandler != null) {
+			ReactiveAdapter adapter = reactiveCachingHandler.getAdapter(method);
+			if (adapter != null) {
+				if (contexts.isSynchronized()) {
+					throw new IllegalStateException("@Cacheable(sync=true) is not supported for reactive " +
+							"return type " + method.getReturnType().getName() + " when caching reactive values");
+				}
+				return reactiveCachingHandler.execute(invoker, adapter, contexts);
+			}
+		}
+
 		// Special handling of synchronized invocation
 		if (contexts.isSynchronized()) {
 			CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
@@ -415,6 +517,45 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			cacheValue = cacheHit.get();
 			returnValue = wrapCacheValue(method, cacheValue);
 		}
+		else if (cacheHit == null && this.coalesceCacheMisses && !cachePutRequests.isEmpty() &&
+				contexts.get(CachePutOperation.class).isEmpty()) {
+			// Invoke the method once for concurrent misses of the same cache entries
+			Object flightKey = getFlightKey(cachePutRequests);
+			InFlightInvocation flight = new InFlightInvocation();
+			InFlightInvocation existing = this.inFlightInvocations.putIfAbsent(flightKey, flight);
+			if (existing == null) {
+				try {
+					try {
+						returnValue = invokeOperation(invoker);
+					}
+					catch (RuntimeException | Error ex) {
+						flight.result.completeExceptionally(ex);
+						throw ex;
+					}
+					cacheValue = unwrapReturnValue(returnValue);
+					// Share the value before populating the cache: a failing put only concerns this caller
+					flight.result.complete(cacheValue);
+					for (CachePutRequest cachePutRequest : cachePutRequests) {
+						cachePutRequest.apply(cacheValue);
+					}
+					cachePutRequests.clear();
+				}
+				finally {
+					this.inFlightInvocations.remove(flightKey, flight);
+				}
+			}
+			else if (existing.thread == Thread.currentThread()) {
+				// Reentrant invocation for the same cache entries: cannot wait for ourselves
+				returnValue = invokeOperation(invoker);
+				cacheValue = unwrapReturnValue(returnValue);
+			}
+			else {
+				cacheValue = awaitFlight(existing);
+				returnValue = wrapCacheValue(method, cacheValue);
+				// Treat the shared outcome like a cache hit
+				cachePutRequests.clear();
+			}
+		}
 		else {
 			// Invoke the method if we don't have a cache hit
 			returnValue = invokeOperation(invoker);
@@ -435,6 +576,37 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return returnValue;
 	}
 
+	private Object getFlightKey(List<CachePutRequest> cachePutRequests) {
+		Object[] elements = new Object[cachePutRequests.size() * 2];
+		int i = 0;
+		for (CachePutRequest cachePutRequest : cachePutRequests) {
+			elements[i++] = cachePutRequest.context.getCacheNames();
+			elements[i++] = cachePutRequest.key;
+		}
+		return new SimpleKey(elements);
+	}
+
+	@Nullable
+	private Object awaitFlight(InFlightInvocation flight) {
+		try {
+			return flight.result.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for concurrent cache miss invocation", ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new CacheOperationInvoker.ThrowableWrapper(cause);
+		}
+	}
+
 	@Nullable
 	private Object wrapCacheValue(Method method, @Nullable Object cacheValue) {
 		if (method.getReturnType() == Optional.class &&
@@ -821,6 +993,139 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 				}
 			}
 		}
+
+		public void applyEmpty() {
+			if (this.context.canPutToCache(null)) {
+				for (Cache cache : this.context.getCaches()) {
+					// Only record the absence of a value where null values are explicitly supported
+					if (cache instanceof AbstractValueAdaptingCache &&
+							((AbstractValueAdaptingCache) cache).isAllowNullValues()) {
+						doPut(cache, this.key, null);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * The outcome of an invocation that concurrent cache misses wait for.
+	 */
+	private static final class InFlightInvocation {
+
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+		private final Thread thread = Thread.currentThread();
+	}
+
+
+	/**
+	 * Inner class to avoid a hard dependency on Project Reactor at runtime.
+	 * Performs the cache operations when a subscriber subscribes to the
+	 * returned publisher, sharing a single invocation of the method among
+	 * concurrent subscribers that miss the same cache entries.
+	 */
+	private class ReactiveCachingHandler {
+
+		private final ReactiveAdapterRegistry registry = ReactiveAdapterRegistry.getSharedInstance();
+
+		private final Map<Object, Mono<Object>> inFlightInvocations = new ConcurrentHashMap<>(64);
+
+		@Nullable
+		public ReactiveAdapter getAdapter(Method method) {
+			ReactiveAdapter adapter = this.registry.getAdapter(method.getReturnType());
+			if (adapter == null || adapter.isNoValue() || Future.class.isAssignableFrom(adapter.getReactiveType())) {
+				// Keep caching futures as they are
+				return null;
+			}
+			return adapter;
+		}
+
+		public Object execute(CacheOperationInvoker invoker, ReactiveAdapter adapter, CacheOperationContexts contexts) {
+			Mono<Object> cacheValue = Mono.defer(() -> resolveCacheValue(invoker, adapter, contexts));
+			if (adapter.isMultiValue()) {
+				return adapter.fromPublisher(cacheValue.flatMapIterable(this::asIterable));
+			}
+			return adapter.fromPublisher(cacheValue);
+		}
+
+		private Mono<Object> resolveCacheValue(
+				CacheOperationInvoker invoker, ReactiveAdapter adapter, CacheOperationContexts contexts) {
+
+			// Process any early evictions
+			processCacheEvicts(contexts.get(CacheEvictOperation.class), true,
+					CacheOperationExpressionEvaluator.NO_RESULT);
+
+			// Check if we have a cached item matching the conditions
+			Cache.ValueWrapper cacheHit = findCachedItem(contexts.get(CacheableOperation.class));
+
+			// Collect puts from any @Cacheable miss, if no cached item is found
+			List<CachePutRequest> cachePutRequests = new LinkedList<>();
+			if (cacheHit == null) {
+				collectPutRequests(contexts.get(CacheableOperation.class),
+						CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
+			}
+
+			if (cacheHit != null && !hasCachePut(contexts)) {
+				// If there are no put requests, just use the cache hit
+				Object cacheValue = cacheHit.get();
+
+				// Process any late evictions
+				processCacheEvicts(contexts.get(CacheEvictOperation.class), false, cacheValue);
+				return Mono.justOrEmpty(cacheValue);
+			}
+			if (cacheHit == null && !cachePutRequests.isEmpty() &&
+					contexts.get(CachePutOperation.class).isEmpty()) {
+				// Share a single invocation among concurrent misses of the same cache entries
+				Object flightKey = getFlightKey(cachePutRequests);
+				AtomicReference<Mono<Object>> flightRef = new AtomicReference<>();
+				Mono<Object> flight = Mono.defer(() -> invoke(invoker, adapter, contexts, cachePutRequests))
+						.doFinally(signal -> this.inFlightInvocations.remove(flightKey, flightRef.get()))
+						.cache();
+				flightRef.set(flight);
+				Mono<Object> existing = this.inFlightInvocations.putIfAbsent(flightKey, flight);
+				return (existing != null ? existing : flight);
+			}
+			return invoke(invoker, adapter, contexts, cachePutRequests);
+		}
+
+		private Mono<Object> invoke(CacheOperationInvoker invoker, ReactiveAdapter adapter,
+				CacheOperationContexts contexts, List<CachePutRequest> cachePutRequests) {
+
+			Object returnValue;
+			try {
+				returnValue = invokeOperation(invoker);
+			}
+			catch (CacheOperationInvoker.ThrowableWrapper ex) {
+				return Mono.error(ex.getOriginal());
+			}
+			Mono<Object> cacheValue = (adapter.isMultiValue() ?
+					Flux.from(adapter.toPublisher(returnValue)).collectList().cast(Object.class) :
+					Mono.from(adapter.toPublisher(returnValue)));
+			return cacheValue.doOnSuccess(value -> {
+				// Collect any explicit @CachePuts
+				collectPutRequests(contexts.get(CachePutOperation.class), value, cachePutRequests);
+
+				// Process any collected put requests, either from @CachePut or a @Cacheable miss
+				for (CachePutRequest cachePutRequest : cachePutRequests) {
+					if (value != null) {
+						cachePutRequest.apply(value);
+					}
+					else {
+						cachePutRequest.applyEmpty();
+					}
+				}
+
+				// Process any late evictions
+				processCacheEvicts(contexts.get(CacheEvictOperation.class), false, value);
+			});
+		}
+
+		@SuppressWarnings("unchecked")
+		private Iterable<Object> asIterable(Object cacheValue) {
+			return (cacheValue instanceof Iterable ? (Iterable<Object>) cacheValue :
+					Collections.singletonList(cacheValue));
+		}
 	}
 
 
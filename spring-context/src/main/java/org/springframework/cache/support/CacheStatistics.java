@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+/**
+ * Live access statistics of a {@link org.springframework.cache.Cache}.
+ * All counters are cumulative since the creation of the cache.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see org.springframework.cache.concurrent.ConcurrentMapCache#getStatistics()
+ */
+public interface CacheStatistics {
+
+	/**
+	 * Return the number of lookups that found a cached value.
+	 */
+	long getHitCount();
+
+	/**
+	 * Return the number of lookups that did not find a cached value.
+	 */
+	long getMissCount();
+
+	/**
+	 * Return the number of entries that the cache removed on its own, because
+	 * they exceeded the maximum size or the time-to-live of the cache.
+	 */
+	long getEvictionCount();
+
+	/**
+	 * Return the total number of lookups, i.e. the sum of hits and misses.
+	 */
+	default long getRequestCount() {
+		return getHitCount() + getMissCount();
+	}
+
+	/**
+	 * Return the ratio of lookups that found a cached value, or {@code 1.0}
+	 * if there were no lookups yet.
+	 */
+	default double getHitRatio() {
+		long requestCount = getRequestCount();
+		return (requestCount != 0 ? (double) getHitCount() / requestCount : 1.0);
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.context.annotation;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.function.Supplier;
 
 import org.springframework.beans.factory.config.BeanDefinitionCustomizer;
@@ -23,6 +25,7 @@ import org.springframework.beans.factory.support.BeanNameGenerator;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.Resource;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
@@ -176,6 +179,56 @@ public class AnnotationConfigApplicationContext extends GenericApplicationContex
 		this.scanner.scan(basePackages);
 	}
 
+	/**
+	 * Register the bean definitions from the given {@link BeanDefinitionSnapshot}
+	 * resource instead of registering or scanning component classes, provided
+	 * that the snapshot is {@linkplain BeanDefinitionSnapshot#isApplicableTo
+	 * applicable} to this context. Typical usage:
+	 * <pre class="code">
+	 * AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+	 * if (!ctx.loadBeanDefinitionSnapshot(new ClassPathResource("META-INF/app.snapshot"))) {
+	 *     ctx.register(AppConfig.class);
+	 * }
+	 * ctx.refresh();</pre>
+	 * <p>Note that {@link Conditional @Conditional}s are not evaluated again:
+	 * their outcome at capture time applies, as long as the class path and the
+	 * active profiles are unchanged. {@link PropertySource @PropertySource}s are
+	 * processed again against the environment of this context.
+	 * <p>Note that {@link #refresh()} must be called in order for the context
+	 * to instantiate the registered beans.
+	 * @param snapshot the snapshot resource, as written by
+	 * {@link BeanDefinitionSnapshot#writeTo}
+	 * @return {@code true} if the bean definitions have been registered, or
+	 * {@code false} if the resource does not exist, cannot be read, or has been
+	 * captured for a different class path or different profiles
+	 * @since 5.2.4
+	 * @see BeanDefinitionSnapshot#capture(GenericApplicationContext)
+	 */
+	public boolean loadBeanDefinitionSnapshot(Resource snapshot) {
+		if (!snapshot.exists()) {
+			return false;
+		}
+		BeanDefinitionSnapshot beanDefinitionSnapshot;
+		try (InputStream in = snapshot.getInputStream()) {
+			beanDefinitionSnapshot = BeanDefinitionSnapshot.readFrom(in, getClassLoader());
+		}
+		catch (IOException ex) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Ignoring unreadable bean definition snapshot " + snapshot + ": " + ex);
+			}
+			return false;
+		}
+		if (!beanDefinitionSnapshot.isApplicableTo(this)) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Ignoring bean definition snapshot " + snapshot +
+						" since the class path or the active profiles have changed");
+			}
+			return false;
+		}
+		beanDefinitionSnapshot.registerBeanDefinitions(this);
+		return true;
+	}
+
 
 	//---------------------------------------------------------------------
 	// Adapt superclass registerBean calls to AnnotatedBeanDefinitionReader
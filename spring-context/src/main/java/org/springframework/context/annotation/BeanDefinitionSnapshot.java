@@ -0,0 +1,1052 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.LookupOverride;
+import org.springframework.beans.factory.support.ManagedArray;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.beans.factory.support.MethodOverride;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * A serializable snapshot of the bean definitions of an application context,
+ * as they stand after all {@link BeanDefinitionRegistryPostProcessor}s, in
+ * particular the {@link ConfigurationClassPostProcessor}, have been applied.
+ *
+ * <p>A snapshot is {@linkplain #capture captured} ahead of time, typically as
+ * part of the build, and {@linkplain #registerBeanDefinitions registered} at
+ * runtime in place of the original component classes. This skips classpath
+ * scanning, reading of class metadata, configuration class parsing and the
+ * evaluation of {@link Conditional @Conditional}s: the snapshot only contains
+ * the bean definitions that were actually registered at capture time.
+ * {@link Configuration @Configuration} classes are still enhanced at runtime,
+ * and {@link ImportAware} configuration classes still receive the metadata of
+ * their importing class. Dependency injection metadata is determined at
+ * runtime as usual. {@link PropertySource @PropertySource} declarations are
+ * recorded at capture time and processed again, in the same order, when
+ * the snapshot is registered, so that their locations are resolved against
+ * the runtime environment.
+ *
+ * <p>Conditions are evaluated against the environment and the bean
+ * definitions of the capturing context only. A condition whose outcome
+ * depends on anything else than the class path and the active profiles,
+ * e.g. on a system property or an environment variable, is therefore not
+ * reflected at runtime; such applications should not use a snapshot, or
+ * capture it in an environment that matches the runtime environment.
+ *
+ * <p>A snapshot is only {@linkplain #isApplicableTo applicable} to a context
+ * with the same active and default profiles and the same class path as at
+ * capture time, as identified by a fingerprint over the names, sizes and
+ * last-modified timestamps of all jar files on the class path as well as of
+ * all class files and configuration resources in class path directories.
+ * Callers are expected to fall back to regular processing otherwise, see
+ * {@link AnnotationConfigApplicationContext#loadBeanDefinitionSnapshot}.
+ *
+ * <p>Only bean definitions whose state is fully declarative can be captured:
+ * definitions with an instance supplier or with property values that cannot
+ * be represented in the snapshot lead to an exception at capture time.
+ * Placeholders in bean definitions are captured unresolved.
+ *
+ * <p><b>NOTE:</b> Snapshots use Java serialization and must therefore only be
+ * read from trusted sources, typically a resource of the application itself.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see #capture(GenericApplicationContext)
+ * @see AnnotationConfigApplicationContext#loadBeanDefinitionSnapshot
+ */
+public final class BeanDefinitionSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 2L;
+
+	/**
+	 * File name suffixes of the class path directory entries that the class
+	 * path fingerprint covers, besides class files.
+	 */
+	private static final String[] RESOURCE_SUFFIXES =
+			{".xml", ".properties", ".yml", ".yaml", ".factories", ".components", ".groovy"};
+
+
+	private final String classPathFingerprint;
+
+	private final String[] activeProfiles;
+
+	private final String[] defaultProfiles;
+
+	private final List<BeanData> beans;
+
+	private final Map<String, String> importingClasses;
+
+	private final List<PropertySourceProcessor.Descriptor> propertySources;
+
+
+	private BeanDefinitionSnapshot(String classPathFingerprint, String[] activeProfiles, String[] defaultProfiles,
+			List<BeanData> beans, Map<String, String> importingClasses,
+			List<PropertySourceProcessor.Descriptor> propertySources) {
+
+		this.classPathFingerprint = classPathFingerprint;
+		this.activeProfiles = activeProfiles;
+		this.defaultProfiles = defaultProfiles;
+		this.beans = beans;
+		this.importingClasses = importingClasses;
+		this.propertySources = propertySources;
+	}
+
+
+	/**
+	 * Return the names of the captured bean definitions, in registration order.
+	 */
+	public String[] getBeanDefinitionNames() {
+		return this.beans.stream().map(bean -> bean.beanName).toArray(String[]::new);
+	}
+
+	/**
+	 * Determine whether this snapshot may be registered with the given context,
+	 * i.e. whether the context has the same active and default profiles and
+	 * the same class path as the context that this snapshot was captured from.
+	 * @param context the context to check
+	 */
+	public boolean isApplicableTo(GenericApplicationContext context) {
+		Environment environment = context.getEnvironment();
+		return (sameElements(this.activeProfiles, environment.getActiveProfiles()) &&
+				sameElements(this.defaultProfiles, environment.getDefaultProfiles()) &&
+				this.classPathFingerprint.equals(computeClassPathFingerprint(context.getClassLoader())));
+	}
+
+	/**
+	 * Register the captured bean definitions and aliases with the given context,
+	 * which must not have been refreshed yet, after adding the property sources
+	 * of the captured {@link PropertySource @PropertySource} declarations to
+	 * its environment. Bean definitions that the context already contains, e.g.
+	 * the annotation config processors registered by an
+	 * {@link AnnotationConfigApplicationContext}, are kept as they are.
+	 * @param context the context to register the bean definitions with
+	 * @throws BeansException if a property source could not be loaded or a
+	 * bean definition could not be registered
+	 * @see #isApplicableTo
+	 */
+	public void registerBeanDefinitions(GenericApplicationContext context) throws BeansException {
+		if (!this.propertySources.isEmpty()) {
+			PropertySourceProcessor processor = new PropertySourceProcessor(context.getEnvironment(), context);
+			for (PropertySourceProcessor.Descriptor propertySource : this.propertySources) {
+				try {
+					processor.processPropertySource(propertySource);
+				}
+				catch (IOException ex) {
+					throw new BeanDefinitionStoreException(
+							"Failed to load @PropertySource of bean definition snapshot", ex);
+				}
+			}
+		}
+		ClassLoader classLoader = context.getClassLoader();
+		for (BeanData bean : this.beans) {
+			if (!context.containsBeanDefinition(bean.beanName)) {
+				context.registerBeanDefinition(bean.beanName, bean.definition.toBeanDefinition(classLoader));
+				for (String alias : bean.aliases) {
+					context.registerAlias(bean.beanName, alias);
+				}
+			}
+		}
+		ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+		if (!beanFactory.containsSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME)) {
+			beanFactory.registerSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME,
+					new SnapshotImportRegistry(this.importingClasses, classLoader));
+		}
+	}
+
+	/**
+	 * Write this snapshot to the given stream, leaving the stream open.
+	 * @param out the stream to write to
+	 * @throws IOException in case of I/O errors
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(this);
+		oos.flush();
+	}
+
+	/**
+	 * Read a snapshot from the given stream, leaving the stream open.
+	 * @param in the stream to read from
+	 * @param classLoader the class loader to resolve application types with
+	 * (may be {@code null} for the default class loader)
+	 * @return the snapshot
+	 * @throws IOException in case of I/O errors or if the stream does not
+	 * contain a compatible snapshot
+	 */
+	public static BeanDefinitionSnapshot readFrom(InputStream in, @Nullable ClassLoader classLoader) throws IOException {
+		ObjectInputStream ois = new ConfigurableObjectInputStream(in, classLoader);
+		try {
+			Object snapshot = ois.readObject();
+			if (!(snapshot instanceof BeanDefinitionSnapshot)) {
+				throw new IOException("Stream does not contain a BeanDefinitionSnapshot: " + snapshot);
+			}
+			return (BeanDefinitionSnapshot) snapshot;
+		}
+		catch (ClassNotFoundException ex) {
+			throw new IOException("Failed to read BeanDefinitionSnapshot", ex);
+		}
+	}
+
+	/**
+	 * Capture a snapshot of the bean definitions of the given context, which
+	 * must be fully configured, i.e. with its component classes registered or
+	 * scanned, but not refreshed yet. This invokes the bean factory
+	 * post-processors of the context through
+	 * {@link GenericApplicationContext#refreshBeanDefinitions()}, after which
+	 * the context cannot be refreshed anymore and should be closed.
+	 * @param context the context to capture the bean definitions of
+	 * @return the snapshot
+	 * @throws BeansException if a bean factory post-processor failed
+	 * @throws IllegalStateException if a bean definition cannot be captured
+	 */
+	public static BeanDefinitionSnapshot capture(GenericApplicationContext context)
+			throws BeansException, IllegalStateException {
+
+		CapturingPostProcessor postProcessor = new CapturingPostProcessor(context);
+		context.addBeanFactoryPostProcessor(postProcessor);
+		context.refreshBeanDefinitions();
+		if (postProcessor.snapshot == null) {
+			throw new IllegalStateException("Bean definitions have not been captured: " +
+					"is the context a GenericApplicationContext that has not been refreshed yet?");
+		}
+		return postProcessor.snapshot;
+	}
+
+	private static BeanDefinitionSnapshot capture(ConfigurableListableBeanFactory beanFactory,
+			Environment environment, @Nullable ClassLoader classLoader) {
+
+		List<BeanData> beans = new ArrayList<>();
+		Map<String, String> importingClasses = new LinkedHashMap<>();
+		ImportRegistry importRegistry = null;
+		if (beanFactory.containsSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME)) {
+			importRegistry = (ImportRegistry) beanFactory.getSingleton(
+					ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME);
+		}
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+			beans.add(new BeanData(beanName, beanFactory.getAliases(beanName),
+					BeanDefinitionData.capture(beanName, beanDefinition)));
+			String className = beanDefinition.getBeanClassName();
+			if (importRegistry != null && className != null &&
+					beanDefinition.getAttribute(ConfigurationClassUtils.CONFIGURATION_CLASS_ATTRIBUTE) != null) {
+				AnnotationMetadata importingClass = importRegistry.getImportingClassFor(className);
+				if (importingClass != null) {
+					importingClasses.put(className, importingClass.getClassName());
+				}
+			}
+		}
+		List<PropertySourceProcessor.Descriptor> propertySources = new ArrayList<>();
+		for (ConfigurationClassPostProcessor postProcessor :
+				beanFactory.getBeansOfType(ConfigurationClassPostProcessor.class, false, false).values()) {
+			propertySources.addAll(postProcessor.getPropertySourceDescriptors());
+		}
+		return new BeanDefinitionSnapshot(computeClassPathFingerprint(classLoader),
+				environment.getActiveProfiles(), environment.getDefaultProfiles(), beans, importingClasses,
+				propertySources);
+	}
+
+	private static boolean sameElements(String[] first, String[] second) {
+		return new HashSet<>(Arrays.asList(first)).equals(new HashSet<>(Arrays.asList(second)));
+	}
+
+	/**
+	 * Compute a fingerprint of the class path of the given class loader, over
+	 * the names, sizes and last-modified timestamps of all jar files on the
+	 * class path and of all class files and configuration resources (as per
+	 * {@link #RESOURCE_SUFFIXES}) in class path directories. Other files in
+	 * class path directories, such as a snapshot itself, are not taken into
+	 * account.
+	 */
+	static String computeClassPathFingerprint(@Nullable ClassLoader classLoader) {
+		Set<File> roots = new LinkedHashSet<>();
+		for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+			if (cl instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader) cl).getURLs()) {
+					if ("file".equals(url.getProtocol())) {
+						roots.add(new File(StringUtils.replace(url.getPath(), "%20", " ")));
+					}
+				}
+			}
+		}
+		String classPath = System.getProperty("java.class.path", "");
+		for (String entry : StringUtils.tokenizeToStringArray(classPath, File.pathSeparator)) {
+			roots.add(new File(entry));
+		}
+		StringBuilder content = new StringBuilder();
+		for (File root : roots) {
+			File file = root.getAbsoluteFile();
+			if (file.isDirectory()) {
+				content.append(file.getName()).append('/').append('\n');
+				appendFiles(file, "", content);
+			}
+			else if (file.isFile()) {
+				appendFile(file.getName(), file, content);
+			}
+		}
+		return DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void appendFiles(File dir, String path, StringBuilder content) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		for (File file : files) {
+			if (file.isDirectory()) {
+				appendFiles(file, path + file.getName() + '/', content);
+			}
+			else if (isFingerprinted(file.getName())) {
+				appendFile(path + file.getName(), file, content);
+			}
+		}
+	}
+
+	private static boolean isFingerprinted(String fileName) {
+		if (fileName.endsWith(ClassUtils.CLASS_FILE_SUFFIX)) {
+			return true;
+		}
+		for (String suffix : RESOURCE_SUFFIXES) {
+			if (fileName.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void appendFile(String path, File file, StringBuilder content) {
+		content.append(path).append(':').append(file.length()).append(':').append(file.lastModified()).append('\n');
+	}
+
+
+	/**
+	 * Captures the bean definitions once all registry post-processors have
+	 * been applied, but before any configuration class has been enhanced
+	 * and before any regular bean factory post-processor has been invoked.
+	 */
+	private static class CapturingPostProcessor implements BeanDefinitionRegistryPostProcessor {
+
+		private final GenericApplicationContext context;
+
+		@Nullable
+		private BeanDefinitionSnapshot snapshot;
+
+		CapturingPostProcessor(GenericApplicationContext context) {
+			this.context = context;
+		}
+
+		@Override
+		public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+		}
+
+		@Override
+		public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+			this.snapshot = capture(beanFactory, this.context.getEnvironment(), this.context.getClassLoader());
+		}
+	}
+
+
+	/**
+	 * {@link ImportRegistry} for the configuration classes of a snapshot,
+	 * introspecting importing classes through reflection on demand.
+	 */
+	private static class SnapshotImportRegistry implements ImportRegistry {
+
+		private final Map<String, String> importingClasses;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		SnapshotImportRegistry(Map<String, String> importingClasses, @Nullable ClassLoader classLoader) {
+			this.importingClasses = new LinkedHashMap<>(importingClasses);
+			this.classLoader = classLoader;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationMetadata getImportingClassFor(String importedClass) {
+			String importingClass = this.importingClasses.get(importedClass);
+			if (importingClass == null) {
+				return null;
+			}
+			try {
+				return AnnotationMetadata.introspect(ClassUtils.forName(importingClass, this.classLoader));
+			}
+			catch (ClassNotFoundException ex) {
+				throw new IllegalStateException("Importing class [" + importingClass + "] of [" +
+						importedClass + "] not found: bean definition snapshot out of date?", ex);
+			}
+		}
+
+		@Override
+		public void removeImportingClass(String importingClass) {
+			this.importingClasses.values().removeIf(importingClass::equals);
+		}
+	}
+
+
+	private static class BeanData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final String beanName;
+
+		final String[] aliases;
+
+		final BeanDefinitionData definition;
+
+		BeanData(String beanName, String[] aliases, BeanDefinitionData definition) {
+			this.beanName = beanName;
+			this.aliases = aliases;
+			this.definition = definition;
+		}
+	}
+
+
+	/**
+	 * The declarative state of an {@link AbstractBeanDefinition}.
+	 */
+	private static class BeanDefinitionData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private boolean root;
+
+		@Nullable
+		private String parentName;
+
+		@Nullable
+		private String beanClassName;
+
+		@Nullable
+		private String scope;
+
+		private boolean abstractFlag;
+
+		@Nullable
+		private Boolean lazyInit;
+
+		private int autowireMode;
+
+		private int dependencyCheck;
+
+		@Nullable
+		private String[] dependsOn;
+
+		private boolean autowireCandidate;
+
+		private boolean primary;
+
+		private final List<QualifierData> qualifiers = new ArrayList<>();
+
+		private boolean nonPublicAccessAllowed;
+
+		private boolean lenientConstructorResolution;
+
+		@Nullable
+		private String factoryBeanName;
+
+		@Nullable
+		private String factoryMethodName;
+
+		private final List<ArgumentData> constructorArguments = new ArrayList<>();
+
+		private final List<PropertyData> propertyValues = new ArrayList<>();
+
+		private final Map<String, String> lookupOverrides = new LinkedHashMap<>();
+
+		@Nullable
+		private String initMethodName;
+
+		private boolean enforceInitMethod;
+
+		@Nullable
+		private String destroyMethodName;
+
+		private boolean enforceDestroyMethod;
+
+		private boolean synthetic;
+
+		private int role;
+
+		@Nullable
+		private String description;
+
+		@Nullable
+		private String resourceDescription;
+
+		private final Map<String, Serializable> attributes = new LinkedHashMap<>();
+
+		@Nullable
+		private String targetTypeName;
+
+		@Nullable
+		private InnerBeanData decoratedDefinition;
+
+		static BeanDefinitionData capture(String beanName, BeanDefinition beanDefinition) {
+			if (!(beanDefinition instanceof AbstractBeanDefinition)) {
+				throw new IllegalStateException("Cannot capture bean definition '" + beanName +
+						"' of type " + beanDefinition.getClass().getName());
+			}
+			AbstractBeanDefinition bd = (AbstractBeanDefinition) beanDefinition;
+			if (bd.getInstanceSupplier() != null) {
+				throw new IllegalStateException("Cannot capture bean definition '" + beanName +
+						"' with an instance supplier");
+			}
+			BeanDefinitionData data = new BeanDefinitionData();
+			data.parentName = bd.getParentName();
+			data.beanClassName = bd.getBeanClassName();
+			data.scope = bd.getScope();
+			data.abstractFlag = bd.isAbstract();
+			data.lazyInit = bd.getLazyInit();
+			data.autowireMode = bd.getAutowireMode();
+			data.dependencyCheck = bd.getDependencyCheck();
+			data.dependsOn = bd.getDependsOn();
+			data.autowireCandidate = bd.isAutowireCandidate();
+			data.primary = bd.isPrimary();
+			for (AutowireCandidateQualifier qualifier : bd.getQualifiers()) {
+				data.qualifiers.add(QualifierData.capture(beanName, qualifier));
+			}
+			data.nonPublicAccessAllowed = bd.isNonPublicAccessAllowed();
+			data.lenientConstructorResolution = bd.isLenientConstructorResolution();
+			data.factoryBeanName = bd.getFactoryBeanName();
+			data.factoryMethodName = bd.getFactoryMethodName();
+			ConstructorArgumentValues args = bd.getConstructorArgumentValues();
+			args.getIndexedArgumentValues().forEach((index, holder) ->
+					data.constructorArguments.add(ArgumentData.capture(beanName, index, holder)));
+			for (ConstructorArgumentValues.ValueHolder holder : args.getGenericArgumentValues()) {
+				data.constructorArguments.add(ArgumentData.capture(beanName, null, holder));
+			}
+			for (PropertyValue pv : bd.getPropertyValues().getPropertyValueList()) {
+				data.propertyValues.add(new PropertyData(pv.getName(), captureValue(beanName, pv.getValue()),
+						pv.isOptional()));
+			}
+			for (MethodOverride override : bd.getMethodOverrides().getOverrides()) {
+				if (!(override instanceof LookupOverride)) {
+					throw new IllegalStateException("Cannot capture bean definition '" + beanName +
+							"' with method override " + override);
+				}
+				data.lookupOverrides.put(override.getMethodName(), ((LookupOverride) override).getBeanName());
+			}
+			data.initMethodName = bd.getInitMethodName();
+			data.enforceInitMethod = bd.isEnforceInitMethod();
+			data.destroyMethodName = bd.getDestroyMethodName();
+			data.enforceDestroyMethod = bd.isEnforceDestroyMethod();
+			data.synthetic = bd.isSynthetic();
+			data.role = bd.getRole();
+			data.description = bd.getDescription();
+			data.resourceDescription = bd.getResourceDescription();
+			for (String name : bd.attributeNames()) {
+				Object value = bd.getAttribute(name);
+				// Only simple attributes are meaningful outside of the current JVM
+				if (value instanceof String || value instanceof Number || value instanceof Boolean ||
+						value instanceof Enum) {
+					data.attributes.put(name, (Serializable) value);
+				}
+			}
+			if (bd instanceof RootBeanDefinition) {
+				RootBeanDefinition rbd = (RootBeanDefinition) bd;
+				data.root = true;
+				Class<?> targetType = rbd.getTargetType();
+				data.targetTypeName = (targetType != null ? targetType.getName() : null);
+				BeanDefinitionHolder decorated = rbd.getDecoratedDefinition();
+				data.decoratedDefinition = (decorated != null ? InnerBeanData.capture(decorated) : null);
+			}
+			return data;
+		}
+
+		AbstractBeanDefinition toBeanDefinition(@Nullable ClassLoader classLoader) {
+			AbstractBeanDefinition bd;
+			if (this.root) {
+				RootBeanDefinition rbd = new RootBeanDefinition();
+				if (this.targetTypeName != null) {
+					rbd.setTargetType(resolveClass(this.targetTypeName, classLoader));
+				}
+				if (this.decoratedDefinition != null) {
+					rbd.setDecoratedDefinition(this.decoratedDefinition.toBeanDefinitionHolder(classLoader));
+				}
+				bd = rbd;
+			}
+			else {
+				GenericBeanDefinition gbd = new GenericBeanDefinition();
+				gbd.setParentName(this.parentName);
+				bd = gbd;
+			}
+			bd.setBeanClassName(this.beanClassName);
+			bd.setScope(this.scope);
+			bd.setAbstract(this.abstractFlag);
+			if (this.lazyInit != null) {
+				bd.setLazyInit(this.lazyInit);
+			}
+			bd.setAutowireMode(this.autowireMode);
+			bd.setDependencyCheck(this.dependencyCheck);
+			bd.setDependsOn(this.dependsOn);
+			bd.setAutowireCandidate(this.autowireCandidate);
+			bd.setPrimary(this.primary);
+			for (QualifierData qualifier : this.qualifiers) {
+				bd.addQualifier(qualifier.toQualifier(classLoader));
+			}
+			bd.setNonPublicAccessAllowed(this.nonPublicAccessAllowed);
+			bd.setLenientConstructorResolution(this.lenientConstructorResolution);
+			bd.setFactoryBeanName(this.factoryBeanName);
+			bd.setFactoryMethodName(this.factoryMethodName);
+			ConstructorArgumentValues args = bd.getConstructorArgumentValues();
+			for (ArgumentData argument : this.constructorArguments) {
+				argument.addTo(args, classLoader);
+			}
+			MutablePropertyValues pvs = bd.getPropertyValues();
+			for (PropertyData property : this.propertyValues) {
+				PropertyValue pv = new PropertyValue(property.name, restoreValue(property.value, classLoader));
+				pv.setOptional(property.optional);
+				pvs.addPropertyValue(pv);
+			}
+			this.lookupOverrides.forEach((methodName, beanName) ->
+					bd.getMethodOverrides().addOverride(new LookupOverride(methodName, beanName)));
+			bd.setInitMethodName(this.initMethodName);
+			bd.setEnforceInitMethod(this.enforceInitMethod);
+			bd.setDestroyMethodName(this.destroyMethodName);
+			bd.setEnforceDestroyMethod(this.enforceDestroyMethod);
+			bd.setSynthetic(this.synthetic);
+			bd.setRole(this.role);
+			bd.setDescription(this.description);
+			bd.setResourceDescription(this.resourceDescription);
+			this.attributes.forEach(bd::setAttribute);
+			return bd;
+		}
+	}
+
+
+	private static class QualifierData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String typeName;
+
+		private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+		QualifierData(String typeName) {
+			this.typeName = typeName;
+		}
+
+		static QualifierData capture(String beanName, AutowireCandidateQualifier qualifier) {
+			QualifierData data = new QualifierData(qualifier.getTypeName());
+			for (String name : qualifier.attributeNames()) {
+				data.attributes.put(name, captureValue(beanName, qualifier.getAttribute(name)));
+			}
+			return data;
+		}
+
+		AutowireCandidateQualifier toQualifier(@Nullable ClassLoader classLoader) {
+			AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier(this.typeName);
+			this.attributes.forEach((name, value) -> qualifier.setAttribute(name, restoreValue(value, classLoader)));
+			return qualifier;
+		}
+	}
+
+
+	private static class ArgumentData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		@Nullable
+		private final Integer index;
+
+		@Nullable
+		private final Object value;
+
+		@Nullable
+		private final String type;
+
+		@Nullable
+		private final String name;
+
+		ArgumentData(@Nullable Integer index, @Nullable Object value, @Nullable String type, @Nullable String name) {
+			this.index = index;
+			this.value = value;
+			this.type = type;
+			this.name = name;
+		}
+
+		static ArgumentData capture(String beanName, @Nullable Integer index, ConstructorArgumentValues.ValueHolder holder) {
+			return new ArgumentData(index, captureValue(beanName, holder.getValue()), holder.getType(), holder.getName());
+		}
+
+		void addTo(ConstructorArgumentValues args, @Nullable ClassLoader classLoader) {
+			ConstructorArgumentValues.ValueHolder holder = new ConstructorArgumentValues.ValueHolder(
+					restoreValue(this.value, classLoader), this.type, this.name);
+			if (this.index != null) {
+				args.addIndexedArgumentValue(this.index, holder);
+			}
+			else {
+				args.addGenericArgumentValue(holder);
+			}
+		}
+	}
+
+
+	private static class PropertyData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final String name;
+
+		@Nullable
+		final Object value;
+
+		final boolean optional;
+
+		PropertyData(String name, @Nullable Object value, boolean optional) {
+			this.name = name;
+			this.value = value;
+			this.optional = optional;
+		}
+	}
+
+
+	private static class InnerBeanData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String beanName;
+
+		@Nullable
+		private final String[] aliases;
+
+		private final BeanDefinitionData definition;
+
+		InnerBeanData(String beanName, @Nullable String[] aliases, BeanDefinitionData definition) {
+			this.beanName = beanName;
+			this.aliases = aliases;
+			this.definition = definition;
+		}
+
+		static InnerBeanData capture(BeanDefinitionHolder holder) {
+			return new InnerBeanData(holder.getBeanName(), holder.getAliases(),
+					BeanDefinitionData.capture(holder.getBeanName(), holder.getBeanDefinition()));
+		}
+
+		BeanDefinitionHolder toBeanDefinitionHolder(@Nullable ClassLoader classLoader) {
+			return new BeanDefinitionHolder(this.definition.toBeanDefinition(classLoader), this.beanName, this.aliases);
+		}
+	}
+
+
+	private static class BeanReferenceData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String beanName;
+
+		private final boolean toParent;
+
+		private final boolean nameOnly;
+
+		BeanReferenceData(String beanName, boolean toParent, boolean nameOnly) {
+			this.beanName = beanName;
+			this.toParent = toParent;
+			this.nameOnly = nameOnly;
+		}
+
+		Object toReference() {
+			return (this.nameOnly ? new RuntimeBeanNameReference(this.beanName) :
+					new RuntimeBeanReference(this.beanName, this.toParent));
+		}
+	}
+
+
+	private static class TypedStringValueData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		@Nullable
+		private final String value;
+
+		@Nullable
+		private final String targetTypeName;
+
+		@Nullable
+		private final String specifiedTypeName;
+
+		private final boolean dynamic;
+
+		TypedStringValueData(TypedStringValue value) {
+			this.value = value.getValue();
+			this.targetTypeName = (value.hasTargetType() ? value.getTargetType().getName() : value.getTargetTypeName());
+			this.specifiedTypeName = value.getSpecifiedTypeName();
+			this.dynamic = value.isDynamic();
+		}
+
+		TypedStringValue toTypedStringValue() {
+			TypedStringValue typedValue = new TypedStringValue(this.value);
+			typedValue.setTargetTypeName(this.targetTypeName);
+			typedValue.setSpecifiedTypeName(this.specifiedTypeName);
+			if (this.dynamic) {
+				typedValue.setDynamic();
+			}
+			return typedValue;
+		}
+	}
+
+
+	private static class ClassData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String className;
+
+		ClassData(String className) {
+			this.className = className;
+		}
+	}
+
+
+	/**
+	 * A {@link ManagedList}, {@link ManagedArray} or {@link ManagedSet}.
+	 */
+	private static class ManagedCollectionData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final boolean set;
+
+		private final boolean array;
+
+		@Nullable
+		private final String elementTypeName;
+
+		private final boolean mergeEnabled;
+
+		private final List<Object> elements = new ArrayList<>();
+
+		ManagedCollectionData(boolean set, boolean array, @Nullable String elementTypeName, boolean mergeEnabled) {
+			this.set = set;
+			this.array = array;
+			this.elementTypeName = elementTypeName;
+			this.mergeEnabled = mergeEnabled;
+		}
+
+		Object toManagedCollection(@Nullable ClassLoader classLoader) {
+			if (this.set) {
+				ManagedSet<Object> set = new ManagedSet<>(this.elements.size());
+				set.setElementTypeName(this.elementTypeName);
+				set.setMergeEnabled(this.mergeEnabled);
+				this.elements.forEach(element -> set.add(restoreValue(element, classLoader)));
+				return set;
+			}
+			ManagedList<Object> list = (this.array && this.elementTypeName != null ?
+					new ManagedArray(this.elementTypeName, this.elements.size()) :
+					new ManagedList<>(this.elements.size()));
+			if (this.elementTypeName != null) {
+				list.setElementTypeName(this.elementTypeName);
+			}
+			list.setMergeEnabled(this.mergeEnabled);
+			this.elements.forEach(element -> list.add(restoreValue(element, classLoader)));
+			return list;
+		}
+	}
+
+
+	/**
+	 * A {@link ManagedMap} or {@link ManagedProperties}.
+	 */
+	private static class ManagedMapData implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final boolean properties;
+
+		@Nullable
+		private final String keyTypeName;
+
+		@Nullable
+		private final String valueTypeName;
+
+		private final boolean mergeEnabled;
+
+		private final List<Object[]> entries = new ArrayList<>();
+
+		ManagedMapData(boolean properties, @Nullable String keyTypeName, @Nullable String valueTypeName,
+				boolean mergeEnabled) {
+
+			this.properties = properties;
+			this.keyTypeName = keyTypeName;
+			this.valueTypeName = valueTypeName;
+			this.mergeEnabled = mergeEnabled;
+		}
+
+		Object toManagedMap(@Nullable ClassLoader classLoader) {
+			if (this.properties) {
+				ManagedProperties props = new ManagedProperties();
+				props.setMergeEnabled(this.mergeEnabled);
+				this.entries.forEach(entry ->
+						props.put(restoreValue(entry[0], classLoader), restoreValue(entry[1], classLoader)));
+				return props;
+			}
+			ManagedMap<Object, Object> map = new ManagedMap<>(this.entries.size());
+			map.setKeyTypeName(this.keyTypeName);
+			map.setValueTypeName(this.valueTypeName);
+			map.setMergeEnabled(this.mergeEnabled);
+			this.entries.forEach(entry ->
+					map.put(restoreValue(entry[0], classLoader), restoreValue(entry[1], classLoader)));
+			return map;
+		}
+	}
+
+
+	@Nullable
+	private static Object captureValue(String beanName, @Nullable Object value) {
+		if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean ||
+				value instanceof Character || value instanceof Enum) {
+			return value;
+		}
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			return new BeanReferenceData(reference.getBeanName(), reference.isToParent(), false);
+		}
+		if (value instanceof RuntimeBeanNameReference) {
+			return new BeanReferenceData(((RuntimeBeanNameReference) value).getBeanName(), false, true);
+		}
+		if (value instanceof TypedStringValue) {
+			return new TypedStringValueData((TypedStringValue) value);
+		}
+		if (value instanceof Class) {
+			return new ClassData(((Class<?>) value).getName());
+		}
+		if (value instanceof BeanDefinitionHolder) {
+			return InnerBeanData.capture((BeanDefinitionHolder) value);
+		}
+		if (value instanceof BeanDefinition) {
+			return BeanDefinitionData.capture(beanName, (BeanDefinition) value);
+		}
+		if (value instanceof ManagedList) {
+			ManagedList<?> list = (ManagedList<?>) value;
+			ManagedCollectionData data = new ManagedCollectionData(
+					false, value instanceof ManagedArray, list.getElementTypeName(), list.isMergeEnabled());
+			list.forEach(element -> data.elements.add(captureValue(beanName, element)));
+			return data;
+		}
+		if (value instanceof ManagedSet) {
+			ManagedSet<?> set = (ManagedSet<?>) value;
+			ManagedCollectionData data = new ManagedCollectionData(
+					true, false, set.getElementTypeName(), set.isMergeEnabled());
+			set.forEach(element -> data.elements.add(captureValue(beanName, element)));
+			return data;
+		}
+		if (value instanceof ManagedMap) {
+			ManagedMap<?, ?> map = (ManagedMap<?, ?>) value;
+			ManagedMapData data = new ManagedMapData(
+					false, map.getKeyTypeName(), map.getValueTypeName(), map.isMergeEnabled());
+			map.forEach((key, element) ->
+					data.entries.add(new Object[] {captureValue(beanName, key), captureValue(beanName, element)}));
+			return data;
+		}
+		if (value instanceof ManagedProperties) {
+			ManagedProperties props = (ManagedProperties) value;
+			ManagedMapData data = new ManagedMapData(true, null, null, props.isMergeEnabled());
+			props.forEach((key, element) ->
+					data.entries.add(new Object[] {captureValue(beanName, key), captureValue(beanName, element)}));
+			return data;
+		}
+		throw new IllegalStateException("Cannot capture bean definition '" + beanName +
+				"' with value of type " + ObjectUtils.nullSafeClassName(value) + ": " + value);
+	}
+
+	@Nullable
+	private static Object restoreValue(@Nullable Object value, @Nullable ClassLoader classLoader) {
+		if (value instanceof BeanReferenceData) {
+			return ((BeanReferenceData) value).toReference();
+		}
+		if (value instanceof TypedStringValueData) {
+			return ((TypedStringValueData) value).toTypedStringValue();
+		}
+		if (value instanceof ClassData) {
+			return resolveClass(((ClassData) value).className, classLoader);
+		}
+		if (value instanceof InnerBeanData) {
+			return ((InnerBeanData) value).toBeanDefinitionHolder(classLoader);
+		}
+		if (value instanceof BeanDefinitionData) {
+			return ((BeanDefinitionData) value).toBeanDefinition(classLoader);
+		}
+		if (value instanceof ManagedCollectionData) {
+			return ((ManagedCollectionData) value).toManagedCollection(classLoader);
+		}
+		if (value instanceof ManagedMapData) {
+			return ((ManagedMapData) value).toManagedMap(classLoader);
+		}
+		return value;
+	}
+
+	private static Class<?> resolveClass(String className, @Nullable ClassLoader classLoader) {
+		try {
+			return ClassUtils.forName(className, classLoader);
+		}
+		catch (ClassNotFoundException ex) {
+			throw new IllegalStateException("Class [" + className + "] not found: " +
+					"bean definition snapshot out of date?", ex);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,11 +18,18 @@ package org.springframework.context.annotation;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,6 +43,7 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.context.index.CandidateComponentsIndex;
 import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.context.index.IndexedMetadataReaderFactory;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.EnvironmentCapable;
@@ -89,6 +97,20 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 
 	static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
 
+	/**
+	 * Environment property that makes {@code @ComponentScan} and
+	 * {@code <context:component-scan>} read class files concurrently through
+	 * the {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}:
+	 * {@value}. See {@link #setScanExecutor} for the requirements on custom
+	 * type filters and conditions.
+	 * <p>Default is {@code false}, scanning sequentially.
+	 * @since 5.2.4
+	 */
+	public static final String CONCURRENT_SCAN_PROPERTY_NAME = "spring.context.scan.concurrent";
+
+	/** Number of class files to read per task when scanning concurrently. */
+	private static final int SCAN_BATCH_SIZE = 32;
+
 
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -113,6 +135,9 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	@Nullable
 	private CandidateComponentsIndex componentsIndex;
 
+	@Nullable
+	private Executor scanExecutor;
+
 
 	/**
 	 * Protected constructor for flexible subclass initialization.
@@ -263,8 +288,10 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	@Override
 	public void setResourceLoader(@Nullable ResourceLoader resourceLoader) {
 		this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
-		this.metadataReaderFactory = new CachingMetadataReaderFactory(resourceLoader);
 		this.componentsIndex = CandidateComponentsIndexLoader.loadIndex(this.resourcePatternResolver.getClassLoader());
+		this.metadataReaderFactory = (this.componentsIndex != null && this.componentsIndex.hasClassMetadata() ?
+				new IndexedMetadataReaderFactory(this.componentsIndex, resourceLoader) :
+				new CachingMetadataReaderFactory(resourceLoader));
 	}
 
 	/**
@@ -284,7 +311,9 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	/**
 	 * Set the {@link MetadataReaderFactory} to use.
 	 * <p>Default is a {@link CachingMetadataReaderFactory} for the specified
-	 * {@linkplain #setResourceLoader resource loader}.
+	 * {@linkplain #setResourceLoader resource loader}, or an
+	 * {@link IndexedMetadataReaderFactory} if the components index provides
+	 * class metadata.
 	 * <p>Call this setter method <i>after</i> {@link #setResourceLoader} in order
 	 * for the given MetadataReaderFactory to override the default factory.
 	 */
@@ -302,6 +331,33 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 		return this.metadataReaderFactory;
 	}
 
+	/**
+	 * Set an Executor for reading and matching the class files in a base package
+	 * concurrently, e.g. a {@link java.util.concurrent.ForkJoinPool}.
+	 * <p>Default is none, reading all class files in the calling thread.
+	 * <p>The resulting candidate components are returned in the same order as
+	 * for sequential scanning. Note that the {@link MetadataReaderFactory}, any
+	 * custom {@link TypeFilter TypeFilters} and any conditions evaluated at
+	 * scanning time need to be safe for concurrent use in that case.
+	 * <p>For {@code @ComponentScan} and {@code <context:component-scan>}, the
+	 * common pool is used if the {@link #CONCURRENT_SCAN_PROPERTY_NAME} property
+	 * is set to {@code true} in the {@link Environment}.
+	 * @since 5.2.4
+	 * @see java.util.concurrent.ForkJoinPool#commonPool()
+	 */
+	public void setScanExecutor(@Nullable Executor scanExecutor) {
+		this.scanExecutor = scanExecutor;
+	}
+
+	/**
+	 * Return the Executor for scanning class files concurrently, if any.
+	 * @since 5.2.4
+	 */
+	@Nullable
+	public Executor getScanExecutor() {
+		return this.scanExecutor;
+	}
+
 
 	/**
 	 * Scan the class path for candidate components.
@@ -419,53 +475,104 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
 					resolveBasePackage(basePackage) + '/' + this.resourcePattern;
 			Resource[] resources = getResourcePatternResolver().getResources(packageSearchPath);
-			boolean traceEnabled = logger.isTraceEnabled();
-			boolean debugEnabled = logger.isDebugEnabled();
-			for (Resource resource : resources) {
-				if (traceEnabled) {
-					logger.trace("Scanning " + resource);
+			MetadataReaderFactory metadataReaderFactory = getMetadataReaderFactory();
+			Executor scanExecutor = getScanExecutor();
+			if (scanExecutor != null && resources.length > SCAN_BATCH_SIZE) {
+				List<CompletableFuture<List<BeanDefinition>>> futures =
+						new ArrayList<>(resources.length / SCAN_BATCH_SIZE + 1);
+				for (int start = 0; start < resources.length; start += SCAN_BATCH_SIZE) {
+					int from = start;
+					int to = Math.min(start + SCAN_BATCH_SIZE, resources.length);
+					Supplier<List<BeanDefinition>> batch = () -> {
+						List<BeanDefinition> batchCandidates = new ArrayList<>();
+						for (int i = from; i < to; i++) {
+							addCandidateComponent(resources[i], metadataReaderFactory, batchCandidates);
+						}
+						return batchCandidates;
+					};
+					try {
+						futures.add(CompletableFuture.supplyAsync(batch, scanExecutor));
+					}
+					catch (RejectedExecutionException ex) {
+						futures.add(CompletableFuture.completedFuture(batch.get()));
+					}
 				}
-				if (resource.isReadable()) {
+				// Collect in submission order, retaining the sequential candidate order
+				for (CompletableFuture<List<BeanDefinition>> future : futures) {
 					try {
-						MetadataReader metadataReader = getMetadataReaderFactory().getMetadataReader(resource);
-						if (isCandidateComponent(metadataReader)) {
-							ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
-							sbd.setResource(resource);
-							sbd.setSource(resource);
-							if (isCandidateComponent(sbd)) {
-								if (debugEnabled) {
-									logger.debug("Identified candidate component class: " + resource);
-								}
-								candidates.add(sbd);
-							}
-							else {
-								if (debugEnabled) {
-									logger.debug("Ignored because not a concrete top-level class: " + resource);
-								}
-							}
+						candidates.addAll(future.join());
+					}
+					catch (CompletionException ex) {
+						Throwable cause = ex.getCause();
+						if (cause instanceof RuntimeException) {
+							throw (RuntimeException) cause;
+						}
+						if (cause instanceof Error) {
+							throw (Error) cause;
 						}
-						else {
-							if (traceEnabled) {
-								logger.trace("Ignored because not matching any filter: " + resource);
-							}
+						throw ex;
+					}
+				}
+			}
+			else {
+				for (Resource resource : resources) {
+					addCandidateComponent(resource, metadataReaderFactory, candidates);
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Read the given class file and add a bean definition for it to the given
+	 * candidates if it qualifies as candidate component.
+	 */
+	private void addCandidateComponent(Resource resource, MetadataReaderFactory metadataReaderFactory,
+			Collection<BeanDefinition> candidates) {
+
+		boolean traceEnabled = logger.isTraceEnabled();
+		boolean debugEnabled = logger.isDebugEnabled();
+		if (traceEnabled) {
+			logger.trace("Scanning " + resource);
+		}
+		if (resource.isReadable()) {
+			try {
+				MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
+				if (isCandidateComponent(metadataReader)) {
+					ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+					sbd.setResource(resource);
+					sbd.setSource(resource);
+					if (isCandidateComponent(sbd)) {
+						if (debugEnabled) {
+							logger.debug("Identified candidate component class: " + resource);
 						}
+						candidates.add(sbd);
 					}
-					catch (Throwable ex) {
-						throw new BeanDefinitionStoreException(
-								"Failed to read candidate component class: " + resource, ex);
+					else {
+						if (debugEnabled) {
+							logger.debug("Ignored because not a concrete top-level class: " + resource);
+						}
 					}
 				}
 				else {
 					if (traceEnabled) {
-						logger.trace("Ignored because not readable: " + resource);
+						logger.trace("Ignored because not matching any filter: " + resource);
 					}
 				}
 			}
+			catch (Throwable ex) {
+				throw new BeanDefinitionStoreException(
+						"Failed to read candidate component class: " + resource, ex);
+			}
 		}
-		catch (IOException ex) {
-			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		else {
+			if (traceEnabled) {
+				logger.trace("Ignored because not readable: " + resource);
+			}
 		}
-		return candidates;
 	}
 
 
@@ -508,11 +615,12 @@ public class ClassPathScanningCandidateComponentProvider implements EnvironmentC
 	 * @return whether the class qualifies as a candidate component
 	 */
 	private boolean isConditionMatch(MetadataReader metadataReader) {
-		if (this.conditionEvaluator == null) {
-			this.conditionEvaluator =
-					new ConditionEvaluator(getRegistry(), this.environment, this.resourcePatternResolver);
+		ConditionEvaluator conditionEvaluator = this.conditionEvaluator;
+		if (conditionEvaluator == null) {
+			conditionEvaluator = new ConditionEvaluator(getRegistry(), this.environment, this.resourcePatternResolver);
+			this.conditionEvaluator = conditionEvaluator;
 		}
-		return !this.conditionEvaluator.shouldSkip(metadataReader.getAnnotationMetadata());
+		return !conditionEvaluator.shouldSkip(metadataReader.getAnnotationMetadata());
 	}
 
 	/**
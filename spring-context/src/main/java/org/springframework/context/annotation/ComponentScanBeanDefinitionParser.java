@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.context.annotation;
 
 import java.lang.annotation.Annotation;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Pattern;
 
 import org.w3c.dom.Element;
@@ -108,6 +109,11 @@ public class ComponentScanBeanDefinitionParser implements BeanDefinitionParser {
 			scanner.setResourcePattern(element.getAttribute(RESOURCE_PATTERN_ATTRIBUTE));
 		}
 
+		if (parserContext.getReaderContext().getEnvironment().getProperty(
+				ClassPathScanningCandidateComponentProvider.CONCURRENT_SCAN_PROPERTY_NAME, Boolean.class, false)) {
+			scanner.setScanExecutor(ForkJoinPool.commonPool());
+		}
+
 		try {
 			parseBeanNameGenerator(element, scanner);
 		}
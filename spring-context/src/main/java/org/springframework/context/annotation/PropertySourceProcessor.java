@@ -0,0 +1,205 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.DefaultPropertySourceFactory;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertySourceFactory;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Adds the property sources declared through
+ * {@link org.springframework.context.annotation.PropertySource @PropertySource}
+ * to a {@link ConfigurableEnvironment}, keeping track of the
+ * processed declarations so that they can be replayed later on, e.g. when
+ * registering a {@link BeanDefinitionSnapshot}.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see ConfigurationClassParser
+ */
+final class PropertySourceProcessor {
+
+	private static final PropertySourceFactory DEFAULT_PROPERTY_SOURCE_FACTORY = new DefaultPropertySourceFactory();
+
+	private static final Log logger = LogFactory.getLog(PropertySourceProcessor.class);
+
+	private final ConfigurableEnvironment environment;
+
+	private final ResourceLoader resourceLoader;
+
+	private final List<String> propertySourceNames = new ArrayList<>();
+
+	private final List<Descriptor> descriptors = new ArrayList<>();
+
+
+	PropertySourceProcessor(ConfigurableEnvironment environment, ResourceLoader resourceLoader) {
+		this.environment = environment;
+		this.resourceLoader = resourceLoader;
+	}
+
+
+	/**
+	 * Process the given {@code @PropertySource} attributes.
+	 */
+	public void processPropertySource(AnnotationAttributes propertySource) throws IOException {
+		String[] locations = propertySource.getStringArray("value");
+		Assert.isTrue(locations.length > 0, "At least one @PropertySource(value) location is required");
+		Class<? extends PropertySourceFactory> factoryClass = propertySource.getClass("factory");
+		processPropertySource(new Descriptor(propertySource.getString("name"), locations,
+				propertySource.getBoolean("ignoreResourceNotFound"), propertySource.getString("encoding"),
+				(factoryClass != PropertySourceFactory.class ? factoryClass.getName() : null)));
+	}
+
+	/**
+	 * Process the given {@code @PropertySource} declaration.
+	 */
+	public void processPropertySource(Descriptor descriptor) throws IOException {
+		PropertySourceFactory factory = DEFAULT_PROPERTY_SOURCE_FACTORY;
+		if (descriptor.factoryClassName != null) {
+			try {
+				Class<?> factoryClass =
+						ClassUtils.forName(descriptor.factoryClassName, this.resourceLoader.getClassLoader());
+				factory = (PropertySourceFactory) BeanUtils.instantiateClass(factoryClass);
+			}
+			catch (ClassNotFoundException ex) {
+				throw new IllegalStateException(
+						"PropertySourceFactory class [" + descriptor.factoryClassName + "] not found", ex);
+			}
+		}
+
+		for (String location : descriptor.locations) {
+			try {
+				String resolvedLocation = this.environment.resolveRequiredPlaceholders(location);
+				Resource resource = this.resourceLoader.getResource(resolvedLocation);
+				addPropertySource(factory.createPropertySource(
+						descriptor.name, new EncodedResource(resource, descriptor.encoding)));
+			}
+			catch (IllegalArgumentException | FileNotFoundException | UnknownHostException ex) {
+				// Placeholders not resolvable or resource not found when trying to open it
+				if (descriptor.ignoreResourceNotFound) {
+					if (logger.isInfoEnabled()) {
+						logger.info("Properties location [" + location + "] not resolvable: " + ex.getMessage());
+					}
+				}
+				else {
+					throw ex;
+				}
+			}
+		}
+		this.descriptors.add(descriptor);
+	}
+
+	/**
+	 * Return the declarations processed so far, in processing order.
+	 */
+	public List<Descriptor> getDescriptors() {
+		return Collections.unmodifiableList(this.descriptors);
+	}
+
+	private void addPropertySource(PropertySource<?> propertySource) {
+		String name = propertySource.getName();
+		MutablePropertySources propertySources = this.environment.getPropertySources();
+
+		if (this.propertySourceNames.contains(name)) {
+			// We've already added a version, we need to extend it
+			PropertySource<?> existing = propertySources.get(name);
+			if (existing != null) {
+				PropertySource<?> newSource = (propertySource instanceof ResourcePropertySource ?
+						((ResourcePropertySource) propertySource).withResourceName() : propertySource);
+				if (existing instanceof CompositePropertySource) {
+					((CompositePropertySource) existing).addFirstPropertySource(newSource);
+				}
+				else {
+					if (existing instanceof ResourcePropertySource) {
+						existing = ((ResourcePropertySource) existing).withResourceName();
+					}
+					CompositePropertySource composite = new CompositePropertySource(name);
+					composite.addPropertySource(newSource);
+					composite.addPropertySource(existing);
+					propertySources.replace(name, composite);
+				}
+				return;
+			}
+		}
+
+		if (this.propertySourceNames.isEmpty()) {
+			propertySources.addLast(propertySource);
+		}
+		else {
+			String firstProcessed = this.propertySourceNames.get(this.propertySourceNames.size() - 1);
+			propertySources.addBefore(firstProcessed, propertySource);
+		}
+		this.propertySourceNames.add(name);
+	}
+
+
+	/**
+	 * A serializable {@code @PropertySource} declaration.
+	 */
+	static final class Descriptor implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		@Nullable
+		private final String name;
+
+		private final String[] locations;
+
+		private final boolean ignoreResourceNotFound;
+
+		@Nullable
+		private final String encoding;
+
+		@Nullable
+		private final String factoryClassName;
+
+		Descriptor(@Nullable String name, String[] locations, boolean ignoreResourceNotFound,
+				@Nullable String encoding, @Nullable String factoryClassName) {
+
+			this.name = (StringUtils.hasLength(name) ? name : null);
+			this.locations = locations;
+			this.ignoreResourceNotFound = ignoreResourceNotFound;
+			this.encoding = (StringUtils.hasLength(encoding) ? encoding : null);
+			this.factoryClassName = factoryClassName;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,11 +17,14 @@
 package org.springframework.context.index;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.asm.ClassVisitor;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
@@ -43,6 +46,10 @@ import org.springframework.util.MultiValueMap;
  * not a rule. Similarly, the {@code stereotype} is usually the fully qualified name of
  * a target type but it can be any marker really.
  *
+ * <p>As of 5.2.4, the index may also provide the class metadata of indexed types
+ * and configuration classes, as defined in {@code META-INF/spring.components.metadata},
+ * allowing for processing those classes without reading their class files.
+ *
  * @author Stephane Nicoll
  * @since 5.0
  */
@@ -52,9 +59,16 @@ public class CandidateComponentsIndex {
 
 	private final MultiValueMap<String, Entry> index;
 
+	private final Map<String, String> classMetadata;
+
 
 	CandidateComponentsIndex(List<Properties> content) {
+		this(content, Collections.emptyList());
+	}
+
+	CandidateComponentsIndex(List<Properties> content, List<Properties> classMetadata) {
 		this.index = parseIndex(content);
+		this.classMetadata = parseClassMetadata(classMetadata);
 	}
 
 
@@ -76,6 +90,49 @@ public class CandidateComponentsIndex {
 		return Collections.emptySet();
 	}
 
+	/**
+	 * Determine whether the index provides class metadata for any type.
+	 * @since 5.2.4
+	 * @see #hasClassMetadata(String)
+	 */
+	public boolean hasClassMetadata() {
+		return !this.classMetadata.isEmpty();
+	}
+
+	/**
+	 * Determine whether the index provides the class metadata for the given type,
+	 * as captured at build time.
+	 * @param type the fully qualified class name
+	 * @return {@code true} if {@link #acceptClassMetadata} is able to replay
+	 * the metadata for the given type
+	 * @since 5.2.4
+	 */
+	public boolean hasClassMetadata(String type) {
+		return this.classMetadata.containsKey(type);
+	}
+
+	/**
+	 * Replay the class metadata for the given type, as captured at build time,
+	 * into the given ASM visitor: delivering the class declaration, member class
+	 * declarations as well as the runtime-visible class and method annotations
+	 * in the same way as an ASM {@link org.springframework.asm.ClassReader}.
+	 * @param type the fully qualified class name
+	 * @param visitor the visitor to deliver the class file events to
+	 * @return {@code true} if the metadata has been replayed, or {@code false}
+	 * if the index does not provide metadata for the given type
+	 * @throws IllegalArgumentException if the indexed metadata is malformed
+	 * @since 5.2.4
+	 * @see IndexedMetadataReaderFactory
+	 */
+	public boolean acceptClassMetadata(String type, ClassVisitor visitor) {
+		String metadata = this.classMetadata.get(type);
+		if (metadata == null) {
+			return false;
+		}
+		new IndexedClassMetadata(metadata).accept(visitor);
+		return true;
+	}
+
 	private static MultiValueMap<String, Entry> parseIndex(List<Properties> content) {
 		MultiValueMap<String, Entry> index = new LinkedMultiValueMap<>();
 		for (Properties entry : content) {
@@ -89,6 +146,14 @@ public class CandidateComponentsIndex {
 		return index;
 	}
 
+	private static Map<String, String> parseClassMetadata(List<Properties> content) {
+		Map<String, String> classMetadata = new HashMap<>();
+		for (Properties entry : content) {
+			entry.forEach((type, value) -> classMetadata.putIfAbsent((String) type, (String) value));
+		}
+		return classMetadata;
+	}
+
 	private static class Entry {
 		private final String type;
 		private final String packageName;
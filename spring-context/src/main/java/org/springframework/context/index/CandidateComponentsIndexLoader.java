@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,6 +47,14 @@ public final class CandidateComponentsIndexLoader {
 	 */
 	public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/spring.components";
 
+	/**
+	 * The location to look for the class metadata of indexed types.
+	 * <p>Can be present in multiple JAR files. Only taken into account
+	 * if a {@value #COMPONENTS_RESOURCE_LOCATION} index is present.
+	 * @since 5.2.4
+	 */
+	public static final String CLASS_METADATA_RESOURCE_LOCATION = "META-INF/spring.components.metadata";
+
 	/**
 	 * System property that instructs Spring to ignore the index, i.e.
 	 * to always return {@code null} from {@link #loadIndex(ClassLoader)}.
@@ -95,26 +103,33 @@ public final class CandidateComponentsIndexLoader {
 			return null;
 		}
 
+		List<Properties> result = loadProperties(classLoader, COMPONENTS_RESOURCE_LOCATION);
+		if (result.isEmpty()) {
+			return null;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + result.size() + "] index(es)");
+		}
+		int totalCount = result.stream().mapToInt(Properties::size).sum();
+		if (totalCount == 0) {
+			return null;
+		}
+		return new CandidateComponentsIndex(result, loadProperties(classLoader, CLASS_METADATA_RESOURCE_LOCATION));
+	}
+
+	private static List<Properties> loadProperties(ClassLoader classLoader, String location) {
 		try {
-			Enumeration<URL> urls = classLoader.getResources(COMPONENTS_RESOURCE_LOCATION);
-			if (!urls.hasMoreElements()) {
-				return null;
-			}
+			Enumeration<URL> urls = classLoader.getResources(location);
 			List<Properties> result = new ArrayList<>();
 			while (urls.hasMoreElements()) {
 				URL url = urls.nextElement();
 				Properties properties = PropertiesLoaderUtils.loadProperties(new UrlResource(url));
 				result.add(properties);
 			}
-			if (logger.isDebugEnabled()) {
-				logger.debug("Loaded " + result.size() + "] index(es)");
-			}
-			int totalCount = result.stream().mapToInt(Properties::size).sum();
-			return (totalCount > 0 ? new CandidateComponentsIndex(result) : null);
+			return result;
 		}
 		catch (IOException ex) {
-			throw new IllegalStateException("Unable to load indexes from location [" +
-					COMPONENTS_RESOURCE_LOCATION + "]", ex);
+			throw new IllegalStateException("Unable to load indexes from location [" + location + "]", ex);
 		}
 	}
 
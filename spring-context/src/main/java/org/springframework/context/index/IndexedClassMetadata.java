@@ -0,0 +1,427 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Type;
+import org.springframework.lang.Nullable;
+
+/**
+ * Class metadata as written to {@code META-INF/spring.components.metadata} by
+ * the {@code spring-context-indexer}, replayed as the class file events that
+ * an ASM {@link org.springframework.asm.ClassReader} would have produced.
+ *
+ * <p>Each entry is a record of the following fields, using typed values:
+ * {@code access}, {@code name}, {@code super}, {@code interfaces} (class
+ * declaration with internal names), {@code inner} (records with {@code name},
+ * {@code outer}, {@code innerName} and {@code access} for the class itself and
+ * its member classes), {@code annotations} (runtime-visible class annotations)
+ * and {@code methods} (records with {@code access}, {@code name},
+ * {@code descriptor} and {@code annotations} for every method or constructor
+ * carrying runtime-visible annotations). For example:
+ * <pre class="code">
+ * {access=I33,name=s"com/example/AppConfig",super=s"java/lang/Object",
+ *  annotations=[&#064;"Lorg/springframework/context/annotation/Configuration;"()],
+ *  methods=[{access=I1,name=s"service",descriptor=s"()Lcom/example/Service;",
+ *  annotations=[&#064;"Lorg/springframework/context/annotation/Bean;"(name=[s"main"])]}]}
+ * </pre>
+ *
+ * <p>Values are written as {@code Z} (boolean: {@code true}/{@code false}),
+ * {@code B}, {@code C} (numeric code), {@code S}, {@code I}, {@code J},
+ * {@code F} or {@code D} followed by the literal, {@code s"..."} for a string
+ * (escaping {@code "} and {@code \} with a backslash), {@code c"..."} for a
+ * class (type descriptor), {@code e"..."} for an enum constant (enum type
+ * descriptor followed by the constant name), {@code @"..."(...)} for an
+ * annotation (type descriptor and explicitly specified attributes),
+ * {@code [...]} for an array and {@code {...}} for a record.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ */
+final class IndexedClassMetadata {
+
+	private final Map<String, Object> record;
+
+
+	@SuppressWarnings("unchecked")
+	IndexedClassMetadata(String value) {
+		Parser parser = new Parser(value);
+		Object record = parser.readValue();
+		if (!(record instanceof Map) || !parser.isAtEnd()) {
+			throw new IllegalArgumentException("Invalid class metadata: " + value);
+		}
+		this.record = (Map<String, Object>) record;
+	}
+
+
+	/**
+	 * Replay this class metadata into the given visitor, ending with
+	 * {@link ClassVisitor#visitEnd()}.
+	 */
+	void accept(ClassVisitor visitor) {
+		List<Object> interfaces = getList(this.record, "interfaces");
+		String[] interfaceNames = new String[interfaces.size()];
+		for (int i = 0; i < interfaceNames.length; i++) {
+			interfaceNames[i] = (String) interfaces.get(i);
+		}
+		visitor.visit(0, getInt(this.record, "access"), getString(this.record, "name"),
+				null, (String) this.record.get("super"), interfaceNames);
+		for (Object element : getList(this.record, "inner")) {
+			Map<String, Object> inner = getRecord(element);
+			visitor.visitInnerClass(getString(inner, "name"), (String) inner.get("outer"),
+					(String) inner.get("innerName"), getInt(inner, "access"));
+		}
+		for (Object element : getList(this.record, "annotations")) {
+			AnnotationValue annotation = (AnnotationValue) element;
+			acceptAttributes(annotation.attributes, visitor.visitAnnotation(annotation.descriptor, true));
+		}
+		for (Object element : getList(this.record, "methods")) {
+			Map<String, Object> method = getRecord(element);
+			MethodVisitor methodVisitor = visitor.visitMethod(getInt(method, "access"),
+					getString(method, "name"), getString(method, "descriptor"), null, null);
+			if (methodVisitor != null) {
+				for (Object annotationElement : getList(method, "annotations")) {
+					AnnotationValue annotation = (AnnotationValue) annotationElement;
+					acceptAttributes(annotation.attributes,
+							methodVisitor.visitAnnotation(annotation.descriptor, true));
+				}
+				methodVisitor.visitEnd();
+			}
+		}
+		visitor.visitEnd();
+	}
+
+	private static void acceptAttributes(Map<String, Object> attributes, @Nullable AnnotationVisitor visitor) {
+		if (visitor != null) {
+			attributes.forEach((name, value) -> acceptValue(visitor, name, value));
+			visitor.visitEnd();
+		}
+	}
+
+	private static void acceptValue(AnnotationVisitor visitor, @Nullable String name, Object value) {
+		if (value instanceof ClassValue) {
+			visitor.visit(name, Type.getType(((ClassValue) value).descriptor));
+		}
+		else if (value instanceof EnumValue) {
+			visitor.visitEnum(name, ((EnumValue) value).descriptor, ((EnumValue) value).name);
+		}
+		else if (value instanceof AnnotationValue) {
+			AnnotationValue annotation = (AnnotationValue) value;
+			acceptAttributes(annotation.attributes, visitor.visitAnnotation(name, annotation.descriptor));
+		}
+		else if (value instanceof List) {
+			List<?> elements = (List<?>) value;
+			Object primitiveArray = (!elements.isEmpty() ? toPrimitiveArray(elements) : null);
+			if (primitiveArray != null) {
+				// Like ClassReader: non-empty arrays of primitives are delivered as a single value
+				visitor.visit(name, primitiveArray);
+			}
+			else {
+				AnnotationVisitor arrayVisitor = visitor.visitArray(name);
+				if (arrayVisitor != null) {
+					for (Object element : elements) {
+						acceptValue(arrayVisitor, null, element);
+					}
+					arrayVisitor.visitEnd();
+				}
+			}
+		}
+		else {
+			visitor.visit(name, value);
+		}
+	}
+
+	@Nullable
+	private static Object toPrimitiveArray(List<?> elements) {
+		Object first = elements.get(0);
+		int size = elements.size();
+		if (first instanceof Boolean) {
+			boolean[] array = new boolean[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Boolean) elements.get(i);
+			}
+			return array;
+		}
+		if (first instanceof Byte) {
+			byte[] array = new byte[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Byte) elements.get(i);
+			}
+			return array;
+		}
+		if (first instanceof Character) {
+			char[] array = new char[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Character) elements.get(i);
+			}
+			return array;
+		}
+		if (first instanceof Short) {
+			short[] array = new short[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Short) elements.get(i);
+			}
+			return array;
+		}
+		if (first instanceof Integer) {
+			int[] array = new int[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Integer) elements.get(i);
+			}
+			return array;
+		}
+		if (first instanceof Long) {
+			long[] array = new long[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Long) elements.get(i);
+			}
+			return array;
+		}
+		if (first instanceof Float) {
+			float[] array = new float[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Float) elements.get(i);
+			}
+			return array;
+		}
+		if (first instanceof Double) {
+			double[] array = new double[size];
+			for (int i = 0; i < size; i++) {
+				array[i] = (Double) elements.get(i);
+			}
+			return array;
+		}
+		return null;
+	}
+
+	private static int getInt(Map<String, Object> record, String field) {
+		Object value = record.get(field);
+		if (!(value instanceof Integer)) {
+			throw new IllegalArgumentException("Missing int field '" + field + "' in class metadata");
+		}
+		return (Integer) value;
+	}
+
+	private static String getString(Map<String, Object> record, String field) {
+		Object value = record.get(field);
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("Missing string field '" + field + "' in class metadata");
+		}
+		return (String) value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> getList(Map<String, Object> record, String field) {
+		Object value = record.get(field);
+		return (value instanceof List ? (List<Object>) value : Collections.emptyList());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> getRecord(Object value) {
+		if (!(value instanceof Map)) {
+			throw new IllegalArgumentException("Expected record in class metadata but got " + value);
+		}
+		return (Map<String, Object>) value;
+	}
+
+
+	/**
+	 * Class value, holding its type descriptor.
+	 */
+	private static final class ClassValue {
+
+		final String descriptor;
+
+		ClassValue(String descriptor) {
+			this.descriptor = descriptor;
+		}
+	}
+
+
+	/**
+	 * Enum constant value, holding the enum type descriptor and the constant name.
+	 */
+	private static final class EnumValue {
+
+		final String descriptor;
+
+		final String name;
+
+		EnumValue(String descriptor, String name) {
+			this.descriptor = descriptor;
+			this.name = name;
+		}
+	}
+
+
+	/**
+	 * Annotation value, holding the annotation type descriptor and the
+	 * explicitly specified attributes.
+	 */
+	private static final class AnnotationValue {
+
+		final String descriptor;
+
+		final Map<String, Object> attributes;
+
+		AnnotationValue(String descriptor, Map<String, Object> attributes) {
+			this.descriptor = descriptor;
+			this.attributes = attributes;
+		}
+	}
+
+
+	/**
+	 * Recursive descent parser for the typed value syntax.
+	 */
+	private static final class Parser {
+
+		private final String source;
+
+		private int pos;
+
+		Parser(String source) {
+			this.source = source;
+		}
+
+		boolean isAtEnd() {
+			return (this.pos == this.source.length());
+		}
+
+		Object readValue() {
+			char type = next();
+			switch (type) {
+				case 'Z':
+					return Boolean.valueOf(readLiteral());
+				case 'B':
+					return Byte.valueOf(readLiteral());
+				case 'C':
+					return (char) Integer.parseInt(readLiteral());
+				case 'S':
+					return Short.valueOf(readLiteral());
+				case 'I':
+					return Integer.valueOf(readLiteral());
+				case 'J':
+					return Long.valueOf(readLiteral());
+				case 'F':
+					return Float.valueOf(readLiteral());
+				case 'D':
+					return Double.valueOf(readLiteral());
+				case 's':
+					return readString();
+				case 'c':
+					return new ClassValue(readString());
+				case 'e':
+					String enumValue = readString();
+					int separator = enumValue.indexOf(';');
+					if (separator == -1) {
+						throw error("Invalid enum value '" + enumValue + "'");
+					}
+					return new EnumValue(enumValue.substring(0, separator + 1), enumValue.substring(separator + 1));
+				case '@':
+					String descriptor = readString();
+					expect('(');
+					return new AnnotationValue(descriptor, readFields(')'));
+				case '{':
+					return readFields('}');
+				case '[':
+					List<Object> elements = new ArrayList<>();
+					if (!tryNext(']')) {
+						do {
+							elements.add(readValue());
+						}
+						while (tryNext(','));
+						expect(']');
+					}
+					return elements;
+				default:
+					throw error("Unexpected value type '" + type + "'");
+			}
+		}
+
+		private Map<String, Object> readFields(char end) {
+			Map<String, Object> fields = new LinkedHashMap<>();
+			if (!tryNext(end)) {
+				do {
+					int start = this.pos;
+					while (this.pos < this.source.length() && this.source.charAt(this.pos) != '=') {
+						this.pos++;
+					}
+					String name = this.source.substring(start, this.pos);
+					expect('=');
+					fields.put(name, readValue());
+				}
+				while (tryNext(','));
+				expect(end);
+			}
+			return fields;
+		}
+
+		private String readLiteral() {
+			int start = this.pos;
+			while (this.pos < this.source.length() && ",)]}".indexOf(this.source.charAt(this.pos)) == -1) {
+				this.pos++;
+			}
+			return this.source.substring(start, this.pos);
+		}
+
+		private String readString() {
+			expect('"');
+			StringBuilder value = new StringBuilder();
+			char ch;
+			while ((ch = next()) != '"') {
+				value.append(ch == '\\' ? next() : ch);
+			}
+			return value.toString();
+		}
+
+		private char next() {
+			if (isAtEnd()) {
+				throw error("Unexpected end of class metadata");
+			}
+			return this.source.charAt(this.pos++);
+		}
+
+		private boolean tryNext(char ch) {
+			if (!isAtEnd() && this.source.charAt(this.pos) == ch) {
+				this.pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char ch) {
+			if (next() != ch) {
+				throw error("Expected '" + ch + "'");
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + this.pos + " in class metadata: " +
+					this.source);
+		}
+	}
+
+}
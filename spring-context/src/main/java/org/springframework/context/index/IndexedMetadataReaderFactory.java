@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link CachingMetadataReaderFactory} which builds the {@link MetadataReader}
+ * for a class from the class metadata in a {@link CandidateComponentsIndex}, if
+ * available, rather than from reading the class file. Classes without indexed
+ * metadata (or with malformed metadata) are read from their class files as usual.
+ *
+ * <p>Used by component scanning and configuration class processing whenever
+ * the index provides class metadata, so that conditions, {@code @Bean} methods
+ * and imports of indexed classes are processed without any class file access.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see CandidateComponentsIndex#acceptClassMetadata
+ */
+public class IndexedMetadataReaderFactory extends CachingMetadataReaderFactory {
+
+	private static final Log logger = LogFactory.getLog(IndexedMetadataReaderFactory.class);
+
+	private final CandidateComponentsIndex index;
+
+	private final Map<String, MetadataReader> indexedMetadataReaderCache = new ConcurrentHashMap<>(64);
+
+
+	/**
+	 * Create a new IndexedMetadataReaderFactory for the given index and class loader.
+	 * @param index the index providing the class metadata
+	 * @param classLoader the ClassLoader to use
+	 */
+	public IndexedMetadataReaderFactory(CandidateComponentsIndex index, @Nullable ClassLoader classLoader) {
+		super(classLoader);
+		this.index = index;
+	}
+
+	/**
+	 * Create a new IndexedMetadataReaderFactory for the given index and resource loader.
+	 * @param index the index providing the class metadata
+	 * @param resourceLoader the Spring ResourceLoader to use
+	 * (also determines the ClassLoader to use)
+	 */
+	public IndexedMetadataReaderFactory(CandidateComponentsIndex index, @Nullable ResourceLoader resourceLoader) {
+		super(resourceLoader);
+		this.index = index;
+	}
+
+
+	/**
+	 * Return the index providing the class metadata.
+	 */
+	public final CandidateComponentsIndex getIndex() {
+		return this.index;
+	}
+
+
+	/**
+	 * Create a {@link CachingMetadataReaderFactory} for the given resource loader,
+	 * reading class metadata from the index for the resource loader's class
+	 * loader, if that index provides any.
+	 * @param resourceLoader the Spring ResourceLoader to use
+	 * @return an IndexedMetadataReaderFactory if indexed class metadata is
+	 * available, or a plain CachingMetadataReaderFactory otherwise
+	 * @see CandidateComponentsIndexLoader#loadIndex
+	 */
+	public static CachingMetadataReaderFactory forResourceLoader(@Nullable ResourceLoader resourceLoader) {
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(
+				resourceLoader != null ? resourceLoader.getClassLoader() : null);
+		return (index != null && index.hasClassMetadata() ?
+				new IndexedMetadataReaderFactory(index, resourceLoader) :
+				new CachingMetadataReaderFactory(resourceLoader));
+	}
+
+	/**
+	 * Create a {@link CachingMetadataReaderFactory} for the given class loader,
+	 * reading class metadata from the index for that class loader, if that
+	 * index provides any.
+	 * @param classLoader the ClassLoader to use
+	 * @return an IndexedMetadataReaderFactory if indexed class metadata is
+	 * available, or a plain CachingMetadataReaderFactory otherwise
+	 * @see CandidateComponentsIndexLoader#loadIndex
+	 */
+	public static CachingMetadataReaderFactory forClassLoader(@Nullable ClassLoader classLoader) {
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(classLoader);
+		return (index != null && index.hasClassMetadata() ?
+				new IndexedMetadataReaderFactory(index, classLoader) :
+				new CachingMetadataReaderFactory(classLoader));
+	}
+
+
+	@Override
+	public MetadataReader getMetadataReader(String className) throws IOException {
+		if (this.index.hasClassMetadata(className)) {
+			MetadataReader metadataReader = this.indexedMetadataReaderCache.get(className);
+			if (metadataReader == null) {
+				metadataReader = createIndexedMetadataReader(className);
+				if (metadataReader != null) {
+					MetadataReader existing = this.indexedMetadataReaderCache.putIfAbsent(className, metadataReader);
+					if (existing != null) {
+						metadataReader = existing;
+					}
+				}
+			}
+			if (metadataReader != null) {
+				return metadataReader;
+			}
+		}
+		return super.getMetadataReader(className);
+	}
+
+	@Nullable
+	private MetadataReader createIndexedMetadataReader(String className) {
+		Resource resource = getResourceLoader().getResource(ResourceLoader.CLASSPATH_URL_PREFIX +
+				ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX);
+		try {
+			return createMetadataReader(resource, visitor -> this.index.acceptClassMetadata(className, visitor));
+		}
+		catch (RuntimeException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring indexed class metadata for [" + className +
+						"] - falling back to class file: " + ex);
+			}
+			return null;
+		}
+	}
+
+	@Override
+	public void clearCache() {
+		super.clearCache();
+		this.indexedMetadataReaderCache.clear();
+	}
+
+}
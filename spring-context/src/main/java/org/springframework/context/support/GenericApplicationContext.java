@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -251,6 +251,30 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 	}
 
 
+	//---------------------------------------------------------------------
+	// Processing of bean definitions without instantiating beans
+	//---------------------------------------------------------------------
+
+	/**
+	 * Prepare the bean factory of this context and invoke its bean factory
+	 * post-processors, like {@link #refresh()} does, but stop before any bean
+	 * post-processors or regular singletons are instantiated.
+	 * <p>Intended for build-time tooling that inspects the resulting bean
+	 * definitions, e.g. to capture them in a snapshot. This context cannot
+	 * be refreshed afterwards but should still be {@link #close() closed}.
+	 * @throws BeansException if a bean factory post-processor failed
+	 * @throws IllegalStateException if this context has already been refreshed
+	 * @since 5.2.4
+	 */
+	public void refreshBeanDefinitions() throws BeansException, IllegalStateException {
+		prepareRefresh();
+		ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
+		prepareBeanFactory(beanFactory);
+		postProcessBeanFactory(beanFactory);
+		invokeBeanFactoryPostProcessors(beanFactory);
+	}
+
+
 	//---------------------------------------------------------------------
 	// Implementations of AbstractApplicationContext's template methods
 	//---------------------------------------------------------------------
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jmx.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ConcurrentReferenceHashMap.Statistics;
+import org.springframework.util.FrameworkCacheRegistry;
+
+/**
+ * Exposes the {@link ConcurrentReferenceHashMap}-based caches registered with the
+ * {@link FrameworkCacheRegistry} (reflection, annotation and type metadata caches)
+ * as an MXBean, e.g. for detecting metadata re-computation after soft references
+ * have been cleared under memory pressure.
+ *
+ * <p>Can be registered with an {@link javax.management.MBeanServer} directly or
+ * through an {@link org.springframework.jmx.export.MBeanExporter}:
+ *
+ * <pre class="code">
+ * &lt;bean class="org.springframework.jmx.export.MBeanExporter"&gt;
+ *   &lt;property name="beans"&gt;
+ *     &lt;map&gt;
+ *       &lt;entry key="org.springframework:type=FrameworkCaches"&gt;
+ *         &lt;bean class="org.springframework.jmx.support.FrameworkCaches"/&gt;
+ *       &lt;/entry&gt;
+ *     &lt;/map&gt;
+ *   &lt;/property&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see FrameworkCacheRegistry#setStatisticsEnabled
+ */
+public class FrameworkCaches implements FrameworkCachesMXBean {
+
+	/**
+	 * The default object name for this MXBean: {@value}.
+	 */
+	public static final String OBJECT_NAME = "org.springframework:type=FrameworkCaches";
+
+
+	@Override
+	public Map<String, Statistics> getStatistics() {
+		Map<String, ConcurrentReferenceHashMap<?, ?>> caches = FrameworkCacheRegistry.getCaches();
+		Map<String, Statistics> statistics = new LinkedHashMap<>(caches.size());
+		caches.forEach((name, cache) -> statistics.put(name, cache.getStatistics()));
+		return statistics;
+	}
+
+	@Override
+	public boolean isStatisticsEnabled() {
+		return FrameworkCacheRegistry.isStatisticsEnabled();
+	}
+
+	@Override
+	public void setStatisticsEnabled(boolean statisticsEnabled) {
+		FrameworkCacheRegistry.setStatisticsEnabled(statisticsEnabled);
+	}
+
+	@Override
+	public void purgeUnreferencedEntries() {
+		FrameworkCacheRegistry.getCaches().values().forEach(ConcurrentReferenceHashMap::purgeUnreferencedEntries);
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jmx.support;
+
+import java.util.Map;
+
+import org.springframework.util.ConcurrentReferenceHashMap.Statistics;
+
+/**
+ * MXBean interface for the {@link FrameworkCaches} view on the caches
+ * registered with the {@link org.springframework.util.FrameworkCacheRegistry}.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ */
+public interface FrameworkCachesMXBean {
+
+	/**
+	 * Return the current statistics of all registered caches, keyed by cache name.
+	 */
+	Map<String, Statistics> getStatistics();
+
+	/**
+	 * Return whether statistics are enabled for the registered caches.
+	 */
+	boolean isStatisticsEnabled();
+
+	/**
+	 * Enable or disable statistics for all registered caches.
+	 */
+	void setStatisticsEnabled(boolean statisticsEnabled);
+
+	/**
+	 * Purge entries that have been garbage collected from all registered caches.
+	 */
+	void purgeUnreferencedEntries();
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.cache.Cache;
@@ -140,4 +142,28 @@ public class ConcurrentMapCacheManagerTests {
 		assertThat(cache1x.get("key")).isNull();
 	}
 
+	@Test
+	public void testMaximumSizeAndTimeToLive() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager("c1");
+		ConcurrentMapCache cache1 = (ConcurrentMapCache) cm.getCache("c1");
+		assertThat(cache1.getNativeCache()).isNotInstanceOf(EvictingConcurrentMap.class);
+		assertThat(cache1.getStatistics()).isNull();
+
+		cm.setMaximumSize(2);
+		cm.setTimeToLive(Duration.ofMinutes(10));
+		ConcurrentMapCache cache1x = (ConcurrentMapCache) cm.getCache("c1");
+		assertThat(cache1x).isNotSameAs(cache1);
+		assertThat(cache1x.getNativeCache()).isInstanceOf(EvictingConcurrentMap.class);
+		EvictingConcurrentMap<?, ?> store = (EvictingConcurrentMap<?, ?>) cache1x.getNativeCache();
+		assertThat(store.getMaximumSize()).isEqualTo(2);
+		assertThat(store.getTimeToLive()).isEqualTo(Duration.ofMinutes(10));
+
+		cache1x.put("key1", "value1");
+		cache1x.put("key2", "value2");
+		cache1x.put("key3", "value3");
+		assertThat(cache1x.get("key1")).isNull();
+		assertThat(cache1x.get("key3").get()).isEqualTo("value3");
+		assertThat(cache1x.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
 }
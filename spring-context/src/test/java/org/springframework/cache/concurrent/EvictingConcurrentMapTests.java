@@ -0,0 +1,221 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.support.CacheStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Unit tests for {@link EvictingConcurrentMap}.
+ */
+public class EvictingConcurrentMapTests {
+
+	@Test
+	public void evictsInInsertionOrderBeyondMaximumSize() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(2, null);
+		map.put("a", "1");
+		map.put("b", "2");
+		map.put("c", "3");
+
+		assertThat(map).hasSize(2).containsOnlyKeys("b", "c");
+		assertThat(map.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void recentlyReadEntryGetsSecondChance() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(2, null);
+		map.put("a", "1");
+		map.put("b", "2");
+		map.get("a");
+		map.put("c", "3");
+
+		assertThat(map).hasSize(2).containsOnlyKeys("a", "c");
+	}
+
+	@Test
+	public void replacedEntriesDoNotCountTwice() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(2, null);
+		for (int i = 0; i < 100; i++) {
+			map.put("a", "1");
+			map.put("b", "2");
+		}
+
+		assertThat(map).hasSize(2).containsOnlyKeys("a", "b");
+		assertThat(map.getStatistics().getEvictionCount()).isZero();
+	}
+
+	@Test
+	public void zeroMaximumSize() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(0, null);
+		map.put("a", "1");
+
+		assertThat(map).isEmpty();
+		assertThat(map.get("a")).isNull();
+		assertThat(map.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void unbounded() {
+		EvictingConcurrentMap<Integer, Integer> map = new EvictingConcurrentMap<>(-1, null);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i);
+		}
+
+		assertThat(map).hasSize(1000);
+		assertThat(map.getMaximumSize()).isEqualTo(-1);
+		assertThat(map.getTimeToLive()).isNull();
+	}
+
+	@Test
+	public void expiresAfterTimeToLive() throws InterruptedException {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(-1, Duration.ofMillis(20));
+		map.put("a", "1");
+		assertThat(map.get("a")).isEqualTo("1");
+
+		Thread.sleep(40);
+		assertThat(map.containsKey("a")).isFalse();
+		assertThat(map.get("a")).isNull();
+		assertThat(map.putIfAbsent("a", "2")).isNull();
+		assertThat(map.get("a")).isEqualTo("2");
+		assertThat(map.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void purgesExpiredEntriesOnWrite() throws InterruptedException {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(-1, Duration.ofMillis(20));
+		map.put("a", "1");
+		map.put("b", "2");
+
+		Thread.sleep(40);
+		map.put("c", "3");
+		assertThat(map).containsOnlyKeys("c");
+		assertThat(map.getStatistics().getEvictionCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void putOverExpiredEntryCountsEviction() throws InterruptedException {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(-1, Duration.ofMillis(20));
+		map.put("a", "1");
+
+		Thread.sleep(40);
+		assertThat(map.put("a", "2")).isNull();
+		assertThat(map.get("a")).isEqualTo("2");
+		assertThat(map.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void removeOfExpiredEntryCountsEviction() throws InterruptedException {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(-1, Duration.ofMillis(20));
+		map.put("a", "1");
+		Thread.sleep(40);
+
+		assertThat(map.remove("a")).isNull();
+		assertThat(map).isEmpty();
+		assertThat(map.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void clearResetsEvictionOrder() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(2, null);
+		map.put("a", "1");
+		map.put("b", "2");
+		map.get("a");
+		map.clear();
+		assertThat(map).isEmpty();
+
+		map.put("c", "3");
+		map.put("a", "1");
+		map.put("d", "4");
+		assertThat(map).hasSize(2).containsOnlyKeys("a", "d");
+		assertThat(map.getStatistics().getEvictionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void computeIfAbsent() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(1, null);
+		assertThat(map.computeIfAbsent("a", key -> "1")).isEqualTo("1");
+		assertThat(map.computeIfAbsent("a", key -> "2")).isEqualTo("1");
+		assertThat(map.computeIfAbsent("b", key -> null)).isNull();
+		assertThat(map.computeIfAbsent("c", key -> "3")).isEqualTo("3");
+
+		assertThat(map).containsOnlyKeys("c");
+	}
+
+	@Test
+	public void statistics() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(10, null);
+		map.put("a", "1");
+		map.get("a");
+		map.get("a");
+		map.get("b");
+		map.computeIfAbsent("c", key -> "3");
+
+		CacheStatistics statistics = map.getStatistics();
+		assertThat(statistics.getHitCount()).isEqualTo(2);
+		assertThat(statistics.getMissCount()).isEqualTo(2);
+		assertThat(statistics.getRequestCount()).isEqualTo(4);
+		assertThat(statistics.getHitRatio()).isEqualTo(0.5);
+	}
+
+	@Test
+	public void mapOperations() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(10, Duration.ofMinutes(1));
+		assertThat(map.put("a", "1")).isNull();
+		assertThat(map.put("a", "2")).isEqualTo("1");
+		assertThat(map.putIfAbsent("a", "3")).isEqualTo("2");
+		assertThat(map.replace("a", "3", "4")).isFalse();
+		assertThat(map.replace("a", "2", "4")).isTrue();
+		assertThat(map.replace("a", "5")).isEqualTo("4");
+		assertThat(map.replace("b", "5")).isNull();
+		assertThat(map.remove("a", "4")).isFalse();
+		assertThat(map.remove("a", "5")).isTrue();
+		assertThat(map.put("a", "1")).isNull();
+		assertThat(map.entrySet()).containsExactly(Collections.singletonMap("a", "1").entrySet().iterator().next());
+		assertThat(map.remove("a")).isEqualTo("1");
+		assertThat(map).isEmpty();
+	}
+
+	@Test
+	public void rejectsNullValues() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(10, null);
+		assertThatIllegalArgumentException().isThrownBy(() -> map.put("a", null));
+	}
+
+	@Test
+	public void cacheWithEvictingStore() {
+		ConcurrentMapCache cache = new ConcurrentMapCache("test", new EvictingConcurrentMap<>(1, null), true);
+		cache.put("a", null);
+		assertThat(cache.get("a")).isNotNull();
+		cache.put("b", "2");
+		assertThat(cache.get("a")).isNull();
+		assertThat(cache.get("c", () -> "3")).isEqualTo("3");
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertThat(statistics).isNotNull();
+		assertThat(statistics.getHitCount()).isEqualTo(1);
+		assertThat(statistics.getMissCount()).isEqualTo(2);
+		assertThat(statistics.getEvictionCount()).isEqualTo(2);
+	}
+
+}
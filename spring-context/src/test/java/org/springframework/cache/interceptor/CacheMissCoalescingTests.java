@@ -0,0 +1,261 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link CacheAspectSupport#setCoalesceCacheMisses coalesced} cache misses.
+ */
+public class CacheMissCoalescingTests {
+
+	private static final int THREADS = 4;
+
+	private ConfigurableApplicationContext context;
+
+	private SimpleService service;
+
+	private ExecutorService executor;
+
+	private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+
+	@BeforeEach
+	public void setup() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.service = this.context.getBean(SimpleService.class);
+		this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+			Thread thread = new Thread(runnable);
+			this.threads.add(thread);
+			return thread;
+		});
+	}
+
+	@AfterEach
+	public void close() {
+		this.executor.shutdownNow();
+		this.context.close();
+	}
+
+
+	@Test
+	public void concurrentMissesInvokeOnce() throws Exception {
+		List<Future<Integer>> results = invokeConcurrently(() -> this.service.get("key"));
+
+		for (Future<Integer> result : results) {
+			assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(0);
+		}
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+		Cache cache = this.context.getBean(CacheManager.class).getCache("test");
+		assertThat(cache.get("key").get()).isEqualTo(0);
+	}
+
+	@Test
+	public void concurrentMissesWithUnlessInvokeOnce() throws Exception {
+		List<Future<Integer>> results = invokeConcurrently(() -> this.service.getUnlessZero("key"));
+
+		for (Future<Integer> result : results) {
+			assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(0);
+		}
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+		Cache cache = this.context.getBean(CacheManager.class).getCache("test");
+		assertThat(cache.get("key")).isNull();
+
+		// Nothing cached, so the next call invokes the method again
+		assertThat(this.service.getUnlessZero("key")).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentMissesShareException() throws Exception {
+		this.service.setFail(true);
+		List<Future<Integer>> results = invokeConcurrently(() -> this.service.get("key"));
+
+		for (Future<Integer> result : results) {
+			assertThatIllegalStateException().isThrownBy(() -> {
+				try {
+					result.get(10, TimeUnit.SECONDS);
+				}
+				catch (ExecutionException ex) {
+					throw ex.getCause();
+				}
+			});
+		}
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentMissesShareValueDespiteFailingPut() throws Exception {
+		List<Future<Integer>> results = invokeConcurrently(() -> this.service.getFromBrokenCache("key"));
+
+		int failures = 0;
+		for (Future<Integer> result : results) {
+			try {
+				assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo(0);
+			}
+			catch (ExecutionException ex) {
+				assertThat(ex.getCause()).isInstanceOf(UnsupportedOperationException.class);
+				failures++;
+			}
+		}
+		// Only the caller that invoked the method sees the failing put
+		assertThat(failures).isEqualTo(1);
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+	}
+
+	@Test
+	public void differentKeysAreNotCoalesced() throws Exception {
+		this.service.release();
+		assertThat(this.service.get("key1")).isEqualTo(0);
+		assertThat(this.service.get("key2")).isEqualTo(1);
+		assertThat(this.service.get("key1")).isEqualTo(0);
+		assertThat(this.service.getInvocations()).isEqualTo(2);
+	}
+
+	private List<Future<Integer>> invokeConcurrently(Callable<Integer> call) throws Exception {
+		List<Future<Integer>> results = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			results.add(this.executor.submit(call));
+		}
+		// Release the first invocation only once all other callers wait for its outcome
+		assertThat(this.service.awaitInvocation()).isTrue();
+		awaitAllWaiting();
+		this.service.release();
+		return results;
+	}
+
+	private void awaitAllWaiting() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (this.threads.size() < THREADS || !this.threads.stream().allMatch(thread ->
+				thread.getState() == Thread.State.WAITING || thread.getState() == Thread.State.TIMED_WAITING)) {
+			assertThat(System.nanoTime() - deadline).as("Callers waiting").isNegative();
+			Thread.sleep(1);
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching(coalesceCacheMisses = true)
+	static class Config {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager() {
+				@Override
+				protected Cache createConcurrentMapCache(String name) {
+					if (!name.equals("broken")) {
+						return super.createConcurrentMapCache(name);
+					}
+					return new ConcurrentMapCache(name) {
+						@Override
+						public void put(Object key, Object value) {
+							throw new UnsupportedOperationException("Test failure");
+						}
+					};
+				}
+			};
+		}
+
+		@Bean
+		public SimpleService simpleService() {
+			return new SimpleService();
+		}
+	}
+
+
+	@CacheConfig(cacheNames = "test")
+	public static class SimpleService {
+
+		private final AtomicInteger invocations = new AtomicInteger();
+
+		private final CountDownLatch invoked = new CountDownLatch(1);
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		private volatile boolean fail;
+
+		@Cacheable
+		public Integer get(String key) throws InterruptedException {
+			return invoke();
+		}
+
+		@Cacheable(unless = "#result == 0")
+		public Integer getUnlessZero(String key) throws InterruptedException {
+			return invoke();
+		}
+
+		@Cacheable(cacheNames = "broken")
+		public Integer getFromBrokenCache(String key) throws InterruptedException {
+			return invoke();
+		}
+
+		public int getInvocations() {
+			return this.invocations.get();
+		}
+
+		public boolean awaitInvocation() throws InterruptedException {
+			return this.invoked.await(10, TimeUnit.SECONDS);
+		}
+
+		public void release() {
+			this.latch.countDown();
+		}
+
+		public void setFail(boolean fail) {
+			this.fail = fail;
+		}
+
+		private Integer invoke() throws InterruptedException {
+			int invocation = this.invocations.getAndIncrement();
+			this.invoked.countDown();
+			this.latch.await(10, TimeUnit.SECONDS);
+			if (this.fail) {
+				throw new IllegalStateException("Test failure");
+			}
+			return invocation;
+		}
+	}
+
+}
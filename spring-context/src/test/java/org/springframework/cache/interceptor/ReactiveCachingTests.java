@@ -0,0 +1,291 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for caching the values emitted by methods with a reactive return type.
+ */
+public class ReactiveCachingTests {
+
+	private ConfigurableApplicationContext context;
+
+	private ReactiveService service;
+
+	private Cache cache;
+
+
+	@BeforeEach
+	public void setup() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.service = this.context.getBean(ReactiveService.class);
+		this.cache = this.context.getBean(CacheManager.class).getCache("test");
+	}
+
+	@AfterEach
+	public void close() {
+		this.context.close();
+	}
+
+
+	@Test
+	public void monoValueIsCached() {
+		Mono<Long> first = this.service.single("key");
+		assertThat(this.service.getInvocations()).as("invocation deferred until subscription").isEqualTo(0);
+
+		assertThat(first.block()).isEqualTo(1L);
+		assertThat(this.service.single("key").block()).isEqualTo(1L);
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+		assertThat(this.cache.get("key").get()).isEqualTo(1L);
+	}
+
+	@Test
+	public void fluxValuesAreCached() {
+		assertThat(this.service.multi("key").collectList().block()).containsExactly(1L, 2L, 3L);
+		assertThat(this.service.multi("key").collectList().block()).containsExactly(1L, 2L, 3L);
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+		assertThat(this.cache.get("key").get()).isEqualTo(Arrays.asList(1L, 2L, 3L));
+	}
+
+	@Test
+	public void emptyMonoIsCached() {
+		assertThat(this.service.empty("key").block()).isNull();
+		assertThat(this.service.empty("key").block()).isNull();
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+	}
+
+	@Test
+	public void emptyMonoIsNotCachedWithoutNullValueSupport() {
+		assertThat(this.service.emptyStrict("key").block()).isNull();
+		assertThat(this.context.getBean(CacheManager.class).getCache("strict").get("key")).isNull();
+		assertThat(this.service.emptyStrict("key").block()).isNull();
+		assertThat(this.service.getInvocations()).isEqualTo(2);
+	}
+
+	@Test
+	public void syncIsRejected() {
+		assertThatIllegalStateException().isThrownBy(() -> this.service.sync("key"))
+				.withMessageContaining("sync=true");
+		assertThat(this.service.getInvocations()).isEqualTo(0);
+	}
+
+	@Test
+	public void publisherIsCachedUnlessEnabled() {
+		try (ConfigurableApplicationContext context = new AnnotationConfigApplicationContext(DefaultConfig.class)) {
+			ReactiveService service = context.getBean(ReactiveService.class);
+			Mono<Long> mono = service.single("key");
+			assertThat(service.single("key")).isSameAs(mono);
+			assertThat(service.getInvocations()).isEqualTo(1);
+			assertThat(context.getBean(CacheManager.class).getCache("test").get("key").get()).isSameAs(mono);
+		}
+	}
+
+	@Test
+	public void resubscriptionUsesCache() {
+		Mono<Long> mono = this.service.single("key");
+		assertThat(mono.block()).isEqualTo(1L);
+		assertThat(mono.block()).isEqualTo(1L);
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+
+		this.service.evict("key");
+		assertThat(mono.block()).isEqualTo(2L);
+		assertThat(this.service.getInvocations()).isEqualTo(2);
+	}
+
+	@Test
+	public void concurrentSubscribersInvokeOnce() {
+		Tuple2<Long, Long> values = Mono.zip(this.service.delayed("key"), this.service.delayed("key")).block();
+		assertThat(values.getT1()).isEqualTo(1L);
+		assertThat(values.getT2()).isEqualTo(1L);
+		assertThat(this.service.getInvocations()).isEqualTo(1);
+	}
+
+	@Test
+	public void concurrentSubscribersWithDifferentKeysAreNotCoalesced() {
+		Tuple2<Long, Long> values = Mono.zip(this.service.delayed("key1"), this.service.delayed("key2")).block();
+		assertThat(values.getT1()).isNotEqualTo(values.getT2());
+		assertThat(this.service.getInvocations()).isEqualTo(2);
+	}
+
+	@Test
+	public void unlessEvaluatedAgainstEmittedValue() {
+		assertThat(this.service.unlessOdd("key").block()).isEqualTo(1L);
+		assertThat(this.cache.get("key")).isNull();
+		assertThat(this.service.unlessOdd("key").block()).isEqualTo(2L);
+		assertThat(this.service.unlessOdd("key").block()).isEqualTo(2L);
+		assertThat(this.service.getInvocations()).isEqualTo(2);
+	}
+
+	@Test
+	public void errorIsNotCached() {
+		this.service.setFail(true);
+		assertThatIllegalStateException().isThrownBy(() -> this.service.single("key").block());
+		assertThat(this.cache.get("key")).isNull();
+
+		this.service.setFail(false);
+		assertThat(this.service.single("key").block()).isEqualTo(2L);
+		assertThat(this.service.getInvocations()).isEqualTo(2);
+	}
+
+	@Test
+	public void cacheHitFromBlockingMethodIsWrapped() {
+		this.cache.put("key", 42L);
+		assertThat(this.service.single("key").block()).isEqualTo(42L);
+		assertThat(this.service.multi("key").collectList().block()).containsExactly(42L);
+		assertThat(this.service.getInvocations()).isEqualTo(0);
+	}
+
+	@Test
+	public void cacheHitAppliesLateEvictions() {
+		Cache strict = this.context.getBean(CacheManager.class).getCache("strict");
+		this.cache.put("key", 42L);
+		strict.put("key", 1L);
+
+		assertThat(this.service.singleAndEvict("key").block()).isEqualTo(42L);
+		assertThat(strict.get("key")).isNull();
+		assertThat(this.service.getInvocations()).isEqualTo(0);
+	}
+
+
+	@Configuration
+	@EnableCaching(cacheReactiveValues = true)
+	static class Config {
+
+		@Bean
+		public CacheManager cacheManager() {
+			SimpleCacheManager cacheManager = new SimpleCacheManager();
+			cacheManager.setCaches(Arrays.asList(new ConcurrentMapCache("test"), new ConcurrentMapCache("strict", false)));
+			return cacheManager;
+		}
+
+		@Bean
+		public ReactiveService reactiveService() {
+			return new ReactiveService();
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class DefaultConfig {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager("test");
+		}
+
+		@Bean
+		public ReactiveService reactiveService() {
+			return new ReactiveService();
+		}
+	}
+
+
+	@CacheConfig(cacheNames = "test")
+	public static class ReactiveService {
+
+		private final AtomicInteger invocations = new AtomicInteger();
+
+		private volatile boolean fail;
+
+		@Cacheable
+		public Mono<Long> single(String key) {
+			long invocation = this.invocations.incrementAndGet();
+			return (this.fail ? Mono.error(new IllegalStateException("Failed")) : Mono.just(invocation));
+		}
+
+		@Cacheable
+		@CacheEvict("strict")
+		public Mono<Long> singleAndEvict(String key) {
+			return Mono.just((long) this.invocations.incrementAndGet());
+		}
+
+		@Cacheable
+		public Flux<Long> multi(String key) {
+			this.invocations.incrementAndGet();
+			return Flux.just(1L, 2L, 3L);
+		}
+
+		@Cacheable
+		public Mono<Long> empty(String key) {
+			this.invocations.incrementAndGet();
+			return Mono.empty();
+		}
+
+		@Cacheable("strict")
+		public Mono<Long> emptyStrict(String key) {
+			this.invocations.incrementAndGet();
+			return Mono.empty();
+		}
+
+		@Cacheable(sync = true)
+		public Mono<Long> sync(String key) {
+			return Mono.just((long) this.invocations.incrementAndGet());
+		}
+
+		@Cacheable
+		public Mono<Long> delayed(String key) {
+			long invocation = this.invocations.incrementAndGet();
+			return Mono.just(invocation).delayElement(Duration.ofMillis(50));
+		}
+
+		@Cacheable(unless = "#result % 2 == 1")
+		public Mono<Long> unlessOdd(String key) {
+			return Mono.just((long) this.invocations.incrementAndGet());
+		}
+
+		@CacheEvict
+		public void evict(String key) {
+		}
+
+		public int getInvocations() {
+			return this.invocations.get();
+		}
+
+		public void setFail(boolean fail) {
+			this.fail = fail;
+		}
+	}
+
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.testfixture.beans.ITestBean;
+import org.springframework.beans.testfixture.beans.TestBean;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link BeanDefinitionSnapshot}.
+ */
+public class BeanDefinitionSnapshotTests {
+
+	@AfterEach
+	public void resetCondition() {
+		ToggleCondition.matches = true;
+	}
+
+
+	@Test
+	public void snapshotReplacesConfigurationClassProcessing() throws IOException {
+		Resource snapshot = capture(new AnnotationConfigApplicationContext(), AppConfig.class);
+
+		// Must not be evaluated again at runtime
+		ToggleCondition.matches = false;
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		assertThat(context.loadBeanDefinitionSnapshot(snapshot)).isTrue();
+		context.refresh();
+
+		TestBean testBean = context.getBean("testBean", TestBean.class);
+		assertThat(testBean.getSpouse()).isSameAs(context.getBean("spouse"));
+		assertThat(context.getBean(AppConfig.class).getClass()).isNotEqualTo(AppConfig.class);
+		assertThat(context.containsBean("conditionalBean")).isTrue();
+		assertThat(context.containsBean("excludedBean")).isFalse();
+		assertThat(context.getAliases("spouse")).containsExactly("partner");
+		assertThat(context.getBeanFactory().getBeanDefinition("lazyBean").isLazyInit()).isTrue();
+		assertThat(context.getBeanFactory().getBeanDefinition("spouse").isPrimary()).isTrue();
+		context.close();
+	}
+
+	@Test
+	public void snapshotRetainsImportMetadata() throws IOException {
+		Resource snapshot = capture(new AnnotationConfigApplicationContext(), AppConfig.class);
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		assertThat(context.loadBeanDefinitionSnapshot(snapshot)).isTrue();
+		context.refresh();
+
+		AnnotationMetadata importMetadata = context.getBean(ImportedConfig.class).importMetadata;
+		assertThat(importMetadata).isNotNull();
+		assertThat(importMetadata.getClassName()).isEqualTo(AppConfig.class.getName());
+		context.close();
+	}
+
+	@Test
+	public void snapshotRetainsScopedProxy() throws IOException {
+		Resource snapshot = capture(new AnnotationConfigApplicationContext(), AppConfig.class);
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		assertThat(context.loadBeanDefinitionSnapshot(snapshot)).isTrue();
+		context.refresh();
+
+		ITestBean prototype = context.getBean("prototypeBean", ITestBean.class);
+		assertThat(AopUtils.isAopProxy(prototype)).isTrue();
+		assertThat(prototype.getName()).isEqualTo("prototype");
+		context.close();
+	}
+
+	@Test
+	public void snapshotRetainsPropertyValues() throws IOException {
+		AnnotationConfigApplicationContext captureContext = new AnnotationConfigApplicationContext();
+		GenericBeanDefinition beanDefinition = new GenericBeanDefinition();
+		beanDefinition.setBeanClass(TestBean.class);
+		beanDefinition.getPropertyValues().add("name", "${name:xml}");
+		beanDefinition.getPropertyValues().add("spouse", new RuntimeBeanReference("spouse"));
+		ManagedList<Object> friends = new ManagedList<>();
+		friends.add(new RuntimeBeanReference("spouse"));
+		friends.add("friend");
+		beanDefinition.getPropertyValues().add("friends", friends);
+		captureContext.registerBeanDefinition("xmlBean", beanDefinition);
+		Resource snapshot = capture(captureContext, AppConfig.class);
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		assertThat(context.loadBeanDefinitionSnapshot(snapshot)).isTrue();
+		context.register(PropertySourcesPlaceholderConfigurer.class);
+		context.refresh();
+
+		TestBean xmlBean = context.getBean("xmlBean", TestBean.class);
+		assertThat(xmlBean.getName()).isEqualTo("xml");
+		assertThat(xmlBean.getSpouse()).isSameAs(context.getBean("spouse"));
+		assertThat(xmlBean.getFriends()).containsExactly(context.getBean("spouse"), "friend");
+		context.close();
+	}
+
+	@Test
+	public void snapshotNotApplicableWithDifferentProfiles() throws IOException {
+		AnnotationConfigApplicationContext captureContext = new AnnotationConfigApplicationContext();
+		captureContext.getEnvironment().setActiveProfiles("other");
+		Resource snapshot = capture(captureContext, AppConfig.class);
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		assertThat(context.loadBeanDefinitionSnapshot(snapshot)).isFalse();
+		assertThat(context.containsBeanDefinition("testBean")).isFalse();
+
+		context.getEnvironment().setActiveProfiles("other");
+		assertThat(context.loadBeanDefinitionSnapshot(snapshot)).isTrue();
+		assertThat(context.containsBeanDefinition("testBean")).isTrue();
+	}
+
+	@Test
+	public void snapshotNotApplicableWithDifferentClassPath() throws IOException {
+		Resource resource = capture(new AnnotationConfigApplicationContext(), AppConfig.class);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.readFrom(resource.getInputStream(), null);
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertThat(snapshot.isApplicableTo(context)).isTrue();
+		context.setClassLoader(new URLClassLoader(
+				new URL[] {new ClassPathResource("/org/springframework/context/annotation/").getURL()},
+				getClass().getClassLoader()));
+		assertThat(snapshot.isApplicableTo(context)).isFalse();
+	}
+
+	@Test
+	public void snapshotReplaysPropertySources() throws IOException {
+		Resource snapshot = capture(new AnnotationConfigApplicationContext(), PropertySourceConfig.class);
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.getEnvironment().getPropertySources().addFirst(
+				new MapPropertySource("runtime", Collections.singletonMap("file", "p4")));
+		assertThat(context.loadBeanDefinitionSnapshot(snapshot)).isTrue();
+		context.refresh();
+
+		assertThat(context.getEnvironment().getProperty("from.p2")).isNull();
+		assertThat(context.getEnvironment().getPropertySources().contains(
+				"class path resource [org/springframework/context/annotation/p4.properties]")).isTrue();
+		assertThat(context.getBean("propertyBean", TestBean.class).getName()).isEqualTo("p3TestBean");
+		context.close();
+	}
+
+	@Test
+	public void classPathFingerprintCoversResources(@TempDir Path root) throws IOException {
+		Path properties = Files.write(root.resolve("app.properties"), "a=b".getBytes(StandardCharsets.UTF_8));
+		Files.write(root.resolve("App.class"), new byte[] {1, 2, 3});
+		ClassLoader classLoader = new URLClassLoader(new URL[] {root.toUri().toURL()}, null);
+		String fingerprint = BeanDefinitionSnapshot.computeClassPathFingerprint(classLoader);
+
+		Files.write(root.resolve("app.snapshot"), new byte[] {1, 2, 3});
+		assertThat(BeanDefinitionSnapshot.computeClassPathFingerprint(classLoader)).isEqualTo(fingerprint);
+
+		File file = properties.toFile();
+		assertThat(file.setLastModified(file.lastModified() - 60_000)).isTrue();
+		assertThat(BeanDefinitionSnapshot.computeClassPathFingerprint(classLoader)).isNotEqualTo(fingerprint);
+	}
+
+	@Test
+	public void missingOrUnreadableSnapshotIsIgnored() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		assertThat(context.loadBeanDefinitionSnapshot(new ClassPathResource("missing.snapshot"))).isFalse();
+		assertThat(context.loadBeanDefinitionSnapshot(new ByteArrayResource(new byte[] {1, 2, 3}))).isFalse();
+	}
+
+	@Test
+	public void captureFailsForInstanceSupplier() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.registerBean("supplied", TestBean.class, () -> new TestBean());
+		assertThatIllegalStateException().isThrownBy(() -> BeanDefinitionSnapshot.capture(context))
+				.withMessageContaining("supplied");
+		context.close();
+	}
+
+
+	private static Resource capture(AnnotationConfigApplicationContext context, Class<?> componentClass)
+			throws IOException {
+
+		context.register(componentClass);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(context);
+		context.close();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.writeTo(out);
+		return new ByteArrayResource(out.toByteArray());
+	}
+
+
+	@Configuration
+	@Import({ImportedConfig.class, ConditionalConfig.class})
+	static class AppConfig {
+
+		@Bean
+		public TestBean testBean() {
+			return new TestBean(spouse());
+		}
+
+		@Bean({"spouse", "partner"})
+		@Primary
+		public TestBean spouse() {
+			return new TestBean("spouse");
+		}
+
+		@Bean
+		@Lazy
+		public TestBean lazyBean() {
+			return new TestBean("lazy");
+		}
+
+		@Bean
+		@Profile("never")
+		public TestBean excludedBean() {
+			return new TestBean("excluded");
+		}
+
+		@Bean
+		@Scope(value = "prototype", proxyMode = ScopedProxyMode.INTERFACES)
+		public TestBean prototypeBean() {
+			return new TestBean("prototype");
+		}
+	}
+
+
+	@Configuration
+	@PropertySource("classpath:/org/springframework/context/annotation/${file:p2}.properties")
+	@PropertySource("classpath:/org/springframework/context/annotation/p3.properties")
+	static class PropertySourceConfig {
+
+		@Bean
+		public TestBean propertyBean(Environment environment) {
+			return new TestBean(environment.getProperty("testbean.name"));
+		}
+	}
+
+
+	@Configuration
+	static class ImportedConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+	}
+
+
+	@Configuration
+	@Conditional(ToggleCondition.class)
+	static class ConditionalConfig {
+
+		@Bean
+		public TestBean conditionalBean() {
+			return new TestBean("conditional");
+		}
+	}
+
+
+	static class ToggleCondition implements Condition {
+
+		static volatile boolean matches = true;
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			if (!matches) {
+				throw new IllegalStateException("Condition evaluated");
+			}
+			return true;
+		}
+	}
+
+}
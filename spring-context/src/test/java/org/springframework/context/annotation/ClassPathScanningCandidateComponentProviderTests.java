@@ -18,8 +18,12 @@ package org.springframework.context.annotation;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import example.gh24375.AnnotatedComponent;
 import example.profilescan.DevComponent;
@@ -127,6 +131,28 @@ public class ClassPathScanningCandidateComponentProviderTests {
 		assertBeanDefinitionType(candidates, expectedBeanDefinitionType);
 	}
 
+	@Test
+	public void concurrentScanRetainsCandidateOrder() {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+		provider.setResourceLoader(new DefaultResourceLoader(
+				CandidateComponentsTestClassLoader.disableIndex(getClass().getClassLoader())));
+		provider.addIncludeFilter((metadataReader, metadataReaderFactory) -> true);
+		String basePackage = "org.springframework.context.support";
+		List<String> expected = provider.findCandidateComponents(basePackage).stream()
+				.map(BeanDefinition::getBeanClassName).collect(Collectors.toList());
+		assertThat(expected.size()).isGreaterThan(32);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			provider.setScanExecutor(executor);
+			assertThat(provider.findCandidateComponents(basePackage)).extracting(BeanDefinition::getBeanClassName)
+					.isEqualTo(expected);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	public void bogusPackageWithScan() {
 		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
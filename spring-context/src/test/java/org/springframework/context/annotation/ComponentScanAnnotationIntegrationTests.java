@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,10 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import example.scannable.CustomComponent;
 import example.scannable.CustomStereotype;
@@ -54,6 +57,7 @@ import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.context.testfixture.SimpleMapScope;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
 import org.springframework.core.env.Profiles;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.testfixture.io.SerializationTestUtils;
@@ -200,6 +204,24 @@ public class ComponentScanAnnotationIntegrationTests {
 		assertThat(ctx.getEnvironment().acceptsProfiles(Profiles.of("the-filter-ran"))).isTrue();
 	}
 
+	@Test
+	public void withConcurrentScanning() {
+		ThreadRecordingTypeFilter.threads.clear();
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test",
+				Collections.singletonMap(ClassPathScanningCandidateComponentProvider.CONCURRENT_SCAN_PROPERTY_NAME, "true")));
+		ctx.register(ComponentScanWithThreadRecordingTypeFilter.class);
+		ctx.refresh();
+		assertThat(ThreadRecordingTypeFilter.threads).anyMatch(thread -> thread != Thread.currentThread());
+	}
+
+	@Test
+	public void withoutConcurrentScanning() {
+		ThreadRecordingTypeFilter.threads.clear();
+		new AnnotationConfigApplicationContext(ComponentScanWithThreadRecordingTypeFilter.class);
+		assertThat(ThreadRecordingTypeFilter.threads).containsExactly(Thread.currentThread());
+	}
+
 	@Test
 	public void withScopedProxy() throws IOException, ClassNotFoundException {
 		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
@@ -281,6 +303,17 @@ public class ComponentScanAnnotationIntegrationTests {
 	public static class ComposedAnnotationConfig {
 	}
 
+	public static class ThreadRecordingTypeFilter implements TypeFilter {
+
+		static final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+			threads.add(Thread.currentThread());
+			return false;
+		}
+	}
+
 	public static class AwareTypeFilter implements TypeFilter, EnvironmentAware,
 			ResourceLoaderAware, BeanClassLoaderAware, BeanFactoryAware {
 
@@ -414,6 +447,13 @@ class ComponentScanWithCustomTypeFilter {
 		lazyInit = true)
 class ComponentScanWithAwareTypeFilter {}
 
+@Configuration
+@ComponentScan(
+		basePackages = "org.springframework.context.annotation",
+		useDefaultFilters = false,
+		includeFilters = @Filter(type = FilterType.CUSTOM, classes = ComponentScanAnnotationIntegrationTests.ThreadRecordingTypeFilter.class))
+class ComponentScanWithThreadRecordingTypeFilter {}
+
 @Configuration
 @ComponentScan(basePackages = "example.scannable",
 		scopedProxy = ScopedProxyMode.INTERFACES,
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.context.index;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Properties;
@@ -23,7 +24,13 @@ import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 
 
 
@@ -80,12 +87,69 @@ public class CandidateComponentsIndexTests {
 				.contains("com.example.Foo");
 	}
 
+	@Test
+	public void classMetadata() throws IOException {
+		CandidateComponentsIndex index = new CandidateComponentsIndex(
+				Collections.singletonList(createSampleProperties()),
+				Collections.singletonList(createProperties("com.example.Config", SAMPLE_CLASS_METADATA)));
+		assertThat(index.hasClassMetadata()).isTrue();
+		assertThat(index.hasClassMetadata("com.example.Config")).isTrue();
+		assertThat(index.hasClassMetadata("com.example.service.One")).isFalse();
+
+		// No class file for com.example.Config: the metadata is built from the index only
+		AnnotationMetadata metadata = new IndexedMetadataReaderFactory(index, getClass().getClassLoader())
+				.getMetadataReader("com.example.Config").getAnnotationMetadata();
+		assertThat(metadata.getClassName()).isEqualTo("com.example.Config");
+		assertThat(metadata.getSuperClassName()).isEqualTo("com.example.Base");
+		assertThat(metadata.getInterfaceNames()).containsExactly("java.io.Serializable");
+		assertThat(metadata.getMemberClassNames()).containsExactly("com.example.Config$Nested");
+		assertThat(metadata.getAnnotationTypes()).containsExactly(
+				"org.springframework.context.annotation.Configuration",
+				"org.springframework.context.annotation.Profile");
+		assertThat(metadata.getAnnotationAttributes("org.springframework.context.annotation.Profile"))
+				.containsEntry("value", new String[] {"dev", "a\"b"});
+		Set<MethodMetadata> beanMethods = metadata.getAnnotatedMethods("org.springframework.context.annotation.Bean");
+		assertThat(beanMethods).hasSize(1);
+		MethodMetadata beanMethod = beanMethods.iterator().next();
+		assertThat(beanMethod.getMethodName()).isEqualTo("service");
+		assertThat(beanMethod.getReturnTypeName()).isEqualTo("com.example.Service");
+		assertThat(beanMethod.getAnnotationAttributes("org.springframework.context.annotation.Bean"))
+				.containsEntry("autowireCandidate", false);
+	}
+
+	@Test
+	public void classMetadataMalformed() {
+		CandidateComponentsIndex index = new CandidateComponentsIndex(
+				Collections.singletonList(createSampleProperties()),
+				Collections.singletonList(createProperties("com.example.Config", "{access=I33,name=s\"com")));
+		assertThat(index.hasClassMetadata("com.example.Config")).isTrue();
+		assertThatIllegalArgumentException().isThrownBy(() ->
+				index.acceptClassMetadata("com.example.Config", new ClassVisitor(SpringAsmInfo.ASM_VERSION) {}));
+	}
+
+	@Test
+	public void noClassMetadata() {
+		CandidateComponentsIndex index = new CandidateComponentsIndex(
+				Collections.singletonList(createSampleProperties()));
+		assertThat(index.hasClassMetadata()).isFalse();
+		assertThat(index.hasClassMetadata("com.example.service.One")).isFalse();
+	}
+
 	private static Properties createProperties(String key, String stereotypes) {
 		Properties properties = new Properties();
 		properties.put(key, String.join(",", stereotypes));
 		return properties;
 	}
 
+	private static final String SAMPLE_CLASS_METADATA = "{access=I33,name=s\"com/example/Config\"," +
+			"super=s\"com/example/Base\",interfaces=[s\"java/io/Serializable\"]," +
+			"inner=[{name=s\"com/example/Config$Nested\",outer=s\"com/example/Config\"," +
+			"innerName=s\"Nested\",access=I9}]," +
+			"annotations=[@\"Lorg/springframework/context/annotation/Configuration;\"()," +
+			"@\"Lorg/springframework/context/annotation/Profile;\"(value=[s\"dev\",s\"a\\\"b\"])]," +
+			"methods=[{access=I1,name=s\"service\",descriptor=s\"()Lcom/example/Service;\"," +
+			"annotations=[@\"Lorg/springframework/context/annotation/Bean;\"(autowireCandidate=Zfalse)]}]}";
+
 	private static Properties createSampleProperties() {
 		Properties properties = new Properties();
 		properties.put("com.example.service.One", "service");
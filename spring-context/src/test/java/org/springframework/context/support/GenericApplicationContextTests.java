@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,18 @@
 
 package org.springframework.context.support;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.jupiter.api.Test;
 
 import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.util.ObjectUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -201,6 +206,29 @@ public class GenericApplicationContextTests {
 		assertThat(context.getBeansOfType(BeanC.class).values().iterator().next()).isSameAs(context.getBean(BeanC.class));
 	}
 
+	@Test
+	public void individualBeansWithBootstrapExecutor() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			GenericApplicationContext context = new GenericApplicationContext();
+			context.registerBean(ConfigurableApplicationContext.BOOTSTRAP_EXECUTOR_BEAN_NAME, ExecutorService.class, () -> executor);
+			context.registerBean("a", BeanA.class,
+					() -> new BeanA(context.getBean(BeanB.class), context.getBean(BeanC.class)));
+			context.registerBean("b", BeanB.class, BeanB::new);
+			context.registerBean("c", BeanC.class, BeanC::new);
+			context.refresh();
+
+			assertThat(((DefaultListableBeanFactory) context.getBeanFactory()).getBootstrapExecutor()).isSameAs(executor);
+			assertThat(context.getBean(BeanA.class).b).isSameAs(context.getBean(BeanB.class));
+			assertThat(context.getBean(BeanA.class).c).isSameAs(context.getBean(BeanC.class));
+			assertThat(context.getBean(BeanB.class).applicationContext).isSameAs(context);
+			context.close();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 
 	static class BeanA {
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jmx.support;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.FrameworkCacheRegistry;
+import org.springframework.util.ReflectionUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FrameworkCaches}.
+ */
+class FrameworkCachesTests {
+
+	@Test
+	void exposeStatisticsAsMXBean() throws Exception {
+		ConcurrentReferenceHashMap<String, String> cache =
+				FrameworkCacheRegistry.register("FrameworkCachesTests.cache", new ConcurrentReferenceHashMap<>());
+		ReflectionUtils.getDeclaredMethods(getClass());
+		MBeanServer server = MBeanServerFactory.newMBeanServer();
+		ObjectName objectName = ObjectName.getInstance(FrameworkCaches.OBJECT_NAME);
+		server.registerMBean(new FrameworkCaches(), objectName);
+		try {
+			assertThat(server.getAttribute(objectName, "StatisticsEnabled")).isEqualTo(false);
+			server.setAttribute(objectName, new Attribute("StatisticsEnabled", true));
+			assertThat(cache.isStatisticsEnabled()).isTrue();
+			cache.put("key", "value");
+			cache.get("key");
+
+			TabularData statistics = (TabularData) server.getAttribute(objectName, "Statistics");
+			assertThat(statistics.get(new Object[] {"ReflectionUtils.declaredMethodsCache"})).isNotNull();
+			CompositeData entry = statistics.get(new Object[] {"FrameworkCachesTests.cache"});
+			CompositeData cacheStatistics = (CompositeData) entry.get("value");
+			assertThat(cacheStatistics.get("referenceCount")).isEqualTo(1);
+			assertThat(cacheStatistics.get("hitCount")).isEqualTo(1L);
+			assertThat(cacheStatistics.get("missCount")).isEqualTo(0L);
+
+			server.invoke(objectName, "purgeUnreferencedEntries", null, null);
+		}
+		finally {
+			server.setAttribute(objectName, new Attribute("StatisticsEnabled", false));
+			server.unregisterMBean(objectName);
+		}
+		assertThat(cache.isStatisticsEnabled()).isFalse();
+	}
+
+}
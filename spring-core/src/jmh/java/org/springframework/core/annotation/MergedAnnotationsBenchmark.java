@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+
+/**
+ * Benchmarks for {@link MergedAnnotations} lookups on types and methods,
+ * covering direct, meta-present and inherited annotations as well as the
+ * {@link AnnotatedElementUtils} variants built on top of them.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class MergedAnnotationsBenchmark {
+
+	@Benchmark
+	public boolean isPresentDirect(AnnotatedElements data) {
+		return MergedAnnotations.from(data.type).isPresent(Mapping.class);
+	}
+
+	@Benchmark
+	public boolean isPresentMeta(AnnotatedElements data) {
+		return MergedAnnotations.from(data.method).isPresent(Mapping.class);
+	}
+
+	@Benchmark
+	public boolean isPresentAbsent(AnnotatedElements data) {
+		return MergedAnnotations.from(data.method, SearchStrategy.TYPE_HIERARCHY).isPresent(Absent.class);
+	}
+
+	@Benchmark
+	public String getInheritedAttribute(AnnotatedElements data) {
+		return MergedAnnotations.from(data.subclassMethod, SearchStrategy.TYPE_HIERARCHY)
+				.get(Mapping.class).getString("path");
+	}
+
+	@Benchmark
+	public Mapping synthesizeMeta(AnnotatedElements data) {
+		return MergedAnnotations.from(data.method).get(Mapping.class).synthesize();
+	}
+
+	@Benchmark
+	public Mapping findMergedAnnotation(AnnotatedElements data) {
+		return AnnotatedElementUtils.findMergedAnnotation(data.subclassMethod, Mapping.class);
+	}
+
+	@Benchmark
+	public boolean hasAnnotationAbsent(AnnotatedElements data) {
+		return AnnotatedElementUtils.hasAnnotation(data.subclassMethod, Absent.class);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class AnnotatedElements {
+
+		public Class<?> type;
+
+		public Method method;
+
+		public Method subclassMethod;
+
+		@Setup(Level.Trial)
+		public void setup() throws NoSuchMethodException {
+			this.type = AnnotatedType.class;
+			this.method = AnnotatedType.class.getMethod("handle");
+			this.subclassMethod = AnnotatedSubtype.class.getMethod("handle");
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	public @interface Mapping {
+
+		@AliasFor("path")
+		String value() default "";
+
+		@AliasFor("value")
+		String path() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	@Mapping
+	public @interface GetMapping {
+
+		@AliasFor(annotation = Mapping.class)
+		String path() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	public @interface Absent {
+	}
+
+
+	@Mapping("/type")
+	public static class AnnotatedType {
+
+		@GetMapping(path = "/method")
+		public void handle() {
+		}
+	}
+
+
+	public static class AnnotatedSubtype extends AnnotatedType {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+}
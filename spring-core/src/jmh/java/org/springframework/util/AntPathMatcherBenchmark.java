@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link AntPathMatcher#match(String, String)}, matching a
+ * request path against a set of typical patterns.
+ * <p>Typically run with {@code ./gradlew :spring-core:jmh -PjmhInclude=AntPathMatcherBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AntPathMatcherBenchmark {
+
+	@Benchmark
+	public void matchAllPatterns(PatternsData data, Blackhole bh) {
+		for (String pattern : data.patterns) {
+			bh.consume(data.pathMatcher.match(pattern, data.path));
+		}
+	}
+
+	@Benchmark
+	public void matchPatternsWithCacheDisabled(PatternsData data, Blackhole bh) {
+		for (String pattern : data.patterns) {
+			bh.consume(data.uncachedPathMatcher.match(pattern, data.path));
+		}
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class PatternsData {
+
+		@Param({"/api/projects/spring-framework/releases/5.2.3", "/static/css/app.css", "/no/match"})
+		public String path;
+
+		public List<String> patterns = new ArrayList<>();
+
+		public AntPathMatcher pathMatcher = new AntPathMatcher();
+
+		public AntPathMatcher uncachedPathMatcher = new AntPathMatcher();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.uncachedPathMatcher.setCachePatterns(false);
+			for (int i = 0; i < 20; i++) {
+				this.patterns.add("/api/resource" + i + "/{id}");
+				this.patterns.add("/api/resource" + i + "/{id}/items/*");
+			}
+			this.patterns.add("/static/**/*.css");
+			this.patterns.add("/static/**/*.js");
+			this.patterns.add("/api/projects/{project}/releases/{version:\\d\\.\\d\\.\\d}");
+			this.patterns.add("/api/projects/{project}/**");
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
+
+/**
+ * Benchmarks for concurrent reads of a {@link ConcurrentReferenceHashMap},
+ * comparing the default segment locking with {@link ConcurrentReferenceHashMap#setLockFreeReads
+ * lock-free reads}, both with a stable map and while the garbage collector keeps
+ * clearing references of entries added by a concurrent writer.
+ * <p>Typically run with {@code ./gradlew :spring-core:jmh -PjmhInclude=ConcurrentReferenceHashMapBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class ConcurrentReferenceHashMapBenchmark {
+
+	@Benchmark
+	@Threads(4)
+	public void concurrentGet(MapData data, Blackhole bh) {
+		bh.consume(data.map.get(data.randomKey()));
+	}
+
+	@Benchmark
+	@Group("collected")
+	@GroupThreads(3)
+	public void getWhileCollected(MapData data, Blackhole bh) {
+		bh.consume(data.map.get(data.randomKey()));
+	}
+
+	@Benchmark
+	@Group("collected")
+	@GroupThreads(1)
+	public void putCollectable(MapData data) {
+		// Neither key nor value are retained, so that the entry gets collected soon
+		data.map.put(new Object(), new byte[256]);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class MapData {
+
+		@Param({"false", "true"})
+		public boolean lockFreeReads;
+
+		@Param({"1000"})
+		public int size;
+
+		public List<Object> keys;
+
+		public ConcurrentReferenceHashMap<Object, Object> map;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.map = new ConcurrentReferenceHashMap<>(256, ReferenceType.WEAK);
+			this.map.setLockFreeReads(this.lockFreeReads);
+			this.keys = new ArrayList<>(this.size);
+			for (int i = 0; i < this.size; i++) {
+				Object key = "key" + i;
+				this.keys.add(key);
+				this.map.put(key, key);
+			}
+		}
+
+		Object randomKey() {
+			return this.keys.get(ThreadLocalRandom.current().nextInt(this.size));
+		}
+	}
+
+}
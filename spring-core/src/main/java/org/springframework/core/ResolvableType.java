@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.FrameworkCacheRegistry;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
@@ -92,7 +93,16 @@ public class ResolvableType implements Serializable {
 	private static final ResolvableType[] EMPTY_TYPES_ARRAY = new ResolvableType[0];
 
 	private static final ConcurrentReferenceHashMap<ResolvableType, ResolvableType> cache =
-			new ConcurrentReferenceHashMap<>(256);
+			FrameworkCacheRegistry.register("ResolvableType.cache", new ConcurrentReferenceHashMap<>(256));
+
+	private static final ConcurrentReferenceHashMap<Class<?>, ResolvableType> classCache =
+			FrameworkCacheRegistry.register("ResolvableType.classCache", new ConcurrentReferenceHashMap<>(256));
+
+	static {
+		// Read-mostly caches, shared across all application threads
+		cache.setLockFreeReads(true);
+		classCache.setLockFreeReads(true);
+	}
 
 
 	/**
@@ -125,13 +135,32 @@ public class ResolvableType implements Serializable {
 	private Class<?> resolved;
 
 	@Nullable
-	private volatile ResolvableType superType;
+	private transient volatile ResolvableType superType;
 
 	@Nullable
-	private volatile ResolvableType[] interfaces;
+	private transient volatile ResolvableType[] interfaces;
 
 	@Nullable
-	private volatile ResolvableType[] generics;
+	private transient volatile ResolvableType[] generics;
+
+	/**
+	 * The equal, interned instance that holds the shared hierarchy and generics
+	 * of this type, or {@code null} if this instance is interned itself or
+	 * not cached at all.
+	 */
+	@Nullable
+	private transient ResolvableType canonical;
+
+	/**
+	 * Whether this instance is held by one of the interning caches.
+	 */
+	private transient boolean interned;
+
+	/**
+	 * Assignability results per interned other type (lazily created on interned instances only).
+	 */
+	@Nullable
+	private transient volatile Map<ResolvableType, Boolean> assignableFromCache;
 
 
 	/**
@@ -260,7 +289,7 @@ public class ResolvableType implements Serializable {
 	 * @see #isAssignableFrom(ResolvableType)
 	 */
 	public boolean isAssignableFrom(Class<?> other) {
-		return isAssignableFrom(forClass(other), null);
+		return isAssignableFrom(forClass(other));
 	}
 
 	/**
@@ -275,7 +304,41 @@ public class ResolvableType implements Serializable {
 	 * {@code ResolvableType}; {@code false} otherwise
 	 */
 	public boolean isAssignableFrom(ResolvableType other) {
-		return isAssignableFrom(other, null);
+		Assert.notNull(other, "ResolvableType must not be null");
+		Map<ResolvableType, Boolean> assignableFromCache = getAssignableFromCache(other);
+		if (assignableFromCache == null) {
+			return isAssignableFrom(other, null);
+		}
+		ResolvableType otherKey = (other.canonical != null ? other.canonical : other);
+		Boolean assignable = assignableFromCache.get(otherKey);
+		if (assignable == null) {
+			assignable = isAssignableFrom(other, null);
+			assignableFromCache.put(otherKey, assignable);
+		}
+		return assignable;
+	}
+
+	/**
+	 * Return the cache for assignability results against the given other type,
+	 * or {@code null} if the result is not worth caching: only results between
+	 * interned instances (which live as long as the interning caches hold them)
+	 * are retained, and only for plain {@code ResolvableType} instances since
+	 * subclasses may override the assignability rules.
+	 */
+	@Nullable
+	private Map<ResolvableType, Boolean> getAssignableFromCache(ResolvableType other) {
+		ResolvableType owner = (this.canonical != null ? this.canonical : this);
+		ResolvableType otherKey = (other.canonical != null ? other.canonical : other);
+		if (!owner.interned || !otherKey.interned ||
+				owner.getClass() != ResolvableType.class || other.getClass() != ResolvableType.class) {
+			return null;
+		}
+		Map<ResolvableType, Boolean> assignableFromCache = owner.assignableFromCache;
+		if (assignableFromCache == null) {
+			assignableFromCache = new ConcurrentReferenceHashMap<>(16, 1);
+			owner.assignableFromCache = assignableFromCache;
+		}
+		return assignableFromCache;
 	}
 
 	private boolean isAssignableFrom(ResolvableType other, @Nullable Map<Type, Type> matchedBefore) {
@@ -463,6 +526,9 @@ public class ResolvableType implements Serializable {
 	 * @see #getInterfaces()
 	 */
 	public ResolvableType getSuperType() {
+		if (this.canonical != null) {
+			return this.canonical.getSuperType();
+		}
 		Class<?> resolved = resolve();
 		if (resolved == null || resolved.getGenericSuperclass() == null) {
 			return NONE;
@@ -483,6 +549,9 @@ public class ResolvableType implements Serializable {
 	 * @see #getSuperType()
 	 */
 	public ResolvableType[] getInterfaces() {
+		if (this.canonical != null) {
+			return this.canonical.getInterfaces();
+		}
 		Class<?> resolved = resolve();
 		if (resolved == null) {
 			return EMPTY_TYPES_ARRAY;
@@ -690,6 +759,9 @@ public class ResolvableType implements Serializable {
 		if (this == NONE) {
 			return EMPTY_TYPES_ARRAY;
 		}
+		if (this.canonical != null) {
+			return this.canonical.getGenerics();
+		}
 		ResolvableType[] generics = this.generics;
 		if (generics == null) {
 			if (this.type instanceof Class) {
@@ -985,6 +1057,8 @@ public class ResolvableType implements Serializable {
 	 * Return a {@link ResolvableType} for the specified {@link Class},
 	 * using the full generic type information for assignability checks.
 	 * For example: {@code ResolvableType.forClass(MyArrayList.class)}.
+	 * <p>As of 5.2.4, the returned instance is shared per class, along with
+	 * its lazily resolved hierarchy, generics and assignability results.
 	 * @param clazz the class to introspect ({@code null} is semantically
 	 * equivalent to {@code Object.class} for typical use cases here)
 	 * @return a {@link ResolvableType} for the specified class
@@ -992,7 +1066,17 @@ public class ResolvableType implements Serializable {
 	 * @see #forClassWithGenerics(Class, Class...)
 	 */
 	public static ResolvableType forClass(@Nullable Class<?> clazz) {
-		return new ResolvableType(clazz);
+		Class<?> key = (clazz != null ? clazz : Object.class);
+		ResolvableType resolvableType = classCache.get(key);
+		if (resolvableType == null) {
+			resolvableType = new ResolvableType(key);
+			resolvableType.interned = true;
+			ResolvableType existing = classCache.putIfAbsent(key, resolvableType);
+			if (existing != null) {
+				resolvableType = existing;
+			}
+		}
+		return resolvableType;
 	}
 
 	/**
@@ -1412,6 +1496,9 @@ public class ResolvableType implements Serializable {
 		// For simple Class references, build the wrapper right away -
 		// no expensive resolution necessary, so not worth caching...
 		if (type instanceof Class) {
+			if (typeProvider == null && variableResolver == null) {
+				return forClass((Class<?>) type);
+			}
 			return new ResolvableType(type, typeProvider, variableResolver, (ResolvableType) null);
 		}
 
@@ -1423,9 +1510,19 @@ public class ResolvableType implements Serializable {
 		ResolvableType cachedType = cache.get(resultType);
 		if (cachedType == null) {
 			cachedType = new ResolvableType(type, typeProvider, variableResolver, resultType.hash);
-			cache.put(cachedType, cachedType);
+			cachedType.interned = true;
+			ResolvableType existing = cache.putIfAbsent(cachedType, cachedType);
+			if (existing != null) {
+				cachedType = existing;
+			}
+		}
+		if (typeProvider == null) {
+			// Without a type provider, the source is the type itself: share the interned instance
+			return cachedType;
 		}
+		// Keep the specific source (field, method parameter) but share the resolved hierarchy
 		resultType.resolved = cachedType.resolved;
+		resultType.canonical = cachedType;
 		return resultType;
 	}
 
@@ -1435,6 +1532,7 @@ public class ResolvableType implements Serializable {
 	 */
 	public static void clearCache() {
 		cache.clear();
+		classCache.clear();
 		SerializableTypeWrapper.cache.clear();
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -207,7 +207,7 @@ public abstract class AnnotatedElementUtils {
 			return element.isAnnotationPresent(annotationType);
 		}
 		// Exhaustive retrieval of merged annotations...
-		return getAnnotations(element).isPresent(annotationType);
+		return PrecomputedMergedAnnotations.forInheritedAnnotations(element).isPresent(annotationType);
 	}
 
 	/**
@@ -223,7 +223,7 @@ public abstract class AnnotatedElementUtils {
 	 * @return {@code true} if a matching annotation is present
 	 */
 	public static boolean isAnnotated(AnnotatedElement element, String annotationName) {
-		return getAnnotations(element).isPresent(annotationName);
+		return PrecomputedMergedAnnotations.forInheritedAnnotations(element).isPresent(annotationName);
 	}
 
 	/**
@@ -247,8 +247,8 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes getMergedAnnotationAttributes(
 			AnnotatedElement element, Class<? extends Annotation> annotationType) {
 
-		MergedAnnotation<?> mergedAnnotation = getAnnotations(element)
-				.get(annotationType, null, MergedAnnotationSelectors.firstDirectlyDeclared());
+		MergedAnnotation<?> mergedAnnotation =
+				PrecomputedMergedAnnotations.forInheritedAnnotations(element).get(annotationType);
 		return getAnnotationAttributes(mergedAnnotation, false, false);
 	}
 
@@ -307,8 +307,8 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes getMergedAnnotationAttributes(AnnotatedElement element,
 			String annotationName, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
-		MergedAnnotation<?> mergedAnnotation = getAnnotations(element)
-				.get(annotationName, null, MergedAnnotationSelectors.firstDirectlyDeclared());
+		MergedAnnotation<?> mergedAnnotation =
+				PrecomputedMergedAnnotations.forInheritedAnnotations(element).get(annotationName);
 		return getAnnotationAttributes(mergedAnnotation, classValuesAsString, nestedAnnotationsAsMap);
 	}
 
@@ -333,10 +333,8 @@ public abstract class AnnotatedElementUtils {
 				AnnotationsScanner.hasPlainJavaAnnotationsOnly(element)) {
 			return element.getDeclaredAnnotation(annotationType);
 		}
-		// Exhaustive retrieval of merged annotations...
-		return getAnnotations(element)
-				.get(annotationType, null, MergedAnnotationSelectors.firstDirectlyDeclared())
-				.synthesize(MergedAnnotation::isPresent).orElse(null);
+		// Merged annotations, precomputed per element...
+		return PrecomputedMergedAnnotations.forInheritedAnnotations(element).synthesize(annotationType);
 	}
 
 	/**
@@ -528,7 +526,7 @@ public abstract class AnnotatedElementUtils {
 			return element.isAnnotationPresent(annotationType);
 		}
 		// Exhaustive retrieval of merged annotations...
-		return findAnnotations(element).isPresent(annotationType);
+		return PrecomputedMergedAnnotations.forTypeHierarchy(element).isPresent(annotationType);
 	}
 
 	/**
@@ -562,8 +560,8 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes findMergedAnnotationAttributes(AnnotatedElement element,
 			Class<? extends Annotation> annotationType, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
-		MergedAnnotation<?> mergedAnnotation = findAnnotations(element)
-				.get(annotationType, null, MergedAnnotationSelectors.firstDirectlyDeclared());
+		MergedAnnotation<?> mergedAnnotation =
+				PrecomputedMergedAnnotations.forTypeHierarchy(element).get(annotationType);
 		return getAnnotationAttributes(mergedAnnotation, classValuesAsString, nestedAnnotationsAsMap);
 	}
 
@@ -598,8 +596,8 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes findMergedAnnotationAttributes(AnnotatedElement element,
 			String annotationName, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
-		MergedAnnotation<?> mergedAnnotation = findAnnotations(element)
-				.get(annotationName, null, MergedAnnotationSelectors.firstDirectlyDeclared());
+		MergedAnnotation<?> mergedAnnotation =
+				PrecomputedMergedAnnotations.forTypeHierarchy(element).get(annotationName);
 		return getAnnotationAttributes(mergedAnnotation, classValuesAsString, nestedAnnotationsAsMap);
 	}
 
@@ -628,10 +626,8 @@ public abstract class AnnotatedElementUtils {
 				AnnotationsScanner.hasPlainJavaAnnotationsOnly(element)) {
 			return element.getDeclaredAnnotation(annotationType);
 		}
-		// Exhaustive retrieval of merged annotations...
-		return findAnnotations(element)
-				.get(annotationType, null, MergedAnnotationSelectors.firstDirectlyDeclared())
-				.synthesize(MergedAnnotation::isPresent).orElse(null);
+		// Merged annotations, precomputed per element...
+		return PrecomputedMergedAnnotations.forTypeHierarchy(element).synthesize(annotationType);
 	}
 
 	/**
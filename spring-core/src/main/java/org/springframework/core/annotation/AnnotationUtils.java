@@ -36,6 +36,7 @@ import org.springframework.core.annotation.MergedAnnotation.Adapt;
 import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.FrameworkCacheRegistry;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -113,7 +114,7 @@ public abstract class AnnotationUtils {
 			AnnotationFilter.packages("java.lang.annotation");
 
 	private static final Map<Class<? extends Annotation>, Map<String, DefaultValueHolder>> defaultValuesCache =
-			new ConcurrentReferenceHashMap<>();
+			FrameworkCacheRegistry.register("AnnotationUtils.defaultValuesCache", new ConcurrentReferenceHashMap<>());
 
 
 	/**
@@ -1289,6 +1290,7 @@ public abstract class AnnotationUtils {
 	public static void clearCache() {
 		AnnotationTypeMappings.clearCache();
 		AnnotationsScanner.clearCache();
+		PrecomputedMergedAnnotations.clearCache();
 	}
 
 
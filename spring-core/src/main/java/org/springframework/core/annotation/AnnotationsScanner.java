@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.FrameworkCacheRegistry;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
 
@@ -50,11 +51,11 @@ abstract class AnnotationsScanner {
 	private static final Method[] NO_METHODS = {};
 
 
-	private static final Map<AnnotatedElement, Annotation[]> declaredAnnotationCache =
-			new ConcurrentReferenceHashMap<>(256);
+	private static final Map<AnnotatedElement, Annotation[]> declaredAnnotationCache = FrameworkCacheRegistry.register(
+			"AnnotationsScanner.declaredAnnotationCache", new ConcurrentReferenceHashMap<>(256));
 
-	private static final Map<Class<?>, Method[]> baseTypeMethodsCache =
-			new ConcurrentReferenceHashMap<>(256);
+	private static final Map<Class<?>, Method[]> baseTypeMethodsCache = FrameworkCacheRegistry.register(
+			"AnnotationsScanner.baseTypeMethodsCache", new ConcurrentReferenceHashMap<>(256));
 
 
 	private AnnotationsScanner() {
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.FrameworkCacheRegistry;
+
+/**
+ * Immutable view of the merged annotations of an {@link AnnotatedElement},
+ * precomputed for every annotation type that is present on the element (directly
+ * or as meta-annotation) using the {@link MergedAnnotationSelectors#firstDirectlyDeclared()
+ * first directly declared} selection of {@link AnnotatedElementUtils}.
+ *
+ * <p>Views are cached per element for <em>get</em> semantics
+ * ({@link SearchStrategy#INHERITED_ANNOTATIONS}) and <em>find</em> semantics
+ * ({@link SearchStrategy#TYPE_HIERARCHY}), without repeatable containers, so
+ * that repeated lookups of the same element are answered from the view:
+ * after the first lookup, {@link #isPresent}, {@link #get} and {@link #synthesize}
+ * do not allocate.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see AnnotatedElementUtils
+ */
+final class PrecomputedMergedAnnotations {
+
+	private static final PrecomputedMergedAnnotations NONE = new PrecomputedMergedAnnotations(
+			Collections.emptyMap(), Collections.emptyMap());
+
+	private static final Map<AnnotatedElement, PrecomputedMergedAnnotations> inheritedAnnotationsCache = FrameworkCacheRegistry.register(
+			"MergedAnnotations.inheritedAnnotationsCache", new ConcurrentReferenceHashMap<>(256));
+
+	private static final Map<AnnotatedElement, PrecomputedMergedAnnotations> typeHierarchyCache = FrameworkCacheRegistry.register(
+			"MergedAnnotations.typeHierarchyCache", new ConcurrentReferenceHashMap<>(256));
+
+
+	private final Map<Class<?>, MergedAnnotation<?>> annotationsByType;
+
+	private final Map<String, MergedAnnotation<?>> annotationsByName;
+
+
+	private PrecomputedMergedAnnotations(Map<Class<?>, MergedAnnotation<?>> annotationsByType,
+			Map<String, MergedAnnotation<?>> annotationsByName) {
+
+		this.annotationsByType = annotationsByType;
+		this.annotationsByName = annotationsByName;
+	}
+
+
+	/**
+	 * Determine if an annotation of the specified type is present.
+	 */
+	boolean isPresent(Class<? extends Annotation> annotationType) {
+		return this.annotationsByType.containsKey(annotationType);
+	}
+
+	/**
+	 * Determine if an annotation of the specified type name is present.
+	 */
+	boolean isPresent(String annotationType) {
+		return this.annotationsByName.containsKey(annotationType);
+	}
+
+	/**
+	 * Return the merged annotation of the specified type, or a missing
+	 * annotation if none is present.
+	 */
+	@SuppressWarnings("unchecked")
+	<A extends Annotation> MergedAnnotation<A> get(Class<A> annotationType) {
+		MergedAnnotation<?> annotation = this.annotationsByType.get(annotationType);
+		return (annotation != null ? (MergedAnnotation<A>) annotation : MergedAnnotation.missing());
+	}
+
+	/**
+	 * Return the merged annotation of the specified type name, or a missing
+	 * annotation if none is present.
+	 */
+	@SuppressWarnings("unchecked")
+	<A extends Annotation> MergedAnnotation<A> get(String annotationType) {
+		MergedAnnotation<?> annotation = this.annotationsByName.get(annotationType);
+		return (annotation != null ? (MergedAnnotation<A>) annotation : MergedAnnotation.missing());
+	}
+
+	/**
+	 * Return the synthesized merged annotation of the specified type, or
+	 * {@code null} if none is present. The synthesized annotation is created
+	 * once and then retained by the underlying {@link MergedAnnotation}.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	<A extends Annotation> A synthesize(Class<A> annotationType) {
+		MergedAnnotation<?> annotation = this.annotationsByType.get(annotationType);
+		return (annotation != null ? (A) annotation.synthesize() : null);
+	}
+
+
+	/**
+	 * Return the view following <em>get</em> semantics for the given element.
+	 * @param element the source element
+	 * @return the (potentially cached) view
+	 */
+	static PrecomputedMergedAnnotations forInheritedAnnotations(AnnotatedElement element) {
+		return forElement(element, SearchStrategy.INHERITED_ANNOTATIONS, inheritedAnnotationsCache);
+	}
+
+	/**
+	 * Return the view following <em>find</em> semantics for the given element.
+	 * @param element the source element
+	 * @return the (potentially cached) view
+	 */
+	static PrecomputedMergedAnnotations forTypeHierarchy(AnnotatedElement element) {
+		return forElement(element, SearchStrategy.TYPE_HIERARCHY, typeHierarchyCache);
+	}
+
+	private static PrecomputedMergedAnnotations forElement(AnnotatedElement element,
+			SearchStrategy searchStrategy, Map<AnnotatedElement, PrecomputedMergedAnnotations> cache) {
+
+		if (!isCacheable(element)) {
+			return compute(element, searchStrategy);
+		}
+		PrecomputedMergedAnnotations annotations = cache.get(element);
+		if (annotations == null) {
+			annotations = compute(element, searchStrategy);
+			cache.put(element, annotations);
+		}
+		return annotations;
+	}
+
+	private static boolean isCacheable(AnnotatedElement element) {
+		// Adapters such as AnnotatedElementUtils.forAnnotations use identity equality
+		return (element instanceof Class || element instanceof Member);
+	}
+
+	private static PrecomputedMergedAnnotations compute(AnnotatedElement element, SearchStrategy searchStrategy) {
+		MergedAnnotations mergedAnnotations =
+				MergedAnnotations.from(element, searchStrategy, RepeatableContainers.none());
+		Map<Class<?>, MergedAnnotation<?>> annotationsByType = new HashMap<>();
+		Map<String, MergedAnnotation<?>> annotationsByName = new HashMap<>();
+		mergedAnnotations.stream().forEach(candidate -> {
+			Class<? extends Annotation> type = candidate.getType();
+			if (!annotationsByType.containsKey(type)) {
+				MergedAnnotation<?> annotation = mergedAnnotations.get(
+						type, null, MergedAnnotationSelectors.firstDirectlyDeclared());
+				annotationsByType.put(type, annotation);
+				annotationsByName.put(type.getName(), annotation);
+			}
+		});
+		return (annotationsByType.isEmpty() ? NONE :
+				new PrecomputedMergedAnnotations(annotationsByType, annotationsByName));
+	}
+
+	static void clearCache() {
+		inheritedAnnotationsCache.clear();
+		typeHierarchyCache.clear();
+	}
+
+}
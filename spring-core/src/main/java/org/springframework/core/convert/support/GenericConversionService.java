@@ -17,9 +17,11 @@
 package org.springframework.core.convert.support;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -46,6 +48,8 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.FrameworkCacheRegistry;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -53,6 +57,10 @@ import org.springframework.util.StringUtils;
  * Indirectly implements {@link ConverterRegistry} as registration API through the
  * {@link ConfigurableConversionService} interface.
  *
+ * <p>Once all converters have been registered, the service may be {@link #freeze() frozen}:
+ * converter lookups for plain class-based type descriptors are then answered from a
+ * precomputed dispatch table, without creating cache keys or searching type hierarchies.
+ *
  * @author Keith Donald
  * @author Juergen Hoeller
  * @author Chris Beams
@@ -73,10 +81,23 @@ public class GenericConversionService implements ConfigurableConversionService {
 	 */
 	private static final GenericConverter NO_MATCH = new NoOpConverter("NO_MATCH");
 
+	/**
+	 * Types for which all combinations are precomputed in the dispatch table.
+	 */
+	private static final Class<?>[] DISPATCH_TABLE_COMMON_TYPES = {
+			boolean.class, Boolean.class, byte.class, Byte.class, char.class, Character.class,
+			double.class, Double.class, float.class, Float.class, int.class, Integer.class,
+			long.class, Long.class, short.class, Short.class, String.class};
+
 
 	private final Converters converters = new Converters();
 
-	private final Map<ConverterCacheKey, GenericConverter> converterCache = new ConcurrentReferenceHashMap<>(64);
+	private final Map<ConverterCacheKey, GenericConverter> converterCache = FrameworkCacheRegistry.register(
+			"GenericConversionService@" + ObjectUtils.getIdentityHexString(this) + ".converterCache",
+			new ConcurrentReferenceHashMap<>(64));
+
+	@Nullable
+	private volatile ConverterDispatchTable dispatchTable;
 
 
 	// ConverterRegistry implementation
@@ -102,6 +123,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void addConverter(GenericConverter converter) {
+		assertNotFrozen();
 		this.converters.add(converter);
 		invalidateCache();
 	}
@@ -122,6 +144,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void removeConvertible(Class<?> sourceType, Class<?> targetType) {
+		assertNotFrozen();
 		this.converters.remove(sourceType, targetType);
 		invalidateCache();
 	}
@@ -212,6 +235,35 @@ public class GenericConversionService implements ConfigurableConversionService {
 		return convert(source, TypeDescriptor.forObject(source), targetType);
 	}
 
+	/**
+	 * Freeze the registered converters, indicating that no further registrations
+	 * are expected and building the converter dispatch table.
+	 * <p>The dispatch table is keyed by source and target class, covering all
+	 * combinations of primitive, wrapper and {@code String} types as well as the
+	 * concrete source and target types of all registered converters. Lookups for type
+	 * descriptors without annotations and generic type information are then
+	 * answered from that table, falling back to the regular converter search
+	 * for any other types.
+	 * <p>Any subsequent attempt to add or remove converters will fail with an
+	 * {@link IllegalStateException}.
+	 * @since 5.2.4
+	 * @see #isFrozen()
+	 */
+	public void freeze() {
+		if (this.dispatchTable == null) {
+			this.dispatchTable = buildDispatchTable();
+		}
+	}
+
+	/**
+	 * Return whether the registered converters have been frozen.
+	 * @since 5.2.4
+	 * @see #freeze()
+	 */
+	public boolean isFrozen() {
+		return (this.dispatchTable != null);
+	}
+
 	@Override
 	public String toString() {
 		return this.converters.toString();
@@ -240,7 +292,8 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	/**
 	 * Hook method to lookup the converter for a given sourceType/targetType pair.
-	 * First queries this ConversionService's converter cache.
+	 * First queries this ConversionService's dispatch table, if {@link #freeze() frozen},
+	 * and then its converter cache.
 	 * On a cache miss, then performs an exhaustive search for a matching converter.
 	 * If no converter matches, returns the default converter.
 	 * @param sourceType the source type to convert from
@@ -251,6 +304,34 @@ public class GenericConversionService implements ConfigurableConversionService {
 	 */
 	@Nullable
 	protected GenericConverter getConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		ConverterDispatchTable dispatchTable = this.dispatchTable;
+		if (dispatchTable != null) {
+			GenericConverter converter = dispatchTable.get(sourceType, targetType);
+			if (converter != null) {
+				return (converter != NO_MATCH ? converter : null);
+			}
+		}
+		return getCachedConverter(sourceType, targetType);
+	}
+
+	/**
+	 * Return the default converter if no converter is found for the given sourceType/targetType pair.
+	 * <p>Returns a NO_OP Converter if the source type is assignable to the target type.
+	 * Returns {@code null} otherwise, indicating no suitable converter could be found.
+	 * @param sourceType the source type to convert from
+	 * @param targetType the target type to convert to
+	 * @return the default generic converter that will perform the conversion
+	 */
+	@Nullable
+	protected GenericConverter getDefaultConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		return (sourceType.isAssignableTo(targetType) ? NO_OP_CONVERTER : null);
+	}
+
+
+	// Internal helpers
+
+	@Nullable
+	private GenericConverter getCachedConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
 		ConverterCacheKey key = new ConverterCacheKey(sourceType, targetType);
 		GenericConverter converter = this.converterCache.get(key);
 		if (converter != null) {
@@ -271,22 +352,6 @@ public class GenericConversionService implements ConfigurableConversionService {
 		return null;
 	}
 
-	/**
-	 * Return the default converter if no converter is found for the given sourceType/targetType pair.
-	 * <p>Returns a NO_OP Converter if the source type is assignable to the target type.
-	 * Returns {@code null} otherwise, indicating no suitable converter could be found.
-	 * @param sourceType the source type to convert from
-	 * @param targetType the target type to convert to
-	 * @return the default generic converter that will perform the conversion
-	 */
-	@Nullable
-	protected GenericConverter getDefaultConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
-		return (sourceType.isAssignableTo(targetType) ? NO_OP_CONVERTER : null);
-	}
-
-
-	// Internal helpers
-
 	@Nullable
 	private ResolvableType[] getRequiredTypeInfo(Class<?> converterClass, Class<?> genericIfc) {
 		ResolvableType resolvableType = ResolvableType.forClass(converterClass).as(genericIfc);
@@ -306,6 +371,38 @@ public class GenericConversionService implements ConfigurableConversionService {
 		this.converterCache.clear();
 	}
 
+	private void assertNotFrozen() {
+		Assert.state(this.dispatchTable == null,
+				"Cannot add or remove converters: ConversionService has been frozen");
+	}
+
+	private ConverterDispatchTable buildDispatchTable() {
+		ConverterDispatchTable dispatchTable = new ConverterDispatchTable();
+		for (Class<?> sourceType : DISPATCH_TABLE_COMMON_TYPES) {
+			for (Class<?> targetType : DISPATCH_TABLE_COMMON_TYPES) {
+				addToDispatchTable(dispatchTable, sourceType, targetType);
+			}
+		}
+		for (ConvertiblePair convertiblePair : this.converters.getConvertiblePairs()) {
+			// Abstract types such as Enum are not meant to be converted to as such
+			if (isConcreteType(convertiblePair.getSourceType()) && isConcreteType(convertiblePair.getTargetType())) {
+				addToDispatchTable(dispatchTable, convertiblePair.getSourceType(), convertiblePair.getTargetType());
+			}
+		}
+		return dispatchTable;
+	}
+
+	private static boolean isConcreteType(Class<?> type) {
+		return (type.isPrimitive() || type.isArray() ||
+				(!type.isInterface() && !Modifier.isAbstract(type.getModifiers())));
+	}
+
+	private void addToDispatchTable(ConverterDispatchTable dispatchTable, Class<?> sourceType, Class<?> targetType) {
+		GenericConverter converter = getCachedConverter(
+				TypeDescriptor.valueOf(sourceType), TypeDescriptor.valueOf(targetType));
+		dispatchTable.put(sourceType, targetType, (converter != null ? converter : NO_MATCH));
+	}
+
 	@Nullable
 	private Object handleConverterNotFound(
 			@Nullable Object source, @Nullable TypeDescriptor sourceType, TypeDescriptor targetType) {
@@ -494,6 +591,46 @@ public class GenericConversionService implements ConfigurableConversionService {
 	}
 
 
+	/**
+	 * Immutable table of converters by source and target class, built once the
+	 * registered converters have been frozen.
+	 */
+	private static final class ConverterDispatchTable {
+
+		private final Map<Class<?>, Map<Class<?>, GenericConverter>> converters = new IdentityHashMap<>(64);
+
+		void put(Class<?> sourceType, Class<?> targetType, GenericConverter converter) {
+			this.converters.computeIfAbsent(sourceType, key -> new IdentityHashMap<>()).put(targetType, converter);
+		}
+
+		/**
+		 * Return the precomputed converter for the given type descriptors, including
+		 * {@code NO_MATCH}, or {@code null} if the table does not apply to them.
+		 */
+		@Nullable
+		GenericConverter get(TypeDescriptor sourceType, TypeDescriptor targetType) {
+			Map<Class<?>, GenericConverter> convertersForSource = this.converters.get(sourceType.getType());
+			if (convertersForSource == null) {
+				return null;
+			}
+			GenericConverter converter = convertersForSource.get(targetType.getType());
+			if (converter == null || !isPlainType(sourceType) || !isPlainType(targetType)) {
+				return null;
+			}
+			return converter;
+		}
+
+		/**
+		 * Conditional converters may match against annotations or generics, which
+		 * the table does not account for: only plain class-based types qualify.
+		 */
+		private static boolean isPlainType(TypeDescriptor typeDescriptor) {
+			return (typeDescriptor.getResolvableType().getType() instanceof Class &&
+					typeDescriptor.getAnnotations().length == 0);
+		}
+	}
+
+
 	/**
 	 * Manages all converters registered with the service.
 	 */
@@ -526,6 +663,10 @@ public class GenericConversionService implements ConfigurableConversionService {
 			this.converters.remove(new ConvertiblePair(sourceType, targetType));
 		}
 
+		public Set<ConvertiblePair> getConvertiblePairs() {
+			return this.converters.keySet();
+		}
+
 		/**
 		 * Find a {@link GenericConverter} given a source and target type.
 		 * <p>This method will attempt to match all possible converters by working
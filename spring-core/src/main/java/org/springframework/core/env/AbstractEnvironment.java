@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -66,6 +66,17 @@ public abstract class AbstractEnvironment implements ConfigurableEnvironment {
 	 */
 	public static final String IGNORE_GETENV_PROPERTY_NAME = "spring.getenv.ignore";
 
+	/**
+	 * System property that instructs Spring to resolve environment properties against
+	 * an immutable snapshot of the property sources by default: {@value}.
+	 * <p>The default is "false". Consider switching this flag to "true" for applications
+	 * with many property sources whose contents do not change once the application
+	 * context is being refreshed.
+	 * @since 5.2.4
+	 * @see #setPropertySnapshotEnabled
+	 */
+	public static final String PROPERTY_SNAPSHOT_PROPERTY_NAME = "spring.environment.snapshot";
+
 	/**
 	 * Name of property to set to specify active profiles: {@value}. Value may be comma
 	 * delimited.
@@ -109,7 +120,7 @@ public abstract class AbstractEnvironment implements ConfigurableEnvironment {
 
 	private final MutablePropertySources propertySources = new MutablePropertySources();
 
-	private final ConfigurablePropertyResolver propertyResolver =
+	private final PropertySourcesPropertyResolver propertyResolver =
 			new PropertySourcesPropertyResolver(this.propertySources);
 
 
@@ -121,6 +132,7 @@ public abstract class AbstractEnvironment implements ConfigurableEnvironment {
 	 * @see #customizePropertySources(MutablePropertySources)
 	 */
 	public AbstractEnvironment() {
+		this.propertyResolver.setSnapshotEnabled(SpringProperties.getFlag(PROPERTY_SNAPSHOT_PROPERTY_NAME));
 		customizePropertySources(this.propertySources);
 	}
 
@@ -452,6 +464,32 @@ public abstract class AbstractEnvironment implements ConfigurableEnvironment {
 		return SpringProperties.getFlag(IGNORE_GETENV_PROPERTY_NAME);
 	}
 
+	/**
+	 * Set whether to resolve properties against an immutable snapshot of this
+	 * environment's property sources, with consecutive enumerable property sources
+	 * flattened into a single map and nested placeholders resolved only once.
+	 * <p>The snapshot is rebuilt whenever property sources are added, removed or
+	 * replaced, but does not reflect changes to the contents of a property source
+	 * (e.g. a system property set after the snapshot has been taken).
+	 * <p>The default is "false", unless the {@link #PROPERTY_SNAPSHOT_PROPERTY_NAME}
+	 * flag has been set.
+	 * @since 5.2.4
+	 * @see PropertySourcesPropertyResolver#setSnapshotEnabled
+	 */
+	public void setPropertySnapshotEnabled(boolean propertySnapshotEnabled) {
+		this.propertyResolver.setSnapshotEnabled(propertySnapshotEnabled);
+	}
+
+	/**
+	 * Return whether properties are resolved against a snapshot of this
+	 * environment's property sources.
+	 * @since 5.2.4
+	 * @see #setPropertySnapshotEnabled
+	 */
+	public boolean isPropertySnapshotEnabled() {
+		return this.propertyResolver.isSnapshotEnabled();
+	}
+
 	@Override
 	public void merge(ConfigurableEnvironment parent) {
 		for (PropertySource<?> ps : parent.getPropertySources()) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,18 @@
 
 package org.springframework.core.env;
 
+import org.springframework.core.env.PropertySourcesSnapshot.FlattenedProperty;
+import org.springframework.core.env.PropertySourcesSnapshot.FlattenedPropertySource;
 import org.springframework.lang.Nullable;
 
 /**
  * {@link PropertyResolver} implementation that resolves property values against
  * an underlying set of {@link PropertySources}.
  *
+ * <p>For {@link MutablePropertySources}, property values may be resolved against
+ * an immutable snapshot of the property sources instead: see
+ * {@link #setSnapshotEnabled}.
+ *
  * @author Chris Beams
  * @author Juergen Hoeller
  * @since 3.1
@@ -34,6 +40,11 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 	@Nullable
 	private final PropertySources propertySources;
 
+	private boolean snapshotEnabled = false;
+
+	@Nullable
+	private volatile PropertySourcesSnapshot snapshot;
+
 
 	/**
 	 * Create a new resolver against the given property sources.
@@ -44,10 +55,67 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 	}
 
 
+	/**
+	 * Set whether to resolve properties against an immutable snapshot of the
+	 * underlying {@link MutablePropertySources}, rather than searching each
+	 * property source for each lookup.
+	 * <p>The snapshot flattens consecutive {@link EnumerablePropertySource enumerable}
+	 * property sources into a single map and caches property values with resolved
+	 * nested placeholders, as long as all other property sources are immutable (like
+	 * the system environment). It is rebuilt whenever property sources are added,
+	 * removed or replaced, but changes to the contents of a property source (e.g. a
+	 * system property set after the snapshot has been taken) will go unnoticed.
+	 * <p>The default is "false". Has no effect if the underlying property sources
+	 * are not {@link MutablePropertySources}.
+	 * @since 5.2.4
+	 */
+	public void setSnapshotEnabled(boolean snapshotEnabled) {
+		this.snapshotEnabled = snapshotEnabled;
+		this.snapshot = null;
+	}
+
+	/**
+	 * Return whether properties are resolved against a snapshot of the
+	 * underlying property sources.
+	 * @since 5.2.4
+	 * @see #setSnapshotEnabled
+	 */
+	public boolean isSnapshotEnabled() {
+		return this.snapshotEnabled;
+	}
+
+	@Override
+	public void setPlaceholderPrefix(String placeholderPrefix) {
+		super.setPlaceholderPrefix(placeholderPrefix);
+		// Cached values with resolved placeholders depend on the placeholder syntax
+		this.snapshot = null;
+	}
+
+	@Override
+	public void setPlaceholderSuffix(String placeholderSuffix) {
+		super.setPlaceholderSuffix(placeholderSuffix);
+		this.snapshot = null;
+	}
+
+	@Override
+	public void setValueSeparator(@Nullable String valueSeparator) {
+		super.setValueSeparator(valueSeparator);
+		this.snapshot = null;
+	}
+
+	@Override
+	public void setIgnoreUnresolvableNestedPlaceholders(boolean ignoreUnresolvableNestedPlaceholders) {
+		super.setIgnoreUnresolvableNestedPlaceholders(ignoreUnresolvableNestedPlaceholders);
+		// Cached values with resolved placeholders depend on this setting
+		this.snapshot = null;
+	}
+
+
 	@Override
 	public boolean containsProperty(String key) {
-		if (this.propertySources != null) {
-			for (PropertySource<?> propertySource : this.propertySources) {
+		Iterable<PropertySource<?>> propertySources = getPropertySourcesToSearch();
+		if (propertySources != null) {
+			for (PropertySource<?> propertySource : propertySources) {
 				if (propertySource.containsProperty(key)) {
 					return true;
 				}
@@ -76,12 +144,28 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 
 	@Nullable
 	protected <T> T getProperty(String key, Class<T> targetValueType, boolean resolveNestedPlaceholders) {
-		if (this.propertySources != null) {
-			for (PropertySource<?> propertySource : this.propertySources) {
+		PropertySourcesSnapshot snapshot = getSnapshot();
+		Iterable<PropertySource<?>> propertySources =
+				(snapshot != null ? snapshot.getPropertySources() : this.propertySources);
+		if (propertySources != null) {
+			for (PropertySource<?> propertySource : propertySources) {
 				if (logger.isTraceEnabled()) {
 					logger.trace("Searching for key '" + key + "' in PropertySource '" +
 							propertySource.getName() + "'");
 				}
+				if (propertySource instanceof FlattenedPropertySource) {
+					FlattenedProperty property = ((FlattenedPropertySource) propertySource).getFlattenedProperty(key);
+					if (property != null) {
+						Object value = property.getValue();
+						if (resolveNestedPlaceholders && value instanceof String) {
+							value = (snapshot.isStable() ? property.resolve(this::resolveNestedPlaceholders) :
+									resolveNestedPlaceholders((String) value));
+						}
+						logKeyFound(key, property.getPropertySource(), value);
+						return convertValueIfNecessary(value, targetValueType);
+					}
+					continue;
+				}
 				Object value = propertySource.getProperty(key);
 				if (value != null) {
 					if (resolveNestedPlaceholders && value instanceof String) {
@@ -98,6 +182,26 @@ public class PropertySourcesPropertyResolver extends AbstractPropertyResolver {
 		return null;
 	}
 
+	@Nullable
+	private Iterable<PropertySource<?>> getPropertySourcesToSearch() {
+		PropertySourcesSnapshot snapshot = getSnapshot();
+		return (snapshot != null ? snapshot.getPropertySources() : this.propertySources);
+	}
+
+	@Nullable
+	private PropertySourcesSnapshot getSnapshot() {
+		if (!this.snapshotEnabled || !(this.propertySources instanceof MutablePropertySources)) {
+			return null;
+		}
+		MutablePropertySources mutablePropertySources = (MutablePropertySources) this.propertySources;
+		PropertySourcesSnapshot snapshot = this.snapshot;
+		if (snapshot == null || !snapshot.isCurrent(mutablePropertySources)) {
+			snapshot = new PropertySourcesSnapshot(mutablePropertySources);
+			this.snapshot = snapshot;
+		}
+		return snapshot;
+	}
+
 	/**
 	 * Log the given key as found in the given {@link PropertySource}, resulting in
 	 * the given value.
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.env;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Immutable snapshot of {@link MutablePropertySources}, used by a
+ * {@link PropertySourcesPropertyResolver} with snapshot resolution enabled.
+ *
+ * <p>Consecutive {@link EnumerablePropertySource enumerable} property sources
+ * are flattened into a single map of property values, keeping the value of the
+ * property source with the highest precedence for each name. Any other property
+ * sources, including {@link SystemEnvironmentPropertySource} with its relaxed
+ * name matching and system attributes that cannot be enumerated under a security
+ * manager, are retained as-is and queried in order as usual.
+ *
+ * <p>The snapshot is tied to the {@link MutablePropertySources#getModificationCount()
+ * modification count} of the property sources it has been built from; it does not
+ * notice changes of the contents of individual property sources.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see PropertySourcesPropertyResolver#setSnapshotEnabled
+ */
+final class PropertySourcesSnapshot {
+
+	private final int modificationCount;
+
+	private final List<PropertySource<?>> propertySources;
+
+	private final boolean stable;
+
+
+	PropertySourcesSnapshot(MutablePropertySources propertySources) {
+		this.modificationCount = propertySources.getModificationCount();
+		List<PropertySource<?>> result = new ArrayList<>();
+		List<PropertySource<?>> flattenable = new ArrayList<>();
+		List<String[]> flattenableNames = new ArrayList<>();
+		boolean allStable = true;
+		for (PropertySource<?> propertySource : propertySources) {
+			String[] propertyNames = getPropertyNames(propertySource);
+			if (propertyNames != null) {
+				flattenable.add(propertySource);
+				flattenableNames.add(propertyNames);
+			}
+			else {
+				addFlattened(flattenable, flattenableNames, result);
+				result.add(propertySource);
+				// The system environment is immutable, any other source may be dynamic
+				allStable = (allStable && propertySource instanceof SystemEnvironmentPropertySource);
+			}
+		}
+		addFlattened(flattenable, flattenableNames, result);
+		this.propertySources = Collections.unmodifiableList(result);
+		this.stable = allStable;
+	}
+
+
+	/**
+	 * Return whether this snapshot reflects the current state of the given
+	 * property sources.
+	 */
+	boolean isCurrent(MutablePropertySources propertySources) {
+		return (this.modificationCount == propertySources.getModificationCount());
+	}
+
+	/**
+	 * Return the property sources to search, in order of precedence: flattened
+	 * {@link FlattenedPropertySource} instances and retained property sources.
+	 */
+	List<PropertySource<?>> getPropertySources() {
+		return this.propertySources;
+	}
+
+	/**
+	 * Return whether all retained property sources are immutable, i.e. whether
+	 * values with resolved placeholders may be cached.
+	 */
+	boolean isStable() {
+		return this.stable;
+	}
+
+
+	@Nullable
+	private static String[] getPropertyNames(PropertySource<?> propertySource) {
+		if (!(propertySource instanceof EnumerablePropertySource) ||
+				propertySource instanceof SystemEnvironmentPropertySource ||
+				propertySource.getSource() instanceof ReadOnlySystemAttributesMap) {
+			// Relaxed name matching or individual access to system attributes
+			return null;
+		}
+		try {
+			return ((EnumerablePropertySource<?>) propertySource).getPropertyNames();
+		}
+		catch (IllegalStateException ex) {
+			// e.g. CompositePropertySource with non-enumerable nested property sources
+			return null;
+		}
+	}
+
+	private static void addFlattened(List<PropertySource<?>> flattenable, List<String[]> flattenableNames,
+			List<PropertySource<?>> result) {
+
+		if (!flattenable.isEmpty()) {
+			result.add(new FlattenedPropertySource(flattenable, flattenableNames));
+			flattenable.clear();
+			flattenableNames.clear();
+		}
+	}
+
+
+	/**
+	 * Property source holding the flattened properties of consecutive
+	 * enumerable property sources.
+	 */
+	static final class FlattenedPropertySource extends PropertySource<Map<String, FlattenedProperty>> {
+
+		private final Set<String> propertyNames = new HashSet<>();
+
+		FlattenedPropertySource(List<PropertySource<?>> propertySources, List<String[]> propertyNames) {
+			super(propertySources.stream().map(PropertySource::getName).collect(Collectors.joining(", ", "[", "]")),
+					new HashMap<>());
+			for (int i = 0; i < propertySources.size(); i++) {
+				PropertySource<?> propertySource = propertySources.get(i);
+				for (String name : propertyNames.get(i)) {
+					this.propertyNames.add(name);
+					if (!this.source.containsKey(name)) {
+						Object value = propertySource.getProperty(name);
+						if (value != null) {
+							this.source.put(name, new FlattenedProperty(propertySource, value));
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean containsProperty(String name) {
+			return this.propertyNames.contains(name);
+		}
+
+		@Override
+		@Nullable
+		public Object getProperty(String name) {
+			FlattenedProperty property = this.source.get(name);
+			return (property != null ? property.getValue() : null);
+		}
+
+		@Nullable
+		FlattenedProperty getFlattenedProperty(String name) {
+			return this.source.get(name);
+		}
+	}
+
+
+	/**
+	 * A property value along with the property source it has been taken from,
+	 * caching the value with resolved placeholders.
+	 */
+	static final class FlattenedProperty {
+
+		private final PropertySource<?> propertySource;
+
+		private final Object value;
+
+		@Nullable
+		private volatile String resolvedValue;
+
+		FlattenedProperty(PropertySource<?> propertySource, Object value) {
+			this.propertySource = propertySource;
+			this.value = value;
+		}
+
+		PropertySource<?> getPropertySource() {
+			return this.propertySource;
+		}
+
+		Object getValue() {
+			return this.value;
+		}
+
+		/**
+		 * Return the String value with its placeholders resolved through the
+		 * given function, caching the result.
+		 */
+		String resolve(UnaryOperator<String> placeholderResolver) {
+			String resolvedValue = this.resolvedValue;
+			if (resolvedValue == null) {
+				resolvedValue = placeholderResolver.apply((String) this.value);
+				this.resolvedValue = resolvedValue;
+			}
+			return resolvedValue;
+		}
+	}
+
+}
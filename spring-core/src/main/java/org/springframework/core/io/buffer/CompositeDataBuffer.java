@@ -0,0 +1,618 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link DataBuffer} composed of the readable bytes of several other buffers,
+ * without copying them, similar to Netty's {@code CompositeByteBuf}. Created by
+ * {@link DataBufferUtils#join(List)} for buffers of a {@link DefaultDataBufferFactory}.
+ *
+ * <p>Reading methods, {@link #asInputStream()} and {@link #toString(int, int, Charset)}
+ * operate across segments. {@link #asByteBuffers()} exposes the readable bytes
+ * as one {@link ByteBuffer} view per segment, e.g. for gathering writes, whereas
+ * {@link #asByteBuffer(int, int)} has to copy if the range spans several segments.
+ *
+ * <p>Writing beyond the capacity appends a new segment allocated from the factory.
+ * The composed buffers are released along with this buffer; slices share its
+ * reference count and cannot be accessed anymore once it has been released.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see DataBufferUtils#join(List)
+ */
+public class CompositeDataBuffer implements PooledDataBuffer {
+
+	private static final ByteBuffer[] NO_SEGMENTS = new ByteBuffer[0];
+
+
+	private final DefaultDataBufferFactory dataBufferFactory;
+
+	/**
+	 * The composed buffers, or {@code null} for a slice.
+	 */
+	@Nullable
+	private final List<DataBuffer> components;
+
+	/**
+	 * The buffer holding the reference count: this buffer, or the buffer sliced from.
+	 */
+	private final CompositeDataBuffer root;
+
+	private final AtomicInteger refCount = new AtomicInteger(1);
+
+	/**
+	 * Views of the segments, each with position 0 and limit at its length.
+	 */
+	private ByteBuffer[] segments;
+
+	/**
+	 * Start index of each segment, followed by the capacity.
+	 */
+	private int[] offsets;
+
+	private int lastSegment;
+
+	private int readPosition;
+
+	private int writePosition;
+
+
+	CompositeDataBuffer(DefaultDataBufferFactory dataBufferFactory, List<? extends DataBuffer> dataBuffers) {
+		Assert.notNull(dataBufferFactory, "DefaultDataBufferFactory must not be null");
+		Assert.notEmpty(dataBuffers, "DataBuffer List must not be empty");
+		this.dataBufferFactory = dataBufferFactory;
+		this.components = new ArrayList<>(dataBuffers);
+		this.root = this;
+		List<ByteBuffer> segments = new ArrayList<>(dataBuffers.size());
+		for (DataBuffer dataBuffer : dataBuffers) {
+			if (dataBuffer.readableByteCount() > 0) {
+				segments.add(dataBuffer.asByteBuffer());
+			}
+		}
+		setSegments(segments.toArray(NO_SEGMENTS));
+		this.writePosition = capacity();
+	}
+
+	private CompositeDataBuffer(CompositeDataBuffer parent, ByteBuffer[] segments) {
+		this.dataBufferFactory = parent.dataBufferFactory;
+		this.components = null;
+		this.root = parent.root;
+		setSegments(segments);
+		this.writePosition = capacity();
+	}
+
+	private void setSegments(ByteBuffer[] segments) {
+		int[] offsets = new int[segments.length + 1];
+		for (int i = 0; i < segments.length; i++) {
+			offsets[i + 1] = offsets[i] + segments[i].remaining();
+		}
+		this.segments = segments;
+		this.offsets = offsets;
+		this.lastSegment = 0;
+	}
+
+
+	/**
+	 * Return the readable bytes of this buffer as {@link ByteBuffer} views of its
+	 * segments, sharing their data without copying.
+	 */
+	public ByteBuffer[] asByteBuffers() {
+		return asByteBuffers(this.readPosition, readableByteCount());
+	}
+
+	private ByteBuffer[] asByteBuffers(int index, int length) {
+		assertAllocated();
+		if (length == 0) {
+			return NO_SEGMENTS;
+		}
+		int first = segmentIndex(index);
+		int last = segmentIndex(index + length - 1);
+		ByteBuffer[] result = new ByteBuffer[last - first + 1];
+		for (int i = first; i <= last; i++) {
+			int start = Math.max(index, this.offsets[i]) - this.offsets[i];
+			int end = Math.min(index + length, this.offsets[i + 1]) - this.offsets[i];
+			result[i - first] = view(this.segments[i], start, end);
+		}
+		return result;
+	}
+
+	private static ByteBuffer view(ByteBuffer segment, int start, int end) {
+		ByteBuffer duplicate = segment.duplicate();
+		// Explicit access via Buffer base type for compatibility
+		// with covariant return type on JDK 9's ByteBuffer...
+		((Buffer) duplicate).limit(end).position(start);
+		return duplicate.slice();
+	}
+
+
+	@Override
+	public DefaultDataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		assertAllocated();
+		if (fromIndex < 0) {
+			fromIndex = 0;
+		}
+		else if (fromIndex >= this.writePosition) {
+			return -1;
+		}
+		int index = fromIndex;
+		for (int i = segmentIndex(fromIndex); index < this.writePosition; i++) {
+			ByteBuffer segment = this.segments[i];
+			int offset = this.offsets[i];
+			int end = Math.min(this.offsets[i + 1], this.writePosition);
+			for (; index < end; index++) {
+				if (predicate.test(segment.get(index - offset))) {
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		Assert.notNull(predicate, "IntPredicate must not be null");
+		assertAllocated();
+		int index = Math.min(fromIndex, this.writePosition - 1);
+		if (index < 0) {
+			return -1;
+		}
+		for (int i = segmentIndex(index); index >= 0; i--) {
+			ByteBuffer segment = this.segments[i];
+			int offset = this.offsets[i];
+			for (; index >= offset; index--) {
+				if (predicate.test(segment.get(index - offset))) {
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.writePosition - this.readPosition;
+	}
+
+	@Override
+	public int writableByteCount() {
+		return capacity() - this.writePosition;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.readPosition;
+	}
+
+	@Override
+	public CompositeDataBuffer readPosition(int readPosition) {
+		assertIndex(readPosition >= 0, "'readPosition' %d must be >= 0", readPosition);
+		assertIndex(readPosition <= this.writePosition, "'readPosition' %d must be <= %d",
+				readPosition, this.writePosition);
+		this.readPosition = readPosition;
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.writePosition;
+	}
+
+	@Override
+	public CompositeDataBuffer writePosition(int writePosition) {
+		assertIndex(writePosition >= this.readPosition, "'writePosition' %d must be >= %d",
+				writePosition, this.readPosition);
+		assertIndex(writePosition <= capacity(), "'writePosition' %d must be <= %d",
+				writePosition, capacity());
+		this.writePosition = writePosition;
+		return this;
+	}
+
+	@Override
+	public int capacity() {
+		return this.offsets[this.segments.length];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The capacity of a composite buffer can only be increased, by appending
+	 * a segment allocated from the factory.
+	 */
+	@Override
+	public CompositeDataBuffer capacity(int newCapacity) {
+		if (newCapacity <= 0) {
+			throw new IllegalArgumentException(String.format("'newCapacity' %d must be higher than 0", newCapacity));
+		}
+		int capacity = capacity();
+		if (newCapacity < capacity) {
+			throw new UnsupportedOperationException("Decreasing the capacity of a composite buffer is not supported");
+		}
+		if (newCapacity > capacity) {
+			if (this.components == null) {
+				throw new UnsupportedOperationException("Changing the capacity of a sliced buffer is not supported");
+			}
+			assertAllocated();
+			DataBuffer component = this.dataBufferFactory.allocateBuffer(newCapacity - capacity);
+			this.components.add(component);
+			ByteBuffer[] segments = Arrays.copyOf(this.segments, this.segments.length + 1);
+			segments[this.segments.length] = component.asByteBuffer(0, newCapacity - capacity);
+			setSegments(segments);
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer ensureCapacity(int length) {
+		int writableByteCount = writableByteCount();
+		if (length > writableByteCount) {
+			capacity(capacity() + Math.max(length - writableByteCount,
+					DefaultDataBufferFactory.DEFAULT_INITIAL_CAPACITY));
+		}
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		assertAllocated();
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(index <= this.writePosition - 1, "index %d must be <= %d", index, this.writePosition - 1);
+		int i = segmentIndex(index);
+		return this.segments[i].get(index - this.offsets[i]);
+	}
+
+	@Override
+	public byte read() {
+		assertIndex(this.readPosition <= this.writePosition - 1, "readPosition %d must be <= %d",
+				this.readPosition, this.writePosition - 1);
+		byte b = getByte(this.readPosition);
+		this.readPosition++;
+		return b;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination) {
+		Assert.notNull(destination, "Byte array must not be null");
+		read(destination, 0, destination.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer read(byte[] destination, int offset, int length) {
+		Assert.notNull(destination, "Byte array must not be null");
+		assertAllocated();
+		assertIndex(this.readPosition <= this.writePosition - length,
+				"readPosition %d and length %d should be smaller than writePosition %d",
+				this.readPosition, length, this.writePosition);
+		if (length == 0) {
+			return this;
+		}
+		int index = this.readPosition;
+		int remaining = length;
+		for (int i = segmentIndex(index); remaining > 0; i++) {
+			int start = index - this.offsets[i];
+			int count = Math.min(remaining, this.offsets[i + 1] - index);
+			ByteBuffer duplicate = this.segments[i].duplicate();
+			((Buffer) duplicate).position(start);
+			duplicate.get(destination, offset, count);
+			index += count;
+			offset += count;
+			remaining -= count;
+		}
+		this.readPosition += length;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte b) {
+		assertAllocated();
+		ensureCapacity(1);
+		int i = segmentIndex(this.writePosition);
+		this.segments[i].put(this.writePosition - this.offsets[i], b);
+		this.writePosition++;
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source) {
+		Assert.notNull(source, "Byte array must not be null");
+		write(source, 0, source.length);
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(byte[] source, int offset, int length) {
+		Assert.notNull(source, "Byte array must not be null");
+		write(ByteBuffer.wrap(source, offset, length));
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(DataBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			write(Arrays.stream(buffers).map(DataBuffer::asByteBuffer).toArray(ByteBuffer[]::new));
+		}
+		return this;
+	}
+
+	@Override
+	public CompositeDataBuffer write(ByteBuffer... buffers) {
+		if (!ObjectUtils.isEmpty(buffers)) {
+			int capacity = Arrays.stream(buffers).mapToInt(ByteBuffer::remaining).sum();
+			ensureCapacity(capacity);
+			Arrays.stream(buffers).forEach(this::write);
+		}
+		return this;
+	}
+
+	private void write(ByteBuffer source) {
+		assertAllocated();
+		if (!source.hasRemaining()) {
+			return;
+		}
+		ensureCapacity(source.remaining());
+		for (int i = segmentIndex(this.writePosition); source.hasRemaining(); i++) {
+			int start = this.writePosition - this.offsets[i];
+			int count = Math.min(source.remaining(), this.offsets[i + 1] - this.writePosition);
+			ByteBuffer duplicate = this.segments[i].duplicate();
+			((Buffer) duplicate).position(start);
+			ByteBuffer chunk = source.duplicate();
+			((Buffer) chunk).limit(chunk.position() + count);
+			duplicate.put(chunk);
+			((Buffer) source).position(source.position() + count);
+			this.writePosition += count;
+		}
+	}
+
+	@Override
+	public CompositeDataBuffer slice(int index, int length) {
+		checkIndex(index, length);
+		CompositeDataBuffer slice = new CompositeDataBuffer(this, asByteBuffers(index, length));
+		return slice;
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		return asByteBuffer(this.readPosition, readableByteCount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>If the given range spans several segments, the data is copied into a
+	 * new buffer; see {@link #asByteBuffers()} for zero-copy access.
+	 */
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		checkIndex(index, length);
+		ByteBuffer[] byteBuffers = asByteBuffers(index, length);
+		if (byteBuffers.length == 1) {
+			return byteBuffers[0];
+		}
+		ByteBuffer result = ByteBuffer.allocate(length);
+		for (ByteBuffer byteBuffer : byteBuffers) {
+			result.put(byteBuffer);
+		}
+		((Buffer) result).flip();
+		return result;
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		return new CompositeDataBufferInputStream(false);
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		return new CompositeDataBufferInputStream(releaseOnClose);
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		return new CompositeDataBufferOutputStream();
+	}
+
+	@Override
+	public String toString(int index, int length, Charset charset) {
+		checkIndex(index, length);
+		Assert.notNull(charset, "Charset must not be null");
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = CharBuffer.allocate((int) Math.ceil(length * (double) decoder.maxCharsPerByte()) + 1);
+		// Bytes of a character split across segments
+		ByteBuffer pending = ByteBuffer.allocate(16);
+		for (ByteBuffer segment : asByteBuffers(index, length)) {
+			while (pending.position() > 0 && segment.hasRemaining()) {
+				pending.put(segment.get());
+				((Buffer) pending).flip();
+				decoder.decode(pending, chars, false);
+				pending.compact();
+			}
+			decoder.decode(segment, chars, false);
+			pending.put(segment);
+		}
+		((Buffer) pending).flip();
+		decoder.decode(pending, chars, true);
+		decoder.flush(chars);
+		((Buffer) chars).flip();
+		return chars.toString();
+	}
+
+
+	@Override
+	public boolean isAllocated() {
+		return (this.root.refCount.get() > 0);
+	}
+
+	@Override
+	public PooledDataBuffer retain() {
+		AtomicInteger refCount = this.root.refCount;
+		int count;
+		do {
+			count = refCount.get();
+			Assert.state(count > 0, "DataBuffer has already been released");
+		}
+		while (!refCount.compareAndSet(count, count + 1));
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		AtomicInteger refCount = this.root.refCount;
+		int count;
+		do {
+			count = refCount.get();
+			Assert.state(count > 0, "DataBuffer has already been released");
+		}
+		while (!refCount.compareAndSet(count, count - 1));
+		if (count > 1) {
+			return false;
+		}
+		CompositeDataBuffer root = this.root;
+		Assert.state(root.components != null, "No components");
+		root.components.forEach(DataBufferUtils::release);
+		root.components.clear();
+		root.readPosition = 0;
+		root.writePosition = 0;
+		root.setSegments(NO_SEGMENTS);
+		return true;
+	}
+
+
+	@Override
+	public String toString() {
+		return String.format("CompositeDataBuffer (r: %d, w: %d, c: %d, segments: %d)",
+				this.readPosition, this.writePosition, capacity(), this.segments.length);
+	}
+
+
+	/**
+	 * Return the index of the segment holding the byte at the given index,
+	 * or 0 if this buffer has no segments.
+	 */
+	private int segmentIndex(int index) {
+		int i = this.lastSegment;
+		if (i < this.segments.length && index >= this.offsets[i] && index < this.offsets[i + 1]) {
+			return i;
+		}
+		i = Arrays.binarySearch(this.offsets, 0, this.segments.length, index);
+		if (i < 0) {
+			i = Math.max(-i - 2, 0);
+		}
+		this.lastSegment = i;
+		return i;
+	}
+
+	/**
+	 * Assert that this buffer has not been released yet, since the memory of
+	 * released components may have been recycled, e.g. by a pooling factory.
+	 */
+	private void assertAllocated() {
+		Assert.state(isAllocated(), "DataBuffer has already been released");
+	}
+
+	private void checkIndex(int index, int length) {
+		assertIndex(index >= 0, "index %d must be >= 0", index);
+		assertIndex(length >= 0, "length %d must be >= 0", length);
+		assertIndex(index + length <= capacity(), "index %d and length %d must be <= %d", index, length, capacity());
+	}
+
+	private void assertIndex(boolean expression, String format, Object... args) {
+		if (!expression) {
+			String message = String.format(format, args);
+			throw new IndexOutOfBoundsException(message);
+		}
+	}
+
+
+	private class CompositeDataBufferInputStream extends InputStream {
+
+		private final boolean releaseOnClose;
+
+		CompositeDataBufferInputStream(boolean releaseOnClose) {
+			this.releaseOnClose = releaseOnClose;
+		}
+
+		@Override
+		public int available() {
+			return readableByteCount();
+		}
+
+		@Override
+		public int read() {
+			return (available() > 0 ? CompositeDataBuffer.this.read() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			int available = available();
+			if (available > 0) {
+				len = Math.min(len, available);
+				CompositeDataBuffer.this.read(bytes, off, len);
+				return len;
+			}
+			else {
+				return -1;
+			}
+		}
+
+		@Override
+		public void close() {
+			if (this.releaseOnClose) {
+				DataBufferUtils.release(CompositeDataBuffer.this);
+			}
+		}
+	}
+
+
+	private class CompositeDataBufferOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			CompositeDataBuffer.this.write((byte) b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException {
+			CompositeDataBuffer.this.write(bytes, off, len);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,10 +21,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
 import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.OpenOption;
@@ -32,6 +34,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -155,6 +158,49 @@ public abstract class DataBufferUtils {
 		return flux.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 	}
 
+	/**
+	 * Obtain a {@code FileChannel} from the given supplier, and map it into
+	 * memory region by region through {@link FileChannel#map}, starting at the
+	 * given position. Regions of at least 1 MB are mapped at once and emitted
+	 * part by part as {@code DataBuffer}s that wrap the mapped memory without
+	 * copying it; a region is unmapped once the buffers for all of its parts
+	 * have been {@linkplain #release(DataBuffer) released}. Closes the channel
+	 * when the Flux is terminated.
+	 * <p>Note that the emitted buffers must not be accessed after release. Once a
+	 * {@code ByteBuffer} has been obtained from any of them, the region is left to
+	 * the garbage collector rather than being unmapped on release, since such byte
+	 * buffers, as well as slices or duplicates derived from them, cannot be
+	 * invalidated and might still be in use.
+	 * @param channelSupplier the supplier for the channel to read from
+	 * @param position the position to start reading from
+	 * @param count the maximum number of bytes to read
+	 * @param bufferFactory the factory that the data buffers belong to
+	 * @param regionSize the maximum size of the emitted data buffers
+	 * @return a Flux of data buffers for the mapped regions of the given channel
+	 * @since 5.2.4
+	 */
+	public static Flux<DataBuffer> readMappedFileChannel(Callable<FileChannel> channelSupplier,
+			long position, long count, DefaultDataBufferFactory bufferFactory, int regionSize) {
+
+		Assert.notNull(channelSupplier, "'channelSupplier' must not be null");
+		Assert.notNull(bufferFactory, "'dataBufferFactory' must not be null");
+		Assert.isTrue(position >= 0, "'position' must be >= 0");
+		Assert.isTrue(count >= 0, "'count' must be >= 0");
+		Assert.isTrue(regionSize > 0, "'regionSize' must be > 0");
+
+		return Flux.using(channelSupplier,
+				channel -> Flux.generate(
+						() -> new MappedFileChannelGenerator(channel, position, count, bufferFactory, regionSize),
+						(generator, sink) -> {
+							generator.generate(sink);
+							return generator;
+						},
+						MappedFileChannelGenerator::dispose),
+				DataBufferUtils::closeChannel);
+
+		// No doOnDiscard as operators used do not cache
+	}
+
 	/**
 	 * Read bytes from the given file {@code Path} into a {@code Flux} of {@code DataBuffer}s.
 	 * The method ensures that the file is closed when the flux is terminated.
@@ -229,6 +275,39 @@ public abstract class DataBufferUtils {
 		return position == 0 ? result : skipUntilByteCount(result, position);
 	}
 
+	/**
+	 * Read the given {@code Resource} into a {@code Flux} of {@code DataBuffer}s
+	 * starting at the given position, mapping the file into memory if possible.
+	 * <p>If the resource is a file and the given factory is a
+	 * {@link DefaultDataBufferFactory}, the file is mapped region by region via
+	 * {@link #readMappedFileChannel(Callable, long, long, DefaultDataBufferFactory, int)}
+	 * or else this falls back on {@link #read(Resource, long, DataBufferFactory, int)}.
+	 * Closes the channel when the flux is terminated.
+	 * @param resource the resource to read from
+	 * @param position the position to start reading from
+	 * @param bufferFactory the factory to create data buffers with
+	 * @param bufferSize the maximum size of the data buffers, i.e. of the mapped regions
+	 * @return a Flux of data buffers read from the given resource
+	 * @since 5.2.4
+	 */
+	public static Flux<DataBuffer> readMapped(
+			Resource resource, long position, DataBufferFactory bufferFactory, int bufferSize) {
+
+		if (bufferFactory instanceof DefaultDataBufferFactory) {
+			try {
+				if (resource.isFile()) {
+					File file = resource.getFile();
+					return readMappedFileChannel(() -> FileChannel.open(file.toPath(), StandardOpenOption.READ),
+							position, Long.MAX_VALUE, (DefaultDataBufferFactory) bufferFactory, bufferSize);
+				}
+			}
+			catch (IOException ignore) {
+				// fallback to read(Resource...), below
+			}
+		}
+		return read(resource, position, bufferFactory, bufferSize);
+	}
+
 
 	//---------------------------------------------------------------------
 	// Writing
@@ -550,10 +629,34 @@ public abstract class DataBufferUtils {
 		return Flux.from(buffers)
 				.collect(() -> new LimitedDataBufferList(maxByteCount), LimitedDataBufferList::add)
 				.filter(list -> !list.isEmpty())
-				.map(list -> list.get(0).factory().join(list))
+				.map(list -> join(list))
 				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 	}
 
+	/**
+	 * Return a {@code DataBuffer} composed from joining together the given
+	 * {@code dataBuffers}, avoiding copies where possible: a single buffer is
+	 * returned as-is, and buffers of a {@link DefaultDataBufferFactory} are
+	 * composed into a {@link CompositeDataBuffer} that references them. Any
+	 * other buffers are joined through their {@link DataBufferFactory#join factory}.
+	 * <p>Note that the given data buffers do <strong>not</strong> have to be
+	 * released. They will be released as part of the returned buffer.
+	 * @param dataBuffers the data buffers that are to be composed
+	 * @return a buffer that is composed from the {@code dataBuffers} argument
+	 * @since 5.2.4
+	 */
+	public static DataBuffer join(List<? extends DataBuffer> dataBuffers) {
+		Assert.notEmpty(dataBuffers, "DataBuffer List must not be empty");
+		if (dataBuffers.size() == 1) {
+			return dataBuffers.get(0);
+		}
+		DataBufferFactory bufferFactory = dataBuffers.get(0).factory();
+		if (bufferFactory instanceof DefaultDataBufferFactory) {
+			return new CompositeDataBuffer((DefaultDataBufferFactory) bufferFactory, dataBuffers);
+		}
+		return bufferFactory.join(dataBuffers);
+	}
+
 	/**
 	 * Return a {@link Matcher} for the given delimiter.
 	 * The matcher can be used to find the delimiters in data buffers.
@@ -659,6 +762,74 @@ public abstract class DataBufferUtils {
 	}
 
 
+	private static class MappedFileChannelGenerator {
+
+		/**
+		 * The minimum number of bytes to map at once, unless fewer remain.
+		 */
+		private static final int MIN_MAPPING_SIZE = 1024 * 1024;
+
+		private final FileChannel channel;
+
+		private final long end;
+
+		private final DefaultDataBufferFactory dataBufferFactory;
+
+		private final int regionSize;
+
+		private long position;
+
+		@Nullable
+		private MappedDataBuffer.Mapping mapping;
+
+		private int mappingPosition;
+
+		MappedFileChannelGenerator(FileChannel channel, long position, long count,
+				DefaultDataBufferFactory dataBufferFactory, int regionSize) {
+
+			this.channel = channel;
+			this.position = position;
+			this.end = (count > Long.MAX_VALUE - position ? Long.MAX_VALUE : position + count);
+			this.dataBufferFactory = dataBufferFactory;
+			this.regionSize = regionSize;
+		}
+
+		void generate(SynchronousSink<DataBuffer> sink) {
+			try {
+				MappedDataBuffer.Mapping mapping = this.mapping;
+				if (mapping == null || this.mappingPosition == mapping.capacity()) {
+					dispose();
+					long remaining = Math.min(this.end, this.channel.size()) - this.position;
+					if (remaining <= 0) {
+						sink.complete();
+						return;
+					}
+					long size = Math.min(remaining, Math.max(this.regionSize, MIN_MAPPING_SIZE));
+					MappedByteBuffer mappedBuffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, size);
+					mapping = new MappedDataBuffer.Mapping(mappedBuffer);
+					this.mapping = mapping;
+					this.mappingPosition = 0;
+					this.position += size;
+				}
+				int length = Math.min(this.regionSize, mapping.capacity() - this.mappingPosition);
+				sink.next(mapping.createBuffer(this.dataBufferFactory, this.mappingPosition, length));
+				this.mappingPosition += length;
+			}
+			catch (IOException ex) {
+				sink.error(ex);
+			}
+		}
+
+		void dispose() {
+			MappedDataBuffer.Mapping mapping = this.mapping;
+			if (mapping != null) {
+				this.mapping = null;
+				mapping.release();
+			}
+		}
+	}
+
+
 	private static class ReadCompletionHandler implements CompletionHandler<Integer, DataBuffer> {
 
 		private final AsynchronousFileChannel channel;
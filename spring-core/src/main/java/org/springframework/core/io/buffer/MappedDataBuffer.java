@@ -0,0 +1,346 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link DefaultDataBuffer} for a part of a file region that has been mapped
+ * into memory through {@link FileChannel#map}, unmapping the region once the
+ * buffers for all of its parts have been released.
+ *
+ * <p>Once released, neither this buffer nor any of its slices provide access
+ * to the mapped region anymore. Byte buffers obtained through
+ * {@link #asByteBuffer()} or {@link #getNativeBuffer()} cannot be invalidated
+ * though, and neither can any slices or duplicates derived from them: once any
+ * such byte buffer has been handed out, the region is not unmapped on release
+ * but left to the garbage collector, since accessing an unmapped region can
+ * crash the JVM.
+ *
+ * <p>If unmapping is not supported by the JVM, the region is unmapped when the
+ * underlying {@link MappedByteBuffer} is garbage collected.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see DataBufferUtils#readMappedFileChannel
+ */
+final class MappedDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	private static final Consumer<MappedByteBuffer> unmapper = createUnmapper();
+
+
+	private final Mapping mapping;
+
+	private final AtomicInteger refCount = new AtomicInteger(1);
+
+	private final ReferenceQueue<MappedSlicedDataBuffer> sliceQueue = new ReferenceQueue<>();
+
+	private final Set<Reference<MappedSlicedDataBuffer>> slices = ConcurrentHashMap.newKeySet();
+
+
+	private MappedDataBuffer(DefaultDataBufferFactory dataBufferFactory, ByteBuffer region, Mapping mapping) {
+		super(dataBufferFactory, region);
+		this.mapping = mapping;
+		writePosition(region.remaining());
+	}
+
+
+	@Override
+	public boolean isAllocated() {
+		return (this.refCount.get() > 0);
+	}
+
+	@Override
+	public PooledDataBuffer retain() {
+		int count;
+		do {
+			count = this.refCount.get();
+			Assert.state(count > 0, "DataBuffer has already been released");
+		}
+		while (!this.refCount.compareAndSet(count, count + 1));
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		int count;
+		do {
+			count = this.refCount.get();
+			Assert.state(count > 0, "DataBuffer has already been released");
+		}
+		while (!this.refCount.compareAndSet(count, count - 1));
+		if (count > 1) {
+			return false;
+		}
+		// Make sure that the region is not accessible through this buffer anymore
+		invalidate(this);
+		for (Reference<MappedSlicedDataBuffer> reference : this.slices) {
+			MappedSlicedDataBuffer slice = reference.get();
+			if (slice != null) {
+				invalidate(slice);
+			}
+		}
+		this.slices.clear();
+		this.mapping.release();
+		return true;
+	}
+
+	@Override
+	public DefaultDataBuffer capacity(int newCapacity) {
+		throw new UnsupportedOperationException("Changing the capacity of a mapped buffer is not supported");
+	}
+
+	@Override
+	public ByteBuffer getNativeBuffer() {
+		return this.mapping.trackView(super.getNativeBuffer());
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		return this.mapping.trackView(super.asByteBuffer(index, length));
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		return releasingInputStream(this, releaseOnClose);
+	}
+
+	@Override
+	DefaultDataBuffer createSlice(ByteBuffer slice, int length) {
+		Assert.state(isAllocated(), "DataBuffer has already been released");
+		MappedSlicedDataBuffer dataBuffer = new MappedSlicedDataBuffer(slice, factory(), length, this);
+		// Only slices that are still reachable need to be invalidated on release
+		Reference<? extends MappedSlicedDataBuffer> reference = this.sliceQueue.poll();
+		while (reference != null) {
+			this.slices.remove(reference);
+			reference = this.sliceQueue.poll();
+		}
+		this.slices.add(new WeakReference<>(dataBuffer, this.sliceQueue));
+		return dataBuffer;
+	}
+
+
+	private static void invalidate(DefaultDataBuffer dataBuffer) {
+		dataBuffer.readPosition(0);
+		dataBuffer.writePosition(0);
+		dataBuffer.setNativeBuffer(EMPTY_BUFFER);
+	}
+
+	private static InputStream releasingInputStream(PooledDataBuffer dataBuffer, boolean releaseOnClose) {
+		InputStream inputStream = dataBuffer.asInputStream();
+		if (!releaseOnClose) {
+			return inputStream;
+		}
+		return new FilterInputStream(inputStream) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				}
+				finally {
+					DataBufferUtils.release(dataBuffer);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Determine how to unmap a {@link MappedByteBuffer}: through
+	 * {@code sun.misc.Unsafe#invokeCleaner} on JDK 9 and higher, through the
+	 * buffer's cleaner on JDK 8, or not at all, leaving it to the garbage collector.
+	 */
+	private static Consumer<MappedByteBuffer> createUnmapper() {
+		ClassLoader classLoader = MappedDataBuffer.class.getClassLoader();
+		try {
+			Class<?> unsafeClass = ClassUtils.forName("sun.misc.Unsafe", classLoader);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			ReflectionUtils.makeAccessible(theUnsafe);
+			Object unsafe = theUnsafe.get(null);
+			return buffer -> ReflectionUtils.invokeMethod(invokeCleaner, unsafe, buffer);
+		}
+		catch (Throwable ex) {
+			// JDK 8 or no access to sun.misc.Unsafe
+		}
+		try {
+			Method cleaner = ClassUtils.forName("sun.nio.ch.DirectBuffer", classLoader).getMethod("cleaner");
+			Method clean = ClassUtils.forName("sun.misc.Cleaner", classLoader).getMethod("clean");
+			return buffer -> {
+				Object bufferCleaner = ReflectionUtils.invokeMethod(cleaner, buffer);
+				if (bufferCleaner != null) {
+					ReflectionUtils.invokeMethod(clean, bufferCleaner);
+				}
+			};
+		}
+		catch (Throwable ex) {
+			// Leave it to the garbage collector
+			return buffer -> {};
+		}
+	}
+
+
+	/**
+	 * Slice of a {@link MappedDataBuffer}, sharing its reference count.
+	 */
+	private static final class MappedSlicedDataBuffer extends DefaultDataBuffer.SlicedDefaultDataBuffer
+			implements PooledDataBuffer {
+
+		private final MappedDataBuffer parent;
+
+		MappedSlicedDataBuffer(ByteBuffer byteBuffer, DefaultDataBufferFactory factory, int length,
+				MappedDataBuffer parent) {
+
+			super(byteBuffer, factory, length);
+			this.parent = parent;
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+
+		@Override
+		public ByteBuffer getNativeBuffer() {
+			return this.parent.mapping.trackView(super.getNativeBuffer());
+		}
+
+		@Override
+		public ByteBuffer asByteBuffer(int index, int length) {
+			return this.parent.mapping.trackView(super.asByteBuffer(index, length));
+		}
+
+		@Override
+		public InputStream asInputStream(boolean releaseOnClose) {
+			return releasingInputStream(this, releaseOnClose);
+		}
+
+		@Override
+		DefaultDataBuffer createSlice(ByteBuffer slice, int length) {
+			return this.parent.createSlice(slice, length);
+		}
+	}
+
+
+	/**
+	 * A region of a file mapped into memory, shared by the buffers created for
+	 * its parts and unmapped once all of them have been released, unless byte
+	 * buffers have been obtained from any of them.
+	 */
+	static final class Mapping {
+
+		private final MappedByteBuffer mappedBuffer;
+
+		private final AtomicInteger refCount = new AtomicInteger(1);
+
+		private volatile boolean viewsExposed;
+
+		private volatile boolean unmapped;
+
+		Mapping(MappedByteBuffer mappedBuffer) {
+			this.mappedBuffer = mappedBuffer;
+		}
+
+		/**
+		 * Return the size of the mapped region.
+		 */
+		int capacity() {
+			return this.mappedBuffer.capacity();
+		}
+
+		/**
+		 * Create a buffer for the given part of the mapped region, retaining
+		 * the region until the buffer has been released.
+		 */
+		MappedDataBuffer createBuffer(DefaultDataBufferFactory dataBufferFactory, int index, int length) {
+			int count;
+			do {
+				count = this.refCount.get();
+				Assert.state(count > 0, "Mapping has already been released");
+			}
+			while (!this.refCount.compareAndSet(count, count + 1));
+			ByteBuffer region = this.mappedBuffer.duplicate();
+			// Explicit access via Buffer base type for compatibility
+			// with covariant return type on JDK 9's ByteBuffer...
+			((Buffer) region).limit(index + length).position(index);
+			return new MappedDataBuffer(dataBufferFactory, region, this);
+		}
+
+		/**
+		 * Release the region, unmapping it once no buffers refer to it anymore,
+		 * unless byte buffers have been obtained from any of them: these might
+		 * still be in use, and so might slices or duplicates derived from them,
+		 * which cannot be tracked, leaving the region to the garbage collector.
+		 */
+		void release() {
+			if (this.refCount.decrementAndGet() > 0) {
+				return;
+			}
+			if (!this.viewsExposed) {
+				this.unmapped = true;
+				unmapper.accept(this.mappedBuffer);
+			}
+		}
+
+		/**
+		 * Whether the region has been unmapped on release.
+		 */
+		boolean isUnmapped() {
+			return this.unmapped;
+		}
+
+		/**
+		 * Record that the given byte buffer for the region has been handed out.
+		 */
+		ByteBuffer trackView(ByteBuffer view) {
+			this.viewsExposed = true;
+			return view;
+		}
+	}
+
+}
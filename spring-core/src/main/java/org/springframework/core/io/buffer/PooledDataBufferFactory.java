@@ -0,0 +1,592 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Pooling variant of {@link DefaultDataBufferFactory}, for runtimes that do not
+ * provide pooled buffers themselves, e.g. Servlet containers and Undertow with
+ * {@link DataBuffer DataBuffers} allocated by the server adapters and encoders.
+ *
+ * <p>Allocated buffers implement {@link PooledDataBuffer}: once their reference
+ * count drops to zero through {@link DataBufferUtils#release(DataBuffer)}, their
+ * memory is returned to the pool and the buffer must not be used anymore. Slices
+ * share the reference count of the buffer they have been created from. Memory
+ * that a buffer has outgrown is left to the garbage collector rather than being
+ * returned to the pool, since slices may still refer to it.
+ *
+ * <p>Memory is pooled in power-of-two size classes, from 256 bytes up to the
+ * {@linkplain #DEFAULT_MAX_POOLED_CAPACITY maximum pooled capacity}; buffers
+ * beyond that capacity are allocated on demand and left to the garbage collector
+ * when released. Each size class has a shared arena limited by the maximum pool
+ * memory, fronted by a small {@linkplain #setThreadCacheCapacity per-thread cache}
+ * for allocations without contention.
+ *
+ * <p>Every {@linkplain #setLeakDetectionInterval n-th} buffer is tracked, logging
+ * a warning along with its allocation site if it gets garbage collected without
+ * having been released. Note that a buffer that is not released merely misses
+ * the pool: its memory is reclaimed by the garbage collector as usual.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see org.springframework.http.server.reactive.ServletHttpHandlerAdapter#setDataBufferFactory
+ * @see org.springframework.http.server.reactive.UndertowHttpHandlerAdapter#setDataBufferFactory
+ */
+public class PooledDataBufferFactory extends DefaultDataBufferFactory {
+
+	/**
+	 * The default maximum capacity of pooled buffers: 64 KB.
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	/**
+	 * The default maximum memory retained by the shared arenas: 16 MB.
+	 */
+	public static final long DEFAULT_MAX_POOL_MEMORY = 16 * 1024 * 1024;
+
+	/**
+	 * The default memory retained per thread and size class: 32 KB.
+	 */
+	public static final int DEFAULT_THREAD_CACHE_CAPACITY = 32 * 1024;
+
+	/**
+	 * The default leak detection sampling interval: every 128th buffer.
+	 */
+	public static final int DEFAULT_LEAK_DETECTION_INTERVAL = 128;
+
+	private static final int MIN_SIZE_CLASS_SHIFT = 8;
+
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+	private static final Log logger = LogFactory.getLog(PooledDataBufferFactory.class);
+
+
+	private final boolean preferDirect;
+
+	private final SizeClass[] sizeClasses;
+
+	private int threadCacheCapacity = DEFAULT_THREAD_CACHE_CAPACITY;
+
+	private int leakDetectionInterval = DEFAULT_LEAK_DETECTION_INTERVAL;
+
+	private final ThreadLocal<ThreadCache> threadCache =
+			new NamedThreadLocal<ThreadCache>("PooledDataBufferFactory thread cache") {
+				@Override
+				protected ThreadCache initialValue() {
+					return new ThreadCache(PooledDataBufferFactory.this.sizeClasses,
+							PooledDataBufferFactory.this.threadCacheCapacity);
+				}
+			};
+
+	private final ReferenceQueue<DataBuffer> leakQueue = new ReferenceQueue<>();
+
+	private final Set<LeakTracker> leakTrackers = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder leakCount = new LongAdder();
+
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory} for heap buffers with
+	 * default settings.
+	 */
+	public PooledDataBufferFactory() {
+		this(false);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory} with default pool settings,
+	 * indicating whether direct buffers should be created.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PooledDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DEFAULT_MAX_POOLED_CAPACITY, DEFAULT_MAX_POOL_MEMORY);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param maxPooledCapacity the maximum capacity of pooled buffers, rounded
+	 * up to the next power of two
+	 * @param maxPoolMemory the maximum memory retained by the shared arenas,
+	 * evenly divided among the size classes
+	 */
+	public PooledDataBufferFactory(boolean preferDirect, int maxPooledCapacity, long maxPoolMemory) {
+		super(preferDirect);
+		Assert.isTrue(maxPooledCapacity > 0 && maxPooledCapacity <= (1 << 30),
+				"'maxPooledCapacity' must be between 1 and 2^30");
+		Assert.isTrue(maxPoolMemory >= 0, "'maxPoolMemory' must not be negative");
+		this.preferDirect = preferDirect;
+		SizeClass[] sizeClasses = new SizeClass[sizeClassIndex(maxPooledCapacity) + 1];
+		for (int i = 0; i < sizeClasses.length; i++) {
+			int capacity = 1 << (MIN_SIZE_CLASS_SHIFT + i);
+			long maxPooled = maxPoolMemory / sizeClasses.length / capacity;
+			sizeClasses[i] = new SizeClass(capacity, (int) Math.min(maxPooled, Integer.MAX_VALUE));
+		}
+		this.sizeClasses = sizeClasses;
+	}
+
+
+	/**
+	 * Set the memory to retain per thread and size class, for allocations
+	 * that do not have to access the shared arenas. Size classes with a larger
+	 * capacity than the given value are not cached per thread.
+	 * <p>Needs to be set before the factory is used. By default, this is
+	 * {@value #DEFAULT_THREAD_CACHE_CAPACITY} bytes; 0 disables thread caches.
+	 */
+	public void setThreadCacheCapacity(int threadCacheCapacity) {
+		Assert.isTrue(threadCacheCapacity >= 0, "'threadCacheCapacity' must not be negative");
+		this.threadCacheCapacity = threadCacheCapacity;
+	}
+
+	/**
+	 * Set the sampling interval for leak detection: every n-th buffer allocated
+	 * by a thread is tracked. By default, this is every
+	 * {@value #DEFAULT_LEAK_DETECTION_INTERVAL}th buffer; 0 disables leak detection,
+	 * 1 tracks every buffer.
+	 * @see #getLeakCount()
+	 */
+	public void setLeakDetectionInterval(int leakDetectionInterval) {
+		Assert.isTrue(leakDetectionInterval >= 0, "'leakDetectionInterval' must not be negative");
+		this.leakDetectionInterval = leakDetectionInterval;
+	}
+
+	/**
+	 * Return the number of tracked buffers that have been garbage collected
+	 * without having been released.
+	 * @see #setLeakDetectionInterval
+	 */
+	public long getLeakCount() {
+		reportLeaks();
+		return this.leakCount.sum();
+	}
+
+
+	@Override
+	public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+		Assert.isTrue(initialCapacity >= 0, "'initialCapacity' must not be negative");
+		reportLeaks();
+		ThreadCache cache = this.threadCache.get();
+		ByteBuffer chunk = allocateChunk(initialCapacity, cache);
+		PooledDefaultDataBuffer dataBuffer = new PooledDefaultDataBuffer(this, chunk, initialCapacity);
+		int interval = this.leakDetectionInterval;
+		if (interval > 0 && cache.sample(interval)) {
+			LeakTracker leakTracker = new LeakTracker(dataBuffer, initialCapacity, this.leakQueue);
+			this.leakTrackers.add(leakTracker);
+			dataBuffer.leakTracker = leakTracker;
+		}
+		return dataBuffer;
+	}
+
+	private ByteBuffer allocateChunk(int capacity, ThreadCache cache) {
+		int index = sizeClassIndex(capacity);
+		if (index >= this.sizeClasses.length) {
+			return allocate(capacity);
+		}
+		ByteBuffer chunk = cache.poll(index);
+		if (chunk == null) {
+			chunk = this.sizeClasses[index].poll();
+		}
+		return (chunk != null ? chunk : allocate(this.sizeClasses[index].capacity));
+	}
+
+	private ByteBuffer allocate(int capacity) {
+		return (this.preferDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
+	}
+
+	private void releaseChunk(ByteBuffer chunk) {
+		int index = sizeClassIndex(chunk.capacity());
+		if (index >= this.sizeClasses.length || this.sizeClasses[index].capacity != chunk.capacity()) {
+			// Not pooled: left to the garbage collector
+			return;
+		}
+		((Buffer) chunk).clear();
+		if (!this.threadCache.get().offer(index, chunk)) {
+			this.sizeClasses[index].offer(chunk);
+		}
+	}
+
+	private void reportLeaks() {
+		Reference<? extends DataBuffer> reference = this.leakQueue.poll();
+		while (reference != null) {
+			LeakTracker leakTracker = (LeakTracker) reference;
+			if (this.leakTrackers.remove(leakTracker)) {
+				this.leakCount.increment();
+				if (logger.isWarnEnabled()) {
+					logger.warn("DataBuffer with initial capacity " + leakTracker.capacity +
+							" was garbage collected without having been released", leakTracker.allocationSite);
+				}
+			}
+			reference = this.leakQueue.poll();
+		}
+	}
+
+	private static int sizeClassIndex(int capacity) {
+		if (capacity <= (1 << MIN_SIZE_CLASS_SHIFT)) {
+			return 0;
+		}
+		return (32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SIZE_CLASS_SHIFT);
+	}
+
+
+	@Override
+	public String toString() {
+		return "PooledDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.sizeClasses[this.sizeClasses.length - 1].capacity + ")";
+	}
+
+
+	/**
+	 * Shared arena for buffers of one size class.
+	 */
+	private static final class SizeClass {
+
+		final int capacity;
+
+		@Nullable
+		private final ArrayBlockingQueue<ByteBuffer> buffers;
+
+		SizeClass(int capacity, int maxPooled) {
+			this.capacity = capacity;
+			this.buffers = (maxPooled > 0 ? new ArrayBlockingQueue<>(maxPooled) : null);
+		}
+
+		@Nullable
+		ByteBuffer poll() {
+			return (this.buffers != null ? this.buffers.poll() : null);
+		}
+
+		void offer(ByteBuffer buffer) {
+			if (this.buffers != null) {
+				this.buffers.offer(buffer);
+			}
+		}
+	}
+
+
+	/**
+	 * Buffers of all size classes cached for the current thread.
+	 */
+	private static final class ThreadCache {
+
+		private final ByteBuffer[][] buffers;
+
+		private final int[] counts;
+
+		private int allocationCount;
+
+		ThreadCache(SizeClass[] sizeClasses, int capacity) {
+			this.buffers = new ByteBuffer[sizeClasses.length][];
+			for (int i = 0; i < sizeClasses.length; i++) {
+				this.buffers[i] = new ByteBuffer[capacity / sizeClasses[i].capacity];
+			}
+			this.counts = new int[sizeClasses.length];
+		}
+
+		@Nullable
+		ByteBuffer poll(int index) {
+			int count = this.counts[index];
+			if (count == 0) {
+				return null;
+			}
+			count--;
+			ByteBuffer buffer = this.buffers[index][count];
+			this.buffers[index][count] = null;
+			this.counts[index] = count;
+			return buffer;
+		}
+
+		boolean offer(int index, ByteBuffer buffer) {
+			int count = this.counts[index];
+			if (count == this.buffers[index].length) {
+				return false;
+			}
+			this.buffers[index][count] = buffer;
+			this.counts[index] = count + 1;
+			return true;
+		}
+
+		boolean sample(int interval) {
+			if (++this.allocationCount >= interval) {
+				this.allocationCount = 0;
+				return true;
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Weak reference to a sampled buffer, holding the site where it was allocated.
+	 */
+	private static final class LeakTracker extends WeakReference<DataBuffer> {
+
+		final int capacity;
+
+		final Throwable allocationSite;
+
+		LeakTracker(DataBuffer dataBuffer, int capacity, ReferenceQueue<DataBuffer> queue) {
+			super(dataBuffer, queue);
+			this.capacity = capacity;
+			this.allocationSite = new Throwable("DataBuffer allocation site");
+		}
+	}
+
+
+	/**
+	 * {@link DefaultDataBuffer} backed by pooled memory.
+	 */
+	private static final class PooledDefaultDataBuffer extends DefaultDataBuffer implements PooledDataBuffer {
+
+		private final PooledDataBufferFactory factory;
+
+		private final AtomicInteger refCount = new AtomicInteger(1);
+
+		private ByteBuffer chunk;
+
+		@Nullable
+		private ByteBuffer nextChunk;
+
+		@Nullable
+		LeakTracker leakTracker;
+
+		PooledDefaultDataBuffer(PooledDataBufferFactory factory, ByteBuffer chunk, int capacity) {
+			super(factory, (ByteBuffer) ((Buffer) chunk).clear().limit(capacity));
+			this.factory = factory;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return (this.refCount.get() > 0);
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			int count;
+			do {
+				count = this.refCount.get();
+				Assert.state(count > 0, "DataBuffer has already been released");
+			}
+			while (!this.refCount.compareAndSet(count, count + 1));
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			int count;
+			do {
+				count = this.refCount.get();
+				Assert.state(count > 0, "DataBuffer has already been released");
+			}
+			while (!this.refCount.compareAndSet(count, count - 1));
+			if (count > 1) {
+				return false;
+			}
+			LeakTracker leakTracker = this.leakTracker;
+			if (leakTracker != null) {
+				this.factory.leakTrackers.remove(leakTracker);
+				leakTracker.clear();
+			}
+			// Make sure that pooled memory is not accessible through this buffer anymore
+			readPosition(0);
+			writePosition(0);
+			setNativeBuffer(EMPTY_BUFFER);
+			this.factory.releaseChunk(this.chunk);
+			return true;
+		}
+
+		@Override
+		public InputStream asInputStream(boolean releaseOnClose) {
+			return releasingInputStream(this, releaseOnClose);
+		}
+
+		@Override
+		ByteBuffer allocateNativeBuffer(int capacity, boolean direct) {
+			Assert.state(isAllocated(), "DataBuffer has already been released");
+			ByteBuffer chunk = this.factory.allocateChunk(capacity, this.factory.threadCache.get());
+			this.nextChunk = chunk;
+			((Buffer) chunk).clear().limit(capacity);
+			return chunk.slice();
+		}
+
+		@Override
+		void releaseNativeBuffer(ByteBuffer byteBuffer) {
+			Assert.state(this.nextChunk != null, "No next chunk");
+			// Slices of the previous chunk may still be in use: leave it to the garbage collector
+			this.chunk = this.nextChunk;
+			this.nextChunk = null;
+		}
+
+		@Override
+		DefaultDataBuffer createSlice(ByteBuffer slice, int length) {
+			return new PooledSlicedDataBuffer(slice, this.factory, length, this);
+		}
+	}
+
+
+	/**
+	 * Slice of a {@link PooledDefaultDataBuffer}, sharing its reference count.
+	 */
+	private static final class PooledSlicedDataBuffer extends DefaultDataBuffer.SlicedDefaultDataBuffer
+			implements PooledDataBuffer {
+
+		private final PooledDefaultDataBuffer parent;
+
+		PooledSlicedDataBuffer(ByteBuffer byteBuffer, PooledDataBufferFactory factory, int length,
+				PooledDefaultDataBuffer parent) {
+
+			super(byteBuffer, factory, length);
+			this.parent = parent;
+		}
+
+		@Override
+		public boolean isAllocated() {
+			return this.parent.isAllocated();
+		}
+
+		@Override
+		public PooledDataBuffer retain() {
+			this.parent.retain();
+			return this;
+		}
+
+		@Override
+		public boolean release() {
+			return this.parent.release();
+		}
+
+		@Override
+		public int indexOf(IntPredicate predicate, int fromIndex) {
+			assertAllocated();
+			return super.indexOf(predicate, fromIndex);
+		}
+
+		@Override
+		public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+			assertAllocated();
+			return super.lastIndexOf(predicate, fromIndex);
+		}
+
+		@Override
+		public byte getByte(int index) {
+			assertAllocated();
+			return super.getByte(index);
+		}
+
+		@Override
+		public byte read() {
+			assertAllocated();
+			return super.read();
+		}
+
+		@Override
+		public DefaultDataBuffer read(byte[] destination, int offset, int length) {
+			assertAllocated();
+			return super.read(destination, offset, length);
+		}
+
+		@Override
+		public DefaultDataBuffer write(byte b) {
+			assertAllocated();
+			return super.write(b);
+		}
+
+		@Override
+		public DefaultDataBuffer write(byte[] source, int offset, int length) {
+			assertAllocated();
+			return super.write(source, offset, length);
+		}
+
+		@Override
+		public DefaultDataBuffer write(ByteBuffer... buffers) {
+			assertAllocated();
+			return super.write(buffers);
+		}
+
+		@Override
+		public ByteBuffer asByteBuffer(int index, int length) {
+			assertAllocated();
+			return super.asByteBuffer(index, length);
+		}
+
+		@Override
+		public String toString(int index, int length, Charset charset) {
+			assertAllocated();
+			return super.toString(index, length, charset);
+		}
+
+		@Override
+		public InputStream asInputStream(boolean releaseOnClose) {
+			return releasingInputStream(this, releaseOnClose);
+		}
+
+		@Override
+		DefaultDataBuffer createSlice(ByteBuffer slice, int length) {
+			assertAllocated();
+			return new PooledSlicedDataBuffer(slice, this.parent.factory, length, this.parent);
+		}
+
+		private void assertAllocated() {
+			// The native buffer of a slice still points into the pooled memory after release
+			Assert.state(isAllocated(), "DataBuffer has already been released");
+		}
+	}
+
+
+	private static InputStream releasingInputStream(PooledDataBuffer dataBuffer, boolean releaseOnClose) {
+		InputStream inputStream = dataBuffer.asInputStream();
+		if (!releaseOnClose) {
+			return inputStream;
+		}
+		return new FilterInputStream(inputStream) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				}
+				finally {
+					DataBufferUtils.release(dataBuffer);
+				}
+			}
+		};
+	}
+
+}
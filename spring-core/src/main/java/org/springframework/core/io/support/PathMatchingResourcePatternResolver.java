@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.core.io.support;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.net.JarURLConnection;
@@ -27,12 +28,21 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipException;
@@ -50,6 +60,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.PathMatcher;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.ResourceUtils;
@@ -169,6 +180,17 @@ import org.springframework.util.StringUtils;
  * Ant-style pattern in such a case, which will search <i>all</i> class path
  * locations that contain the root package.
  *
+ * <p><b>Entry index:</b>
+ *
+ * <p>The entry names of traversed jar files and the listings of traversed
+ * directories are kept in an index shared by all resolver instances, so that
+ * subsequent patterns against the same jar files and directories (e.g. from
+ * component scanning and several "{@code classpath*:}" lookups during the
+ * startup of an application) do not have to walk them again. Index entries are
+ * validated against the last-modified timestamp of the underlying jar file or
+ * directory; {@link #clearCache()} explicitly invalidates the entire index,
+ * e.g. after reloading an application's class path.
+ *
  * @author Juergen Hoeller
  * @author Colin Sampaleanu
  * @author Marius Bogoevici
@@ -200,11 +222,29 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		}
 	}
 
+	/**
+	 * Period within which a later modification might leave the last-modified
+	 * timestamp unchanged, given the coarse granularity of some file systems.
+	 */
+	private static final long TIMESTAMP_GRANULARITY = 2000;
+
+	/** Index of jar file entries, keyed by jar file URL. */
+	private static final Map<String, JarFileEntries> jarFileEntriesCache = new ConcurrentReferenceHashMap<>(64);
+
+	/** Index of directory listings, keyed by absolute directory path. */
+	private static final Map<String, DirectoryEntries> directoryEntriesCache = new ConcurrentReferenceHashMap<>(256);
+
 
 	private final ResourceLoader resourceLoader;
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
+	@Nullable
+	private Executor searchExecutor;
+
+	/** Whether directory listings can be shared, i.e. {@link #listDirectory} is not overridden. */
+	private final boolean indexDirectoryListings = !isListDirectoryOverridden(getClass());
+
 
 	/**
 	 * Create a new PathMatchingResourcePatternResolver with a DefaultResourceLoader.
@@ -268,6 +308,26 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return this.pathMatcher;
 	}
 
+	/**
+	 * Set an Executor for searching the root directories of a location pattern
+	 * concurrently, e.g. the same package in a large number of jar files.
+	 * <p>Default is none, searching all root directories in the calling thread.
+	 * @since 5.2.4
+	 * @see #findPathMatchingResources
+	 */
+	public void setSearchExecutor(@Nullable Executor searchExecutor) {
+		this.searchExecutor = searchExecutor;
+	}
+
+	/**
+	 * Return the Executor for searching root directories concurrently, if any.
+	 * @since 5.2.4
+	 */
+	@Nullable
+	public Executor getSearchExecutor() {
+		return this.searchExecutor;
+	}
+
 
 	@Override
 	public Resource getResource(String location) {
@@ -493,24 +553,47 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		String subPattern = locationPattern.substring(rootDirPath.length());
 		Resource[] rootDirResources = getResources(rootDirPath);
 		Set<Resource> result = new LinkedHashSet<>(16);
-		for (Resource rootDirResource : rootDirResources) {
-			rootDirResource = resolveRootDirResource(rootDirResource);
-			URL rootDirUrl = rootDirResource.getURL();
-			if (equinoxResolveMethod != null && rootDirUrl.getProtocol().startsWith("bundle")) {
-				URL resolvedUrl = (URL) ReflectionUtils.invokeMethod(equinoxResolveMethod, null, rootDirUrl);
-				if (resolvedUrl != null) {
-					rootDirUrl = resolvedUrl;
+		Executor searchExecutor = getSearchExecutor();
+		if (searchExecutor != null && rootDirResources.length > 1) {
+			List<CompletableFuture<Set<Resource>>> futures = new ArrayList<>(rootDirResources.length);
+			for (Resource rootDirResource : rootDirResources) {
+				try {
+					futures.add(CompletableFuture.supplyAsync(() -> {
+						try {
+							return doFindPathMatchingResources(rootDirResource, subPattern);
+						}
+						catch (IOException ex) {
+							throw new UncheckedIOException(ex);
+						}
+					}, searchExecutor));
+				}
+				catch (RejectedExecutionException ex) {
+					futures.add(CompletableFuture.completedFuture(
+							doFindPathMatchingResources(rootDirResource, subPattern)));
 				}
-				rootDirResource = new UrlResource(rootDirUrl);
-			}
-			if (rootDirUrl.getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
-				result.addAll(VfsResourceMatchingDelegate.findMatchingResources(rootDirUrl, subPattern, getPathMatcher()));
 			}
-			else if (ResourceUtils.isJarURL(rootDirUrl) || isJarResource(rootDirResource)) {
-				result.addAll(doFindPathMatchingJarResources(rootDirResource, rootDirUrl, subPattern));
+			for (CompletableFuture<Set<Resource>> future : futures) {
+				try {
+					result.addAll(future.join());
+				}
+				catch (CompletionException ex) {
+					Throwable cause = ex.getCause();
+					if (cause instanceof UncheckedIOException) {
+						throw ((UncheckedIOException) cause).getCause();
+					}
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw ex;
+				}
 			}
-			else {
-				result.addAll(doFindPathMatchingFileResources(rootDirResource, subPattern));
+		}
+		else {
+			for (Resource rootDirResource : rootDirResources) {
+				result.addAll(doFindPathMatchingResources(rootDirResource, subPattern));
 			}
 		}
 		if (logger.isTraceEnabled()) {
@@ -519,6 +602,33 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return result.toArray(new Resource[0]);
 	}
 
+	/**
+	 * Find all resources underneath the given root directory that match the
+	 * given sub pattern, delegating to the jar, file system or VFS variant.
+	 */
+	private Set<Resource> doFindPathMatchingResources(Resource rootDirResource, String subPattern)
+			throws IOException {
+
+		rootDirResource = resolveRootDirResource(rootDirResource);
+		URL rootDirUrl = rootDirResource.getURL();
+		if (equinoxResolveMethod != null && rootDirUrl.getProtocol().startsWith("bundle")) {
+			URL resolvedUrl = (URL) ReflectionUtils.invokeMethod(equinoxResolveMethod, null, rootDirUrl);
+			if (resolvedUrl != null) {
+				rootDirUrl = resolvedUrl;
+			}
+			rootDirResource = new UrlResource(rootDirUrl);
+		}
+		if (rootDirUrl.getProtocol().startsWith(ResourceUtils.URL_PROTOCOL_VFS)) {
+			return VfsResourceMatchingDelegate.findMatchingResources(rootDirUrl, subPattern, getPathMatcher());
+		}
+		else if (ResourceUtils.isJarURL(rootDirUrl) || isJarResource(rootDirResource)) {
+			return doFindPathMatchingJarResources(rootDirResource, rootDirUrl, subPattern);
+		}
+		else {
+			return doFindPathMatchingFileResources(rootDirResource, subPattern);
+		}
+	}
+
 	/**
 	 * Determine the root directory for the given location.
 	 * <p>Used for determining the starting point for file matching,
@@ -589,79 +699,95 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			throws IOException {
 
 		URLConnection con = rootDirURL.openConnection();
-		JarFile jarFile;
+		JarURLConnection jarCon = null;
+		String urlFile = null;
 		String jarFileUrl;
 		String rootEntryPath;
-		boolean closeJarFile;
 
 		if (con instanceof JarURLConnection) {
 			// Should usually be the case for traditional JAR files.
-			JarURLConnection jarCon = (JarURLConnection) con;
+			jarCon = (JarURLConnection) con;
 			ResourceUtils.useCachesIfNecessary(jarCon);
-			jarFile = jarCon.getJarFile();
 			jarFileUrl = jarCon.getJarFileURL().toExternalForm();
-			JarEntry jarEntry = jarCon.getJarEntry();
-			rootEntryPath = (jarEntry != null ? jarEntry.getName() : "");
-			closeJarFile = !jarCon.getUseCaches();
+			String entryName = jarCon.getEntryName();
+			rootEntryPath = (entryName != null ? entryName : "");
 		}
 		else {
 			// No JarURLConnection -> need to resort to URL file parsing.
 			// We'll assume URLs of the format "jar:path!/entry", with the protocol
 			// being arbitrary as long as following the entry format.
 			// We'll also handle paths with and without leading "file:" prefix.
-			String urlFile = rootDirURL.getFile();
-			try {
-				int separatorIndex = urlFile.indexOf(ResourceUtils.WAR_URL_SEPARATOR);
-				if (separatorIndex == -1) {
-					separatorIndex = urlFile.indexOf(ResourceUtils.JAR_URL_SEPARATOR);
-				}
-				if (separatorIndex != -1) {
-					jarFileUrl = urlFile.substring(0, separatorIndex);
-					rootEntryPath = urlFile.substring(separatorIndex + 2);  // both separators are 2 chars
-					jarFile = getJarFile(jarFileUrl);
-				}
-				else {
-					jarFile = new JarFile(urlFile);
-					jarFileUrl = urlFile;
-					rootEntryPath = "";
-				}
-				closeJarFile = true;
+			urlFile = rootDirURL.getFile();
+			int separatorIndex = urlFile.indexOf(ResourceUtils.WAR_URL_SEPARATOR);
+			if (separatorIndex == -1) {
+				separatorIndex = urlFile.indexOf(ResourceUtils.JAR_URL_SEPARATOR);
 			}
-			catch (ZipException ex) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Skipping invalid jar classpath entry [" + urlFile + "]");
-				}
-				return Collections.emptySet();
+			if (separatorIndex != -1) {
+				jarFileUrl = urlFile.substring(0, separatorIndex);
+				rootEntryPath = urlFile.substring(separatorIndex + 2);  // both separators are 2 chars
+			}
+			else {
+				jarFileUrl = urlFile;
+				rootEntryPath = "";
 			}
 		}
 
-		try {
-			if (logger.isTraceEnabled()) {
-				logger.trace("Looking for matching resources in jar file [" + jarFileUrl + "]");
-			}
-			if (!"".equals(rootEntryPath) && !rootEntryPath.endsWith("/")) {
-				// Root entry path must end with slash to allow for proper matching.
-				// The Sun JRE does not return a slash here, but BEA JRockit does.
-				rootEntryPath = rootEntryPath + "/";
+		File jarFileHandle = getJarFileHandle(jarFileUrl);
+		JarFileEntries jarFileEntries = (jarFileHandle != null ? jarFileEntriesCache.get(jarFileUrl) : null);
+		if (jarFileEntries == null || !jarFileEntries.isValid(jarFileHandle)) {
+			long indexTime = System.currentTimeMillis();
+			JarFile jarFile;
+			boolean closeJarFile;
+			if (jarCon != null) {
+				jarFile = jarCon.getJarFile();
+				closeJarFile = !jarCon.getUseCaches();
 			}
-			Set<Resource> result = new LinkedHashSet<>(8);
-			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
-				JarEntry entry = entries.nextElement();
-				String entryPath = entry.getName();
-				if (entryPath.startsWith(rootEntryPath)) {
-					String relativePath = entryPath.substring(rootEntryPath.length());
-					if (getPathMatcher().match(subPattern, relativePath)) {
-						result.add(rootDirResource.createRelative(relativePath));
+			else {
+				try {
+					jarFile = (jarFileUrl.equals(urlFile) ? new JarFile(urlFile) : getJarFile(jarFileUrl));
+					closeJarFile = true;
+				}
+				catch (ZipException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Skipping invalid jar classpath entry [" + urlFile + "]");
 					}
+					return Collections.emptySet();
 				}
 			}
-			return result;
+			try {
+				jarFileEntries = new JarFileEntries(jarFile, jarFileHandle);
+			}
+			finally {
+				if (closeJarFile) {
+					jarFile.close();
+				}
+			}
+			if (jarFileHandle != null && isIndexable(indexTime, jarFileEntries.lastModified)) {
+				jarFileEntriesCache.put(jarFileUrl, jarFileEntries);
+			}
+			else {
+				jarFileEntriesCache.remove(jarFileUrl);
+			}
 		}
-		finally {
-			if (closeJarFile) {
-				jarFile.close();
+
+		if (logger.isTraceEnabled()) {
+			logger.trace("Looking for matching resources in jar file [" + jarFileUrl + "]");
+		}
+		if (!"".equals(rootEntryPath) && !rootEntryPath.endsWith("/")) {
+			// Root entry path must end with slash to allow for proper matching.
+			// The Sun JRE does not return a slash here, but BEA JRockit does.
+			rootEntryPath = rootEntryPath + "/";
+		}
+		Set<Resource> result = new LinkedHashSet<>(8);
+		for (String entryPath : jarFileEntries.entryPaths) {
+			if (entryPath.startsWith(rootEntryPath)) {
+				String relativePath = entryPath.substring(rootEntryPath.length());
+				if (getPathMatcher().match(subPattern, relativePath)) {
+					result.add(rootDirResource.createRelative(relativePath));
+				}
 			}
 		}
+		return result;
 	}
 
 	/**
@@ -682,6 +808,40 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		}
 	}
 
+	/**
+	 * Resolve the given jar file URL into a File handle for validating the
+	 * jar file entry index: the jar file itself if it is located in the file
+	 * system, or the outermost jar file in case of a nested jar file.
+	 * @return the File handle, or {@code null} if the jar file cannot be
+	 * validated and must therefore not be indexed
+	 */
+	@Nullable
+	private static File getJarFileHandle(String jarFileUrl) {
+		String outerFileUrl = jarFileUrl;
+		int separatorIndex = outerFileUrl.indexOf(ResourceUtils.WAR_URL_SEPARATOR);
+		if (separatorIndex == -1) {
+			separatorIndex = outerFileUrl.indexOf(ResourceUtils.JAR_URL_SEPARATOR);
+		}
+		if (separatorIndex != -1) {
+			outerFileUrl = outerFileUrl.substring(0, separatorIndex);
+		}
+		File file;
+		int fileUrlIndex = outerFileUrl.indexOf(ResourceUtils.FILE_URL_PREFIX);
+		if (fileUrlIndex != -1) {
+			outerFileUrl = outerFileUrl.substring(fileUrlIndex);
+			try {
+				file = new File(ResourceUtils.toURI(outerFileUrl).getSchemeSpecificPart());
+			}
+			catch (URISyntaxException ex) {
+				file = new File(outerFileUrl.substring(ResourceUtils.FILE_URL_PREFIX.length()));
+			}
+		}
+		else {
+			file = new File(outerFileUrl);
+		}
+		return (file.isFile() ? file : null);
+	}
+
 	/**
 	 * Find all resources in the file system that match the given location pattern
 	 * via the Ant-style PathMatcher.
@@ -792,10 +952,12 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			logger.trace("Searching directory [" + dir.getAbsolutePath() +
 					"] for files matching pattern [" + fullPattern + "]");
 		}
-		for (File content : listDirectory(dir)) {
-			String currPath = StringUtils.replace(content.getAbsolutePath(), File.separator, "/");
-			if (content.isDirectory() && getPathMatcher().matchStart(fullPattern, currPath + "/")) {
-				if (!content.canRead()) {
+		DirectoryEntries entries = getDirectoryEntries(dir);
+		for (int i = 0; i < entries.files.length; i++) {
+			File content = entries.files[i];
+			String currPath = entries.paths[i];
+			if (entries.directories[i] && getPathMatcher().matchStart(fullPattern, currPath + "/")) {
+				if (!entries.readable[i]) {
 					if (logger.isDebugEnabled()) {
 						logger.debug("Skipping subdirectory [" + dir.getAbsolutePath() +
 								"] because the application is not allowed to read the directory");
@@ -811,6 +973,38 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		}
 	}
 
+	/**
+	 * Return the indexed listing of the given directory, listing it through
+	 * {@link #listDirectory} if not indexed yet or modified in the meantime.
+	 * <p>Listings are only indexed if {@code listDirectory} is not overridden,
+	 * since the index is shared by all resolver instances.
+	 */
+	private DirectoryEntries getDirectoryEntries(File dir) {
+		if (!this.indexDirectoryListings) {
+			return new DirectoryEntries(listDirectory(dir), null);
+		}
+		String key = dir.getAbsolutePath();
+		long indexTime = System.currentTimeMillis();
+		FileTime lastModified;
+		try {
+			lastModified = Files.getLastModifiedTime(dir.toPath());
+		}
+		catch (IOException | RuntimeException ex) {
+			return new DirectoryEntries(listDirectory(dir), null);
+		}
+		DirectoryEntries entries = directoryEntriesCache.get(key);
+		if (entries == null || !lastModified.equals(entries.lastModified)) {
+			entries = new DirectoryEntries(listDirectory(dir), lastModified);
+			if (isIndexable(indexTime, lastModified.toMillis())) {
+				directoryEntriesCache.put(key, entries);
+			}
+			else {
+				directoryEntriesCache.remove(key);
+			}
+		}
+		return entries;
+	}
+
 	/**
 	 * Determine a sorted list of files in the given directory.
 	 * @param dir the directory to introspect
@@ -831,6 +1025,99 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 	}
 
 
+	/**
+	 * Clear the shared index of jar file entries and directory listings,
+	 * e.g. after the class path has been reloaded.
+	 * <p>Index entries are validated against the last-modified timestamp of
+	 * their jar file or directory anyway (of the outermost jar file in case
+	 * of nested jar files), and jar files that cannot be resolved to a file
+	 * in the file system are not indexed at all; this method is mainly meant
+	 * for releasing the memory held by the index.
+	 * @since 5.2.4
+	 */
+	public static void clearCache() {
+		jarFileEntriesCache.clear();
+		directoryEntriesCache.clear();
+	}
+
+
+	/**
+	 * Determine whether an index entry for a file with the given last-modified
+	 * timestamp can be validated against that timestamp later on, i.e. whether
+	 * a subsequent modification is guaranteed to change the timestamp.
+	 * @param indexTime the time at which indexing started
+	 * @param lastModified the last-modified timestamp of the indexed file
+	 */
+	private static boolean isIndexable(long indexTime, long lastModified) {
+		return (indexTime - lastModified > TIMESTAMP_GRANULARITY);
+	}
+
+	private static boolean isListDirectoryOverridden(Class<?> resolverClass) {
+		Method method = ReflectionUtils.findMethod(resolverClass, "listDirectory", File.class);
+		return (method != null && method.getDeclaringClass() != PathMatchingResourcePatternResolver.class);
+	}
+
+
+	/**
+	 * Indexed entry paths of a jar file, in their original order.
+	 */
+	private static class JarFileEntries {
+
+		final String[] entryPaths;
+
+		final long lastModified;
+
+		private final long length;
+
+		JarFileEntries(JarFile jarFile, @Nullable File jarFileHandle) {
+			this.lastModified = (jarFileHandle != null ? jarFileHandle.lastModified() : 0);
+			this.length = (jarFileHandle != null ? jarFileHandle.length() : 0);
+			List<String> entryPaths = new ArrayList<>(jarFile.size());
+			for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();) {
+				entryPaths.add(entries.nextElement().getName());
+			}
+			this.entryPaths = entryPaths.toArray(new String[0]);
+		}
+
+		boolean isValid(@Nullable File jarFileHandle) {
+			return (jarFileHandle != null &&
+					jarFileHandle.lastModified() == this.lastModified && jarFileHandle.length() == this.length);
+		}
+	}
+
+
+	/**
+	 * Indexed listing of a directory, including the type and readability of each file.
+	 */
+	private static class DirectoryEntries {
+
+		final File[] files;
+
+		final String[] paths;
+
+		final boolean[] directories;
+
+		final boolean[] readable;
+
+		@Nullable
+		final FileTime lastModified;
+
+		DirectoryEntries(File[] files, @Nullable FileTime lastModified) {
+			this.files = files;
+			this.paths = new String[files.length];
+			this.directories = new boolean[files.length];
+			this.readable = new boolean[files.length];
+			for (int i = 0; i < files.length; i++) {
+				File file = files[i];
+				this.paths[i] = StringUtils.replace(file.getAbsolutePath(), File.separator, "/");
+				this.directories[i] = file.isDirectory();
+				this.readable[i] = (this.directories[i] && file.canRead());
+			}
+			this.lastModified = lastModified;
+		}
+	}
+
+
 	/**
 	 * Inner delegate class, avoiding a hard JBoss VFS API dependency at runtime.
 	 */
@@ -0,0 +1,992 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * File-based cache for the class metadata read by {@link SimpleMetadataReader},
+ * allowing warm restarts to skip class file parsing for unchanged classes.
+ *
+ * <p>Rather than serializing {@link org.springframework.core.type.AnnotationMetadata}
+ * instances, the cache stores the class file events that the metadata is built
+ * from (class declaration, enclosing and member classes, and runtime-visible
+ * class and method annotations) in a compact binary form. Replaying those
+ * events produces metadata which is indistinguishable from freshly parsed
+ * metadata, including the lazy resolution of annotation types.
+ *
+ * <p>Entries are keyed by the URL of the class file and validated against its
+ * last-modified timestamp and content length. For jar entries, the timestamp
+ * is that of the jar file as a whole, so they are additionally validated
+ * against the CRC-32 checksum that the jar file records for each entry.
+ * Only class files in the file system or in jar files are cached. The cache file is read into memory when opened and only written on
+ * {@link #flush()}, replacing the previous file atomically where supported.
+ * Entries that have not been used since the cache was opened are dropped
+ * when writing, so that the file does not grow across class path changes.
+ *
+ * <p>A shared instance is activated through the {@value #CACHE_FILE_PROPERTY_NAME}
+ * property which specifies the location of the cache file. It is used by every
+ * {@link SimpleMetadataReaderFactory} by default, and therefore shared between
+ * component scanning and configuration class processing.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see SimpleMetadataReaderFactory#setPersistentMetadataCache
+ */
+public final class PersistentMetadataCache {
+
+	/**
+	 * System property that specifies the location of the shared cache file,
+	 * e.g. {@code "spring.metadata.cache=/tmp/app/metadata.cache"}.
+	 * <p>The default is none, not caching class metadata across restarts.
+	 * @see #getSharedInstance()
+	 */
+	public static final String CACHE_FILE_PROPERTY_NAME = "spring.metadata.cache";
+
+	private static final int MAGIC = 0x53504d43;
+
+	private static final int FORMAT_VERSION = 2;
+
+	private static final long NO_CHECKSUM = -1;
+
+	private static final byte END = 0;
+
+	private static final byte CLASS = 1;
+
+	private static final byte OUTER_CLASS = 2;
+
+	private static final byte INNER_CLASS = 3;
+
+	private static final byte ANNOTATION = 4;
+
+	private static final byte METHOD = 5;
+
+	private static final byte VALUE = 6;
+
+	private static final byte ENUM = 7;
+
+	private static final byte NESTED_ANNOTATION = 8;
+
+	private static final byte ARRAY = 9;
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataCache.class);
+
+	@Nullable
+	private static volatile PersistentMetadataCache sharedInstance;
+
+	private static volatile boolean sharedInstanceResolved;
+
+
+	private final Path file;
+
+	private final Map<String, Entry> storedEntries;
+
+	private final Map<String, Entry> newEntries = new ConcurrentHashMap<>(256);
+
+	private final AtomicLong modificationCount = new AtomicLong();
+
+	private long flushedModificationCount;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+
+	/**
+	 * Create a new PersistentMetadataCache for the given cache file,
+	 * loading its entries if the file exists already.
+	 * <p>A cache file that cannot be read is ignored and gets replaced
+	 * on the next {@link #flush()}.
+	 * @param file the location of the cache file
+	 */
+	public PersistentMetadataCache(Path file) {
+		this.file = file;
+		this.storedEntries = load(file);
+	}
+
+
+	/**
+	 * Return the location of the cache file.
+	 */
+	public Path getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Return the number of class files whose metadata has been replayed
+	 * from this cache.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of class files that had to be parsed since this cache
+	 * did not contain valid metadata for them.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Write all entries that have been used since the file was loaded to the
+	 * cache file, if any entries have been added since the file was loaded or
+	 * last written successfully.
+	 * @throws IOException if the cache file could not be written
+	 */
+	public synchronized void flush() throws IOException {
+		long modificationCount = this.modificationCount.get();
+		if (modificationCount == this.flushedModificationCount) {
+			return;
+		}
+		Map<String, Entry> entries = new LinkedHashMap<>(this.storedEntries.size() + this.newEntries.size());
+		// Drop stale entries, e.g. for classes that are no longer on the class path
+		this.storedEntries.forEach((url, entry) -> {
+			if (entry.used) {
+				entries.put(url, entry);
+			}
+		});
+		entries.putAll(this.newEntries);
+
+		Path parent = this.file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path tempFile = Files.createTempFile(parent, this.file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(entries.size());
+				for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+					byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+					byte[] data = entry.getValue().getData();
+					out.writeInt(key.length);
+					out.write(key);
+					out.writeLong(entry.getValue().lastModified);
+					out.writeLong(entry.getValue().length);
+					out.writeLong(entry.getValue().checksum);
+					out.writeInt(data.length);
+					out.write(data);
+				}
+			}
+			try {
+				Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException ex) {
+				Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			this.flushedModificationCount = modificationCount;
+		}
+		finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+
+	/**
+	 * Determine the cache key for the given class file resource.
+	 * @return the key, or {@code null} if the resource is not cacheable,
+	 * e.g. a resource that cannot be resolved to a URL
+	 */
+	@Nullable
+	Key getKey(Resource resource) {
+		try {
+			URL url = resource.getURL();
+			if (!ResourceUtils.isFileURL(url) && !ResourceUtils.isJarURL(url)) {
+				return null;
+			}
+			long lastModified = resource.lastModified();
+			if (lastModified <= 0) {
+				return null;
+			}
+			if (ResourceUtils.isJarURL(url)) {
+				URLConnection con = url.openConnection();
+				if (!(con instanceof JarURLConnection) || ((JarURLConnection) con).getEntryName() == null) {
+					return null;
+				}
+				JarURLConnection jarCon = (JarURLConnection) con;
+				ResourceUtils.useCachesIfNecessary(jarCon);
+				JarFile jarFile = jarCon.getJarFile();
+				JarEntry jarEntry;
+				try {
+					jarEntry = jarFile.getJarEntry(jarCon.getEntryName());
+				}
+				finally {
+					if (!jarCon.getUseCaches()) {
+						jarFile.close();
+					}
+				}
+				if (jarEntry == null || jarEntry.getCrc() == NO_CHECKSUM) {
+					return null;
+				}
+				return new Key(url.toExternalForm(), lastModified, jarEntry.getSize(), jarEntry.getCrc());
+			}
+			return new Key(url.toExternalForm(), lastModified, resource.contentLength(), NO_CHECKSUM);
+		}
+		catch (IOException ex) {
+			// Not resolvable to a URL or without a timestamp, e.g. a ByteArrayResource
+			return null;
+		}
+	}
+
+	/**
+	 * Replay the cached class file events for the given key into the given visitor.
+	 * <p>If this method returns {@code false}, the given visitor may have received
+	 * some of the events already and must not be used for parsing the class file.
+	 * @return {@code true} if the visitor received all events, {@code false} if the
+	 * cache does not contain a valid entry for the key
+	 */
+	boolean replay(Key key, ClassVisitor visitor) {
+		Entry entry = this.newEntries.get(key.url);
+		if (entry == null) {
+			entry = this.storedEntries.get(key.url);
+		}
+		if (entry != null && entry.lastModified == key.lastModified && entry.length == key.length &&
+				entry.checksum == key.checksum) {
+			try {
+				replayClass(new DataInputStream(new ByteArrayInputStream(entry.getData())), visitor);
+				entry.used = true;
+				this.hitCount.increment();
+				return true;
+			}
+			catch (IOException | RuntimeException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to replay cached class metadata for " + key.url + ": " + ex);
+				}
+			}
+		}
+		this.missCount.increment();
+		return false;
+	}
+
+	/**
+	 * Wrap the given visitor for parsing the class file with the given key,
+	 * recording the relevant events into this cache on completion.
+	 */
+	ClassVisitor record(Key key, ClassVisitor visitor) {
+		return new RecordingClassVisitor(key, visitor);
+	}
+
+
+	/**
+	 * Return the shared PersistentMetadataCache instance, if activated through
+	 * the {@value #CACHE_FILE_PROPERTY_NAME} property.
+	 * @return the shared instance, or {@code null} if none configured
+	 */
+	@Nullable
+	public static PersistentMetadataCache getSharedInstance() {
+		if (!sharedInstanceResolved) {
+			synchronized (PersistentMetadataCache.class) {
+				if (!sharedInstanceResolved) {
+					String location = SpringProperties.getProperty(CACHE_FILE_PROPERTY_NAME);
+					if (StringUtils.hasText(location)) {
+						sharedInstance = new PersistentMetadataCache(Paths.get(location.trim()));
+					}
+					sharedInstanceResolved = true;
+				}
+			}
+		}
+		return sharedInstance;
+	}
+
+	/**
+	 * Flush the shared PersistentMetadataCache instance, if any, logging
+	 * rather than propagating a failure to write the cache file.
+	 * @see #flush()
+	 */
+	public static void flushSharedInstance() {
+		PersistentMetadataCache cache = getSharedInstance();
+		if (cache != null) {
+			try {
+				cache.flush();
+			}
+			catch (IOException ex) {
+				logger.warn("Failed to write class metadata cache to " + cache.getFile(), ex);
+			}
+		}
+	}
+
+	private static Map<String, Entry> load(Path file) {
+		if (!Files.isRegularFile(file)) {
+			return Collections.emptyMap();
+		}
+		try {
+			// Read rather than map the file, so that it can be replaced on flush
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring class metadata cache in unsupported format: " + file);
+				}
+				return Collections.emptyMap();
+			}
+			int count = buffer.getInt();
+			Map<String, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+			for (int i = 0; i < count; i++) {
+				byte[] key = new byte[buffer.getInt()];
+				buffer.get(key);
+				long lastModified = buffer.getLong();
+				long length = buffer.getLong();
+				long checksum = buffer.getLong();
+				int size = buffer.getInt();
+				int offset = buffer.position();
+				buffer.position(offset + size);
+				entries.put(new String(key, StandardCharsets.UTF_8),
+						new Entry(lastModified, length, checksum, buffer, offset, size));
+			}
+			return entries;
+		}
+		catch (IOException | RuntimeException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring unreadable class metadata cache: " + file, ex);
+			}
+			return Collections.emptyMap();
+		}
+	}
+
+	private static void replayClass(DataInputStream in, ClassVisitor visitor) throws IOException {
+		byte tag;
+		while ((tag = in.readByte()) != END) {
+			switch (tag) {
+				case CLASS:
+					int version = in.readInt();
+					int access = in.readInt();
+					String name = in.readUTF();
+					String superName = readNullableString(in);
+					String[] interfaces = new String[in.readInt()];
+					for (int i = 0; i < interfaces.length; i++) {
+						interfaces[i] = in.readUTF();
+					}
+					visitor.visit(version, access, name, null, superName, interfaces);
+					break;
+				case OUTER_CLASS:
+					visitor.visitOuterClass(in.readUTF(), readNullableString(in), readNullableString(in));
+					break;
+				case INNER_CLASS:
+					visitor.visitInnerClass(in.readUTF(), readNullableString(in), readNullableString(in), in.readInt());
+					break;
+				case ANNOTATION:
+					replayAnnotation(in, visitor.visitAnnotation(in.readUTF(), true));
+					break;
+				case METHOD:
+					MethodVisitor methodVisitor = visitor.visitMethod(in.readInt(), in.readUTF(), in.readUTF(), null, null);
+					while (in.readByte() == ANNOTATION) {
+						String descriptor = in.readUTF();
+						replayAnnotation(in, methodVisitor != null ? methodVisitor.visitAnnotation(descriptor, true) : null);
+					}
+					if (methodVisitor != null) {
+						methodVisitor.visitEnd();
+					}
+					break;
+				default:
+					throw new IOException("Unexpected record type: " + tag);
+			}
+		}
+		visitor.visitEnd();
+	}
+
+	private static void replayAnnotation(DataInputStream in, @Nullable AnnotationVisitor visitor) throws IOException {
+		byte tag;
+		while ((tag = in.readByte()) != END) {
+			String name = readNullableString(in);
+			switch (tag) {
+				case VALUE:
+					Object value = readValue(in);
+					if (visitor != null) {
+						visitor.visit(name, value);
+					}
+					break;
+				case ENUM:
+					String descriptor = in.readUTF();
+					String enumValue = in.readUTF();
+					if (visitor != null) {
+						visitor.visitEnum(name, descriptor, enumValue);
+					}
+					break;
+				case NESTED_ANNOTATION:
+					String nestedDescriptor = in.readUTF();
+					replayAnnotation(in, visitor != null ? visitor.visitAnnotation(name, nestedDescriptor) : null);
+					break;
+				case ARRAY:
+					replayAnnotation(in, visitor != null ? visitor.visitArray(name) : null);
+					break;
+				default:
+					throw new IOException("Unexpected record type: " + tag);
+			}
+		}
+		if (visitor != null) {
+			visitor.visitEnd();
+		}
+	}
+
+	@Nullable
+	private static String readNullableString(DataInputStream in) throws IOException {
+		return (in.readBoolean() ? in.readUTF() : null);
+	}
+
+	private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		char type = in.readChar();
+		switch (type) {
+			case 'Z': return in.readBoolean();
+			case 'B': return in.readByte();
+			case 'C': return in.readChar();
+			case 'S': return in.readShort();
+			case 'I': return in.readInt();
+			case 'J': return in.readLong();
+			case 'F': return in.readFloat();
+			case 'D': return in.readDouble();
+			case 's': return in.readUTF();
+			case 'c': return Type.getType(in.readUTF());
+			case '[': return readArray(in);
+			default: throw new IOException("Unexpected value type: " + type);
+		}
+	}
+
+	private static Object readArray(DataInputStream in) throws IOException {
+		char componentType = in.readChar();
+		int length = in.readInt();
+		switch (componentType) {
+			case 'Z':
+				boolean[] booleans = new boolean[length];
+				for (int i = 0; i < length; i++) {
+					booleans[i] = in.readBoolean();
+				}
+				return booleans;
+			case 'B':
+				byte[] bytes = new byte[length];
+				in.readFully(bytes);
+				return bytes;
+			case 'C':
+				char[] chars = new char[length];
+				for (int i = 0; i < length; i++) {
+					chars[i] = in.readChar();
+				}
+				return chars;
+			case 'S':
+				short[] shorts = new short[length];
+				for (int i = 0; i < length; i++) {
+					shorts[i] = in.readShort();
+				}
+				return shorts;
+			case 'I':
+				int[] ints = new int[length];
+				for (int i = 0; i < length; i++) {
+					ints[i] = in.readInt();
+				}
+				return ints;
+			case 'J':
+				long[] longs = new long[length];
+				for (int i = 0; i < length; i++) {
+					longs[i] = in.readLong();
+				}
+				return longs;
+			case 'F':
+				float[] floats = new float[length];
+				for (int i = 0; i < length; i++) {
+					floats[i] = in.readFloat();
+				}
+				return floats;
+			case 'D':
+				double[] doubles = new double[length];
+				for (int i = 0; i < length; i++) {
+					doubles[i] = in.readDouble();
+				}
+				return doubles;
+			default:
+				throw new IOException("Unexpected array component type: " + componentType);
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof Boolean) {
+			out.writeChar('Z');
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeChar('B');
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			out.writeChar('C');
+			out.writeChar((Character) value);
+		}
+		else if (value instanceof Short) {
+			out.writeChar('S');
+			out.writeShort((Short) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeChar('I');
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeChar('J');
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Float) {
+			out.writeChar('F');
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Double) {
+			out.writeChar('D');
+			out.writeDouble((Double) value);
+		}
+		else if (value instanceof String) {
+			out.writeChar('s');
+			out.writeUTF((String) value);
+		}
+		else if (value instanceof Type) {
+			out.writeChar('c');
+			out.writeUTF(((Type) value).getDescriptor());
+		}
+		else if (value.getClass().isArray() && value.getClass().getComponentType().isPrimitive()) {
+			out.writeChar('[');
+			writeArray(out, value);
+		}
+		else {
+			throw new IOException("Unsupported annotation value type: " + value.getClass().getName());
+		}
+	}
+
+	private static void writeArray(DataOutputStream out, Object array) throws IOException {
+		if (array instanceof boolean[]) {
+			out.writeChar('Z');
+			out.writeInt(((boolean[]) array).length);
+			for (boolean element : (boolean[]) array) {
+				out.writeBoolean(element);
+			}
+		}
+		else if (array instanceof byte[]) {
+			out.writeChar('B');
+			out.writeInt(((byte[]) array).length);
+			out.write((byte[]) array);
+		}
+		else if (array instanceof char[]) {
+			out.writeChar('C');
+			out.writeInt(((char[]) array).length);
+			for (char element : (char[]) array) {
+				out.writeChar(element);
+			}
+		}
+		else if (array instanceof short[]) {
+			out.writeChar('S');
+			out.writeInt(((short[]) array).length);
+			for (short element : (short[]) array) {
+				out.writeShort(element);
+			}
+		}
+		else if (array instanceof int[]) {
+			out.writeChar('I');
+			out.writeInt(((int[]) array).length);
+			for (int element : (int[]) array) {
+				out.writeInt(element);
+			}
+		}
+		else if (array instanceof long[]) {
+			out.writeChar('J');
+			out.writeInt(((long[]) array).length);
+			for (long element : (long[]) array) {
+				out.writeLong(element);
+			}
+		}
+		else if (array instanceof float[]) {
+			out.writeChar('F');
+			out.writeInt(((float[]) array).length);
+			for (float element : (float[]) array) {
+				out.writeFloat(element);
+			}
+		}
+		else {
+			out.writeChar('D');
+			out.writeInt(((double[]) array).length);
+			for (double element : (double[]) array) {
+				out.writeDouble(element);
+			}
+		}
+	}
+
+
+	/**
+	 * Cache key for a class file: its URL along with the timestamp, length
+	 * and checksum (for jar entries) that a cached entry needs to match.
+	 */
+	static final class Key {
+
+		final String url;
+
+		final long lastModified;
+
+		final long length;
+
+		final long checksum;
+
+		Key(String url, long lastModified, long length, long checksum) {
+			this.url = url;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.checksum = checksum;
+		}
+	}
+
+
+	/**
+	 * A cached entry, either recorded in this run or pointing into the contents
+	 * of the cache file as loaded.
+	 */
+	private static final class Entry {
+
+		final long lastModified;
+
+		final long length;
+
+		final long checksum;
+
+		@Nullable
+		private final byte[] data;
+
+		@Nullable
+		private final ByteBuffer buffer;
+
+		private final int offset;
+
+		private final int size;
+
+		volatile boolean used;
+
+		Entry(long lastModified, long length, long checksum, byte[] data) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.checksum = checksum;
+			this.data = data;
+			this.buffer = null;
+			this.offset = 0;
+			this.size = data.length;
+		}
+
+		Entry(long lastModified, long length, long checksum, ByteBuffer buffer, int offset, int size) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.checksum = checksum;
+			this.data = null;
+			this.buffer = buffer;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		byte[] getData() {
+			if (this.data != null) {
+				return this.data;
+			}
+			byte[] data = new byte[this.size];
+			ByteBuffer buffer = this.buffer.duplicate();
+			buffer.position(this.offset);
+			buffer.get(data);
+			return data;
+		}
+	}
+
+
+	/**
+	 * Writes the recorded events, turning a failure into a disabled recording
+	 * rather than an exception for the class file parsing.
+	 */
+	private static final class Recorder {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+
+		private final DataOutputStream out = new DataOutputStream(this.bytes);
+
+		private boolean failed;
+
+		void write(RecordAction action) {
+			if (!this.failed) {
+				try {
+					action.write(this.out);
+				}
+				catch (IOException ex) {
+					this.failed = true;
+				}
+			}
+		}
+
+		@Nullable
+		byte[] toByteArray() {
+			return (this.failed ? null : this.bytes.toByteArray());
+		}
+	}
+
+
+	@FunctionalInterface
+	private interface RecordAction {
+
+		void write(DataOutputStream out) throws IOException;
+	}
+
+
+	/**
+	 * {@link ClassVisitor} recording the relevant events on the way to its delegate.
+	 */
+	private final class RecordingClassVisitor extends ClassVisitor {
+
+		private final Key key;
+
+		private final Recorder recorder = new Recorder();
+
+		RecordingClassVisitor(Key key, ClassVisitor delegate) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.key = key;
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature,
+				@Nullable String superName, String[] interfaces) {
+
+			this.recorder.write(out -> {
+				out.writeByte(CLASS);
+				out.writeInt(version);
+				out.writeInt(access);
+				out.writeUTF(name);
+				writeNullableString(out, superName);
+				out.writeInt(interfaces.length);
+				for (String ifc : interfaces) {
+					out.writeUTF(ifc);
+				}
+			});
+			super.visit(version, access, name, signature, superName, interfaces);
+		}
+
+		@Override
+		public void visitOuterClass(String owner, @Nullable String name, @Nullable String descriptor) {
+			this.recorder.write(out -> {
+				out.writeByte(OUTER_CLASS);
+				out.writeUTF(owner);
+				writeNullableString(out, name);
+				writeNullableString(out, descriptor);
+			});
+			super.visitOuterClass(owner, name, descriptor);
+		}
+
+		@Override
+		public void visitInnerClass(String name, @Nullable String outerName, @Nullable String innerName, int access) {
+			this.recorder.write(out -> {
+				out.writeByte(INNER_CLASS);
+				out.writeUTF(name);
+				writeNullableString(out, outerName);
+				writeNullableString(out, innerName);
+				out.writeInt(access);
+			});
+			super.visitInnerClass(name, outerName, innerName, access);
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+			AnnotationVisitor delegate = super.visitAnnotation(descriptor, visible);
+			if (!visible) {
+				return delegate;
+			}
+			this.recorder.write(out -> {
+				out.writeByte(ANNOTATION);
+				out.writeUTF(descriptor);
+			});
+			return new RecordingAnnotationVisitor(this.recorder, delegate);
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor,
+				String signature, String[] exceptions) {
+
+			MethodVisitor delegate = super.visitMethod(access, name, descriptor, signature, exceptions);
+			return new RecordingMethodVisitor(this.recorder, access, name, descriptor, delegate);
+		}
+
+		@Override
+		public void visitEnd() {
+			this.recorder.write(out -> out.writeByte(END));
+			super.visitEnd();
+			byte[] data = this.recorder.toByteArray();
+			if (data != null) {
+				PersistentMetadataCache.this.newEntries.put(this.key.url,
+						new Entry(this.key.lastModified, this.key.length, this.key.checksum, data));
+				PersistentMetadataCache.this.modificationCount.incrementAndGet();
+			}
+		}
+	}
+
+
+	/**
+	 * {@link MethodVisitor} recording runtime-visible method annotations,
+	 * writing the method declaration only once an annotation is found.
+	 */
+	private static final class RecordingMethodVisitor extends MethodVisitor {
+
+		private final Recorder recorder;
+
+		private final int access;
+
+		private final String name;
+
+		private final String descriptor;
+
+		private boolean recorded;
+
+		RecordingMethodVisitor(Recorder recorder, int access, String name, String descriptor,
+				@Nullable MethodVisitor delegate) {
+
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.recorder = recorder;
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+			AnnotationVisitor delegate = super.visitAnnotation(descriptor, visible);
+			if (!visible) {
+				return delegate;
+			}
+			this.recorder.write(out -> {
+				if (!this.recorded) {
+					out.writeByte(METHOD);
+					out.writeInt(this.access);
+					out.writeUTF(this.name);
+					out.writeUTF(this.descriptor);
+					this.recorded = true;
+				}
+				out.writeByte(ANNOTATION);
+				out.writeUTF(descriptor);
+			});
+			return new RecordingAnnotationVisitor(this.recorder, delegate);
+		}
+
+		@Override
+		public void visitEnd() {
+			if (this.recorded) {
+				this.recorder.write(out -> out.writeByte(END));
+			}
+			super.visitEnd();
+		}
+	}
+
+
+	/**
+	 * {@link AnnotationVisitor} recording annotation attributes, including
+	 * nested annotations and arrays.
+	 */
+	private static final class RecordingAnnotationVisitor extends AnnotationVisitor {
+
+		private final Recorder recorder;
+
+		RecordingAnnotationVisitor(Recorder recorder, @Nullable AnnotationVisitor delegate) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.recorder = recorder;
+		}
+
+		@Override
+		public void visit(@Nullable String name, Object value) {
+			this.recorder.write(out -> {
+				out.writeByte(VALUE);
+				writeNullableString(out, name);
+				writeValue(out, value);
+			});
+			super.visit(name, value);
+		}
+
+		@Override
+		public void visitEnum(@Nullable String name, String descriptor, String value) {
+			this.recorder.write(out -> {
+				out.writeByte(ENUM);
+				writeNullableString(out, name);
+				out.writeUTF(descriptor);
+				out.writeUTF(value);
+			});
+			super.visitEnum(name, descriptor, value);
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitAnnotation(@Nullable String name, String descriptor) {
+			this.recorder.write(out -> {
+				out.writeByte(NESTED_ANNOTATION);
+				writeNullableString(out, name);
+				out.writeUTF(descriptor);
+			});
+			return new RecordingAnnotationVisitor(this.recorder, super.visitAnnotation(name, descriptor));
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitArray(@Nullable String name) {
+			this.recorder.write(out -> {
+				out.writeByte(ARRAY);
+				writeNullableString(out, name);
+			});
+			return new RecordingAnnotationVisitor(this.recorder, super.visitArray(name));
+		}
+
+		@Override
+		public void visitEnd() {
+			this.recorder.write(out -> out.writeByte(END));
+			super.visitEnd();
+		}
+	}
+
+}
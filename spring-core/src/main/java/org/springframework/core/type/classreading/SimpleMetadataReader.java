@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,8 +19,10 @@ package org.springframework.core.type.classreading;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.function.Consumer;
 
 import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
 import org.springframework.core.NestedIOException;
 import org.springframework.core.io.Resource;
 import org.springframework.core.type.AnnotationMetadata;
@@ -45,9 +47,27 @@ final class SimpleMetadataReader implements MetadataReader {
 	private final AnnotationMetadata annotationMetadata;
 
 
-	SimpleMetadataReader(Resource resource, @Nullable ClassLoader classLoader) throws IOException {
+	SimpleMetadataReader(Resource resource, @Nullable ClassLoader classLoader,
+			@Nullable PersistentMetadataCache metadataCache) throws IOException {
+
+		SimpleAnnotationMetadataReadingVisitor visitor = new SimpleAnnotationMetadataReadingVisitor(classLoader);
+		PersistentMetadataCache.Key key = (metadataCache != null ? metadataCache.getKey(resource) : null);
+		if (key == null) {
+			getClassReader(resource).accept(visitor, PARSING_OPTIONS);
+		}
+		else if (!metadataCache.replay(key, visitor)) {
+			visitor = new SimpleAnnotationMetadataReadingVisitor(classLoader);
+			getClassReader(resource).accept(metadataCache.record(key, visitor), PARSING_OPTIONS);
+		}
+		this.resource = resource;
+		this.annotationMetadata = visitor.getMetadata();
+	}
+
+	SimpleMetadataReader(Resource resource, @Nullable ClassLoader classLoader,
+			Consumer<ClassVisitor> classFileEvents) {
+
 		SimpleAnnotationMetadataReadingVisitor visitor = new SimpleAnnotationMetadataReadingVisitor(classLoader);
-		getClassReader(resource).accept(visitor, PARSING_OPTIONS);
+		classFileEvents.accept(visitor);
 		this.resource = resource;
 		this.annotationMetadata = visitor.getMetadata();
 	}
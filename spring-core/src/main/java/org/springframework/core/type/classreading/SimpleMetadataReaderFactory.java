@@ -18,7 +18,9 @@ package org.springframework.core.type.classreading;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.function.Consumer;
 
+import org.springframework.asm.ClassVisitor;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
@@ -36,6 +38,9 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 
 	private final ResourceLoader resourceLoader;
 
+	@Nullable
+	private PersistentMetadataCache persistentMetadataCache = PersistentMetadataCache.getSharedInstance();
+
 
 	/**
 	 * Create a new SimpleMetadataReaderFactory for the default class loader.
@@ -71,6 +76,28 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 		return this.resourceLoader;
 	}
 
+	/**
+	 * Specify a {@link PersistentMetadataCache} to replay class metadata from,
+	 * skipping class file parsing for classes that have not changed since
+	 * their metadata got cached.
+	 * <p>Default is the {@link PersistentMetadataCache#getSharedInstance() shared
+	 * instance}, if activated. Set this to {@code null} for always parsing
+	 * class files.
+	 * @since 5.2.4
+	 */
+	public void setPersistentMetadataCache(@Nullable PersistentMetadataCache persistentMetadataCache) {
+		this.persistentMetadataCache = persistentMetadataCache;
+	}
+
+	/**
+	 * Return the {@link PersistentMetadataCache} to replay class metadata from, if any.
+	 * @since 5.2.4
+	 */
+	@Nullable
+	public PersistentMetadataCache getPersistentMetadataCache() {
+		return this.persistentMetadataCache;
+	}
+
 
 	@Override
 	public MetadataReader getMetadataReader(String className) throws IOException {
@@ -100,7 +127,25 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 
 	@Override
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
-		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader());
+		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader(), this.persistentMetadataCache);
+	}
+
+	/**
+	 * Create a MetadataReader for the given class file resource from class file
+	 * events supplied by the given callback instead of from parsing the class
+	 * file, e.g. for class metadata captured at build time.
+	 * <p>The callback is expected to deliver the events in the order of an ASM
+	 * {@link org.springframework.asm.ClassReader}, including at least the class
+	 * declaration and the runtime-visible class and method annotations, and to
+	 * end with {@link ClassVisitor#visitEnd()}.
+	 * @param resource the class file resource (not going to be read)
+	 * @param classFileEvents the callback replaying the class file events
+	 * into the given visitor
+	 * @return the MetadataReader for the given class
+	 * @since 5.2.4
+	 */
+	protected MetadataReader createMetadataReader(Resource resource, Consumer<ClassVisitor> classFileEvents) {
+		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader(), classFileEvents);
 	}
 
 }
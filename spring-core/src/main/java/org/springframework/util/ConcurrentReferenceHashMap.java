@@ -32,6 +32,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.lang.Nullable;
@@ -54,6 +55,14 @@ import org.springframework.lang.Nullable;
  * <p>If not explicitly specified, this implementation will use
  * {@linkplain SoftReference soft entry references}.
  *
+ * <p>When used as a cache, the map can {@linkplain #setStatisticsEnabled record
+ * statistics} about lookups, purged references and lock contention, exposed
+ * through {@link #getStatistics()}.
+ *
+ * <p>Read-mostly caches that are accessed by many threads can switch to
+ * {@linkplain #setLockFreeReads lock-free reads}, with purging of garbage
+ * collected entries left to write operations.
+ *
  * @author Phillip Webb
  * @author Juergen Hoeller
  * @since 3.2
@@ -101,6 +110,17 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 	@Nullable
 	private volatile Set<Map.Entry<K, V>> entrySet;
 
+	/**
+	 * Statistics counters, if statistics are enabled.
+	 */
+	@Nullable
+	private volatile StatisticsCounter statisticsCounter;
+
+	/**
+	 * Whether reads avoid polling the reference queue and locking segments.
+	 */
+	private volatile boolean lockFreeReads;
+
 
 	/**
 	 * Create a new {@code ConcurrentReferenceHashMap} instance.
@@ -229,11 +249,81 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 		return hash;
 	}
 
+	/**
+	 * Enable or disable the recording of {@link #getStatistics() statistics}.
+	 * <p>Enabling statistics resets all counters. While statistics are disabled,
+	 * which is the default, no counters are maintained.
+	 * @since 5.2.4
+	 */
+	public void setStatisticsEnabled(boolean statisticsEnabled) {
+		this.statisticsCounter = (statisticsEnabled ? new StatisticsCounter() : null);
+	}
+
+	/**
+	 * Return whether statistics are being recorded.
+	 * @since 5.2.4
+	 * @see #setStatisticsEnabled
+	 */
+	public boolean isStatisticsEnabled() {
+		return (this.statisticsCounter != null);
+	}
+
+	/**
+	 * Set whether reads should be lock-free.
+	 * <p>By default, every read polls the reference queue of its segment and
+	 * locks the segment for purging entries that have been garbage collected,
+	 * so that concurrent readers may block each other while the garbage
+	 * collector clears references. With lock-free reads, a read never waits
+	 * for a segment lock: garbage collected entries are purged by write
+	 * operations, and only opportunistically by reads that do not find an
+	 * entry and happen to acquire the segment lock without waiting. Segment
+	 * tables are copied on restructuring rather than rebuilt in place, so that
+	 * concurrent reads never observe a partially restructured table.
+	 * <p>Consider calling {@link #purgeUnreferencedEntries()} periodically for
+	 * a map that is rarely written to.
+	 * @since 5.2.4
+	 */
+	public void setLockFreeReads(boolean lockFreeReads) {
+		this.lockFreeReads = lockFreeReads;
+	}
+
+	/**
+	 * Return whether reads are lock-free.
+	 * @since 5.2.4
+	 * @see #setLockFreeReads
+	 */
+	public boolean isLockFreeReads() {
+		return this.lockFreeReads;
+	}
+
+	/**
+	 * Return a snapshot of the current statistics of this map. Sizes are always
+	 * available, whereas counters are only maintained while
+	 * {@linkplain #setStatisticsEnabled statistics are enabled}.
+	 * @since 5.2.4
+	 */
+	public Statistics getStatistics() {
+		int referenceCount = 0;
+		int capacity = 0;
+		for (Segment segment : this.segments) {
+			referenceCount += segment.getCount();
+			capacity += segment.getSize();
+		}
+		StatisticsCounter counter = this.statisticsCounter;
+		if (counter == null) {
+			return new Statistics(referenceCount, capacity, this.segments.length, 0, 0, 0, 0);
+		}
+		return new Statistics(referenceCount, capacity, this.segments.length, counter.hits.sum(),
+				counter.misses.sum(), Math.max(counter.purges.sum() - counter.releases.sum(), 0),
+				counter.contendedLocks.sum());
+	}
+
 	@Override
 	@Nullable
 	public V get(@Nullable Object key) {
 		Reference<K, V> ref = getReference(key, Restructure.WHEN_NECESSARY);
 		Entry<K, V> entry = (ref != null ? ref.get() : null);
+		recordLookup(entry != null);
 		return (entry != null ? entry.getValue() : null);
 	}
 
@@ -242,6 +332,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 	public V getOrDefault(@Nullable Object key, @Nullable V defaultValue) {
 		Reference<K, V> ref = getReference(key, Restructure.WHEN_NECESSARY);
 		Entry<K, V> entry = (ref != null ? ref.get() : null);
+		recordLookup(entry != null);
 		return (entry != null ? entry.getValue() : defaultValue);
 	}
 
@@ -307,6 +398,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 				if (entry != null) {
 					if (ref != null) {
 						ref.release();
+						recordRelease();
 					}
 					return entry.value;
 				}
@@ -323,6 +415,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 				if (entry != null && ObjectUtils.nullSafeEquals(entry.getValue(), value)) {
 					if (ref != null) {
 						ref.release();
+						recordRelease();
 					}
 					return true;
 				}
@@ -423,6 +516,20 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 		return this.segments[(hash >>> (32 - this.shift)) & (this.segments.length - 1)];
 	}
 
+	private void recordLookup(boolean hit) {
+		StatisticsCounter counter = this.statisticsCounter;
+		if (counter != null) {
+			(hit ? counter.hits : counter.misses).increment();
+		}
+	}
+
+	private void recordRelease() {
+		StatisticsCounter counter = this.statisticsCounter;
+		if (counter != null) {
+			counter.releases.increment();
+		}
+	}
+
 	/**
 	 * Calculate a shift value that can be used to create a power-of-two value between
 	 * the specified maximum and minimum values.
@@ -491,7 +598,8 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 
 		@Nullable
 		public Reference<K, V> getReference(@Nullable Object key, int hash, Restructure restructure) {
-			if (restructure == Restructure.WHEN_NECESSARY) {
+			boolean lockFreeReads = ConcurrentReferenceHashMap.this.lockFreeReads;
+			if (restructure == Restructure.WHEN_NECESSARY && !lockFreeReads) {
 				restructureIfNecessary(false);
 			}
 			if (this.count.get() == 0) {
@@ -501,7 +609,11 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 			Reference<K, V>[] references = this.references;
 			int index = getIndex(hash, references);
 			Reference<K, V> head = references[index];
-			return findInChain(head, key, hash);
+			Reference<K, V> ref = findInChain(head, key, hash);
+			if (ref == null && restructure == Restructure.WHEN_NECESSARY && lockFreeReads) {
+				purgeIfUncontended();
+			}
+			return ref;
 		}
 
 		/**
@@ -521,7 +633,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 			if (task.hasOption(TaskOption.SKIP_IF_EMPTY) && this.count.get() == 0) {
 				return task.execute(null, null, null);
 			}
-			lock();
+			lockSegment();
 			try {
 				final int index = getIndex(hash, this.references);
 				final Reference<K, V> head = this.references[index];
@@ -551,7 +663,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 			if (this.count.get() == 0) {
 				return;
 			}
-			lock();
+			lockSegment();
 			try {
 				this.references = createReferenceArray(this.initialSize);
 				this.resizeThreshold = (int) (this.references.length * getLoadFactor());
@@ -577,9 +689,27 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 			}
 		}
 
+		/**
+		 * Purge references that have been garbage collected if the lock of this
+		 * segment is available, without waiting for it otherwise.
+		 */
+		private void purgeIfUncontended() {
+			if (tryLock()) {
+				try {
+					Reference<K, V> ref = this.referenceManager.pollForPurge();
+					if (ref != null) {
+						restructure(false, ref);
+					}
+				}
+				finally {
+					unlock();
+				}
+			}
+		}
+
 		private void restructure(boolean allowResize, @Nullable Reference<K, V> ref) {
 			boolean needsResize;
-			lock();
+			lockSegment();
 			try {
 				int countAfterRestructure = this.count.get();
 				Set<Reference<K, V>> toPurge = Collections.emptySet();
@@ -591,6 +721,10 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 					}
 				}
 				countAfterRestructure -= toPurge.size();
+				StatisticsCounter counter = ConcurrentReferenceHashMap.this.statisticsCounter;
+				if (counter != null && !toPurge.isEmpty()) {
+					counter.purges.add(toPurge.size());
+				}
 
 				// Recalculate taking into account count inside lock and items that
 				// will be purged
@@ -602,14 +736,16 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 					resizing = true;
 				}
 
-				// Either create a new table or reuse the existing one
+				// Either create a new table or reuse the existing one, unless lock-free
+				// reads must not observe a partially restructured table
+				boolean copying = (resizing || ConcurrentReferenceHashMap.this.lockFreeReads);
 				Reference<K, V>[] restructured =
-						(resizing ? createReferenceArray(restructureSize) : this.references);
+						(copying ? createReferenceArray(restructureSize) : this.references);
 
 				// Restructure
 				for (int i = 0; i < this.references.length; i++) {
 					ref = this.references[i];
-					if (!resizing) {
+					if (!copying) {
 						restructured[i] = null;
 					}
 					while (ref != null) {
@@ -626,7 +762,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 				}
 
 				// Replace volatile members
-				if (resizing) {
+				if (copying) {
 					this.references = restructured;
 					this.resizeThreshold = (int) (this.references.length * getLoadFactor());
 				}
@@ -637,6 +773,21 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 			}
 		}
 
+		/**
+		 * Acquire the lock of this segment, recording contention if the lock
+		 * is held by another thread and statistics are enabled.
+		 */
+		private void lockSegment() {
+			StatisticsCounter counter = ConcurrentReferenceHashMap.this.statisticsCounter;
+			if (counter != null) {
+				if (tryLock()) {
+					return;
+				}
+				counter.contendedLocks.increment();
+			}
+			lock();
+		}
+
 		@Nullable
 		private Reference<K, V> findInChain(Reference<K, V> ref, @Nullable Object key, int hash) {
 			Reference<K, V> currRef = ref;
@@ -680,6 +831,126 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 	}
 
 
+	/**
+	 * Snapshot of the statistics of a {@code ConcurrentReferenceHashMap}.
+	 * @since 5.2.4
+	 * @see ConcurrentReferenceHashMap#getStatistics()
+	 */
+	public static final class Statistics {
+
+		private final int referenceCount;
+
+		private final int capacity;
+
+		private final int segmentCount;
+
+		private final long hitCount;
+
+		private final long missCount;
+
+		private final long purgeCount;
+
+		private final long contendedLockCount;
+
+		Statistics(int referenceCount, int capacity, int segmentCount, long hitCount,
+				long missCount, long purgeCount, long contendedLockCount) {
+
+			this.referenceCount = referenceCount;
+			this.capacity = capacity;
+			this.segmentCount = segmentCount;
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.purgeCount = purgeCount;
+			this.contendedLockCount = contendedLockCount;
+		}
+
+		/**
+		 * Return the number of references held by the map, including references
+		 * that have been garbage collected but not purged yet.
+		 */
+		public int getReferenceCount() {
+			return this.referenceCount;
+		}
+
+		/**
+		 * Return the total length of the reference tables of all segments.
+		 */
+		public int getCapacity() {
+			return this.capacity;
+		}
+
+		/**
+		 * Return the number of segments of the map.
+		 */
+		public int getSegmentCount() {
+			return this.segmentCount;
+		}
+
+		/**
+		 * Return the number of lookups that found an entry.
+		 */
+		public long getHitCount() {
+			return this.hitCount;
+		}
+
+		/**
+		 * Return the number of lookups that did not find an entry.
+		 */
+		public long getMissCount() {
+			return this.missCount;
+		}
+
+		/**
+		 * Return the ratio of lookups that found an entry, or {@code 1.0}
+		 * if there have not been any lookups.
+		 */
+		public double getHitRatio() {
+			long lookupCount = this.hitCount + this.missCount;
+			return (lookupCount == 0 ? 1.0 : (double) this.hitCount / lookupCount);
+		}
+
+		/**
+		 * Return the number of entries purged after their references had been
+		 * cleared by the garbage collector.
+		 */
+		public long getPurgeCount() {
+			return this.purgeCount;
+		}
+
+		/**
+		 * Return the number of times a segment lock was held by another thread
+		 * when trying to acquire it.
+		 */
+		public long getContendedLockCount() {
+			return this.contendedLockCount;
+		}
+
+		@Override
+		public String toString() {
+			return "references=" + this.referenceCount + ", capacity=" + this.capacity +
+					", hits=" + this.hitCount + ", misses=" + this.missCount +
+					", purges=" + this.purgeCount + ", contendedLocks=" + this.contendedLockCount;
+		}
+	}
+
+
+	/**
+	 * Statistics counters, maintained while statistics are enabled.
+	 */
+	private static final class StatisticsCounter {
+
+		final LongAdder hits = new LongAdder();
+
+		final LongAdder misses = new LongAdder();
+
+		final LongAdder purges = new LongAdder();
+
+		final LongAdder releases = new LongAdder();
+
+		final LongAdder contendedLocks = new LongAdder();
+	}
+
+
 	/**
 	 * A reference to an {@link Entry} contained in the map. Implementations are usually
 	 * wrappers around specific Java reference implementations (e.g., {@link SoftReference}).
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link ConcurrentReferenceHashMap}-based caches used within
+ * the framework, e.g. for reflection, annotation and type metadata, allowing
+ * for monitoring their {@link ConcurrentReferenceHashMap#getStatistics() statistics}.
+ *
+ * <p>Caches are held weakly, so registering a per-instance cache does not
+ * prevent the owning instance from being garbage collected.
+ *
+ * <p>Statistics are disabled by default: they can be enabled for all registered
+ * caches, including any cache registered later on, through
+ * {@link #setStatisticsEnabled}.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see ConcurrentReferenceHashMap#setStatisticsEnabled
+ */
+public final class FrameworkCacheRegistry {
+
+	private static final Map<String, CacheReference> caches = new ConcurrentHashMap<>(32);
+
+	private static final ReferenceQueue<ConcurrentReferenceHashMap<?, ?>> queue = new ReferenceQueue<>();
+
+	private static volatile boolean statisticsEnabled;
+
+
+	private FrameworkCacheRegistry() {
+	}
+
+
+	/**
+	 * Register the given cache under the given name, replacing any cache
+	 * registered under the same name.
+	 * @param name the name of the cache (e.g. "ReflectionUtils.declaredMethodsCache")
+	 * @param cache the cache to register
+	 * @return the given cache, for use in field initializers
+	 */
+	public static <M extends ConcurrentReferenceHashMap<?, ?>> M register(String name, M cache) {
+		Assert.hasText(name, "Name must not be empty");
+		Assert.notNull(cache, "Cache must not be null");
+		purgeUnreferencedCaches();
+		if (statisticsEnabled) {
+			cache.setStatisticsEnabled(true);
+		}
+		caches.put(name, new CacheReference(name, cache, queue));
+		return cache;
+	}
+
+	/**
+	 * Return the currently registered caches, sorted by name.
+	 */
+	public static Map<String, ConcurrentReferenceHashMap<?, ?>> getCaches() {
+		purgeUnreferencedCaches();
+		Map<String, ConcurrentReferenceHashMap<?, ?>> result = new TreeMap<>();
+		caches.forEach((name, reference) -> {
+			ConcurrentReferenceHashMap<?, ?> cache = reference.get();
+			if (cache != null) {
+				result.put(name, cache);
+			}
+		});
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Enable or disable statistics for all registered caches, as well as for
+	 * caches registered subsequently.
+	 * @see ConcurrentReferenceHashMap#setStatisticsEnabled
+	 */
+	public static void setStatisticsEnabled(boolean enabled) {
+		statisticsEnabled = enabled;
+		getCaches().values().forEach(cache -> cache.setStatisticsEnabled(enabled));
+	}
+
+	/**
+	 * Return whether statistics are enabled for registered caches.
+	 */
+	public static boolean isStatisticsEnabled() {
+		return statisticsEnabled;
+	}
+
+	private static void purgeUnreferencedCaches() {
+		CacheReference reference = (CacheReference) queue.poll();
+		while (reference != null) {
+			caches.remove(reference.name, reference);
+			reference = (CacheReference) queue.poll();
+		}
+	}
+
+
+	private static class CacheReference extends WeakReference<ConcurrentReferenceHashMap<?, ?>> {
+
+		private final String name;
+
+		CacheReference(String name, ConcurrentReferenceHashMap<?, ?> cache,
+				ReferenceQueue<ConcurrentReferenceHashMap<?, ?>> queue) {
+
+			super(cache, queue);
+			this.name = name;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,7 +25,6 @@ import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import org.springframework.lang.Nullable;
 
@@ -79,12 +78,20 @@ public abstract class ReflectionUtils {
 	 * Cache for {@link Class#getDeclaredMethods()} plus equivalent default methods
 	 * from Java 8 based interfaces, allowing for fast iteration.
 	 */
-	private static final Map<Class<?>, Method[]> declaredMethodsCache = new ConcurrentReferenceHashMap<>(256);
+	private static final ConcurrentReferenceHashMap<Class<?>, Method[]> declaredMethodsCache =
+			FrameworkCacheRegistry.register("ReflectionUtils.declaredMethodsCache", new ConcurrentReferenceHashMap<>(256));
 
 	/**
 	 * Cache for {@link Class#getDeclaredFields()}, allowing for fast iteration.
 	 */
-	private static final Map<Class<?>, Field[]> declaredFieldsCache = new ConcurrentReferenceHashMap<>(256);
+	private static final ConcurrentReferenceHashMap<Class<?>, Field[]> declaredFieldsCache =
+			FrameworkCacheRegistry.register("ReflectionUtils.declaredFieldsCache", new ConcurrentReferenceHashMap<>(256));
+
+	static {
+		// Read-mostly caches, shared across all application threads
+		declaredMethodsCache.setLockFreeReads(true);
+		declaredFieldsCache.setLockFreeReads(true);
+	}
 
 
 	// Exception handling
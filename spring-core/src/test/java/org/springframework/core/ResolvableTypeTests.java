@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -116,6 +116,48 @@ class ResolvableTypeTests {
 		assertThat(type.isAssignableFrom(String.class)).isTrue();
 	}
 
+	@Test
+	void forClassIsInterned() throws Exception {
+		ResolvableType type = ResolvableType.forClass(ExtendsList.class);
+		assertThat(ResolvableType.forClass(ExtendsList.class)).isSameAs(type);
+		assertThat(ResolvableType.forType(ExtendsList.class)).isSameAs(type);
+		assertThat(type.getSuperType()).isSameAs(ResolvableType.forClass(ExtendsList.class).getSuperType());
+		assertThat(ResolvableType.forClass(null)).isSameAs(ResolvableType.forClass(Object.class));
+	}
+
+	@Test
+	void forParameterizedTypeIsInterned() throws Exception {
+		Type type = Fields.class.getField("stringList").getGenericType();
+		assertThat(ResolvableType.forType(type)).isSameAs(ResolvableType.forType(type));
+	}
+
+	@Test
+	void forFieldSharesGenericsButKeepsSource() throws Exception {
+		Field field = Fields.class.getDeclaredField("privateField");
+		Field field2 = Fields.class.getDeclaredField("otherPrivateField");
+		ResolvableType type = ResolvableType.forField(field);
+		ResolvableType type2 = ResolvableType.forField(field2);
+		assertThat(type.getSource()).isSameAs(field);
+		assertThat(type2.getSource()).isSameAs(field2);
+		assertThat(type2.getGenerics()).isSameAs(type.getGenerics());
+		assertThat(type.getGeneric(0).resolve()).isEqualTo(String.class);
+	}
+
+	@Test
+	void isAssignableFromCachedForInternedTypes() throws Exception {
+		ResolvableType listOfString = ResolvableType.forField(Fields.class.getField("stringList"));
+		ResolvableType listOfCharSequence = ResolvableType.forClassWithGenerics(List.class, CharSequence.class);
+		ResolvableType extendsList = ResolvableType.forClass(ExtendsList.class);
+		for (int i = 0; i < 2; i++) {
+			assertThat(listOfCharSequence.isAssignableFrom(extendsList)).isTrue();
+			assertThat(listOfString.isAssignableFrom(extendsList)).isFalse();
+			assertThat(listOfCharSequence.isAssignableFrom(ExtendsList.class)).isTrue();
+			assertThat(listOfString.isAssignableFrom(ExtendsList.class)).isFalse();
+			assertThat(extendsList.isAssignableFrom(listOfCharSequence)).isFalse();
+			assertThat(ResolvableType.forRawClass(List.class).isAssignableFrom(extendsList)).isTrue();
+		}
+	}
+
 	@Test
 	void forRawClass() throws Exception {
 		ResolvableType type = ResolvableType.forRawClass(ExtendsList.class);
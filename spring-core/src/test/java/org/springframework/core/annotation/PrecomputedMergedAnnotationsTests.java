@@ -0,0 +1,171 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PrecomputedMergedAnnotations}.
+ */
+class PrecomputedMergedAnnotationsTests {
+
+	@Test
+	void viewIsCachedPerElement() {
+		assertThat(PrecomputedMergedAnnotations.forTypeHierarchy(WithComposed.class))
+				.isSameAs(PrecomputedMergedAnnotations.forTypeHierarchy(WithComposed.class));
+		assertThat(PrecomputedMergedAnnotations.forInheritedAnnotations(WithComposed.class))
+				.isSameAs(PrecomputedMergedAnnotations.forInheritedAnnotations(WithComposed.class));
+		assertThat(PrecomputedMergedAnnotations.forTypeHierarchy(WithComposed.class))
+				.isNotSameAs(PrecomputedMergedAnnotations.forInheritedAnnotations(WithComposed.class));
+	}
+
+	@Test
+	void synthesizedAnnotationIsRetained() {
+		PrecomputedMergedAnnotations annotations = PrecomputedMergedAnnotations.forTypeHierarchy(WithComposed.class);
+		Base base = annotations.synthesize(Base.class);
+		assertThat(base).isNotNull();
+		assertThat(base.name()).isEqualTo("composed");
+		assertThat(annotations.synthesize(Base.class)).isSameAs(base);
+		assertThat(AnnotatedElementUtils.findMergedAnnotation(WithComposed.class, Base.class)).isSameAs(base);
+	}
+
+	@Test
+	void matchesMergedAnnotations() {
+		Method method = methodOf(Subclass.class);
+		assertSameAsMergedAnnotations(method, SearchStrategy.TYPE_HIERARCHY,
+				PrecomputedMergedAnnotations.forTypeHierarchy(method));
+		assertSameAsMergedAnnotations(method, SearchStrategy.INHERITED_ANNOTATIONS,
+				PrecomputedMergedAnnotations.forInheritedAnnotations(method));
+		assertSameAsMergedAnnotations(Subclass.class, SearchStrategy.TYPE_HIERARCHY,
+				PrecomputedMergedAnnotations.forTypeHierarchy(Subclass.class));
+		assertSameAsMergedAnnotations(Subclass.class, SearchStrategy.INHERITED_ANNOTATIONS,
+				PrecomputedMergedAnnotations.forInheritedAnnotations(Subclass.class));
+	}
+
+	@Test
+	void inheritedAnnotationsOnlyForGetSemantics() {
+		assertThat(PrecomputedMergedAnnotations.forInheritedAnnotations(Subclass.class).isPresent(Base.class)).isTrue();
+		assertThat(PrecomputedMergedAnnotations.forInheritedAnnotations(Subclass.class).isPresent(Composed.class)).isFalse();
+		assertThat(PrecomputedMergedAnnotations.forTypeHierarchy(Subclass.class).isPresent(Composed.class)).isTrue();
+		assertThat(PrecomputedMergedAnnotations.forTypeHierarchy(Subclass.class).get(Composed.class.getName())
+				.getString("value")).isEqualTo("interface");
+	}
+
+	@Test
+	void missingAnnotation() {
+		PrecomputedMergedAnnotations annotations = PrecomputedMergedAnnotations.forTypeHierarchy(Object.class);
+		assertThat(annotations.isPresent(Base.class)).isFalse();
+		assertThat(annotations.get(Base.class).isPresent()).isFalse();
+		assertThat(annotations.synthesize(Base.class)).isNull();
+	}
+
+	@Test
+	void adaptedElementIsNotCached() {
+		AnnotatedElement element = AnnotatedElementUtils.forAnnotations(WithComposed.class.getAnnotations());
+		assertThat(PrecomputedMergedAnnotations.forTypeHierarchy(element))
+				.isNotSameAs(PrecomputedMergedAnnotations.forTypeHierarchy(element));
+		assertThat(PrecomputedMergedAnnotations.forTypeHierarchy(element).get(Base.class)
+				.getString("name")).isEqualTo("composed");
+	}
+
+	private static void assertSameAsMergedAnnotations(AnnotatedElement element, SearchStrategy searchStrategy,
+			PrecomputedMergedAnnotations annotations) {
+
+		MergedAnnotations expected = MergedAnnotations.from(element, searchStrategy, RepeatableContainers.none());
+		for (Class<? extends Annotation> type : Arrays.asList(Base.class, Composed.class)) {
+			MergedAnnotation<?> expectedAnnotation =
+					expected.get(type, null, MergedAnnotationSelectors.firstDirectlyDeclared());
+			assertThat(annotations.isPresent(type)).isEqualTo(expectedAnnotation.isPresent());
+			assertThat(annotations.isPresent(type.getName())).isEqualTo(expectedAnnotation.isPresent());
+			if (expectedAnnotation.isPresent()) {
+				assertThat(annotations.get(type).asMap()).isEqualTo(expectedAnnotation.asMap());
+				assertThat(annotations.get(type).getDistance()).isEqualTo(expectedAnnotation.getDistance());
+			}
+		}
+	}
+
+	private static Method methodOf(Class<?> type) {
+		try {
+			return type.getMethod("handle");
+		}
+		catch (NoSuchMethodException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Inherited
+	@interface Base {
+
+		String name() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Base
+	@interface Composed {
+
+		@AliasFor(annotation = Base.class)
+		String name() default "";
+
+		String value() default "";
+	}
+
+
+	@Composed(name = "composed")
+	static class WithComposed {
+	}
+
+
+	@Composed(value = "interface")
+	interface AnnotatedInterface {
+
+		@Composed(value = "interfaceMethod")
+		void handle();
+	}
+
+
+	@Base(name = "superclass")
+	static class Superclass {
+
+		@Base(name = "superclassMethod")
+		public void handle() {
+		}
+	}
+
+
+	static class Subclass extends Superclass implements AnnotatedInterface {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+}
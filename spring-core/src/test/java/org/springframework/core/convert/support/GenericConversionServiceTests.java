@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -507,6 +508,55 @@ class GenericConversionServiceTests {
 				new TypeDescriptor(getClass().getField("inactiveColor")))).isEqualTo(Color.BLACK);
 	}
 
+	@Test
+	void frozenConversionServiceRejectsRegistration() {
+		conversionService.addConverter(new ColorConverter());
+		assertThat(conversionService.isFrozen()).isFalse();
+		conversionService.freeze();
+		assertThat(conversionService.isFrozen()).isTrue();
+		assertThatIllegalStateException().isThrownBy(() ->
+				conversionService.addConverter(new ColorConverter()));
+		assertThatIllegalStateException().isThrownBy(() ->
+				conversionService.removeConvertible(String.class, Color.class));
+		assertThat(conversionService.convert("#000000", Color.class)).isEqualTo(Color.BLACK);
+	}
+
+	@Test
+	void frozenConversionServiceUsesSameConverters() throws Exception {
+		DefaultConversionService conversionService = new DefaultConversionService();
+		List<TypeDescriptor> types = Arrays.asList(TypeDescriptor.valueOf(String.class),
+				TypeDescriptor.valueOf(int.class), TypeDescriptor.valueOf(Long.class),
+				TypeDescriptor.valueOf(Character.class), TypeDescriptor.valueOf(Locale.class),
+				TypeDescriptor.valueOf(Object.class), TypeDescriptor.valueOf(Color.class),
+				new TypeDescriptor(getClass().getField("annotatedString")),
+				new TypeDescriptor(getClass().getField("list")));
+		Map<List<TypeDescriptor>, GenericConverter> expected = new HashMap<>();
+		for (TypeDescriptor sourceType : types) {
+			for (TypeDescriptor targetType : types) {
+				expected.put(Arrays.asList(sourceType, targetType), conversionService.getConverter(sourceType, targetType));
+			}
+		}
+		conversionService.freeze();
+		expected.forEach((pair, converter) ->
+				assertThat(conversionService.getConverter(pair.get(0), pair.get(1))).as(pair.toString()).isSameAs(converter));
+		assertThat(conversionService.convert("42", int.class)).isEqualTo(42);
+		assertThat(conversionService.convert("de", Locale.class)).isEqualTo(Locale.GERMAN);
+		assertThat(conversionService.canConvert(String.class, Color.class)).isFalse();
+	}
+
+	@Test
+	void frozenConversionServiceConsidersAnnotations() throws Exception {
+		conversionService.addConverter(new ColorConverter());
+		conversionService.addConverter(new MyConditionalColorConverter());
+		conversionService.freeze();
+
+		assertThat(conversionService.convert("000000xxxx",
+				new TypeDescriptor(getClass().getField("activeColor")))).isEqualTo(Color.BLACK);
+		assertThat(conversionService.convert(" #000000 ",
+				new TypeDescriptor(getClass().getField("inactiveColor")))).isEqualTo(Color.BLACK);
+		assertThat(conversionService.convert(" #000000 ", Color.class)).isEqualTo(Color.BLACK);
+	}
+
 	@Test
 	void shouldNotSupportNullConvertibleTypesFromNonConditionalGenericConverter() {
 		GenericConverter converter = new NonConditionalGenericConverter();
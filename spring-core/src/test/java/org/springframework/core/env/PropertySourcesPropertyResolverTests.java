@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,11 @@
 
 package org.springframework.core.env;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -332,4 +334,88 @@ class PropertySourcesPropertyResolverTests {
 			.withMessageContaining("Could not resolve placeholder 'bogus' in value \"${p1}:${p2}:${bogus}\"");
 	}
 
+	@Test
+	void snapshotRespectsPrecedence() {
+		Map<String, Object> withNullValue = new HashMap<>();
+		withNullValue.put("p2", null);
+		MutablePropertySources ps = new MutablePropertySources();
+		ps.addLast(new MockPropertySource("ps1").withProperty("p1", "ps1"));
+		ps.addLast(new MapPropertySource("ps2", withNullValue));
+		ps.addLast(new MockPropertySource("ps3").withProperty("p1", "ps3").withProperty("p2", "ps3"));
+		ps.addLast(new SystemEnvironmentPropertySource("env", Collections.singletonMap("P3_VALUE", "env")));
+		ps.addLast(new MockPropertySource("ps4").withProperty("p3.value", "ps4").withProperty("p4", "${p3.value}"));
+		PropertySourcesPropertyResolver pr = new PropertySourcesPropertyResolver(ps);
+		pr.setSnapshotEnabled(true);
+		assertThat(pr.getProperty("p1")).isEqualTo("ps1");
+		assertThat(pr.getProperty("p2")).isEqualTo("ps3");
+		assertThat(pr.getProperty("p3.value")).isEqualTo("env");
+		assertThat(pr.getProperty("p4")).isEqualTo("env");
+		assertThat(pr.getProperty("p5")).isNull();
+		assertThat(pr.containsProperty("p2")).isTrue();
+		assertThat(pr.containsProperty("p5")).isFalse();
+	}
+
+	@Test
+	void snapshotIsRebuiltWhenPropertySourcesChange() {
+		PropertySourcesPropertyResolver pr = new PropertySourcesPropertyResolver(propertySources);
+		pr.setSnapshotEnabled(true);
+		testProperties.put("foo", "bar");
+		assertThat(pr.getProperty("foo")).isEqualTo("bar");
+
+		// contents of property sources are not tracked...
+		testProperties.put("foo", "baz");
+		assertThat(pr.getProperty("foo")).isEqualTo("bar");
+
+		// ...but modifications of the property sources are
+		propertySources.addFirst(new MockPropertySource("override").withProperty("foo", "override"));
+		assertThat(pr.getProperty("foo")).isEqualTo("override");
+		propertySources.remove("override");
+		assertThat(pr.getProperty("foo")).isEqualTo("baz");
+		propertySources.replace("testProperties", new MockPropertySource("testProperties"));
+		assertThat(pr.getProperty("foo")).isNull();
+	}
+
+	@Test
+	void snapshotCachesResolvedPlaceholdersOfStablePropertySources() {
+		Map<String, Object> env = new HashMap<>();
+		env.put("P1", "v1");
+		MutablePropertySources ps = new MutablePropertySources();
+		ps.addFirst(new MockPropertySource().withProperty("p2", "${p1}"));
+		ps.addLast(new SystemEnvironmentPropertySource("env", env));
+		PropertySourcesPropertyResolver pr = new PropertySourcesPropertyResolver(ps);
+		pr.setSnapshotEnabled(true);
+		assertThat(pr.getProperty("p2")).isEqualTo("v1");
+
+		// the system environment is considered immutable: resolved value is cached
+		env.put("P1", "v2");
+		assertThat(pr.getProperty("p1")).isEqualTo("v2");
+		assertThat(pr.getProperty("p2")).isEqualTo("v1");
+
+		// dynamic property source: nested placeholders resolved for each lookup
+		AtomicInteger counter = new AtomicInteger();
+		ps.addLast(new PropertySource<Object>("counter") {
+			@Override
+			public Object getProperty(String name) {
+				return ("count".equals(name) ? String.valueOf(counter.incrementAndGet()) : null);
+			}
+		});
+		ps.addFirst(new MockPropertySource("placeholder").withProperty("p3", "${count}"));
+		assertThat(pr.getProperty("p2")).isEqualTo("v2");
+		assertThat(pr.getProperty("p3")).isEqualTo("1");
+		assertThat(pr.getProperty("p3")).isEqualTo("2");
+	}
+
+	@Test
+	void snapshotHonorsIgnoreUnresolvableNestedPlaceholders() {
+		MutablePropertySources ps = new MutablePropertySources();
+		ps.addFirst(new MockPropertySource().withProperty("p1", "${bogus}"));
+		PropertySourcesPropertyResolver pr = new PropertySourcesPropertyResolver(ps);
+		pr.setSnapshotEnabled(true);
+		pr.setIgnoreUnresolvableNestedPlaceholders(true);
+		assertThat(pr.getProperty("p1")).isEqualTo("${bogus}");
+		pr.setIgnoreUnresolvableNestedPlaceholders(false);
+		assertThatIllegalArgumentException().isThrownBy(() -> pr.getProperty("p1"))
+			.withMessageContaining("Could not resolve placeholder 'bogus'");
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -371,6 +371,22 @@ public class StandardEnvironmentTests {
 			.withMessage("Invalid profile [invalid-profile]: must not contain dash character");
 	}
 
+	@Test
+	void propertySnapshotThroughSpringFlag() {
+		assertThat(new StandardEnvironment().isPropertySnapshotEnabled()).isFalse();
+		SpringProperties.setFlag(AbstractEnvironment.PROPERTY_SNAPSHOT_PROPERTY_NAME);
+		try {
+			StandardEnvironment env = new StandardEnvironment();
+			assertThat(env.isPropertySnapshotEnabled()).isTrue();
+			env.getPropertySources().addFirst(new MockPropertySource().withProperty("foo", "bar"));
+			assertThat(env.getProperty("foo")).isEqualTo("bar");
+			assertThat(env.getProperty("java.version")).isEqualTo(System.getProperty("java.version"));
+		}
+		finally {
+			SpringProperties.setProperty(AbstractEnvironment.PROPERTY_SNAPSHOT_PROPERTY_NAME, null);
+		}
+	}
+
 	@Test
 	void suppressGetenvAccessThroughSystemProperty() {
 		System.setProperty("spring.getenv.ignore", "true");
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.util.FileCopyUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link CompositeDataBuffer}.
+ */
+class CompositeDataBufferTests {
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+
+	@Test
+	void joinComposesWithoutCopying() {
+		DataBuffer foo = stringBuffer("foo");
+		DataBuffer bar = stringBuffer("bar");
+		DataBuffer result = DataBufferUtils.join(Arrays.asList(foo, bar));
+
+		assertThat(result).isInstanceOf(CompositeDataBuffer.class);
+		assertThat(result.factory()).isSameAs(this.bufferFactory);
+		ByteBuffer[] segments = ((CompositeDataBuffer) result).asByteBuffers();
+		assertThat(segments).hasSize(2);
+		segments[1].put(0, (byte) 'B');
+		assertThat(foo.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+		assertThat(bar.toString(StandardCharsets.UTF_8)).isEqualTo("Bar");
+		assertThat(result.toString(StandardCharsets.UTF_8)).isEqualTo("fooBar");
+	}
+
+	@Test
+	void joinSingleBuffer() {
+		DataBuffer foo = stringBuffer("foo");
+		assertThat(DataBufferUtils.join(Arrays.asList(foo))).isSameAs(foo);
+	}
+
+	@Test
+	void readAcrossSegments() {
+		CompositeDataBuffer buffer = composite("ab", "", "cde", "f");
+		assertThat(buffer.readableByteCount()).isEqualTo(6);
+		assertThat(buffer.capacity()).isEqualTo(6);
+		assertThat(buffer.getByte(2)).isEqualTo((byte) 'c');
+		assertThat(buffer.read()).isEqualTo((byte) 'a');
+
+		byte[] result = new byte[4];
+		buffer.read(result);
+		assertThat(result).isEqualTo("bcde".getBytes(StandardCharsets.UTF_8));
+		assertThat(buffer.readPosition()).isEqualTo(5);
+		assertThat(buffer.read()).isEqualTo((byte) 'f');
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(buffer::read);
+	}
+
+	@Test
+	void joinEmptyBuffers() {
+		DataBuffer result = DataBufferUtils.join(Arrays.asList(stringBuffer(""), stringBuffer("")));
+		assertThat(result).isInstanceOf(CompositeDataBuffer.class);
+		assertThat(result.capacity()).isEqualTo(0);
+		assertThat(((CompositeDataBuffer) result).asByteBuffers()).isEmpty();
+
+		result.read(new byte[0]);
+		result.write(new byte[0]);
+		result.write(ByteBuffer.allocate(0));
+		assertThat(result.indexOf(b -> true, 0)).isEqualTo(-1);
+		assertThat(result.lastIndexOf(b -> true, 0)).isEqualTo(-1);
+		assertThat(result.asByteBuffer().remaining()).isEqualTo(0);
+		assertThat(result.toString(StandardCharsets.UTF_8)).isEmpty();
+		assertThat(result.slice(0, 0).readableByteCount()).isEqualTo(0);
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(result::read);
+
+		result.write("foo", StandardCharsets.UTF_8);
+		assertThat(result.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+	}
+
+	@Test
+	void indexOfAcrossSegments() {
+		CompositeDataBuffer buffer = composite("ab", "cb", "d");
+		assertThat(buffer.indexOf(b -> b == 'b', 0)).isEqualTo(1);
+		assertThat(buffer.indexOf(b -> b == 'b', 2)).isEqualTo(3);
+		assertThat(buffer.indexOf(b -> b == 'd', -1)).isEqualTo(4);
+		assertThat(buffer.indexOf(b -> b == 'x', 0)).isEqualTo(-1);
+		assertThat(buffer.indexOf(b -> b == 'a', 5)).isEqualTo(-1);
+
+		assertThat(buffer.lastIndexOf(b -> b == 'b', 4)).isEqualTo(3);
+		assertThat(buffer.lastIndexOf(b -> b == 'b', 2)).isEqualTo(1);
+		assertThat(buffer.lastIndexOf(b -> b == 'a', 10)).isEqualTo(0);
+		assertThat(buffer.lastIndexOf(b -> b == 'x', 4)).isEqualTo(-1);
+	}
+
+	@Test
+	void asByteBuffer() {
+		CompositeDataBuffer buffer = composite("abc", "def");
+
+		ByteBuffer view = buffer.asByteBuffer(3, 2);
+		view.put(0, (byte) 'D');
+		assertThat(buffer.getByte(3)).isEqualTo((byte) 'D');
+
+		ByteBuffer copy = buffer.asByteBuffer(1, 4);
+		byte[] result = new byte[4];
+		copy.get(result);
+		assertThat(result).isEqualTo("bcDe".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void asInputStream() throws Exception {
+		CompositeDataBuffer buffer = composite("foo", "bar", "baz");
+		buffer.readPosition(1);
+		InputStream inputStream = buffer.asInputStream(true);
+
+		assertThat(inputStream.available()).isEqualTo(8);
+		assertThat(inputStream.read()).isEqualTo('o');
+		assertThat(new String(FileCopyUtils.copyToByteArray(inputStream), StandardCharsets.UTF_8))
+				.isEqualTo("obarbaz");
+		assertThat(buffer.isAllocated()).isFalse();
+	}
+
+	@Test
+	void toStringWithCharacterSplitAcrossSegments() {
+		byte[] bytes = "a\u00e9\u20ac\ud83d\ude00b".getBytes(StandardCharsets.UTF_8);
+		for (int i = 1; i < bytes.length; i++) {
+			for (int j = i + 1; j < bytes.length; j++) {
+				CompositeDataBuffer buffer = composite(Arrays.copyOfRange(bytes, 0, i),
+						Arrays.copyOfRange(bytes, i, j), Arrays.copyOfRange(bytes, j, bytes.length));
+				assertThat(buffer.toString(StandardCharsets.UTF_8)).isEqualTo("a\u00e9\u20ac\ud83d\ude00b");
+			}
+		}
+	}
+
+	@Test
+	void toStringWithMalformedInput() {
+		CompositeDataBuffer buffer = composite(new byte[] {'a', (byte) 0xE2}, new byte[] {(byte) 0x82, 'b'});
+		assertThat(buffer.toString(StandardCharsets.UTF_8))
+				.isEqualTo(new String(new byte[] {'a', (byte) 0xE2, (byte) 0x82, 'b'}, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void writeAppendsSegment() {
+		CompositeDataBuffer buffer = composite("foo", "bar");
+		buffer.writePosition(5);
+		buffer.write("Rbaz".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(buffer.capacity()).isGreaterThanOrEqualTo(9);
+		assertThat(buffer.asByteBuffers()).hasSize(3);
+		assertThat(buffer.toString(StandardCharsets.UTF_8)).isEqualTo("foobaRbaz");
+
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> buffer.capacity(1));
+	}
+
+	@Test
+	void slice() {
+		CompositeDataBuffer buffer = composite("foo", "bar");
+		CompositeDataBuffer slice = buffer.slice(2, 3);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("oba");
+		assertThat(slice.asByteBuffers()).hasSize(2);
+
+		slice.writePosition(0);
+		slice.write((byte) 'O');
+		assertThat(buffer.toString(StandardCharsets.UTF_8)).isEqualTo("foObar");
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> slice.capacity(10));
+	}
+
+	@Test
+	void releaseReleasesComponents() {
+		PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory();
+		DataBuffer foo = bufferFactory.allocateBuffer(3).write("foo".getBytes(StandardCharsets.UTF_8));
+		DataBuffer bar = bufferFactory.allocateBuffer(3).write("bar".getBytes(StandardCharsets.UTF_8));
+		CompositeDataBuffer buffer = (CompositeDataBuffer) DataBufferUtils.join(Arrays.asList(foo, bar));
+		CompositeDataBuffer slice = buffer.slice(1, 4);
+
+		DataBufferUtils.retain(slice);
+		assertThat(buffer.release()).isFalse();
+
+		assertThat(slice.release()).isTrue();
+		assertThat(buffer.isAllocated()).isFalse();
+		assertThat(slice.isAllocated()).isFalse();
+		assertThat(((PooledDataBuffer) foo).isAllocated()).isFalse();
+		assertThat(((PooledDataBuffer) bar).isAllocated()).isFalse();
+		assertThatIllegalStateException().isThrownBy(buffer::release);
+	}
+
+	@Test
+	void releasedSliceNotAccessible() {
+		PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory();
+		DataBuffer foo = bufferFactory.allocateBuffer(3).write("foo".getBytes(StandardCharsets.UTF_8));
+		DataBuffer bar = bufferFactory.allocateBuffer(3).write("bar".getBytes(StandardCharsets.UTF_8));
+		CompositeDataBuffer buffer = (CompositeDataBuffer) DataBufferUtils.join(Arrays.asList(foo, bar));
+		CompositeDataBuffer slice = buffer.slice(1, 4);
+		assertThat(buffer.release()).isTrue();
+
+		// The memory of the components may be handed out again
+		DataBuffer recycled = bufferFactory.allocateBuffer(3).write("xyz".getBytes(StandardCharsets.UTF_8));
+		assertThatIllegalStateException().isThrownBy(slice::read);
+		assertThatIllegalStateException().isThrownBy(() -> slice.getByte(0));
+		assertThatIllegalStateException().isThrownBy(() -> slice.read(new byte[2]));
+		assertThatIllegalStateException().isThrownBy(() -> slice.toString(StandardCharsets.UTF_8));
+		assertThatIllegalStateException().isThrownBy(() -> slice.indexOf(b -> b == 'x', 0));
+		assertThatIllegalStateException().isThrownBy(() -> slice.lastIndexOf(b -> b == 'x', 3));
+		assertThatIllegalStateException().isThrownBy(slice::asByteBuffer);
+		assertThatIllegalStateException().isThrownBy(slice::asByteBuffers);
+		assertThatIllegalStateException().isThrownBy(() -> slice.slice(0, 1));
+		assertThatIllegalStateException().isThrownBy(() -> slice.writePosition(0).write((byte) 'a'));
+		assertThat(recycled.toString(StandardCharsets.UTF_8)).isEqualTo("xyz");
+		DataBufferUtils.release(recycled);
+	}
+
+
+	private DataBuffer stringBuffer(String value) {
+		return this.bufferFactory.wrap(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private CompositeDataBuffer composite(String... values) {
+		return composite(Arrays.stream(values).map(value -> value.getBytes(StandardCharsets.UTF_8))
+				.toArray(byte[][]::new));
+	}
+
+	private CompositeDataBuffer composite(byte[]... values) {
+		return new CompositeDataBuffer(this.bufferFactory, Arrays.stream(values)
+				.map(this.bufferFactory::wrap).collect(Collectors.toList()));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.core.io.buffer;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.ByteBuffer;
@@ -35,6 +37,7 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
 import org.mockito.stubbing.Answer;
 import org.reactivestreams.Subscription;
 import reactor.core.publisher.BaseSubscriber;
@@ -47,6 +50,7 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.testfixture.io.buffer.AbstractDataBufferAllocatingTests;
 import org.springframework.core.testfixture.io.buffer.DataBufferTestUtils;
+import org.springframework.util.FileCopyUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -250,6 +254,77 @@ class DataBufferUtilsTests extends AbstractDataBufferAllocatingTests {
 				.verify(Duration.ofSeconds(5));
 	}
 
+	@ParameterizedDataBufferAllocatingTest
+	void readMappedResource(String displayName, DataBufferFactory bufferFactory) throws Exception {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = DataBufferUtils.readMapped(this.resource, 0, super.bufferFactory, 3);
+
+		verifyReadData(flux);
+	}
+
+	@ParameterizedDataBufferAllocatingTest
+	void readMappedResourcePositionAndTakeUntil(String displayName, DataBufferFactory bufferFactory) throws Exception {
+		super.bufferFactory = bufferFactory;
+
+		Flux<DataBuffer> flux = DataBufferUtils.readMapped(this.resource, 3, super.bufferFactory, 3);
+
+		flux = DataBufferUtils.takeUntilByteCount(flux, 5);
+
+		StepVerifier.create(flux)
+				.consumeNextWith(stringConsumer("bar"))
+				.consumeNextWith(stringConsumer("ba"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void readMappedFileChannel() throws Exception {
+		Path path = this.resource.getFile().toPath();
+		Flux<DataBuffer> flux = DataBufferUtils.readMappedFileChannel(
+				() -> FileChannel.open(path, StandardOpenOption.READ), 3, 7, new DefaultDataBufferFactory(), 4);
+
+		List<DataBuffer> buffers = flux.collectList().block(Duration.ofSeconds(5));
+		assertThat(buffers).hasSize(2);
+		assertThat(buffers.get(0).toString(StandardCharsets.UTF_8)).isEqualTo("barb");
+		assertThat(buffers.get(1).toString(StandardCharsets.UTF_8)).isEqualTo("azq");
+
+		DataBuffer buffer = buffers.get(0);
+		DataBuffer slice = buffer.retainedSlice(1, 2);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("ar");
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+		assertThat(DataBufferUtils.release(slice)).isTrue();
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+		assertThat(buffer.readableByteCount()).isEqualTo(0);
+		assertThat(slice.readableByteCount()).isEqualTo(0);
+		assertThat(slice.capacity()).isEqualTo(0);
+
+		InputStream inputStream = buffers.get(1).asInputStream(true);
+		assertThat(FileCopyUtils.copyToString(new InputStreamReader(inputStream, StandardCharsets.UTF_8)))
+				.isEqualTo("azq");
+		assertThat(((PooledDataBuffer) buffers.get(1)).isAllocated()).isFalse();
+	}
+
+	@Test
+	void readMappedFileChannelInParts() throws Exception {
+		Path path = this.resource.getFile().toPath();
+		Flux<DataBuffer> flux = DataBufferUtils.readMappedFileChannel(
+				() -> FileChannel.open(path, StandardOpenOption.READ), 0, Long.MAX_VALUE,
+				new DefaultDataBufferFactory(), 1);
+
+		List<DataBuffer> buffers = flux.collectList().block(Duration.ofSeconds(5));
+		assertThat(buffers).hasSize((int) Files.size(path)).allSatisfy(buffer -> {
+			assertThat(buffer).isInstanceOf(PooledDataBuffer.class);
+			assertThat(buffer.readableByteCount()).isEqualTo(1);
+		});
+		StringBuilder content = new StringBuilder();
+		buffers.forEach(buffer -> {
+			content.append(buffer.toString(StandardCharsets.UTF_8));
+			assertThat(DataBufferUtils.release(buffer)).isTrue();
+		});
+		assertThat(content.toString()).isEqualTo(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+	}
+
 	private void verifyReadData(Flux<DataBuffer> buffers) {
 		StepVerifier.create(buffers)
 				.consumeNextWith(stringConsumer("foo"))
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link MappedDataBuffer}.
+ */
+class MappedDataBufferTests {
+
+	private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private MappedDataBuffer.Mapping mapping;
+
+
+	@BeforeEach
+	void setup(@TempDir Path tempDir) throws IOException {
+		Path file = Files.write(tempDir.resolve("foobar.txt"), "foobar".getBytes(StandardCharsets.UTF_8));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			this.mapping = new MappedDataBuffer.Mapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, 6));
+		}
+	}
+
+
+	@Test
+	void regionIsUnmappedOnceAllBuffersReleased() {
+		MappedDataBuffer foo = this.mapping.createBuffer(this.bufferFactory, 0, 3);
+		MappedDataBuffer bar = this.mapping.createBuffer(this.bufferFactory, 3, 3);
+		this.mapping.release();
+		assertThat(foo.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+
+		assertThat(DataBufferUtils.release(foo)).isTrue();
+		assertThat(foo.isAllocated()).isFalse();
+		assertThat(foo.readableByteCount()).isEqualTo(0);
+		assertThat(this.mapping.isUnmapped()).isFalse();
+		assertThat(bar.toString(StandardCharsets.UTF_8)).isEqualTo("bar");
+
+		assertThat(DataBufferUtils.release(bar)).isTrue();
+		assertThat(this.mapping.isUnmapped()).isTrue();
+		assertThatIllegalStateException().isThrownBy(() -> this.mapping.createBuffer(this.bufferFactory, 0, 3));
+	}
+
+	@Test
+	void regionIsNotUnmappedWhileByteBufferIsReachable() {
+		MappedDataBuffer buffer = this.mapping.createBuffer(this.bufferFactory, 0, 6);
+		this.mapping.release();
+		ByteBuffer byteBuffer = buffer.asByteBuffer();
+
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+		assertThat(this.mapping.isUnmapped()).isFalse();
+		assertThat(StandardCharsets.UTF_8.decode(byteBuffer).toString()).isEqualTo("foobar");
+	}
+
+	@Test
+	void regionIsNotUnmappedOnceByteBufferHandedOut() {
+		MappedDataBuffer buffer = this.mapping.createBuffer(this.bufferFactory, 0, 6);
+		this.mapping.release();
+		ByteBuffer duplicate = buffer.asByteBuffer(3, 3).duplicate();
+
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+		assertThat(this.mapping.isUnmapped()).isFalse();
+		assertThat(StandardCharsets.UTF_8.decode(duplicate).toString()).isEqualTo("bar");
+	}
+
+	@Test
+	void regionIsNotUnmappedWhileByteBufferOfSliceIsReachable() {
+		MappedDataBuffer buffer = this.mapping.createBuffer(this.bufferFactory, 0, 6);
+		this.mapping.release();
+		DataBuffer slice = buffer.slice(3, 3);
+		ByteBuffer byteBuffer = slice.asByteBuffer();
+		DataBuffer composite = DataBufferUtils.join(Arrays.asList(
+				buffer.retainedSlice(0, 3), this.bufferFactory.wrap(new byte[] {'!'})));
+
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+		assertThat(DataBufferUtils.release(composite)).isTrue();
+		assertThat(slice.readableByteCount()).isEqualTo(0);
+		assertThat(this.mapping.isUnmapped()).isFalse();
+		assertThat(StandardCharsets.UTF_8.decode(byteBuffer).toString()).isEqualTo("bar");
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link PooledDataBufferFactory}.
+ */
+class PooledDataBufferFactoryTests {
+
+	private final PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory();
+
+
+	@Test
+	void memoryIsReusedAfterRelease() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(300);
+		assertThat(buffer).isInstanceOf(PooledDataBuffer.class);
+		assertThat(buffer.capacity()).isEqualTo(300);
+		byte[] array = buffer.getNativeBuffer().array();
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(400);
+		assertThat(other.capacity()).isEqualTo(400);
+		assertThat(other.getNativeBuffer().array()).isSameAs(array);
+		assertThat(other.readableByteCount()).isEqualTo(0);
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void memoryIsReusedAcrossThreads() throws Exception {
+		PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory();
+		bufferFactory.setThreadCacheCapacity(0);
+		DefaultDataBuffer buffer = bufferFactory.allocateBuffer(1024);
+		byte[] array = buffer.getNativeBuffer().array();
+		Thread thread = new Thread(() -> DataBufferUtils.release(buffer));
+		thread.start();
+		thread.join();
+
+		DefaultDataBuffer other = bufferFactory.allocateBuffer(1024);
+		assertThat(other.getNativeBuffer().array()).isSameAs(array);
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void largeBufferIsNotPooled() {
+		PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory(false, 1024, 1024 * 1024);
+		DefaultDataBuffer buffer = bufferFactory.allocateBuffer(2048);
+		byte[] array = buffer.getNativeBuffer().array();
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+
+		DefaultDataBuffer other = bufferFactory.allocateBuffer(2048);
+		assertThat(other.getNativeBuffer().array()).isNotSameAs(array);
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void releasedBufferIsNotAccessible() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(16);
+		buffer.write("foo", StandardCharsets.UTF_8);
+		DataBufferUtils.release(buffer);
+
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+		assertThat(buffer.capacity()).isEqualTo(0);
+		assertThat(buffer.readableByteCount()).isEqualTo(0);
+		assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(buffer::read);
+		assertThatIllegalStateException().isThrownBy(() -> buffer.write(new byte[4]));
+		assertThatIllegalStateException().isThrownBy(((PooledDataBuffer) buffer)::retain);
+	}
+
+	@Test
+	void capacityIncreaseMovesToPooledMemory() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(8);
+		buffer.write("foo", StandardCharsets.UTF_8);
+		buffer.write(new byte[1000]);
+		assertThat(buffer.capacity()).isGreaterThanOrEqualTo(1003);
+		assertThat(buffer.readableByteCount()).isEqualTo(1003);
+		assertThat(buffer.toString(0, 3, StandardCharsets.UTF_8)).isEqualTo("foo");
+		byte[] array = buffer.getNativeBuffer().array();
+		DataBufferUtils.release(buffer);
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(1003);
+		assertThat(other.getNativeBuffer().array()).isSameAs(array);
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void sliceAfterCapacityIncrease() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(8);
+		buffer.write("foo", StandardCharsets.UTF_8);
+		DataBuffer slice = buffer.retainedSlice(0, 3);
+		ByteBuffer view = buffer.asByteBuffer(0, 3);
+		byte[] array = view.array();
+		buffer.write(new byte[1000]);
+
+		// The outgrown memory must not be handed out while the slice refers to it
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(8);
+		assertThat(other.getNativeBuffer().array()).isNotSameAs(array);
+		other.write("bar", StandardCharsets.UTF_8);
+		assertThat(slice.toString(StandardCharsets.UTF_8)).isEqualTo("foo");
+		assertThat(StandardCharsets.UTF_8.decode(view).toString()).isEqualTo("foo");
+
+		DataBufferUtils.release(other);
+		assertThat(DataBufferUtils.release(slice)).isFalse();
+		assertThat(DataBufferUtils.release(buffer)).isTrue();
+	}
+
+	@Test
+	void sliceAfterRelease() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(16);
+		buffer.write("foobar", StandardCharsets.UTF_8);
+		DataBuffer slice = buffer.slice(0, 6);
+		DataBufferUtils.release(buffer);
+
+		assertThat(((PooledDataBuffer) slice).isAllocated()).isFalse();
+		assertThatIllegalStateException().isThrownBy(slice::read);
+		assertThatIllegalStateException().isThrownBy(() -> slice.getByte(0));
+		assertThatIllegalStateException().isThrownBy(() -> slice.read(new byte[3]));
+		assertThatIllegalStateException().isThrownBy(() -> slice.write((byte) 'x'));
+		assertThatIllegalStateException().isThrownBy(() -> slice.write(new byte[3]));
+		assertThatIllegalStateException().isThrownBy(() -> slice.write(ByteBuffer.allocate(3)));
+		assertThatIllegalStateException().isThrownBy(slice::asByteBuffer);
+		assertThatIllegalStateException().isThrownBy(() -> slice.toString(StandardCharsets.UTF_8));
+		assertThatIllegalStateException().isThrownBy(() -> slice.indexOf(b -> b == 'b', 0));
+		assertThatIllegalStateException().isThrownBy(() -> slice.slice(0, 3));
+
+		DefaultDataBuffer other = this.bufferFactory.allocateBuffer(16);
+		other.write("secret", StandardCharsets.UTF_8);
+		assertThatIllegalStateException().isThrownBy(() -> slice.toString(StandardCharsets.UTF_8));
+		DataBufferUtils.release(other);
+	}
+
+	@Test
+	void sliceSharesReferenceCount() {
+		DefaultDataBuffer buffer = this.bufferFactory.allocateBuffer(16);
+		buffer.write("foobar", StandardCharsets.UTF_8);
+		DataBuffer slice = buffer.slice(3, 3);
+		DataBuffer nestedSlice = slice.slice(1, 2);
+		assertThat(slice).isInstanceOf(PooledDataBuffer.class);
+		assertThat(nestedSlice).isInstanceOf(PooledDataBuffer.class);
+		assertThat(nestedSlice.toString(StandardCharsets.UTF_8)).isEqualTo("ar");
+
+		DataBufferUtils.retain(slice);
+		assertThat(DataBufferUtils.release(buffer)).isFalse();
+		assertThat(((PooledDataBuffer) nestedSlice).isAllocated()).isTrue();
+		assertThat(DataBufferUtils.release(nestedSlice)).isTrue();
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+		assertThat(((PooledDataBuffer) slice).isAllocated()).isFalse();
+	}
+
+	@Test
+	void inputStreamReleasesOnClose() throws Exception {
+		DataBuffer buffer = this.bufferFactory.wrap(ByteBuffer.allocate(0));
+		assertThat(buffer).isNotInstanceOf(PooledDataBuffer.class);
+
+		buffer = this.bufferFactory.allocateBuffer(16);
+		buffer.write("foo", StandardCharsets.UTF_8);
+		try (InputStream inputStream = buffer.asInputStream(true)) {
+			assertThat(inputStream.read()).isEqualTo('f');
+		}
+		assertThat(((PooledDataBuffer) buffer).isAllocated()).isFalse();
+	}
+
+	@Test
+	void joinReleasesPooledBuffers() {
+		DataBuffer foo = this.bufferFactory.allocateBuffer(3).write("foo", StandardCharsets.UTF_8);
+		DataBuffer bar = this.bufferFactory.allocateBuffer(3).write("bar", StandardCharsets.UTF_8);
+		DataBuffer result = this.bufferFactory.join(Arrays.asList(foo, bar));
+		assertThat(result.toString(StandardCharsets.UTF_8)).isEqualTo("foobar");
+		assertThat(((PooledDataBuffer) foo).isAllocated()).isFalse();
+		assertThat(((PooledDataBuffer) bar).isAllocated()).isFalse();
+		assertThat(DataBufferUtils.release(result)).isTrue();
+	}
+
+	@Test
+	void leakIsDetected() throws Exception {
+		PooledDataBufferFactory bufferFactory = new PooledDataBufferFactory();
+		bufferFactory.setLeakDetectionInterval(1);
+		DataBufferUtils.release(bufferFactory.allocateBuffer(16));
+		bufferFactory.allocateBuffer(16);
+		for (int i = 0; i < 50 && bufferFactory.getLeakCount() == 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertThat(bufferFactory.getLeakCount()).isEqualTo(1);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,13 +18,23 @@ package org.springframework.core.io.support;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import org.springframework.core.io.Resource;
 import org.springframework.util.StringUtils;
@@ -59,6 +69,11 @@ class PathMatchingResourcePatternResolverTests {
 	private PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
 
 
+	@AfterEach
+	void clearCache() {
+		PathMatchingResourcePatternResolver.clearCache();
+	}
+
 	@Test
 	void invalidPrefixWithPatternElementInIt() throws IOException {
 		assertThatExceptionOfType(FileNotFoundException.class).isThrownBy(() ->
@@ -129,6 +144,93 @@ class PathMatchingResourcePatternResolverTests {
 		assertThat(found).as("Could not find aspectj_1_5_0.dtd in the root of the aspectjweaver jar").isTrue();
 	}
 
+	@Test
+	void directoryListingsAreIndexedUntilModified(@TempDir File dir) throws IOException {
+		Files.createDirectory(dir.toPath().resolve("sub"));
+		Files.createFile(dir.toPath().resolve("a.xml"));
+		Files.createFile(dir.toPath().resolve("sub/b.xml"));
+		FileTime lastModified = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+		Files.setLastModifiedTime(dir.toPath(), lastModified);
+		Files.setLastModifiedTime(dir.toPath().resolve("sub"), lastModified);
+		String pattern = "file:" + dir.getAbsolutePath() + "/**/*.xml";
+
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml", "b.xml");
+
+		// A modification that leaves the timestamp unchanged goes unnoticed...
+		Files.createFile(dir.toPath().resolve("c.xml"));
+		Files.setLastModifiedTime(dir.toPath(), lastModified);
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml", "b.xml");
+		assertThat(new PathMatchingResourcePatternResolver().getResources(pattern)).hasSize(2);
+
+		// ...until the timestamp changes
+		Files.setLastModifiedTime(dir.toPath(), FileTime.fromMillis(lastModified.toMillis() + 1000));
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename)
+				.containsExactly("a.xml", "c.xml", "b.xml");
+	}
+
+	@Test
+	void recentlyModifiedDirectoryListingsAreNotIndexed(@TempDir File dir) throws IOException {
+		Files.createFile(dir.toPath().resolve("a.xml"));
+		FileTime lastModified = Files.getLastModifiedTime(dir.toPath());
+		String pattern = "file:" + dir.getAbsolutePath() + "/*.xml";
+
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml");
+
+		// Same timestamp as before, e.g. on a file system with a coarse timestamp granularity
+		Files.createFile(dir.toPath().resolve("b.xml"));
+		Files.setLastModifiedTime(dir.toPath(), lastModified);
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml", "b.xml");
+	}
+
+	@Test
+	void overriddenDirectoryListingsAreNotIndexed(@TempDir File dir) throws IOException {
+		Files.createFile(dir.toPath().resolve("a.xml"));
+		Files.createFile(dir.toPath().resolve("b.xml"));
+		Files.setLastModifiedTime(dir.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+		AtomicInteger listings = new AtomicInteger();
+		PathMatchingResourcePatternResolver filteringResolver = new PathMatchingResourcePatternResolver() {
+			@Override
+			protected File[] listDirectory(File dir) {
+				listings.incrementAndGet();
+				return Arrays.stream(super.listDirectory(dir))
+						.filter(file -> !file.getName().startsWith("a")).toArray(File[]::new);
+			}
+		};
+		String pattern = "file:" + dir.getAbsolutePath() + "/*.xml";
+
+		assertThat(filteringResolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("b.xml");
+		assertThat(filteringResolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("b.xml");
+		assertThat(listings.get()).isEqualTo(2);
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml", "b.xml");
+	}
+
+	@Test
+	void jarFileEntriesAreIndexedUntilModified(@TempDir File dir) throws IOException {
+		File jarFile = new File(dir, "test.jar");
+		writeJar(jarFile, "META-INF/", "META-INF/a.xml");
+		String pattern = "jar:" + jarFile.toURI() + "!/META-INF/*.xml";
+
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml");
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml");
+
+		writeJar(jarFile, "META-INF/", "META-INF/a.xml", "META-INF/bb.xml");
+		assertThat(resolver.getResources(pattern)).extracting(Resource::getFilename).containsExactly("a.xml", "bb.xml");
+	}
+
+	@Test
+	void classpathStarWithPatternSearchedConcurrently() throws IOException {
+		String pattern = "classpath*:org/springframework/**/sup*/*.class";
+		Resource[] expected = resolver.getResources(pattern);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			resolver.setSearchExecutor(executor);
+			assertThat(resolver.getResources(pattern)).containsExactly(expected);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 
 	private void assertProtocolAndFilenames(Resource[] resources, String protocol, String... filenames)
 			throws IOException {
@@ -159,6 +261,15 @@ class PathMatchingResourcePatternResolverTests {
 		}
 	}
 
+	private void writeJar(File jarFile, String... entryNames) throws IOException {
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jarFile))) {
+			for (String entryName : entryNames) {
+				out.putNextEntry(new JarEntry(entryName));
+				out.closeEntry();
+			}
+		}
+	}
+
 	private void assertFilenameIn(Resource resource, String... filenames) {
 		String filename = resource.getFilename();
 		assertThat(Arrays.stream(filenames).anyMatch(filename::endsWith)).as(resource + " does not have a filename that matches any of the specified names").isTrue();
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.IOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.FileCopyUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+/**
+ * Tests for {@link PersistentMetadataCache}.
+ */
+class PersistentMetadataCacheTests {
+
+	@TempDir
+	Path tempDir;
+
+
+	@Test
+	void metadataReplayedFromCacheFileAfterRestart() throws IOException {
+		Path file = this.tempDir.resolve("metadata.cache");
+		PersistentMetadataCache cache = new PersistentMetadataCache(file);
+		AnnotationMetadata parsed = getMetadata(cache, AnnotatedComponent.class);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		cache.flush();
+		assertThat(file).exists();
+
+		PersistentMetadataCache restarted = new PersistentMetadataCache(file);
+		AnnotationMetadata replayed = getMetadata(restarted, AnnotatedComponent.class);
+		assertThat(restarted.getHitCount()).isEqualTo(1);
+		assertThat(restarted.getMissCount()).isEqualTo(0);
+
+		assertThat(replayed.getClassName()).isEqualTo(parsed.getClassName());
+		assertThat(replayed.getSuperClassName()).isEqualTo(parsed.getSuperClassName());
+		assertThat(replayed.getInterfaceNames()).containsExactly(parsed.getInterfaceNames());
+		assertThat(replayed.getEnclosingClassName()).isEqualTo(parsed.getEnclosingClassName());
+		assertThat(replayed.isIndependent()).isEqualTo(parsed.isIndependent());
+		assertThat(replayed.getMemberClassNames()).containsExactly(parsed.getMemberClassNames());
+		assertThat(replayed.getAnnotationTypes()).isEqualTo(parsed.getAnnotationTypes());
+		AnnotationAttributes attributes = AnnotationAttributes.fromMap(
+				replayed.getAnnotationAttributes(Settings.class.getName()));
+		assertThat(attributes.getString("name")).isEqualTo("component");
+		assertThat(attributes.get("numbers")).isEqualTo(new int[] {1, 2});
+		assertThat(attributes.getClass("type")).isEqualTo(String.class);
+		assertThat(attributes.<Mode>getEnum("mode")).isEqualTo(Mode.ON);
+		assertThat(attributes.get("marker")).isEqualTo('y');
+		assertThat(attributes.getAnnotationArray("nested")).extracting(nested -> nested.getString("value"))
+				.containsExactly("one", "two");
+		assertThat(replayed.getAnnotationAttributes(Settings.class.getName(), true).get("type"))
+				.isEqualTo(parsed.getAnnotationAttributes(Settings.class.getName(), true).get("type"));
+		assertThat(replayed.getAnnotatedMethods(Settings.class.getName()).stream()
+				.map(MethodMetadata::getMethodName).collect(Collectors.toList())).containsExactly("annotated");
+		assertThat(replayed.getAnnotatedMethods(Settings.class.getName()).iterator().next()
+				.getAnnotationAttributes(Settings.class.getName())).containsEntry("type", Integer[].class);
+	}
+
+	@Test
+	void modifiedClassFileParsedAgain() throws IOException {
+		Path classFile = this.tempDir.resolve("AnnotatedComponent.class");
+		Files.copy(new ClassPathResource("PersistentMetadataCacheTests$AnnotatedComponent.class",
+				getClass()).getInputStream(), classFile);
+		Path file = this.tempDir.resolve("metadata.cache");
+		PersistentMetadataCache cache = new PersistentMetadataCache(file);
+		getMetadata(cache, new FileSystemResource(classFile));
+		cache.flush();
+
+		PersistentMetadataCache restarted = new PersistentMetadataCache(file);
+		Files.setLastModifiedTime(classFile, FileTime.from(
+				Files.getLastModifiedTime(classFile).toMillis() + 2000, TimeUnit.MILLISECONDS));
+		AnnotationMetadata metadata = getMetadata(restarted, new FileSystemResource(classFile));
+		assertThat(metadata.hasAnnotation(Settings.class.getName())).isTrue();
+		assertThat(restarted.getHitCount()).isEqualTo(0);
+		assertThat(restarted.getMissCount()).isEqualTo(1);
+
+		getMetadata(restarted, new FileSystemResource(classFile));
+		assertThat(restarted.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void modifiedJarEntryParsedAgain() throws IOException {
+		byte[] content = FileCopyUtils.copyToByteArray(getResource(AnnotatedComponent.class).getInputStream());
+		Path jar = this.tempDir.resolve("app.jar");
+		writeJar(jar, content);
+		FileTime lastModified = Files.getLastModifiedTime(jar);
+		Resource resource = new UrlResource("jar:" + jar.toUri() + "!/AnnotatedComponent.class");
+		Path file = this.tempDir.resolve("metadata.cache");
+		// Do not keep the jar file open, as a restart would not either
+		URLConnection con = resource.getURL().openConnection();
+		con.setDefaultUseCaches(false);
+		try {
+			PersistentMetadataCache cache = new PersistentMetadataCache(file);
+			getMetadata(cache, resource);
+			cache.flush();
+
+			// Same length and jar file timestamp, different content
+			writeJar(jar, replace(content, "component", "COMPONENT"));
+			Files.setLastModifiedTime(jar, lastModified);
+			PersistentMetadataCache restarted = new PersistentMetadataCache(file);
+			AnnotationMetadata metadata = getMetadata(restarted, resource);
+			assertThat(metadata.getAnnotationAttributes(Settings.class.getName())).containsEntry("name", "COMPONENT");
+			assertThat(restarted.getHitCount()).isEqualTo(0);
+			assertThat(restarted.getMissCount()).isEqualTo(1);
+
+			getMetadata(restarted, resource);
+			assertThat(restarted.getHitCount()).isEqualTo(1);
+		}
+		finally {
+			con.setDefaultUseCaches(true);
+		}
+	}
+
+	@Test
+	void unreadableCacheFileIgnored() throws IOException {
+		Path file = this.tempDir.resolve("metadata.cache");
+		Files.write(file, new byte[] {1, 2, 3});
+		PersistentMetadataCache cache = new PersistentMetadataCache(file);
+		assertThat(getMetadata(cache, AnnotatedComponent.class).hasAnnotation(Settings.class.getName())).isTrue();
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		cache.flush();
+		assertThat(new PersistentMetadataCache(file).replay(
+				cache.getKey(getResource(AnnotatedComponent.class)), new SimpleAnnotationMetadataReadingVisitor(null)))
+				.isTrue();
+	}
+
+	@Test
+	void resourceWithoutUrlNotCached() throws IOException {
+		Path file = this.tempDir.resolve("metadata.cache");
+		PersistentMetadataCache cache = new PersistentMetadataCache(file);
+		Resource resource = new ByteArrayResource(
+				FileCopyUtils.copyToByteArray(getResource(AnnotatedComponent.class).getInputStream()));
+		assertThat(cache.getKey(resource)).isNull();
+		assertThat(getMetadata(cache, resource).hasAnnotation(Settings.class.getName())).isTrue();
+		assertThat(cache.getHitCount()).isEqualTo(0);
+		assertThat(cache.getMissCount()).isEqualTo(0);
+		cache.flush();
+		assertThat(file).doesNotExist();
+	}
+
+	@Test
+	void unusedEntriesDroppedOnFlush() throws IOException {
+		Path file = this.tempDir.resolve("metadata.cache");
+		PersistentMetadataCache cache = new PersistentMetadataCache(file);
+		getMetadata(cache, AnnotatedComponent.class);
+		getMetadata(cache, AnnotatedComponent.Member.class);
+		cache.flush();
+
+		PersistentMetadataCache restarted = new PersistentMetadataCache(file);
+		getMetadata(restarted, AnnotatedComponent.class);
+		getMetadata(restarted, Nested.class);
+		assertThat(restarted.getHitCount()).isEqualTo(1);
+		assertThat(restarted.getMissCount()).isEqualTo(1);
+		restarted.flush();
+
+		PersistentMetadataCache next = new PersistentMetadataCache(file);
+		getMetadata(next, AnnotatedComponent.class);
+		getMetadata(next, Nested.class);
+		getMetadata(next, AnnotatedComponent.Member.class);
+		assertThat(next.getHitCount()).isEqualTo(2);
+		assertThat(next.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	void failedFlushRetried() throws IOException {
+		Path parent = Files.createFile(this.tempDir.resolve("cache"));
+		Path file = parent.resolve("metadata.cache");
+		PersistentMetadataCache cache = new PersistentMetadataCache(file);
+		getMetadata(cache, AnnotatedComponent.class);
+		assertThatIOException().isThrownBy(cache::flush);
+
+		Files.delete(parent);
+		cache.flush();
+		PersistentMetadataCache restarted = new PersistentMetadataCache(file);
+		getMetadata(restarted, AnnotatedComponent.class);
+		assertThat(restarted.getHitCount()).isEqualTo(1);
+	}
+
+
+	private AnnotationMetadata getMetadata(PersistentMetadataCache cache, Class<?> type) throws IOException {
+		return getMetadata(cache, getResource(type));
+	}
+
+	private AnnotationMetadata getMetadata(PersistentMetadataCache cache, Resource resource) throws IOException {
+		SimpleMetadataReaderFactory factory = new SimpleMetadataReaderFactory(getClass().getClassLoader());
+		factory.setPersistentMetadataCache(cache);
+		return factory.getMetadataReader(resource).getAnnotationMetadata();
+	}
+
+	private static Resource getResource(Class<?> type) {
+		return new ClassPathResource(type.getName().replace('.', '/') + ".class");
+	}
+
+	private static void writeJar(Path jar, byte[] classFile) throws IOException {
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+			out.putNextEntry(new JarEntry("AnnotatedComponent.class"));
+			out.write(classFile);
+			out.closeEntry();
+		}
+	}
+
+	private static byte[] replace(byte[] content, String value, String replacement) {
+		byte[] search = value.getBytes(StandardCharsets.UTF_8);
+		byte[] result = content.clone();
+		for (int i = 0; i <= result.length - search.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(result, i, i + search.length), search)) {
+				System.arraycopy(replacement.getBytes(StandardCharsets.UTF_8), 0, result, i, search.length);
+				return result;
+			}
+		}
+		throw new IllegalArgumentException("No '" + value + "' in content");
+	}
+
+
+	enum Mode { ON, OFF }
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.ANNOTATION_TYPE)
+	@interface Nested {
+
+		String value();
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	@interface Settings {
+
+		String name() default "";
+
+		int[] numbers() default {};
+
+		Class<?> type() default Object.class;
+
+		Mode mode() default Mode.OFF;
+
+		Nested[] nested() default {};
+
+		char marker() default 'x';
+	}
+
+
+	@Settings(name = "component", numbers = {1, 2}, type = String.class, mode = Mode.ON,
+			nested = {@Nested("one"), @Nested("two")}, marker = 'y')
+	static class AnnotatedComponent implements Runnable {
+
+		@Override
+		public void run() {
+		}
+
+		@Settings(name = "method", type = Integer[].class)
+		public void annotated() {
+		}
+
+		public void plain() {
+		}
+
+		static class Member {
+		}
+	}
+
+}
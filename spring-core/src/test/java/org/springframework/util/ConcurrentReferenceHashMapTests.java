@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.util;
 
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -28,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -250,6 +253,76 @@ class ConcurrentReferenceHashMapTests {
 		assertThat(this.map.get(5)).isEqualTo("5");
 	}
 
+	@Test
+	void shouldNotPurgeOnGetHitWithLockFreeReads() {
+		this.map = new TestWeakConcurrentCache<>(1, 0.75f, 1);
+		this.map.setLockFreeReads(true);
+		for (int i = 1; i <= 5; i++) {
+			this.map.put(i, String.valueOf(i));
+		}
+		this.map.getMockReference(1, Restructure.NEVER).queueForPurge();
+		this.map.getMockReference(3, Restructure.NEVER).queueForPurge();
+		assertThat(this.map.get(2)).isEqualTo("2");
+		assertThat(this.map.getReference(1, Restructure.WHEN_NECESSARY)).isNotNull();
+		assertThat(this.map.getSegment(0).getCount()).isEqualTo(5);
+		assertThat(this.map.get(6)).isNull();
+		assertThat(this.map.getSegment(0).getCount()).isEqualTo(3);
+		assertThat(this.map.getReference(1, Restructure.WHEN_NECESSARY)).isNull();
+		assertThat(this.map.getReference(3, Restructure.WHEN_NECESSARY)).isNull();
+		assertThat(this.map.get(4)).isEqualTo("4");
+		assertThat(this.map.get(5)).isEqualTo("5");
+	}
+
+	@Test
+	void shouldPurgeOnPutWithLockFreeReads() {
+		this.map = new TestWeakConcurrentCache<>(1, 0.75f, 1);
+		this.map.setLockFreeReads(true);
+		for (int i = 1; i <= 5; i++) {
+			this.map.put(i, String.valueOf(i));
+		}
+		Reference<Integer, String>[] references = getReferences(this.map.getSegment(0));
+		this.map.getMockReference(3, Restructure.NEVER).queueForPurge();
+		this.map.put(6, "6");
+		assertThat(this.map.getSegment(0).getCount()).isEqualTo(5);
+		assertThat(getReferences(this.map.getSegment(0))).isNotSameAs(references);
+		assertThat(this.map.getReference(3, Restructure.NEVER)).isNull();
+		assertThat(this.map.get(6)).isEqualTo("6");
+	}
+
+	@Test
+	void shouldNotBlockOnGetWithLockFreeReads() throws Exception {
+		this.map = new TestWeakConcurrentCache<>(1, 0.75f, 1);
+		this.map.setLockFreeReads(true);
+		this.map.put(1, "1");
+		this.map.getMockReference(1, Restructure.NEVER).queueForPurge();
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread writer = new Thread(() -> {
+			this.map.getSegment(0).lock();
+			try {
+				locked.countDown();
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				this.map.getSegment(0).unlock();
+			}
+		});
+		writer.start();
+		try {
+			assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(this.map.get(1)).isEqualTo("1");
+			assertThat(this.map.get(2)).isNull();
+			assertThat(this.map.getSegment(0).getCount()).isEqualTo(1);
+		}
+		finally {
+			release.countDown();
+			writer.join();
+		}
+	}
+
 	@Test
 	void shouldPutIfAbsent() {
 		assertThat(this.map.putIfAbsent(123, "123")).isNull();
@@ -501,6 +574,47 @@ class ConcurrentReferenceHashMapTests {
 		assertThat(cacheTime.getTotalTimeSeconds()).isLessThan(mapTime.getTotalTimeSeconds() / 4.0);
 	}
 
+	@Test
+	void shouldNotRecordStatisticsByDefault() {
+		this.map.put(1, "1");
+		assertThat(this.map.get(1)).isEqualTo("1");
+		assertThat(this.map.isStatisticsEnabled()).isFalse();
+		ConcurrentReferenceHashMap.Statistics statistics = this.map.getStatistics();
+		assertThat(statistics.getReferenceCount()).isEqualTo(1);
+		assertThat(statistics.getCapacity()).isGreaterThanOrEqualTo(statistics.getSegmentCount());
+		assertThat(statistics.getHitCount()).isEqualTo(0);
+		assertThat(statistics.getMissCount()).isEqualTo(0);
+		assertThat(statistics.getHitRatio()).isEqualTo(1.0);
+	}
+
+	@Test
+	void shouldRecordStatistics() {
+		this.map = new TestWeakConcurrentCache<>(1, 0.75f, 1);
+		this.map.setStatisticsEnabled(true);
+		for (int i = 1; i <= 5; i++) {
+			this.map.put(i, String.valueOf(i));
+		}
+		assertThat(this.map.get(1)).isEqualTo("1");
+		assertThat(this.map.getOrDefault(2, "x")).isEqualTo("2");
+		assertThat(this.map.get(6)).isNull();
+		this.map.remove(5);
+		this.map.getMockReference(3, Restructure.NEVER).queueForPurge();
+		assertThat(this.map.get(3)).isNull();
+
+		ConcurrentReferenceHashMap.Statistics statistics = this.map.getStatistics();
+		assertThat(statistics.getReferenceCount()).isEqualTo(3);
+		assertThat(statistics.getSegmentCount()).isEqualTo(1);
+		assertThat(statistics.getHitCount()).isEqualTo(2);
+		assertThat(statistics.getMissCount()).isEqualTo(2);
+		assertThat(statistics.getHitRatio()).isEqualTo(0.5);
+		assertThat(statistics.getPurgeCount()).isEqualTo(1);
+		assertThat(statistics.getContendedLockCount()).isEqualTo(0);
+
+		this.map.setStatisticsEnabled(false);
+		assertThat(this.map.get(1)).isEqualTo("1");
+		assertThat(this.map.getStatistics().getHitCount()).isEqualTo(0);
+	}
+
 	@Test
 	void shouldSupportNullReference() {
 		// GC could happen during restructure so we must be able to create a reference for a null entry
@@ -552,6 +666,14 @@ class ConcurrentReferenceHashMapTests {
 	}
 
 
+	@SuppressWarnings("unchecked")
+	private static <K, V> Reference<K, V>[] getReferences(ConcurrentReferenceHashMap<K, V>.Segment segment) {
+		Field field = ReflectionUtils.findField(segment.getClass(), "references");
+		ReflectionUtils.makeAccessible(field);
+		return (Reference<K, V>[]) ReflectionUtils.getField(field, segment);
+	}
+
+
 	private static class TestWeakConcurrentCache<K, V> extends ConcurrentReferenceHashMap<K, V> {
 
 		private int supplementalHash;
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FrameworkCacheRegistry}.
+ */
+class FrameworkCacheRegistryTests {
+
+	@Test
+	void frameworkCachesAreRegistered() {
+		ReflectionUtils.getDeclaredMethods(getClass());
+		assertThat(FrameworkCacheRegistry.getCaches()).containsKey("ReflectionUtils.declaredMethodsCache");
+	}
+
+	@Test
+	void registerAndEnableStatistics() {
+		ConcurrentReferenceHashMap<String, String> cache = new ConcurrentReferenceHashMap<>();
+		assertThat(FrameworkCacheRegistry.register("test.cache", cache)).isSameAs(cache);
+		assertThat(FrameworkCacheRegistry.getCaches().get("test.cache")).isSameAs(cache);
+		assertThat(cache.isStatisticsEnabled()).isFalse();
+		try {
+			FrameworkCacheRegistry.setStatisticsEnabled(true);
+			assertThat(cache.isStatisticsEnabled()).isTrue();
+			ConcurrentReferenceHashMap<String, String> laterCache =
+					FrameworkCacheRegistry.register("test.laterCache", new ConcurrentReferenceHashMap<>());
+			assertThat(laterCache.isStatisticsEnabled()).isTrue();
+			cache.get("missing");
+			assertThat(cache.getStatistics().getMissCount()).isEqualTo(1);
+		}
+		finally {
+			FrameworkCacheRegistry.setStatisticsEnabled(false);
+		}
+		assertThat(cache.isStatisticsEnabled()).isFalse();
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for {@link NamedParameterUtils#parseSqlStatement(String)} and
+ * the subsequent substitution of named parameters.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class NamedParameterUtilsBenchmark {
+
+	@Benchmark
+	public ParsedSql parseSqlStatement(SqlStatements data) {
+		return NamedParameterUtils.parseSqlStatement(data.sql);
+	}
+
+	@Benchmark
+	public String parseAndSubstitute(SqlStatements data) {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(data.sql);
+		return NamedParameterUtils.substituteNamedParameters(parsedSql, data.parameters);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class SqlStatements {
+
+		@Param({
+				"SELECT id, name FROM customer WHERE id = :id",
+				"SELECT c.id, c.name, a.street FROM customer c JOIN address a ON a.customer_id = c.id " +
+						"WHERE c.status = :status AND c.region IN (:regions) AND a.city = :city " +
+						"AND c.created > :since ORDER BY c.name",
+				"INSERT INTO customer (id, name, email, status, created) " +
+						"VALUES (:id, :name, :email, 'ACTIVE', :created::timestamp)"})
+		public String sql;
+
+		public MapSqlParameterSource parameters = new MapSqlParameterSource()
+				.addValue("id", 1L)
+				.addValue("name", "Jane")
+				.addValue("email", "jane@example.org")
+				.addValue("status", "ACTIVE")
+				.addValue("regions", Arrays.asList("EMEA", "APAC", "AMER"))
+				.addValue("city", "Paris")
+				.addValue("since", new Date(0))
+				.addValue("created", new Date(0));
+	}
+
+}
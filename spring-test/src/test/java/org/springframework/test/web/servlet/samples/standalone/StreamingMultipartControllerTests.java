@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.test.web.servlet.samples.standalone;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.StreamingMultipartRequest;
+import org.springframework.web.multipart.commons.CommonsMultipartFile;
+import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.web.multipart.support.MultipartFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+/**
+ * Tests for a multipart request streamed by {@link CommonsMultipartResolver},
+ * with parts read from the request body only as far as the handler needs them.
+ */
+class StreamingMultipartControllerTests {
+
+	private static final String BOUNDARY = "sMcbbQpQ5gZ7kNqv";
+
+
+	@Test
+	void partsAreNotBufferedBeforeHandler() throws Exception {
+		CommonsMultipartResolver resolver = new CommonsMultipartResolver();
+		resolver.setStreaming(true);
+		MultipartFilter multipartFilter = new MultipartFilter() {
+			@Override
+			protected MultipartResolver lookupMultipartResolver(HttpServletRequest request) {
+				return resolver;
+			}
+		};
+
+		String body = "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"title\"\r\n" +
+				"\r\n" +
+				"Title\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"page\"\r\n" +
+				"\r\n" +
+				"2\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file1\"; filename=\"a.txt\"\r\n" +
+				"Content-Type: text/plain\r\n" +
+				"\r\n" +
+				"Lorem ipsum\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file2\"; filename=\"b.txt\"\r\n" +
+				"Content-Type: text/plain\r\n" +
+				"\r\n" +
+				"dolor sit amet\r\n" +
+				"--" + BOUNDARY + "--\r\n";
+
+		MvcResult result = standaloneSetup(new StreamingController()).addFilters(multipartFilter).build()
+				.perform(post("/upload")
+						.contentType("multipart/form-data; boundary=" + BOUNDARY)
+						.content(body.getBytes(StandardCharsets.UTF_8)))
+				.andReturn();
+
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getContentAsString())
+				.isEqualTo("Title, page 2, file1: streamed 'Lorem ipsum', file2: streamed 'dolor sit amet'");
+	}
+
+
+	@Controller
+	private static class StreamingController {
+
+		@PostMapping("/upload")
+		@ResponseBody
+		public String upload(@RequestParam String title, @RequestParam int page,
+				StreamingMultipartRequest request) throws IOException {
+
+			StringBuilder result = new StringBuilder(title + ", page " + page);
+			Iterator<MultipartFile> files = request.getFileIterator();
+			while (files.hasNext()) {
+				MultipartFile file = files.next();
+				result.append(", ").append(file.getName()).append(": ")
+						.append(file instanceof CommonsMultipartFile ? "buffered" : "streamed")
+						.append(" '").append(new String(file.getBytes(), StandardCharsets.UTF_8)).append("'");
+			}
+			return result.toString();
+		}
+	}
+
+}
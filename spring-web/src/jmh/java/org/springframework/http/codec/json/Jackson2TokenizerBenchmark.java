@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+/**
+ * Benchmarks for {@link Jackson2Tokenizer}, tokenizing a JSON array that
+ * arrives in fixed-size chunks, either as a whole or element by element.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class Jackson2TokenizerBenchmark {
+
+	@Benchmark
+	public Long tokenizeArrayElements(JsonData data) {
+		return Jackson2Tokenizer.tokenize(data.chunks(), data.objectMapper.getFactory(),
+				data.objectMapper, true, false, -1).count().block();
+	}
+
+	@Benchmark
+	public Long tokenizeWholeDocument(JsonData data) {
+		return Jackson2Tokenizer.tokenize(data.chunks(), data.objectMapper.getFactory(),
+				data.objectMapper, false, false, -1).count().block();
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class JsonData {
+
+		@Param({"100", "10000"})
+		public int elementCount;
+
+		@Param({"8192"})
+		public int chunkSize;
+
+		public ObjectMapper objectMapper = new ObjectMapper();
+
+		public DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+		public List<byte[]> content = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			StringBuilder builder = new StringBuilder("[");
+			for (int i = 0; i < this.elementCount; i++) {
+				if (i > 0) {
+					builder.append(',');
+				}
+				builder.append("{\"id\":").append(i).append(",\"name\":\"element").append(i)
+						.append("\",\"enabled\":true,\"score\":").append(i * 0.5d)
+						.append(",\"tags\":[\"a\",\"b\",\"c\"],\"nested\":{\"value\":\"v").append(i).append("\"}}");
+			}
+			byte[] bytes = builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+			for (int offset = 0; offset < bytes.length; offset += this.chunkSize) {
+				this.content.add(Arrays.copyOfRange(bytes, offset, Math.min(offset + this.chunkSize, bytes.length)));
+			}
+		}
+
+		public Flux<DataBuffer> chunks() {
+			return Flux.fromIterable(this.content).map(this.bufferFactory::wrap);
+		}
+	}
+
+}
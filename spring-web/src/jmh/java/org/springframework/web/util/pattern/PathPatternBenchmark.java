@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.http.server.PathContainer;
+
+/**
+ * Benchmarks for {@link PathPattern#matches(PathContainer)} and
+ * {@link PathPattern#matchAndExtract(PathContainer)}, matching a parsed
+ * request path against a set of typical patterns.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class PathPatternBenchmark {
+
+	@Benchmark
+	public void matchAllPatterns(PatternsData data, Blackhole bh) {
+		for (PathPattern pattern : data.patterns) {
+			bh.consume(pattern.matches(data.pathContainer));
+		}
+	}
+
+	@Benchmark
+	public void matchAndExtractAllPatterns(PatternsData data, Blackhole bh) {
+		for (PathPattern pattern : data.patterns) {
+			bh.consume(pattern.matchAndExtract(data.pathContainer));
+		}
+	}
+
+	@Benchmark
+	public void parsePathAndMatchAllPatterns(PatternsData data, Blackhole bh) {
+		PathContainer pathContainer = PathContainer.parsePath(data.path);
+		for (PathPattern pattern : data.patterns) {
+			bh.consume(pattern.matches(pathContainer));
+		}
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class PatternsData {
+
+		@Param({"/api/projects/spring-framework/releases/5.2.3", "/static/css/app.css", "/no/match"})
+		public String path;
+
+		public PathContainer pathContainer;
+
+		public List<PathPattern> patterns = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.pathContainer = PathContainer.parsePath(this.path);
+			PathPatternParser parser = new PathPatternParser();
+			for (int i = 0; i < 20; i++) {
+				this.patterns.add(parser.parse("/api/resource" + i + "/{id}"));
+				this.patterns.add(parser.parse("/api/resource" + i + "/{id}/items/*"));
+			}
+			this.patterns.add(parser.parse("/static/**"));
+			this.patterns.add(parser.parse("/static/{*path}"));
+			this.patterns.add(parser.parse("/api/projects/{project}/releases/{version:\\d\\.\\d\\.\\d}"));
+			this.patterns.add(parser.parse("/api/projects/{project}/**"));
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.http.codec;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -36,6 +38,8 @@ import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpLogging;
@@ -71,6 +75,8 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 
 	private static final ResolvableType REGION_TYPE = ResolvableType.forClass(ResourceRegion.class);
 
+	private static final int MAPPED_REGION_SIZE = 1024 * 1024;
+
 	private static final Log logger = HttpLogging.forLogName(ResourceHttpMessageWriter.class);
 
 
@@ -80,6 +86,8 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 
 	private final List<MediaType> mediaTypes;
 
+	private long mappedFileThreshold = -1;
+
 
 	public ResourceHttpMessageWriter() {
 		this(ResourceEncoder.DEFAULT_BUFFER_SIZE);
@@ -92,6 +100,34 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 	}
 
 
+	/**
+	 * Set the minimum size of file resources, or regions thereof, to write from
+	 * memory-mapped regions of the file rather than from copies read into data
+	 * buffers, if the output message does not support {@link ZeroCopyHttpOutputMessage
+	 * zero-copy} transfer but uses a {@link DefaultDataBufferFactory}, e.g. a
+	 * response on a Servlet container.
+	 * <p>Mapped regions are unmapped once the output message releases the data
+	 * buffers, so this must only be enabled if the server is done with the data
+	 * of a buffer by then, which is not the case for Jetty's asynchronous writes.
+	 * <p>By default this is set to -1, i.e. files are not mapped.
+	 * @param mappedFileThreshold the minimum number of bytes, or -1 to disable
+	 * @since 5.2.4
+	 * @see DataBufferUtils#readMappedFileChannel
+	 */
+	public void setMappedFileThreshold(long mappedFileThreshold) {
+		this.mappedFileThreshold = mappedFileThreshold;
+	}
+
+	/**
+	 * Return the configured minimum size of file resources to write from
+	 * memory-mapped regions, or -1 if disabled.
+	 * @since 5.2.4
+	 */
+	public long getMappedFileThreshold() {
+		return this.mappedFileThreshold;
+	}
+
+
 	@Override
 	public boolean canWrite(ResolvableType elementType, @Nullable MediaType mediaType) {
 		return this.encoder.canEncode(elementType, mediaType);
@@ -127,7 +163,7 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 			}
 		}
 
-		return zeroCopy(resource, null, message, hints)
+		return writeFile(resource, null, message, hints)
 				.orElseGet(() -> {
 					Mono<Resource> input = Mono.just(resource);
 					DataBufferFactory factory = message.bufferFactory();
@@ -161,6 +197,13 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 		return -1;
 	}
 
+	private Optional<Mono<Void>> writeFile(Resource resource, @Nullable ResourceRegion region,
+			ReactiveHttpOutputMessage message, Map<String, Object> hints) {
+
+		Optional<Mono<Void>> result = zeroCopy(resource, region, message, hints);
+		return (result.isPresent() ? result : mappedCopy(resource, region, message, hints));
+	}
+
 	private static Optional<Mono<Void>> zeroCopy(Resource resource, @Nullable ResourceRegion region,
 			ReactiveHttpOutputMessage message, Map<String, Object> hints) {
 
@@ -183,6 +226,33 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 	}
 
 
+	private Optional<Mono<Void>> mappedCopy(Resource resource, @Nullable ResourceRegion region,
+			ReactiveHttpOutputMessage message, Map<String, Object> hints) {
+
+		DataBufferFactory bufferFactory = message.bufferFactory();
+		if (this.mappedFileThreshold >= 0 && bufferFactory instanceof DefaultDataBufferFactory && resource.isFile()) {
+			try {
+				File file = resource.getFile();
+				long pos = region != null ? region.getPosition() : 0;
+				long count = region != null ? region.getCount() : file.length();
+				if (count >= this.mappedFileThreshold) {
+					if (logger.isDebugEnabled()) {
+						String formatted = region != null ? "region " + pos + "-" + (count) + " of " : "";
+						logger.debug(Hints.getLogPrefix(hints) + "Memory-mapped " + formatted + "[" + resource + "]");
+					}
+					Flux<DataBuffer> body = DataBufferUtils.readMappedFileChannel(
+							() -> FileChannel.open(file.toPath(), StandardOpenOption.READ),
+							pos, count, (DefaultDataBufferFactory) bufferFactory, MAPPED_REGION_SIZE);
+					return Optional.of(message.writeWith(body));
+				}
+			}
+			catch (IOException ex) {
+				// should not happen
+			}
+		}
+		return Optional.empty();
+	}
+
 	// Server-side only: single Resource or sub-regions...
 
 	@Override
@@ -235,7 +305,7 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 	private Mono<Void> writeSingleRegion(ResourceRegion region, ReactiveHttpOutputMessage message,
 			Map<String, Object> hints) {
 
-		return zeroCopy(region.getResource(), region, message, hints)
+		return writeFile(region.getResource(), region, message, hints)
 				.orElseGet(() -> {
 					Publisher<? extends ResourceRegion> input = Mono.just(region);
 					MediaType mediaType = message.getHeaders().getContentType();
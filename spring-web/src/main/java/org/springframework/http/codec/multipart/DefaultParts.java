@@ -0,0 +1,292 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+
+/**
+ * Default implementations of {@link Part} and subtypes, as created by
+ * {@link DefaultPartHttpMessageReader}.
+ *
+ * <p>File parts that were stored in a temporary file can be consumed once,
+ * through either {@link Part#content()} or {@link FilePart#transferTo(Path)},
+ * after which the temporary file is deleted, also if consuming fails.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ */
+abstract class DefaultParts {
+
+	// Static DataBufferFactory to read from temporary files
+	private static final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private static final int FILE_BUFFER_SIZE = 8192;
+
+
+	/**
+	 * Create a new {@link FormFieldPart} with the given parameters.
+	 * @param headers the part headers
+	 * @param value the form field value
+	 * @return the created part
+	 */
+	static FormFieldPart formFieldPart(HttpHeaders headers, String value) {
+		return new DefaultFormFieldPart(headers, value);
+	}
+
+	/**
+	 * Create a new {@link Part} or {@link FilePart} with the given in-memory content.
+	 * @param headers the part headers
+	 * @param content the content of the part, which is never released
+	 * @return the created part
+	 */
+	static Part part(HttpHeaders headers, DataBuffer content) {
+		String filename = headers.getContentDisposition().getFilename();
+		return (filename != null ? new InMemoryFilePart(headers, filename, content) :
+				new InMemoryPart(headers, content));
+	}
+
+	/**
+	 * Create a new {@link FilePart} with the content stored in the given file.
+	 * The file is deleted once the content has been consumed.
+	 * @param headers the part headers
+	 * @param file the temporary file with the content of the part
+	 * @param blockingOperationScheduler the scheduler for file operations
+	 * @return the created part
+	 */
+	static FilePart filePart(HttpHeaders headers, Path file, Scheduler blockingOperationScheduler) {
+		String filename = headers.getContentDisposition().getFilename();
+		Assert.state(filename != null, "No filename found");
+		return new FileContentPart(headers, filename, file, blockingOperationScheduler);
+	}
+
+	/**
+	 * Return the charset of the part with the given headers, as specified in
+	 * its {@code Content-Type}, or UTF-8 by default.
+	 */
+	static Charset charset(HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		Charset charset = (contentType != null ? contentType.getCharset() : null);
+		return (charset != null ? charset : StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Return the name of the part with the given headers.
+	 */
+	static String name(HttpHeaders headers) {
+		ContentDisposition contentDisposition = headers.getContentDisposition();
+		String name = contentDisposition.getName();
+		Assert.state(name != null, "No name available");
+		return name;
+	}
+
+
+	/**
+	 * Abstract base class.
+	 */
+	private abstract static class AbstractPart implements Part {
+
+		private final String name;
+
+		private final HttpHeaders headers;
+
+		AbstractPart(HttpHeaders headers) {
+			this.name = DefaultParts.name(headers);
+			this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+		}
+
+		@Override
+		public String name() {
+			return this.name;
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + this.name + "', headers=" + this.headers;
+		}
+	}
+
+
+	/**
+	 * Default implementation of {@link FormFieldPart}.
+	 */
+	private static final class DefaultFormFieldPart extends AbstractPart implements FormFieldPart {
+
+		private final String value;
+
+		DefaultFormFieldPart(HttpHeaders headers, String value) {
+			super(headers);
+			this.value = value;
+		}
+
+		@Override
+		public String value() {
+			return this.value;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return Flux.defer(() -> {
+				byte[] bytes = this.value.getBytes(charset(headers()));
+				return Flux.just(bufferFactory.wrap(bytes));
+			});
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "=" + this.value + "'";
+		}
+	}
+
+
+	/**
+	 * Part with content held in memory.
+	 */
+	private static class InMemoryPart extends AbstractPart {
+
+		private final DataBuffer content;
+
+		InMemoryPart(HttpHeaders headers, DataBuffer content) {
+			super(headers);
+			this.content = content;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return Flux.defer(() -> Flux.just(this.content.retainedSlice(0, this.content.writePosition())));
+		}
+	}
+
+
+	/**
+	 * File part with content held in memory.
+	 */
+	private static final class InMemoryFilePart extends InMemoryPart implements FilePart {
+
+		private final String filename;
+
+		InMemoryFilePart(HttpHeaders headers, String filename, DataBuffer content) {
+			super(headers, content);
+			this.filename = filename;
+		}
+
+		@Override
+		public String filename() {
+			return this.filename;
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return DataBufferUtils.write(content(), dest);
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "', filename='" + this.filename + "'";
+		}
+	}
+
+
+	/**
+	 * File part with content stored in a temporary file, which is deleted once
+	 * the content has been consumed, or an attempt to consume it has failed.
+	 */
+	private static final class FileContentPart extends AbstractPart implements FilePart {
+
+		private final String filename;
+
+		private final Path file;
+
+		private final Scheduler blockingOperationScheduler;
+
+		FileContentPart(HttpHeaders headers, String filename, Path file, Scheduler blockingOperationScheduler) {
+			super(headers);
+			this.filename = filename;
+			this.file = file;
+			this.blockingOperationScheduler = blockingOperationScheduler;
+		}
+
+		@Override
+		public String filename() {
+			return this.filename;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return DataBufferUtils.read(this.file, bufferFactory, FILE_BUFFER_SIZE)
+					.concatWith(deleteFile().then(Mono.empty()))
+					.doOnError(ex -> deleteFile().subscribe())
+					.doOnCancel(() -> deleteFile().subscribe());
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return Mono.<Void>fromRunnable(() -> {
+						try {
+							Files.copy(this.file, dest, StandardCopyOption.REPLACE_EXISTING);
+						}
+						catch (IOException ex) {
+							throw new UncheckedIOException(ex);
+						}
+					})
+					.subscribeOn(this.blockingOperationScheduler)
+					.onErrorResume(ex -> deleteFile().then(Mono.error(ex)))
+					.then(deleteFile());
+		}
+
+		private Mono<Void> deleteFile() {
+			return Mono.<Void>fromRunnable(() -> {
+						try {
+							Files.deleteIfExists(this.file);
+						}
+						catch (IOException ex) {
+							throw new UncheckedIOException(ex);
+						}
+					})
+					.subscribeOn(this.blockingOperationScheduler);
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "', filename='" + this.filename + "'";
+		}
+	}
+
+}
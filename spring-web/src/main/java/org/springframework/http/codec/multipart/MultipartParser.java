@@ -0,0 +1,444 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * Parser that turns a stream of {@code multipart/form-data} data buffers into
+ * a stream of {@link Token tokens}: a {@link HeadersToken} at the start of each
+ * part, followed by {@link BodyToken body tokens} with the content of the part.
+ *
+ * <p>Boundaries and the end of part headers are found through
+ * {@link DataBufferUtils.Matcher}. Body tokens are slices of the given data
+ * buffers rather than copies.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see PartGenerator
+ */
+final class MultipartParser {
+
+	private static final byte[] CR_LF = {'\r', '\n'};
+
+	private static final byte[] CR_LF_CR_LF = {'\r', '\n', '\r', '\n'};
+
+	private static final byte HYPHEN = '-';
+
+
+	private final byte[] boundary;
+
+	private final int maxHeadersSize;
+
+	private final Charset headersCharset;
+
+	private State state;
+
+
+	private MultipartParser(byte[] boundary, int maxHeadersSize, Charset headersCharset) {
+		this.boundary = boundary;
+		this.maxHeadersSize = maxHeadersSize;
+		this.headersCharset = headersCharset;
+		this.state = new PreambleState();
+	}
+
+
+	/**
+	 * Parse the given stream of data buffers into a stream of tokens.
+	 * @param buffers the input buffers
+	 * @param boundary the multipart boundary, as found in the Content-Type header
+	 * @param maxHeadersSize the maximum number of bytes of the headers of a part
+	 * @param headersCharset the charset to decode the headers of a part with
+	 * @return the stream of tokens
+	 */
+	static Flux<Token> parse(Flux<DataBuffer> buffers, byte[] boundary, int maxHeadersSize,
+			Charset headersCharset) {
+
+		return Flux.defer(() -> {
+			MultipartParser parser = new MultipartParser(boundary, maxHeadersSize, headersCharset);
+			return buffers
+					.concatMapIterable(parser::parse)
+					.concatWith(Mono.defer(parser::complete))
+					.doFinally(signalType -> parser.dispose())
+					.doOnDiscard(BodyToken.class, token -> DataBufferUtils.release(token.buffer()));
+		});
+	}
+
+
+	private synchronized List<Token> parse(DataBuffer buffer) {
+		List<Token> tokens = new ArrayList<>();
+		try {
+			while (buffer.readableByteCount() > 0 && this.state.parse(buffer, tokens)) {
+				// keep parsing the remainder of the buffer in the new state
+			}
+			return tokens;
+		}
+		catch (RuntimeException ex) {
+			tokens.forEach(token -> DataBufferUtils.release(token.buffer()));
+			throw ex;
+		}
+		finally {
+			DataBufferUtils.release(buffer);
+		}
+	}
+
+	private synchronized Mono<Token> complete() {
+		if (this.state instanceof EpilogueState) {
+			return Mono.empty();
+		}
+		return Mono.error(new DecodingException("Could not find end of multipart body"));
+	}
+
+	private synchronized void dispose() {
+		this.state.dispose();
+		this.state = new EpilogueState();
+	}
+
+	private void changeState(State newState) {
+		this.state.dispose();
+		this.state = newState;
+	}
+
+
+	private static void releaseAll(Iterable<DataBuffer> buffers) {
+		buffers.forEach(DataBufferUtils::release);
+	}
+
+
+	/**
+	 * Represents the output of {@link #parse(Flux, byte[], int, Charset)}.
+	 */
+	abstract static class Token {
+
+		/**
+		 * Return the headers of the part starting with this token.
+		 * @throws IllegalStateException if this is not a {@link HeadersToken}
+		 */
+		abstract HttpHeaders headers();
+
+		/**
+		 * Return the content of this token, or {@code null} for a
+		 * {@link HeadersToken}.
+		 */
+		@Nullable
+		abstract DataBuffer buffer();
+	}
+
+
+	/**
+	 * Token with the headers of a new part.
+	 */
+	static final class HeadersToken extends Token {
+
+		private final HttpHeaders headers;
+
+		HeadersToken(HttpHeaders headers) {
+			this.headers = headers;
+		}
+
+		@Override
+		HttpHeaders headers() {
+			return this.headers;
+		}
+
+		@Override
+		@Nullable
+		DataBuffer buffer() {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Token with (a chunk of) the content of the current part.
+	 */
+	static final class BodyToken extends Token {
+
+		private final DataBuffer buffer;
+
+		BodyToken(DataBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		HttpHeaders headers() {
+			throw new IllegalStateException("Body token does not have headers");
+		}
+
+		@Override
+		DataBuffer buffer() {
+			return this.buffer;
+		}
+	}
+
+
+	/**
+	 * State of the parser.
+	 */
+	private interface State {
+
+		/**
+		 * Parse the readable bytes of the given buffer, advancing its read position.
+		 * @return {@code true} if the state changed and any remaining bytes are
+		 * to be parsed by the new state; {@code false} if all bytes were consumed
+		 */
+		boolean parse(DataBuffer buffer, List<Token> tokens);
+
+		/**
+		 * Release any buffers retained by this state.
+		 */
+		void dispose();
+	}
+
+
+	/**
+	 * Skips bytes until the first boundary.
+	 */
+	private final class PreambleState implements State {
+
+		private final DataBufferUtils.Matcher firstBoundary;
+
+		PreambleState() {
+			byte[] delimiter = new byte[MultipartParser.this.boundary.length + 2];
+			delimiter[0] = HYPHEN;
+			delimiter[1] = HYPHEN;
+			System.arraycopy(MultipartParser.this.boundary, 0, delimiter, 2, MultipartParser.this.boundary.length);
+			this.firstBoundary = DataBufferUtils.matcher(delimiter);
+		}
+
+		@Override
+		public boolean parse(DataBuffer buffer, List<Token> tokens) {
+			int endIdx = this.firstBoundary.match(buffer);
+			if (endIdx == -1) {
+				buffer.readPosition(buffer.writePosition());
+				return false;
+			}
+			buffer.readPosition(endIdx + 1);
+			changeState(new HeadersState());
+			return true;
+		}
+
+		@Override
+		public void dispose() {
+		}
+	}
+
+
+	/**
+	 * Collects the headers of a part, after a boundary, or detects the end of
+	 * the multipart body if the boundary is followed by two hyphens.
+	 */
+	private final class HeadersState implements State {
+
+		private final DataBufferUtils.Matcher endOfHeaders = DataBufferUtils.matcher(CR_LF_CR_LF);
+
+		private final List<DataBuffer> buffers = new ArrayList<>(1);
+
+		private int byteCount;
+
+		private boolean lastBoundaryChecked;
+
+		@Override
+		public boolean parse(DataBuffer buffer, List<Token> tokens) {
+			if (!this.lastBoundaryChecked) {
+				if (this.byteCount + buffer.readableByteCount() < 2) {
+					this.endOfHeaders.match(buffer);
+					addBuffer(buffer, buffer.writePosition());
+					return false;
+				}
+				this.lastBoundaryChecked = true;
+				if (byteAt(0, buffer) == HYPHEN && byteAt(1, buffer) == HYPHEN) {
+					buffer.readPosition(buffer.writePosition());
+					changeState(new EpilogueState());
+					return false;
+				}
+			}
+			int endIdx = this.endOfHeaders.match(buffer);
+			if (endIdx == -1) {
+				addBuffer(buffer, buffer.writePosition());
+				return false;
+			}
+			addBuffer(buffer, endIdx + 1);
+			tokens.add(new HeadersToken(parseHeaders()));
+			changeState(new BodyState());
+			return true;
+		}
+
+		private void addBuffer(DataBuffer buffer, int endIdx) {
+			int length = endIdx - buffer.readPosition();
+			this.byteCount += length;
+			if (MultipartParser.this.maxHeadersSize >= 0 && this.byteCount > MultipartParser.this.maxHeadersSize) {
+				throw new DataBufferLimitException("Part headers exceeded the memory usage limit of " +
+						MultipartParser.this.maxHeadersSize + " bytes");
+			}
+			this.buffers.add(buffer.retainedSlice(buffer.readPosition(), length));
+			buffer.readPosition(endIdx);
+		}
+
+		private byte byteAt(int index, DataBuffer buffer) {
+			for (DataBuffer previous : this.buffers) {
+				if (index < previous.readableByteCount()) {
+					return previous.getByte(previous.readPosition() + index);
+				}
+				index -= previous.readableByteCount();
+			}
+			return buffer.getByte(buffer.readPosition() + index);
+		}
+
+		private HttpHeaders parseHeaders() {
+			DataBuffer joined = DataBufferUtils.join(this.buffers);
+			this.buffers.clear();
+			String block;
+			try {
+				block = joined.toString(MultipartParser.this.headersCharset);
+			}
+			finally {
+				DataBufferUtils.release(joined);
+			}
+			HttpHeaders headers = new HttpHeaders();
+			for (String line : StringUtils.delimitedListToStringArray(block, "\r\n")) {
+				int idx = line.indexOf(':');
+				if (idx > 0) {
+					headers.add(line.substring(0, idx).trim(), line.substring(idx + 1).trim());
+				}
+			}
+			return headers;
+		}
+
+		@Override
+		public void dispose() {
+			releaseAll(this.buffers);
+			this.buffers.clear();
+		}
+	}
+
+
+	/**
+	 * Emits the content of a part, up to the next boundary. Holds back as many
+	 * bytes as the boundary delimiter is long, since they might turn out to be
+	 * the start of the delimiter.
+	 */
+	private final class BodyState implements State {
+
+		private final DataBufferUtils.Matcher delimiter;
+
+		private final int delimiterLength;
+
+		private final Deque<DataBuffer> pending = new ArrayDeque<>();
+
+		private int pendingByteCount;
+
+		BodyState() {
+			byte[] delimiter = new byte[MultipartParser.this.boundary.length + 4];
+			System.arraycopy(CR_LF, 0, delimiter, 0, 2);
+			delimiter[2] = HYPHEN;
+			delimiter[3] = HYPHEN;
+			System.arraycopy(MultipartParser.this.boundary, 0, delimiter, 4, MultipartParser.this.boundary.length);
+			this.delimiter = DataBufferUtils.matcher(delimiter);
+			this.delimiterLength = delimiter.length;
+		}
+
+		@Override
+		public boolean parse(DataBuffer buffer, List<Token> tokens) {
+			int endIdx = this.delimiter.match(buffer);
+			if (endIdx == -1) {
+				this.pending.add(buffer.retainedSlice(buffer.readPosition(), buffer.readableByteCount()));
+				this.pendingByteCount += buffer.readableByteCount();
+				buffer.readPosition(buffer.writePosition());
+				while (!this.pending.isEmpty() &&
+						this.pendingByteCount - this.pending.peek().readableByteCount() >= this.delimiterLength) {
+					DataBuffer next = this.pending.poll();
+					this.pendingByteCount -= next.readableByteCount();
+					tokens.add(new BodyToken(next));
+				}
+				return false;
+			}
+			int delimiterStart = endIdx + 1 - this.delimiterLength;
+			if (delimiterStart < buffer.readPosition()) {
+				// The delimiter started in a previous buffer
+				trimPending(buffer.readPosition() - delimiterStart);
+			}
+			while (!this.pending.isEmpty()) {
+				tokens.add(new BodyToken(this.pending.poll()));
+			}
+			this.pendingByteCount = 0;
+			if (delimiterStart > buffer.readPosition()) {
+				int length = delimiterStart - buffer.readPosition();
+				tokens.add(new BodyToken(buffer.retainedSlice(buffer.readPosition(), length)));
+			}
+			buffer.readPosition(endIdx + 1);
+			changeState(new HeadersState());
+			return true;
+		}
+
+		private void trimPending(int byteCount) {
+			while (byteCount > 0) {
+				DataBuffer last = this.pending.pollLast();
+				if (last == null) {
+					return;
+				}
+				int length = last.readableByteCount();
+				if (length > byteCount) {
+					last.writePosition(last.writePosition() - byteCount);
+					this.pending.add(last);
+					return;
+				}
+				DataBufferUtils.release(last);
+				byteCount -= length;
+			}
+		}
+
+		@Override
+		public void dispose() {
+			releaseAll(this.pending);
+			this.pending.clear();
+		}
+	}
+
+
+	/**
+	 * Skips any bytes after the last boundary.
+	 */
+	private static final class EpilogueState implements State {
+
+		@Override
+		public boolean parse(DataBuffer buffer, List<Token> tokens) {
+			buffer.readPosition(buffer.writePosition());
+			return false;
+		}
+
+		@Override
+		public void dispose() {
+		}
+	}
+
+}
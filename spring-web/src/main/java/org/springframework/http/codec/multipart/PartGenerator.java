@@ -0,0 +1,361 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Turns the {@link MultipartParser.Token tokens} produced by the
+ * {@link MultipartParser} into {@link Part parts}, emitting each part as soon
+ * as its content is complete.
+ *
+ * <p>The content of a part is kept in memory up to the configured limits per
+ * part and per request. File parts that exceed either are written to a
+ * temporary file, through blocking I/O on the given {@link Scheduler}; non-file
+ * parts that exceed either are rejected. If the stream of parts terminates with
+ * an error, the temporary files of the parts emitted so far are deleted.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see MultipartParser
+ */
+final class PartGenerator {
+
+	// Static DataBufferFactory to copy pooled content into
+	private static final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+
+	private final int maxInMemorySize;
+
+	private final int maxInMemorySizePerRequest;
+
+	private final long maxDiskUsagePerPart;
+
+	private final int maxParts;
+
+	@Nullable
+	private final Path fileStorageDirectory;
+
+	private final Scheduler blockingOperationScheduler;
+
+	private int partCount;
+
+	@Nullable
+	private HttpHeaders headers;
+
+	private boolean filePart;
+
+	private long byteCount;
+
+	private long inMemoryByteCount;
+
+	private List<DataBuffer> content = new ArrayList<>();
+
+	@Nullable
+	private Path file;
+
+	@Nullable
+	private FileChannel channel;
+
+	private final List<Path> emittedFiles = new ArrayList<>();
+
+	private boolean disposed;
+
+
+	private PartGenerator(int maxInMemorySize, int maxInMemorySizePerRequest, long maxDiskUsagePerPart,
+			int maxParts, @Nullable Path fileStorageDirectory, Scheduler blockingOperationScheduler) {
+
+		this.maxInMemorySize = maxInMemorySize;
+		this.maxInMemorySizePerRequest = maxInMemorySizePerRequest;
+		this.maxDiskUsagePerPart = maxDiskUsagePerPart;
+		this.maxParts = maxParts;
+		this.fileStorageDirectory = fileStorageDirectory;
+		this.blockingOperationScheduler = blockingOperationScheduler;
+	}
+
+
+	/**
+	 * Create parts from the given stream of tokens.
+	 * @param tokens the tokens produced by the {@link MultipartParser}
+	 * @param maxInMemorySize the maximum number of bytes of a part to keep in
+	 * memory, or -1 to keep all non-file parts in memory and write all file
+	 * parts to disk
+	 * @param maxInMemorySizePerRequest the maximum number of bytes of all parts
+	 * to keep in memory, or -1 for unlimited
+	 * @param maxDiskUsagePerPart the maximum number of bytes of a file part,
+	 * or -1 for unlimited
+	 * @param maxParts the maximum number of parts, or -1 for unlimited
+	 * @param fileStorageDirectory the directory to create temporary files in,
+	 * or {@code null} for the default temporary-file directory
+	 * @param blockingOperationScheduler the scheduler for file operations
+	 * @return the stream of parts
+	 */
+	static Flux<Part> createParts(Flux<MultipartParser.Token> tokens, int maxInMemorySize,
+			int maxInMemorySizePerRequest, long maxDiskUsagePerPart, int maxParts,
+			@Nullable Path fileStorageDirectory, Scheduler blockingOperationScheduler) {
+
+		return Flux.defer(() -> {
+			PartGenerator generator = new PartGenerator(maxInMemorySize, maxInMemorySizePerRequest,
+					maxDiskUsagePerPart, maxParts, fileStorageDirectory, blockingOperationScheduler);
+			return tokens
+					.concatMap(generator::onToken)
+					.concatWith(Mono.defer(generator::completePart))
+					.doOnError(ex -> generator.deleteEmittedFiles())
+					.doFinally(signalType -> generator.dispose())
+					.doOnDiscard(MultipartParser.BodyToken.class, token -> DataBufferUtils.release(token.buffer()));
+		});
+	}
+
+
+	private Publisher<Part> onToken(MultipartParser.Token token) {
+		DataBuffer buffer = token.buffer();
+		if (buffer == null) {
+			return completePart().concatWith(Mono.defer(() -> startPart(token.headers())));
+		}
+		Assert.state(this.headers != null, "No part started");
+		this.byteCount += buffer.readableByteCount();
+		if (this.filePart && this.maxDiskUsagePerPart >= 0 && this.byteCount > this.maxDiskUsagePerPart) {
+			DataBufferUtils.release(buffer);
+			return Mono.error(new DecodingException("Part[" + this.partCount + "] " +
+					"exceeded the disk usage limit of " + this.maxDiskUsagePerPart + " bytes"));
+		}
+		addContent(buffer);
+		if (this.channel != null || !fitsInMemory()) {
+			if (!this.filePart) {
+				return Mono.error(new DataBufferLimitException(fitsInMemoryPerPart() ?
+						"Part[" + this.partCount + "] exceeded the in-memory limit of " +
+								this.maxInMemorySizePerRequest + " bytes per request" :
+						"Part[" + this.partCount + "] exceeded the in-memory limit of " +
+								this.maxInMemorySize + " bytes"));
+			}
+			return Mono.<Part>fromRunnable(this::writeContent).subscribeOn(this.blockingOperationScheduler);
+		}
+		return Mono.empty();
+	}
+
+	private boolean fitsInMemory() {
+		return (fitsInMemoryPerPart() && (this.maxInMemorySizePerRequest < 0 ||
+				this.inMemoryByteCount + this.byteCount <= this.maxInMemorySizePerRequest));
+	}
+
+	private boolean fitsInMemoryPerPart() {
+		return (this.maxInMemorySize >= 0 ? this.byteCount <= this.maxInMemorySize : !this.filePart);
+	}
+
+	private Mono<Part> startPart(HttpHeaders headers) {
+		this.partCount++;
+		if (this.maxParts >= 0 && this.partCount > this.maxParts) {
+			return Mono.error(new DecodingException("Too many parts (" + this.maxParts + " allowed)"));
+		}
+		this.headers = headers;
+		this.filePart = (headers.getContentDisposition().getFilename() != null);
+		this.byteCount = 0;
+		return Mono.empty();
+	}
+
+	private Mono<Part> completePart() {
+		HttpHeaders headers = this.headers;
+		if (headers == null) {
+			return Mono.empty();
+		}
+		this.headers = null;
+		if (this.file != null) {
+			return Mono.<Part>fromCallable(() -> {
+				writeContent();
+				Path file = takeFile();
+				Assert.state(file != null, "Part generator has been disposed");
+				addEmittedFile(file);
+				return DefaultParts.filePart(headers, file, this.blockingOperationScheduler);
+			}).subscribeOn(this.blockingOperationScheduler);
+		}
+		this.inMemoryByteCount += this.byteCount;
+		List<DataBuffer> content = takeContent();
+		if (!this.filePart && isFormField(headers)) {
+			DataBuffer joined = joinContent(content);
+			try {
+				return Mono.just(DefaultParts.formFieldPart(headers, joined.toString(DefaultParts.charset(headers))));
+			}
+			finally {
+				DataBufferUtils.release(joined);
+			}
+		}
+		return Mono.just(DefaultParts.part(headers, retainableContent(content)));
+	}
+
+	private static boolean isFormField(HttpHeaders headers) {
+		MediaType contentType = headers.getContentType();
+		return (contentType == null || MediaType.TEXT_PLAIN.equalsTypeAndSubtype(contentType));
+	}
+
+	/**
+	 * Write the current content to the temporary file, creating it if necessary.
+	 */
+	private void writeContent() {
+		List<DataBuffer> content = takeContent();
+		try {
+			FileChannel channel = openChannel();
+			if (channel == null) {
+				return;
+			}
+			for (DataBuffer buffer : content) {
+				ByteBuffer byteBuffer = buffer.asByteBuffer();
+				while (byteBuffer.hasRemaining()) {
+					channel.write(byteBuffer);
+				}
+			}
+		}
+		catch (IOException ex) {
+			throw new DecodingException("Could not store part[" + this.partCount + "] in temporary file", ex);
+		}
+		finally {
+			content.forEach(DataBufferUtils::release);
+		}
+	}
+
+	@Nullable
+	private synchronized FileChannel openChannel() throws IOException {
+		if (this.channel == null && !this.disposed) {
+			Path file = (this.fileStorageDirectory != null ?
+					Files.createTempFile(this.fileStorageDirectory, "spring-multipart-", ".multipart") :
+					Files.createTempFile("spring-multipart-", ".multipart"));
+			this.file = file;
+			this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+		}
+		return this.channel;
+	}
+
+	private synchronized void addContent(DataBuffer buffer) {
+		if (this.disposed) {
+			DataBufferUtils.release(buffer);
+		}
+		else {
+			this.content.add(buffer);
+		}
+	}
+
+	private synchronized List<DataBuffer> takeContent() {
+		if (this.content.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<DataBuffer> result = this.content;
+		this.content = new ArrayList<>();
+		return result;
+	}
+
+	/**
+	 * Join the given buffers into a single buffer that can be retained by a
+	 * part without holding on to pooled memory: pooled buffers are copied once,
+	 * other buffers are composed without copying.
+	 */
+	private static DataBuffer retainableContent(List<DataBuffer> content) {
+		if (content.stream().noneMatch(buffer -> buffer instanceof PooledDataBuffer)) {
+			return joinContent(content);
+		}
+		int length = content.stream().mapToInt(DataBuffer::readableByteCount).sum();
+		DataBuffer result = bufferFactory.allocateBuffer(length);
+		try {
+			content.forEach(result::write);
+		}
+		finally {
+			content.forEach(DataBufferUtils::release);
+		}
+		return result;
+	}
+
+	private static DataBuffer joinContent(List<DataBuffer> content) {
+		return (content.isEmpty() ? bufferFactory.allocateBuffer(0) : DataBufferUtils.join(content));
+	}
+
+	/**
+	 * Close the channel, and hand over the temporary file to the caller.
+	 */
+	@Nullable
+	private synchronized Path takeFile() {
+		FileChannel channel = this.channel;
+		this.channel = null;
+		if (channel != null) {
+			try {
+				channel.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+		Path file = this.file;
+		this.file = null;
+		return file;
+	}
+
+	private synchronized void addEmittedFile(Path file) {
+		this.emittedFiles.add(file);
+	}
+
+	/**
+	 * Delete the temporary files of the parts emitted so far, since these
+	 * parts are not going to be consumed after an error.
+	 */
+	private synchronized void deleteEmittedFiles() {
+		this.emittedFiles.forEach(PartGenerator::deleteFile);
+		this.emittedFiles.clear();
+	}
+
+	/**
+	 * Release any content and delete the temporary file of an incomplete part.
+	 */
+	private synchronized void dispose() {
+		this.disposed = true;
+		takeContent().forEach(DataBufferUtils::release);
+		Path file = takeFile();
+		if (file != null) {
+			deleteFile(file);
+		}
+	}
+
+	private static void deleteFile(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		}
+		catch (IOException ex) {
+			// ignore
+		}
+	}
+
+}
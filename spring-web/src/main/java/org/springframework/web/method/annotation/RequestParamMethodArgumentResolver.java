@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -45,6 +45,7 @@ import org.springframework.web.multipart.MultipartException;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.multipart.MultipartRequest;
 import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.StreamingMultipartRequest;
 import org.springframework.web.multipart.support.MissingServletRequestPartException;
 import org.springframework.web.multipart.support.MultipartResolutionDelegate;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -171,21 +172,34 @@ public class RequestParamMethodArgumentResolver extends AbstractNamedValueMethod
 
 		Object arg = null;
 		MultipartRequest multipartRequest = request.getNativeRequest(MultipartRequest.class);
-		if (multipartRequest != null) {
+		if (multipartRequest != null && (!(multipartRequest instanceof StreamingMultipartRequest) ||
+				parameter.getNestedParameterType().isAssignableFrom(MultipartFile.class))) {
+			// Only read ahead in a streaming request if the parameter can hold a file
 			List<MultipartFile> files = multipartRequest.getFiles(name);
 			if (!files.isEmpty()) {
 				arg = (files.size() == 1 ? files.get(0) : files);
 			}
 		}
 		if (arg == null) {
-			String[] paramValues = request.getParameterValues(name);
-			if (paramValues != null) {
-				arg = (paramValues.length == 1 ? paramValues[0] : paramValues);
+			if (multipartRequest instanceof StreamingMultipartRequest && !isMultiValued(parameter)) {
+				// Only read ahead in a streaming request as far as the first value
+				arg = request.getParameter(name);
+			}
+			else {
+				String[] paramValues = request.getParameterValues(name);
+				if (paramValues != null) {
+					arg = (paramValues.length == 1 ? paramValues[0] : paramValues);
+				}
 			}
 		}
 		return arg;
 	}
 
+	private static boolean isMultiValued(MethodParameter parameter) {
+		Class<?> paramType = parameter.getNestedParameterType();
+		return (paramType.isArray() || Collection.class.isAssignableFrom(paramType));
+	}
+
 	@Override
 	protected void handleMissingValue(String name, MethodParameter parameter, NativeWebRequest request)
 			throws Exception {
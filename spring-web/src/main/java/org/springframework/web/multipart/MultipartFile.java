@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,13 +19,15 @@ package org.springframework.web.multipart;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import org.springframework.core.io.InputStreamSource;
 import org.springframework.core.io.Resource;
 import org.springframework.lang.Nullable;
-import org.springframework.util.FileCopyUtils;
 
 /**
  * A representation of an uploaded file received in a multipart request.
@@ -132,13 +134,23 @@ public interface MultipartFile extends InputStreamSource {
 
 	/**
 	 * Transfer the received file to the given destination file.
-	 * <p>The default implementation simply copies the file input stream.
+	 * <p>The default implementation transfers the file input stream through
+	 * {@link FileChannel#transferFrom}, which avoids copying through heap
+	 * buffers if the content is stored in a temporary file.
 	 * @since 5.1
 	 * @see #getInputStream()
 	 * @see #transferTo(File)
  	 */
 	default void transferTo(Path dest) throws IOException, IllegalStateException {
-		FileCopyUtils.copy(getInputStream(), Files.newOutputStream(dest));
+		try (ReadableByteChannel input = Channels.newChannel(getInputStream());
+				FileChannel output = FileChannel.open(dest, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			long position = 0;
+			long transferred;
+			while ((transferred = output.transferFrom(input, position, Long.MAX_VALUE)) > 0) {
+				position += transferred;
+			}
+		}
 	}
 
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.multipart;
+
+import java.util.Iterator;
+
+/**
+ * Extension of {@link MultipartRequest} for multipart requests that are read
+ * from the request body as the application accesses them, rather than being
+ * parsed up front.
+ *
+ * <p>{@link #getFileIterator()} exposes file parts in the order in which they
+ * arrive, streaming their content straight from the request body. The regular
+ * {@code MultipartRequest} accessors remain available: they read ahead as far
+ * as necessary, i.e. up to the first matching part for single-valued lookups
+ * such as {@link #getFile(String)} and up to the end of the request body for
+ * any other lookups, buffering any file parts they pass in memory or in
+ * temporary files, within the limits configured on the {@link MultipartResolver}.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see org.springframework.web.multipart.commons.CommonsMultipartResolver#setStreaming
+ */
+public interface StreamingMultipartRequest extends MultipartRequest {
+
+	/**
+	 * Return an {@link Iterator} over the file parts of this request that have
+	 * not been iterated over yet, in the order in which they arrive.
+	 * <p>File parts that have been buffered in order to answer another query,
+	 * e.g. {@link #getFile(String)}, are returned first. All other file parts
+	 * are read directly from the request body: their content can be obtained
+	 * once, and only until the iterator is advanced, after which any unread
+	 * content is skipped. Such parts are not retained, and are not exposed
+	 * through {@link #getFileMap()} and related methods.
+	 * <p>Form fields encountered while advancing the iterator are exposed as
+	 * request parameters.
+	 * @return an iterator over the remaining file parts
+	 */
+	Iterator<MultipartFile> getFileIterator();
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -194,6 +194,15 @@ public abstract class CommonsFileUploadSupport {
 		this.preserveFilename = preserveFilename;
 	}
 
+	/**
+	 * Return whether to preserve the filename as sent by the client.
+	 * @since 5.2.4
+	 * @see #setPreserveFilename
+	 */
+	boolean isPreserveFilename() {
+		return this.preserveFilename;
+	}
+
 
 	/**
 	 * Factory method for a Commons DiskFileItemFactory instance.
@@ -328,7 +337,7 @@ public abstract class CommonsFileUploadSupport {
 		}
 	}
 
-	private String determineEncoding(String contentTypeHeader, String defaultEncoding) {
+	String determineEncoding(@Nullable String contentTypeHeader, String defaultEncoding) {
 		if (!StringUtils.hasText(contentTypeHeader)) {
 			return defaultEncoding;
 		}
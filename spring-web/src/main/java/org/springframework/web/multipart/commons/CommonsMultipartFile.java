@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,7 +20,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 import org.apache.commons.fileupload.FileItem;
@@ -30,7 +29,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.log.LogFormatUtils;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -195,7 +193,7 @@ public class CommonsMultipartFile implements MultipartFile, Serializable {
 			throw new IllegalStateException("File has already been moved - cannot be transferred again");
 		}
 
-		FileCopyUtils.copy(this.fileItem.getInputStream(), Files.newOutputStream(dest));
+		MultipartFile.super.transferTo(dest);
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartException;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.StreamingMultipartRequest;
 import org.springframework.web.multipart.support.AbstractMultipartHttpServletRequest;
 import org.springframework.web.multipart.support.DefaultMultipartHttpServletRequest;
 import org.springframework.web.util.WebUtils;
@@ -57,6 +58,7 @@ import org.springframework.web.util.WebUtils;
  * @since 29.09.2003
  * @see #CommonsMultipartResolver(ServletContext)
  * @see #setResolveLazily
+ * @see #setStreaming
  * @see org.apache.commons.fileupload.servlet.ServletFileUpload
  * @see org.apache.commons.fileupload.disk.DiskFileItemFactory
  */
@@ -65,6 +67,12 @@ public class CommonsMultipartResolver extends CommonsFileUploadSupport
 
 	private boolean resolveLazily = false;
 
+	private boolean streaming = false;
+
+	private long maxInMemorySizePerRequest = -1;
+
+	private long maxDiskUsagePerRequest = -1;
+
 
 	/**
 	 * Constructor for use as bean. Determines the servlet container's
@@ -101,6 +109,48 @@ public class CommonsMultipartResolver extends CommonsFileUploadSupport
 		this.resolveLazily = resolveLazily;
 	}
 
+	/**
+	 * Set whether to read multipart requests as a stream, at the time of file
+	 * or parameter access.
+	 * <p>Default is "false", parsing all parts of the request up front, as
+	 * governed by {@link #setResolveLazily "resolveLazily"}. Switch this to
+	 * "true" to resolve a {@link StreamingMultipartRequest} instead, which reads
+	 * parts only as far as needed: file parts obtained through
+	 * {@link StreamingMultipartRequest#getFileIterator()} are streamed straight
+	 * from the request body, whereas file parts that need to be read ahead are
+	 * buffered within the {@link #setMaxInMemorySizePerRequest "maxInMemorySizePerRequest"}
+	 * and {@link #setMaxDiskUsagePerRequest "maxDiskUsagePerRequest"} limits.
+	 * @since 5.2.4
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/**
+	 * Set the maximum amount of memory (in bytes) that all buffered parts of a
+	 * streaming multipart request may use together, in addition to the
+	 * per-part {@link #setMaxInMemorySize "maxInMemorySize"}. File parts that
+	 * do not fit are written to disk, form fields that do not fit are rejected.
+	 * <p>Default is -1, indicating no limit. Only applies in
+	 * {@link #setStreaming streaming} mode.
+	 * @since 5.2.4
+	 */
+	public void setMaxInMemorySizePerRequest(long maxInMemorySizePerRequest) {
+		this.maxInMemorySizePerRequest = maxInMemorySizePerRequest;
+	}
+
+	/**
+	 * Set the maximum amount of disk space (in bytes) that all buffered file
+	 * parts of a streaming multipart request may use together, before the
+	 * request gets rejected.
+	 * <p>Default is -1, indicating no limit. Only applies in
+	 * {@link #setStreaming streaming} mode.
+	 * @since 5.2.4
+	 */
+	public void setMaxDiskUsagePerRequest(long maxDiskUsagePerRequest) {
+		this.maxDiskUsagePerRequest = maxDiskUsagePerRequest;
+	}
+
 	/**
 	 * Initialize the underlying {@code org.apache.commons.fileupload.servlet.ServletFileUpload}
 	 * instance. Can be overridden to use a custom subclass, e.g. for testing purposes.
@@ -128,7 +178,12 @@ public class CommonsMultipartResolver extends CommonsFileUploadSupport
 	@Override
 	public MultipartHttpServletRequest resolveMultipart(final HttpServletRequest request) throws MultipartException {
 		Assert.notNull(request, "Request must not be null");
-		if (this.resolveLazily) {
+		if (this.streaming) {
+			String encoding = determineEncoding(request);
+			return new StreamingMultipartHttpServletRequest(request, this, prepareFileUpload(encoding), encoding,
+					this.maxInMemorySizePerRequest, this.maxDiskUsagePerRequest);
+		}
+		else if (this.resolveLazily) {
 			return new DefaultMultipartHttpServletRequest(request) {
 				@Override
 				protected void initializeMultipart() {
@@ -159,14 +214,27 @@ public class CommonsMultipartResolver extends CommonsFileUploadSupport
 			List<FileItem> fileItems = ((ServletFileUpload) fileUpload).parseRequest(request);
 			return parseFileItems(fileItems, encoding);
 		}
-		catch (FileUploadBase.SizeLimitExceededException ex) {
-			throw new MaxUploadSizeExceededException(fileUpload.getSizeMax(), ex);
+		catch (FileUploadException ex) {
+			throw translateException(ex, fileUpload);
 		}
-		catch (FileUploadBase.FileSizeLimitExceededException ex) {
-			throw new MaxUploadSizeExceededException(fileUpload.getFileSizeMax(), ex);
+	}
+
+	/**
+	 * Translate the given Commons FileUpload exception into a Spring
+	 * {@link MultipartException}.
+	 * @param ex the exception to translate
+	 * @param fileUpload the FileUpload instance that raised the exception
+	 * @return the corresponding MultipartException
+	 */
+	static MultipartException translateException(FileUploadException ex, FileUpload fileUpload) {
+		if (ex instanceof FileUploadBase.SizeLimitExceededException) {
+			return new MaxUploadSizeExceededException(fileUpload.getSizeMax(), ex);
 		}
-		catch (FileUploadException ex) {
-			throw new MultipartException("Failed to parse multipart servlet request", ex);
+		else if (ex instanceof FileUploadBase.FileSizeLimitExceededException) {
+			return new MaxUploadSizeExceededException(fileUpload.getFileSizeMax(), ex);
+		}
+		else {
+			return new MultipartException("Failed to parse multipart servlet request", ex);
 		}
 	}
 
@@ -190,7 +258,15 @@ public class CommonsMultipartResolver extends CommonsFileUploadSupport
 
 	@Override
 	public void cleanupMultipart(MultipartHttpServletRequest request) {
-		if (!(request instanceof AbstractMultipartHttpServletRequest) ||
+		if (request instanceof StreamingMultipartHttpServletRequest) {
+			try {
+				cleanupFileItems(((StreamingMultipartHttpServletRequest) request).getBufferedFiles());
+			}
+			catch (Throwable ex) {
+				logger.warn("Failed to perform multipart cleanup for servlet request", ex);
+			}
+		}
+		else if (!(request instanceof AbstractMultipartHttpServletRequest) ||
 				((AbstractMultipartHttpServletRequest) request).isResolved()) {
 			try {
 				cleanupFileItems(request.getMultiFileMap());
@@ -0,0 +1,536 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.multipart.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.disk.DiskFileItem;
+import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.apache.commons.fileupload.servlet.ServletRequestContext;
+
+import org.springframework.core.log.LogFormatUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.StreamingMultipartRequest;
+import org.springframework.web.multipart.support.DefaultMultipartHttpServletRequest;
+
+/**
+ * {@link StreamingMultipartRequest} implementation on top of the streaming API
+ * of Apache Commons FileUpload, reading parts from the request body only as
+ * far as needed.
+ *
+ * <p>Form fields are kept in memory. File parts that are read ahead of the
+ * {@link #getFileIterator() file iterator} are buffered in Commons
+ * {@link DiskFileItem DiskFileItems}, in memory while within the in-memory
+ * limits and in temporary files otherwise.
+ *
+ * <p>As with {@link DefaultMultipartHttpServletRequest}, form fields take
+ * precedence over parameters of the servlet request itself, e.g. from the
+ * query string. Looking up a single parameter or file reads ahead until the
+ * first part with that name, or until the end of the request body if there is
+ * none. Looking up all parameter values or files for a name, or any other
+ * multipart accessor, reads all remaining parts, since parts with the same
+ * name are not necessarily consecutive.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @see CommonsMultipartResolver#setStreaming
+ */
+class StreamingMultipartHttpServletRequest extends DefaultMultipartHttpServletRequest
+		implements StreamingMultipartRequest {
+
+	private static final int BUFFER_SIZE = StreamUtils.BUFFER_SIZE;
+
+
+	private final CommonsMultipartResolver resolver;
+
+	private final FileUpload fileUpload;
+
+	private final String encoding;
+
+	private final long maxInMemorySizePerRequest;
+
+	private final long maxDiskUsagePerRequest;
+
+	@Nullable
+	private FileItemIterator itemIterator;
+
+	@Nullable
+	private FileItemStream nextItem;
+
+	@Nullable
+	private StreamingMultipartFile currentFile;
+
+	private final Deque<MultipartFile> pendingFiles = new ArrayDeque<>();
+
+	private final MultiValueMap<String, MultipartFile> bufferedFiles = new LinkedMultiValueMap<>();
+
+	private final Map<String, String[]> parameters = new LinkedHashMap<>();
+
+	private final Map<String, String> parameterContentTypes = new HashMap<>();
+
+	private long inMemorySize;
+
+	private long diskUsage;
+
+
+	StreamingMultipartHttpServletRequest(HttpServletRequest request, CommonsMultipartResolver resolver,
+			FileUpload fileUpload, String encoding, long maxInMemorySizePerRequest, long maxDiskUsagePerRequest) {
+
+		super(request);
+		this.resolver = resolver;
+		this.fileUpload = fileUpload;
+		this.encoding = encoding;
+		this.maxInMemorySizePerRequest = maxInMemorySizePerRequest;
+		this.maxDiskUsagePerRequest = maxDiskUsagePerRequest;
+	}
+
+
+	@Override
+	public Iterator<MultipartFile> getFileIterator() {
+		return new FileIterator();
+	}
+
+	@Override
+	@Nullable
+	public String getParameter(String name) {
+		if (!isResolved()) {
+			String[] values = this.parameters.get(name);
+			while (values == null && hasMoreParts()) {
+				FileItemStream item = readPart();
+				if (item != null) {
+					bufferFile(item);
+				}
+				values = this.parameters.get(name);
+			}
+			if (values != null) {
+				return (values.length > 0 ? values[0] : null);
+			}
+			return getRequest().getParameter(name);
+		}
+		return super.getParameter(name);
+	}
+
+	@Override
+	@Nullable
+	public MultipartFile getFile(String name) {
+		if (!isResolved()) {
+			MultipartFile file = this.bufferedFiles.getFirst(name);
+			while (file == null && hasMoreParts()) {
+				FileItemStream item = readPart();
+				if (item != null && item.getFieldName().equals(name)) {
+					file = bufferFile(item);
+				}
+				else if (item != null) {
+					bufferFile(item);
+				}
+			}
+			if (file != null) {
+				return file;
+			}
+		}
+		return super.getFile(name);
+	}
+
+	/**
+	 * Read all remaining parts, buffering any file parts.
+	 */
+	@Override
+	protected void initializeMultipart() {
+		while (hasMoreParts()) {
+			FileItemStream item = readPart();
+			if (item != null) {
+				bufferFile(item);
+			}
+		}
+		setMultipartFiles(this.bufferedFiles);
+		setMultipartParameters(this.parameters);
+		setMultipartParameterContentTypes(this.parameterContentTypes);
+	}
+
+	/**
+	 * Return the file parts that have been buffered so far, for cleanup purposes.
+	 */
+	MultiValueMap<String, MultipartFile> getBufferedFiles() {
+		return this.bufferedFiles;
+	}
+
+
+	private FileItemIterator getItemIterator() throws FileUploadException, IOException {
+		if (this.itemIterator == null) {
+			this.itemIterator = this.fileUpload.getItemIterator(new ServletRequestContext(getRequest()));
+		}
+		return this.itemIterator;
+	}
+
+	/**
+	 * Determine whether there are more parts to read.
+	 * @see #peekPart()
+	 */
+	private boolean hasMoreParts() {
+		return (peekPart() != null);
+	}
+
+	/**
+	 * Return the next part without reading its content, skipping the remaining
+	 * content of the file part that is currently being streamed, if any.
+	 * @return the next part, or {@code null} if there are no more parts
+	 */
+	@Nullable
+	private FileItemStream peekPart() {
+		if (this.nextItem == null) {
+			if (this.currentFile != null) {
+				this.currentFile.invalidate();
+				this.currentFile = null;
+			}
+			try {
+				FileItemIterator itemIterator = getItemIterator();
+				if (itemIterator.hasNext()) {
+					this.nextItem = itemIterator.next();
+				}
+			}
+			catch (FileUploadException ex) {
+				throw CommonsMultipartResolver.translateException(ex, this.fileUpload);
+			}
+			catch (IOException ex) {
+				throw translateException(ex);
+			}
+		}
+		return this.nextItem;
+	}
+
+	/**
+	 * Read the next part, adding it to the parameters if it is a form field.
+	 * To be called after {@link #hasMoreParts()} returned {@code true}.
+	 * @return the next file part, or {@code null} if the part was a form field
+	 */
+	@Nullable
+	private FileItemStream readPart() {
+		FileItemStream item = this.nextItem;
+		if (item == null) {
+			throw new NoSuchElementException();
+		}
+		this.nextItem = null;
+		if (!item.isFormField()) {
+			return item;
+		}
+		try {
+			readFormField(item);
+			return null;
+		}
+		catch (IOException ex) {
+			throw translateException(ex);
+		}
+	}
+
+	private void readFormField(FileItemStream item) throws IOException {
+		long limit = (this.maxInMemorySizePerRequest >= 0 ?
+				this.maxInMemorySizePerRequest - this.inMemorySize : Long.MAX_VALUE);
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try (InputStream inputStream = item.openStream()) {
+			if (copy(inputStream, content, limit) > limit) {
+				throw new MaxUploadSizeExceededException(this.maxInMemorySizePerRequest);
+			}
+		}
+		this.inMemorySize += content.size();
+
+		String name = item.getFieldName();
+		String partEncoding = this.resolver.determineEncoding(item.getContentType(), this.encoding);
+		String value;
+		try {
+			value = content.toString(partEncoding);
+		}
+		catch (UnsupportedEncodingException ex) {
+			if (this.resolver.logger.isWarnEnabled()) {
+				this.resolver.logger.warn("Could not decode multipart item '" + name +
+						"' with encoding '" + partEncoding + "': using platform default");
+			}
+			value = content.toString();
+		}
+		String[] values = this.parameters.get(name);
+		this.parameters.put(name, (values != null ? StringUtils.addStringToArray(values, value) :
+				new String[] {value}));
+		this.parameterContentTypes.put(name, item.getContentType());
+	}
+
+	/**
+	 * Buffer the given file part in memory, or in a temporary file if it does
+	 * not fit within the in-memory limits.
+	 */
+	private MultipartFile bufferFile(FileItemStream item) {
+		DiskFileItemFactory fileItemFactory = this.resolver.getFileItemFactory();
+		int threshold = fileItemFactory.getSizeThreshold();
+		if (this.maxInMemorySizePerRequest >= 0) {
+			threshold = (int) Math.max(0, Math.min(threshold, this.maxInMemorySizePerRequest - this.inMemorySize));
+		}
+		DiskFileItem fileItem = new DiskFileItem(item.getFieldName(), item.getContentType(), false,
+				item.getName(), threshold, fileItemFactory.getRepository());
+		fileItem.setHeaders(item.getHeaders());
+		long diskLimit = (this.maxDiskUsagePerRequest >= 0 ?
+				this.maxDiskUsagePerRequest - this.diskUsage : Long.MAX_VALUE);
+		try (InputStream inputStream = item.openStream(); OutputStream outputStream = fileItem.getOutputStream()) {
+			long size = copy(inputStream, outputStream, Math.max(threshold, diskLimit));
+			if (size > threshold && size > diskLimit) {
+				throw new MaxUploadSizeExceededException(this.maxDiskUsagePerRequest);
+			}
+		}
+		catch (IOException ex) {
+			fileItem.delete();
+			throw translateException(ex);
+		}
+		catch (RuntimeException ex) {
+			fileItem.delete();
+			throw ex;
+		}
+
+		if (fileItem.isInMemory()) {
+			this.inMemorySize += fileItem.getSize();
+		}
+		else {
+			this.diskUsage += fileItem.getSize();
+		}
+		CommonsMultipartFile file = this.resolver.createMultipartFile(fileItem);
+		this.bufferedFiles.add(file.getName(), file);
+		this.pendingFiles.add(file);
+		LogFormatUtils.traceDebug(this.resolver.logger, traceOn ->
+				"Part '" + file.getName() + "', size " + file.getSize() +
+						" bytes, filename='" + file.getOriginalFilename() + "'" +
+						(traceOn ? ", storage=" + file.getStorageDescription() : "")
+		);
+		return file;
+	}
+
+	/**
+	 * Copy the given input stream to the given output stream, stopping as
+	 * soon as more than {@code limit} bytes have been copied.
+	 * @return the number of bytes copied
+	 */
+	private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long count = 0;
+		int bytesRead;
+		while (count <= limit && (bytesRead = in.read(buffer)) != -1) {
+			out.write(buffer, 0, bytesRead);
+			count += bytesRead;
+		}
+		return count;
+	}
+
+	private RuntimeException translateException(IOException ex) {
+		if (ex instanceof FileUploadBase.FileUploadIOException &&
+				ex.getCause() instanceof FileUploadException) {
+			return CommonsMultipartResolver.translateException((FileUploadException) ex.getCause(), this.fileUpload);
+		}
+		return new MultipartException("Failed to parse multipart servlet request", ex);
+	}
+
+
+	/**
+	 * Iterator over the remaining file parts.
+	 */
+	private class FileIterator implements Iterator<MultipartFile> {
+
+		@Nullable
+		private MultipartFile next;
+
+		@Override
+		public boolean hasNext() {
+			if (this.next == null) {
+				this.next = nextFile();
+			}
+			return (this.next != null);
+		}
+
+		@Override
+		public MultipartFile next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			MultipartFile result = this.next;
+			this.next = null;
+			return result;
+		}
+
+		@Nullable
+		private MultipartFile nextFile() {
+			MultipartFile pendingFile = StreamingMultipartHttpServletRequest.this.pendingFiles.poll();
+			if (pendingFile != null) {
+				return pendingFile;
+			}
+			while (hasMoreParts()) {
+				FileItemStream item = readPart();
+				if (item != null) {
+					StreamingMultipartFile file = new StreamingMultipartFile(item);
+					StreamingMultipartHttpServletRequest.this.currentFile = file;
+					return file;
+				}
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * {@link MultipartFile} that reads its content straight from the request body.
+	 */
+	private class StreamingMultipartFile implements MultipartFile {
+
+		private final FileItemStream item;
+
+		private long size;
+
+		private boolean consumed;
+
+		private boolean valid = true;
+
+		StreamingMultipartFile(FileItemStream item) {
+			this.item = item;
+		}
+
+		void invalidate() {
+			this.valid = false;
+		}
+
+		@Override
+		public String getName() {
+			return this.item.getFieldName();
+		}
+
+		@Override
+		public String getOriginalFilename() {
+			String filename = this.item.getName();
+			if (filename == null) {
+				return "";
+			}
+			if (StreamingMultipartHttpServletRequest.this.resolver.isPreserveFilename()) {
+				return filename;
+			}
+			String strippedFilename = StringUtils.getFilename(StringUtils.cleanPath(filename));
+			return (strippedFilename != null ? strippedFilename : filename);
+		}
+
+		@Override
+		@Nullable
+		public String getContentType() {
+			return this.item.getContentType();
+		}
+
+		/**
+		 * Return whether no file has been chosen in the multipart form, or
+		 * whether the content has been read and turned out to be empty.
+		 */
+		@Override
+		public boolean isEmpty() {
+			return (getOriginalFilename().isEmpty() || (this.consumed && this.size == 0));
+		}
+
+		/**
+		 * Return the number of bytes that have been read so far, since the
+		 * size of a streamed part is not known until it has been read.
+		 */
+		@Override
+		public long getSize() {
+			return this.size;
+		}
+
+		@Override
+		public byte[] getBytes() throws IOException {
+			return StreamUtils.copyToByteArray(getInputStream());
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			if (!this.valid) {
+				throw new IllegalStateException("Part '" + getName() + "' is not available anymore: " +
+						"the file iterator has advanced past it");
+			}
+			if (this.consumed) {
+				throw new IllegalStateException("Part '" + getName() + "' has already been read");
+			}
+			this.consumed = true;
+			return new FilterInputStream(this.item.openStream()) {
+				@Override
+				public int read() throws IOException {
+					try {
+						int b = super.read();
+						if (b != -1) {
+							StreamingMultipartFile.this.size++;
+						}
+						return b;
+					}
+					catch (FileUploadBase.FileUploadIOException ex) {
+						throw translateException(ex);
+					}
+				}
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					try {
+						int count = super.read(b, off, len);
+						if (count > 0) {
+							StreamingMultipartFile.this.size += count;
+						}
+						return count;
+					}
+					catch (FileUploadBase.FileUploadIOException ex) {
+						throw translateException(ex);
+					}
+				}
+			};
+		}
+
+		@Override
+		public void transferTo(File dest) throws IOException, IllegalStateException {
+			transferTo(dest.toPath());
+		}
+
+		@Override
+		public void transferTo(Path dest) throws IOException, IllegalStateException {
+			MultipartFile.super.transferTo(dest);
+			LogFormatUtils.traceDebug(StreamingMultipartHttpServletRequest.this.resolver.logger, traceOn ->
+					"Part '" + getName() + "', filename '" + getOriginalFilename() + "'" +
+							": streamed " + this.size + " bytes to [" + dest.toAbsolutePath() + "]");
+		}
+	}
+
+}
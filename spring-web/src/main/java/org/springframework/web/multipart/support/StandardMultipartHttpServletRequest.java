@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -267,7 +267,7 @@ public class StandardMultipartHttpServletRequest extends AbstractMultipartHttpSe
 
 		@Override
 		public void transferTo(Path dest) throws IOException, IllegalStateException {
-			FileCopyUtils.copy(this.part.getInputStream(), Files.newOutputStream(dest));
+			MultipartFile.super.transferTo(dest);
 		}
 	}
 
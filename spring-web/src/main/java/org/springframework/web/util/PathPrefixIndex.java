@@ -0,0 +1,323 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * A prefix tree over the literal leading segments of URL path patterns, used
+ * to narrow down the values (typically request mappings) that need to be
+ * checked against a given lookup path.
+ *
+ * <p>A value is registered under the literal segments that each of its
+ * patterns starts with, up to the first segment that contains a wildcard
+ * ({@code *}, {@code ?}) or a URI variable ({@code {...}}). By default, the
+ * last segment of a pattern is not indexed, since it may be subject to suffix
+ * pattern matching; this can be changed through
+ * {@link #PathPrefixIndex(boolean)} for patterns that only ever match whole
+ * segments, such as {@link org.springframework.web.util.pattern.PathPattern}s.
+ * A value without patterns, or registered with
+ * patterns that have no literal leading segments, is a candidate for every
+ * lookup path.
+ *
+ * <p>Segment comparison ignores case and surrounding whitespace, and empty
+ * segments are skipped. As a result, {@link #getCandidates} may return values
+ * that do not actually match the lookup path but never omits a value whose
+ * patterns could match it; the actual matching must still be performed by
+ * the caller. This applies to both {@link org.springframework.util.AntPathMatcher}
+ * style patterns and {@link org.springframework.web.util.pattern.PathPattern}s.
+ *
+ * <p>This class is not thread-safe; concurrent access must be guarded by the
+ * caller, e.g. through the read/write lock of a mapping registry.
+ *
+ * @author Juergen Hoeller
+ * @since 5.2.4
+ * @param <T> the type of value held in the index
+ */
+public class PathPrefixIndex<T> {
+
+	private final Node<T> root = new Node<>(null, "");
+
+	private final Map<T, Set<Node<T>>> nodesByValue = new HashMap<>();
+
+	private final boolean indexLastSegment;
+
+
+	/**
+	 * Create a new index that does not index the last segment of a pattern.
+	 */
+	public PathPrefixIndex() {
+		this(false);
+	}
+
+	/**
+	 * Create a new index.
+	 * @param indexLastSegment whether to also index the last segment of a
+	 * pattern, if literal; only appropriate if a pattern never matches a
+	 * lookup path that merely starts with its last segment
+	 */
+	public PathPrefixIndex(boolean indexLastSegment) {
+		this.indexLastSegment = indexLastSegment;
+	}
+
+	/**
+	 * Register the given value under the literal prefixes of the given patterns.
+	 * A previous registration of the same value is replaced.
+	 * @param value the value to register
+	 * @param patterns the path patterns of the value; if empty, the value
+	 * is a candidate for every lookup path
+	 */
+	public void add(T value, Collection<String> patterns) {
+		remove(value);
+		Set<Node<T>> nodes = new LinkedHashSet<>(Math.max(patterns.size(), 1));
+		if (patterns.isEmpty()) {
+			nodes.add(this.root);
+		}
+		else {
+			for (String pattern : patterns) {
+				Node<T> node = this.root;
+				for (String segment : getLiteralPrefix(pattern)) {
+					node = node.getOrCreateChild(segment);
+				}
+				nodes.add(node);
+			}
+		}
+		// Only keep the shortest prefixes, so that a value is found at most once per lookup
+		nodes.removeIf(node -> hasAncestorIn(node, nodes));
+		for (Node<T> node : nodes) {
+			node.addValue(value);
+		}
+		this.nodesByValue.put(value, nodes);
+	}
+
+	/**
+	 * Remove the given value from the index, if registered.
+	 * @param value the value to remove
+	 */
+	public void remove(T value) {
+		Set<Node<T>> nodes = this.nodesByValue.remove(value);
+		if (nodes != null) {
+			for (Node<T> node : nodes) {
+				node.removeValue(value);
+			}
+		}
+	}
+
+	/**
+	 * Return the values whose patterns may match the given lookup path.
+	 * @param lookupPath the lookup path, with segments separated by "/"
+	 * @return the candidate values, in no particular order (never {@code null});
+	 * the returned list must not be modified
+	 */
+	public List<T> getCandidates(String lookupPath) {
+		Candidates<T> candidates = new Candidates<>(this.root);
+		Node<T> node = this.root;
+		int start = 0;
+		int length = lookupPath.length();
+		while (node != null && start < length) {
+			int end = lookupPath.indexOf('/', start);
+			if (end == -1) {
+				end = length;
+			}
+			if (end > start) {
+				node = node.getChild(lookupPath.substring(start, end));
+				candidates.add(node);
+			}
+			start = end + 1;
+		}
+		return candidates.getValues();
+	}
+
+	/**
+	 * Variant of {@link #getCandidates(String)} for a parsed path, matching
+	 * against the {@link PathContainer.PathSegment#valueToMatch() decoded}
+	 * values of its segments.
+	 * @param path the parsed lookup path
+	 * @return the candidate values, in no particular order (never {@code null});
+	 * the returned list must not be modified
+	 */
+	public List<T> getCandidates(PathContainer path) {
+		Candidates<T> candidates = new Candidates<>(this.root);
+		Node<T> node = this.root;
+		for (PathContainer.Element element : path.elements()) {
+			if (node == null) {
+				break;
+			}
+			if (element instanceof PathContainer.PathSegment) {
+				String value = ((PathContainer.PathSegment) element).valueToMatch();
+				if (!value.isEmpty()) {
+					node = node.getChild(value);
+					candidates.add(node);
+				}
+			}
+		}
+		return candidates.getValues();
+	}
+
+	/**
+	 * Return the number of values registered in the index.
+	 */
+	public int size() {
+		return this.nodesByValue.size();
+	}
+
+
+	private List<String> getLiteralPrefix(String pattern) {
+		String[] segments = StringUtils.tokenizeToStringArray(pattern, "/", false, true);
+		int count = Math.max(this.indexLastSegment ? segments.length : segments.length - 1, 0);
+		List<String> prefix = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String segment = segments[i];
+			if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+				break;
+			}
+			prefix.add(segment);
+		}
+		return prefix;
+	}
+
+	private static boolean hasAncestorIn(Node<?> node, Set<? extends Node<?>> nodes) {
+		Node<?> parent = node.parent;
+		while (parent != null) {
+			if (nodes.contains(parent)) {
+				return true;
+			}
+			parent = parent.parent;
+		}
+		return false;
+	}
+
+	private static String normalize(String segment) {
+		String trimmed = segment.trim();
+		for (int i = 0; i < trimmed.length(); i++) {
+			char c = trimmed.charAt(i);
+			if (foldCase(c) != c) {
+				StringBuilder sb = new StringBuilder(trimmed.length());
+				sb.append(trimmed, 0, i);
+				for (int j = i; j < trimmed.length(); j++) {
+					sb.append(foldCase(trimmed.charAt(j)));
+				}
+				return sb.toString();
+			}
+		}
+		return trimmed;
+	}
+
+	private static char foldCase(char c) {
+		// Same folding as String#equalsIgnoreCase
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+
+	private static final class Node<T> {
+
+		@Nullable
+		private final Node<T> parent;
+
+		private final String key;
+
+		@Nullable
+		private Map<String, Node<T>> children;
+
+		private List<T> values = Collections.emptyList();
+
+		Node(@Nullable Node<T> parent, String key) {
+			this.parent = parent;
+			this.key = key;
+		}
+
+		@Nullable
+		Node<T> getChild(String segment) {
+			return (this.children != null ? this.children.get(normalize(segment)) : null);
+		}
+
+		Node<T> getOrCreateChild(String segment) {
+			if (this.children == null) {
+				this.children = new HashMap<>(4);
+			}
+			String key = normalize(segment);
+			return this.children.computeIfAbsent(key, k -> new Node<>(this, k));
+		}
+
+		void addValue(T value) {
+			if (this.values.isEmpty()) {
+				this.values = new ArrayList<>(1);
+			}
+			this.values.add(value);
+		}
+
+		void removeValue(T value) {
+			this.values.remove(value);
+			Node<T> node = this;
+			while (node.parent != null && node.values.isEmpty() &&
+					(node.children == null || node.children.isEmpty())) {
+				Map<String, Node<T>> siblings = node.parent.children;
+				if (siblings != null) {
+					siblings.remove(node.key);
+				}
+				node = node.parent;
+			}
+		}
+	}
+
+
+	/**
+	 * Collects the values of the nodes along a lookup path, avoiding a copy
+	 * in the common case where only a single node contributes values.
+	 */
+	private static final class Candidates<T> {
+
+		private List<T> values;
+
+		private boolean copied;
+
+		Candidates(Node<T> root) {
+			this.values = root.values;
+		}
+
+		void add(@Nullable Node<T> node) {
+			if (node == null || node.values.isEmpty()) {
+				return;
+			}
+			if (this.values.isEmpty()) {
+				this.values = node.values;
+				return;
+			}
+			if (!this.copied) {
+				this.values = new ArrayList<>(this.values);
+				this.copied = true;
+			}
+			this.values.addAll(node.values);
+		}
+
+		List<T> getValues() {
+			return this.values;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.http.codec;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -26,7 +28,10 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
@@ -139,6 +144,34 @@ public class ResourceHttpMessageWriterTests {
 	}
 
 
+	@Test
+	public void writeMappedFile() throws Exception {
+		Path file = Files.createTempFile("ResourceHttpMessageWriterTests", ".txt");
+		try {
+			Files.write(file, "Spring Framework test resource content.".getBytes(StandardCharsets.UTF_8));
+			Mono<Resource> input = Mono.just(new FileSystemResource(file));
+			StringBuilder content = new StringBuilder();
+			this.response.setWriteHandler(body -> body
+					.doOnNext(buffer -> {
+						assertThat(buffer).isInstanceOf(PooledDataBuffer.class);
+						content.append(buffer.toString(StandardCharsets.UTF_8));
+						DataBufferUtils.release(buffer);
+					})
+					.then());
+			this.writer.setMappedFileThreshold(0);
+
+			Mono<Void> mono = this.writer.write(input, null, null, TEXT_PLAIN,
+					get("/").range(of(7, 15)).build(), this.response, HINTS);
+			StepVerifier.create(mono).expectComplete().verify();
+
+			assertThat(this.response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-15/39");
+			assertThat(content.toString()).isEqualTo("Framework");
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
 	private void testWrite(MockServerHttpRequest request) {
 		Mono<Void> mono = this.writer.write(this.input, null, null, TEXT_PLAIN, request, this.response, HINTS);
 		StepVerifier.create(mono).expectComplete().verify();
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.testfixture.io.buffer.AbstractLeakCheckingTests;
+import org.springframework.core.testfixture.io.buffer.DataBufferTestUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.testfixture.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.testfixture.http.server.reactive.MockServerHttpRequest;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.core.ResolvableType.forClass;
+import static org.springframework.core.ResolvableType.forClassWithGenerics;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
+
+/**
+ * Unit tests for {@link DefaultPartHttpMessageReader}.
+ */
+class DefaultPartHttpMessageReaderTests extends AbstractLeakCheckingTests {
+
+	private static final ResolvableType PARTS_ELEMENT_TYPE =
+			forClassWithGenerics(MultiValueMap.class, String.class, Part.class);
+
+	private static final String LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. " +
+			"Integer iaculis metus id vestibulum nullam.\r\n";
+
+	private final DefaultPartHttpMessageReader partReader = new DefaultPartHttpMessageReader();
+
+	private final MultipartHttpMessageReader reader = new MultipartHttpMessageReader(this.partReader);
+
+
+	@Test
+	void canRead() {
+		assertThat(this.partReader.canRead(forClass(Part.class), MediaType.MULTIPART_FORM_DATA)).isTrue();
+		assertThat(this.partReader.canRead(forClass(Part.class), null)).isTrue();
+		assertThat(this.partReader.canRead(forClass(Part.class), MediaType.APPLICATION_FORM_URLENCODED)).isFalse();
+		assertThat(this.partReader.canRead(forClass(String.class), MediaType.MULTIPART_FORM_DATA)).isFalse();
+	}
+
+	@Test
+	void resolveParts() {
+		ServerHttpRequest request = generateMultipartRequest();
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()).block();
+
+		assertThat(parts).containsOnlyKeys("filePart", "textPart");
+
+		Part part = parts.getFirst("filePart");
+		assertThat(part).isInstanceOf(FilePart.class);
+		assertThat(part.name()).isEqualTo("filePart");
+		assertThat(((FilePart) part).filename()).isEqualTo("foo.txt");
+		assertThat(content(part)).isEqualTo("Lorem Ipsum.");
+		// content can be consumed more than once while in memory
+		assertThat(content(part)).isEqualTo("Lorem Ipsum.");
+
+		part = parts.getFirst("textPart");
+		assertThat(part).isInstanceOf(FormFieldPart.class);
+		assertThat(part.name()).isEqualTo("textPart");
+		assertThat(((FormFieldPart) part).value()).isEqualTo("sample-text");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"chrome", "firefox", "safari"})
+	void browsers(String browser) {
+		for (int bufferSize : new int[] {1, 3, 17, 1024}) {
+			MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE,
+					browserRequest(browser, bufferSize), emptyMap()).block(Duration.ofSeconds(5));
+
+			assertThat(parts).containsOnlyKeys("text1", "text2", "file1", "file2");
+			assertThat(((FormFieldPart) parts.getFirst("text1")).value()).isEqualTo("a");
+			assertThat(((FormFieldPart) parts.getFirst("text2")).value()).isEqualTo("b");
+			FilePart file1 = (FilePart) parts.getFirst("file1");
+			assertThat(file1.filename()).isEqualTo("a.txt");
+			assertThat(file1.headers().getContentType()).isEqualTo(MediaType.TEXT_PLAIN);
+			assertThat(content(file1)).isEqualTo(LOREM_IPSUM);
+			assertThat(parts.get("file2")).hasSize(2);
+			assertThat(((FilePart) parts.get("file2").get(1)).filename()).isEqualTo("b.txt");
+			assertThat(content(parts.get("file2").get(1)))
+					.isEqualTo(new StringBuilder(LOREM_IPSUM.trim()).reverse() + "\r\n");
+		}
+	}
+
+	@Test
+	void partsAreEmittedAsTheyComplete() {
+		Flux<Part> parts = this.partReader.read(forClass(Part.class), browserRequest("chrome", 1), emptyMap());
+
+		StepVerifier.create(parts)
+				.consumeNextWith(part -> assertThat(part.name()).isEqualTo("text1"))
+				.consumeNextWith(part -> assertThat(part.name()).isEqualTo("text2"))
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void transferTo(@TempDir Path tempDir) throws IOException {
+		ServerHttpRequest request = generateMultipartRequest();
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()).block();
+
+		assertThat(parts).isNotNull();
+		FilePart part = (FilePart) parts.getFirst("filePart");
+		assertThat(part).isNotNull();
+
+		Path dest = tempDir.resolve(part.filename());
+		part.transferTo(dest).block(Duration.ofSeconds(5));
+
+		assertThat(new String(Files.readAllBytes(dest), StandardCharsets.UTF_8)).isEqualTo("Lorem Ipsum.");
+	}
+
+	@Test
+	void filePartStoredOnDisk(@TempDir Path tempDir) throws IOException {
+		Path storage = Files.createDirectory(tempDir.resolve("storage"));
+		this.partReader.setMaxInMemorySize(10);
+		this.partReader.setFileStorageDirectory(storage);
+
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE,
+				browserRequest("firefox", 7), emptyMap()).block(Duration.ofSeconds(5));
+
+		assertThat(parts).containsOnlyKeys("text1", "text2", "file1", "file2");
+		assertThat(fileCount(storage)).isEqualTo(3);
+
+		assertThat(content(parts.getFirst("file1"))).isEqualTo(LOREM_IPSUM);
+		assertThat(fileCount(storage)).isEqualTo(2);
+
+		Path dest = tempDir.resolve("a.txt");
+		((FilePart) parts.getFirst("file2")).transferTo(dest).block(Duration.ofSeconds(5));
+		assertThat(new String(Files.readAllBytes(dest), StandardCharsets.UTF_8)).isEqualTo(LOREM_IPSUM);
+		assertThat(fileCount(storage)).isEqualTo(1);
+
+		parts.get("file2").get(1).content().blockLast(Duration.ofSeconds(5));
+		assertThat(fileCount(storage)).isEqualTo(0);
+	}
+
+	@Test
+	void allFilePartsStoredOnDisk(@TempDir Path tempDir) throws IOException {
+		this.partReader.setMaxInMemorySize(-1);
+		this.partReader.setFileStorageDirectory(tempDir);
+		this.partReader.setBlockingOperationScheduler(Schedulers.newSingle("multipart-test"));
+
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE,
+				generateMultipartRequest(), emptyMap()).block(Duration.ofSeconds(5));
+
+		assertThat(fileCount(tempDir)).isEqualTo(1);
+		assertThat(((FormFieldPart) parts.getFirst("textPart")).value()).isEqualTo("sample-text");
+		assertThat(content(parts.getFirst("filePart"))).isEqualTo("Lorem Ipsum.");
+	}
+
+	@Test
+	void cancelDeletesTemporaryFile(@TempDir Path tempDir) throws IOException {
+		this.partReader.setMaxInMemorySize(10);
+		this.partReader.setFileStorageDirectory(tempDir);
+
+		Flux<Part> parts = this.partReader.read(forClass(Part.class), browserRequest("safari", 5), emptyMap());
+		StepVerifier.create(parts)
+				.expectNextCount(2)
+				.thenCancel()
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(fileCount(tempDir)).isEqualTo(0);
+	}
+
+	@Test
+	void filePartsStoredOnDiskOnceRequestLimitExceeded(@TempDir Path tempDir) throws IOException {
+		this.partReader.setMaxInMemorySizePerRequest(10);
+		this.partReader.setFileStorageDirectory(tempDir);
+
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_ELEMENT_TYPE,
+				browserRequest("firefox", 7), emptyMap()).block(Duration.ofSeconds(5));
+
+		assertThat(parts).containsOnlyKeys("text1", "text2", "file1", "file2");
+		assertThat(fileCount(tempDir)).isEqualTo(3);
+		assertThat(content(parts.getFirst("file1"))).isEqualTo(LOREM_IPSUM);
+	}
+
+	@Test
+	void errorDeletesTemporaryFiles(@TempDir Path tempDir) throws IOException {
+		this.partReader.setMaxInMemorySize(5);
+		this.partReader.setFileStorageDirectory(tempDir);
+
+		StepVerifier.create(this.partReader.read(forClass(Part.class), generateMultipartRequest(), emptyMap()))
+				.consumeNextWith(part -> assertThat(part.name()).isEqualTo("filePart"))
+				.expectError(DataBufferLimitException.class)
+				.verify(Duration.ofSeconds(5));
+
+		assertThat(fileCount(tempDir)).isEqualTo(0);
+	}
+
+	@Test
+	void failedTransferDeletesTemporaryFile(@TempDir Path tempDir) throws IOException {
+		Path storage = Files.createDirectory(tempDir.resolve("storage"));
+		this.partReader.setMaxInMemorySize(5);
+		this.partReader.setFileStorageDirectory(storage);
+
+		FilePart part = (FilePart) this.partReader.read(forClass(Part.class), generateMultipartRequest(), emptyMap())
+				.blockFirst(Duration.ofSeconds(5));
+		assertThat(fileCount(storage)).isEqualTo(1);
+
+		StepVerifier.create(part.transferTo(tempDir.resolve("missing").resolve("foo.txt")))
+				.expectError(UncheckedIOException.class)
+				.verify(Duration.ofSeconds(5));
+		assertThat(fileCount(storage)).isEqualTo(0);
+	}
+
+	@Test
+	void noBoundary() {
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.header(CONTENT_TYPE, MULTIPART_FORM_DATA.toString())
+				.body(Flux.just(this.bufferFactory.wrap("invalid content".getBytes())));
+
+		StepVerifier.create(this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()))
+				.expectErrorSatisfies(ex -> assertThat(ex).isInstanceOf(DecodingException.class)
+						.hasMessageStartingWith("No multipart boundary found"))
+				.verify();
+	}
+
+	@Test
+	void noEndBoundary() {
+		ServerHttpRequest request = createRequest(new ClassPathResource("invalid.multipart", getClass()),
+				"NbjrKgjbsaMLdnMxMfDpD6myWomYc0qNX0w", 1024);
+
+		StepVerifier.create(this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap()))
+				.expectErrorSatisfies(ex -> assertThat(ex).isInstanceOf(DecodingException.class)
+						.hasMessage("Could not find end of multipart body"))
+				.verify();
+	}
+
+	@Test
+	void readPartsWithoutDemand() {
+		ServerHttpRequest request = generateMultipartRequest();
+		Mono<MultiValueMap<String, Part>> parts = this.reader.readMono(PARTS_ELEMENT_TYPE, request, emptyMap());
+		ZeroDemandSubscriber subscriber = new ZeroDemandSubscriber();
+		parts.subscribe(subscriber);
+		subscriber.cancel();
+	}
+
+	@Test
+	void readTooManyParts() {
+		testMultipartExceptions(reader -> reader.setMaxParts(1), ex -> assertThat(ex)
+				.isInstanceOf(DecodingException.class)
+				.hasMessage("Too many parts (1 allowed)"));
+	}
+
+	@Test
+	void readFilePartTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxDiskUsagePerPart(5), ex -> assertThat(ex)
+				.isInstanceOf(DecodingException.class)
+				.hasMessage("Part[1] exceeded the disk usage limit of 5 bytes"));
+	}
+
+	@Test
+	void readFormFieldTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxInMemorySize(5), ex -> assertThat(ex)
+				.isInstanceOf(DataBufferLimitException.class)
+				.hasMessage("Part[2] exceeded the in-memory limit of 5 bytes"));
+	}
+
+	@Test
+	void readFormFieldsTooBigPerRequest() {
+		testMultipartExceptions(reader -> reader.setMaxInMemorySizePerRequest(15), ex -> assertThat(ex)
+				.isInstanceOf(DataBufferLimitException.class)
+				.hasMessage("Part[2] exceeded the in-memory limit of 15 bytes per request"));
+	}
+
+	@Test
+	void readPartHeadersTooBig() {
+		testMultipartExceptions(reader -> reader.setMaxHeadersSize(10), ex -> assertThat(ex)
+				.isInstanceOf(DataBufferLimitException.class)
+				.hasMessage("Part headers exceeded the memory usage limit of 10 bytes"));
+	}
+
+
+	private void testMultipartExceptions(
+			Consumer<DefaultPartHttpMessageReader> configurer, Consumer<Throwable> assertions) {
+
+		configurer.accept(this.partReader);
+		StepVerifier.create(this.reader.readMono(PARTS_ELEMENT_TYPE, generateMultipartRequest(), emptyMap()))
+				.consumeErrorWith(assertions)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	private ServerHttpRequest generateMultipartRequest() {
+		MultipartBodyBuilder partsBuilder = new MultipartBodyBuilder();
+		partsBuilder.part("filePart", new ClassPathResource("org/springframework/http/codec/multipart/foo.txt"));
+		partsBuilder.part("textPart", "sample-text");
+
+		MockClientHttpRequest outputMessage = new MockClientHttpRequest(HttpMethod.POST, "/");
+		new MultipartHttpMessageWriter()
+				.write(Mono.just(partsBuilder.build()), null, MediaType.MULTIPART_FORM_DATA, outputMessage, null)
+				.block(Duration.ofSeconds(5));
+		Flux<DataBuffer> requestBody = outputMessage.getBody()
+				.map(buffer -> this.bufferFactory.wrap(buffer.asByteBuffer()));
+		return MockServerHttpRequest.post("/")
+				.contentType(outputMessage.getHeaders().getContentType())
+				.body(requestBody);
+	}
+
+	private ServerHttpRequest browserRequest(String browser, int bufferSize) {
+		ClassPathResource resource = new ClassPathResource(browser + ".multipart", getClass());
+		String boundary;
+		try (Stream<String> lines = Files.lines(resource.getFile().toPath())) {
+			boundary = lines.findFirst().orElse("").substring(2);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return createRequest(resource, boundary, bufferSize);
+	}
+
+	private ServerHttpRequest createRequest(ClassPathResource resource, String boundary, int bufferSize) {
+		Flux<DataBuffer> body = DataBufferUtils.readByteChannel(resource::readableChannel, this.bufferFactory,
+				bufferSize);
+		MediaType contentType = new MediaType("multipart", "form-data", singletonMap("boundary", boundary));
+		return MockServerHttpRequest.post("/")
+				.contentType(contentType)
+				.body(body);
+	}
+
+	private static String content(Part part) {
+		DataBuffer buffer = DataBufferUtils.join(part.content()).block(Duration.ofSeconds(5));
+		return DataBufferTestUtils.dumpString(buffer, StandardCharsets.UTF_8);
+	}
+
+	private static long fileCount(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+
+	private static class ZeroDemandSubscriber extends BaseSubscriber<MultiValueMap<String, Part>> {
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			// Just subscribe without requesting
+		}
+	}
+
+}
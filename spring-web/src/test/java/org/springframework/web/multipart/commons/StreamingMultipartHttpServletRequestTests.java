@@ -0,0 +1,322 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.multipart.commons;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.StreamingMultipartRequest;
+import org.springframework.web.testfixture.servlet.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Unit tests for {@link StreamingMultipartHttpServletRequest}, as resolved by
+ * {@link CommonsMultipartResolver} in streaming mode.
+ */
+class StreamingMultipartHttpServletRequestTests {
+
+	private static final String BOUNDARY = "sMcbbQpQ5gZ7kNqv";
+
+	private final CommonsMultipartResolver resolver = new CommonsMultipartResolver();
+
+	@TempDir
+	Path tempDir;
+
+	private Path uploadDir;
+
+
+	@BeforeEach
+	void setup() throws IOException {
+		this.uploadDir = Files.createDirectory(this.tempDir.resolve("upload"));
+		this.resolver.setUploadTempDir(new FileSystemResource(this.uploadDir));
+		this.resolver.setStreaming(true);
+	}
+
+
+	@Test
+	void fileIterator() throws IOException {
+		MultipartHttpServletRequest request = resolve();
+		assertThat(request).isInstanceOf(StreamingMultipartRequest.class);
+
+		Iterator<MultipartFile> files = ((StreamingMultipartRequest) request).getFileIterator();
+		assertThat(files.hasNext()).isTrue();
+		MultipartFile file = files.next();
+		assertThat(file.getName()).isEqualTo("file1");
+		assertThat(file.getOriginalFilename()).isEqualTo("a.txt");
+		assertThat(file.getContentType()).isEqualTo("text/plain");
+		assertThat(request.getParameter("title")).isEqualTo("Title");
+
+		Path dest = this.tempDir.resolve("a.txt");
+		file.transferTo(dest);
+		assertThat(content(dest)).isEqualTo("Lorem ipsum");
+		assertThat(file.getSize()).isEqualTo(11);
+		assertThatIllegalStateException().isThrownBy(file::getInputStream);
+
+		file = files.next();
+		assertThat(file.getName()).isEqualTo("file2");
+		assertThat(file.getOriginalFilename()).isEqualTo("b.txt");
+		assertThat(new String(file.getBytes(), StandardCharsets.UTF_8)).isEqualTo("dolor sit amet");
+		assertThat(files.hasNext()).isFalse();
+
+		assertThat(request.getParameter("description")).isEqualTo("Description");
+		assertThat(request.getFileMap()).isEmpty();
+		assertThat(fileCount(this.uploadDir)).isEqualTo(0);
+	}
+
+	@Test
+	void fileIteratorSkipsUnreadContent() {
+		MultipartHttpServletRequest request = resolve();
+		Iterator<MultipartFile> files = ((StreamingMultipartRequest) request).getFileIterator();
+
+		MultipartFile file1 = files.next();
+		MultipartFile file2 = files.next();
+		assertThatIllegalStateException().isThrownBy(file1::getInputStream);
+		assertThat(file2.getName()).isEqualTo("file2");
+		assertThat(request.getParameterValues("description")).containsExactly("Description");
+	}
+
+	@Test
+	void readAhead() throws IOException {
+		MultipartHttpServletRequest request = resolve();
+
+		MultipartFile file2 = request.getFile("file2");
+		assertThat(file2).isInstanceOf(CommonsMultipartFile.class);
+		assertThat(new String(file2.getBytes(), StandardCharsets.UTF_8)).isEqualTo("dolor sit amet");
+		assertThat(request.getParameter("title")).isEqualTo("Title");
+
+		Iterator<MultipartFile> files = ((StreamingMultipartRequest) request).getFileIterator();
+		MultipartFile file1 = files.next();
+		assertThat(file1.getName()).isEqualTo("file1");
+		assertThat(new String(file1.getBytes(), StandardCharsets.UTF_8)).isEqualTo("Lorem ipsum");
+		assertThat(files.next()).isSameAs(file2);
+		assertThat(files.hasNext()).isFalse();
+
+		assertThat(request.getFileMap()).containsOnlyKeys("file1", "file2");
+		assertThat(request.getParameterMap()).containsOnlyKeys("title", "description");
+	}
+
+	@Test
+	void requestParametersMergedWithFormFields() throws IOException {
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/upload");
+		servletRequest.setQueryString("page=2&title=Query");
+		servletRequest.addParameter("page", "2");
+		servletRequest.addParameter("title", "Query");
+		MultipartHttpServletRequest request = resolve(servletRequest);
+
+		assertThat(request.getParameter("title")).isEqualTo("Title");
+		MultipartFile file1 = ((StreamingMultipartRequest) request).getFileIterator().next();
+		assertThat(file1).isNotInstanceOf(CommonsMultipartFile.class);
+		assertThat(new String(file1.getBytes(), StandardCharsets.UTF_8)).isEqualTo("Lorem ipsum");
+
+		assertThat(request.getParameter("page")).isEqualTo("2");
+		assertThat(request.getParameterValues("page")).containsExactly("2");
+		assertThat(request.getParameterValues("title")).containsExactly("Title", "Query");
+	}
+
+	@Test
+	void parameterReadsAheadOnlyUpToFirstValue() throws IOException {
+		MultipartHttpServletRequest request = resolve();
+
+		assertThat(request.getParameter("title")).isEqualTo("Title");
+		Iterator<MultipartFile> files = ((StreamingMultipartRequest) request).getFileIterator();
+		MultipartFile file1 = files.next();
+		assertThat(file1).isNotInstanceOf(CommonsMultipartFile.class);
+		assertThat(new String(file1.getBytes(), StandardCharsets.UTF_8)).isEqualTo("Lorem ipsum");
+
+		assertThat(request.getParameter("description")).isEqualTo("Description");
+		assertThat(files.next()).isNotInstanceOf(CommonsMultipartFile.class);
+		assertThat(request.getParameter("missing")).isNull();
+	}
+
+	@Test
+	void parameterValuesReadAllParts() throws IOException {
+		MultipartHttpServletRequest request = resolve();
+
+		assertThat(request.getParameterValues("title")).containsExactly("Title");
+		assertThat(request.getParameterValues("missing")).isNull();
+		Iterator<MultipartFile> files = ((StreamingMultipartRequest) request).getFileIterator();
+		MultipartFile file1 = files.next();
+		assertThat(file1).isInstanceOf(CommonsMultipartFile.class);
+		assertThat(new String(file1.getBytes(), StandardCharsets.UTF_8)).isEqualTo("Lorem ipsum");
+		assertThat(files.next()).isInstanceOf(CommonsMultipartFile.class);
+		assertThat(files.hasNext()).isFalse();
+	}
+
+	@Test
+	void filesReadAllParts() throws IOException {
+		MultipartHttpServletRequest request = resolve();
+
+		assertThat(request.getFiles("file1")).hasSize(1).allSatisfy(file ->
+				assertThat(file).isInstanceOf(CommonsMultipartFile.class));
+		assertThat(request.getFiles("missing")).isEmpty();
+		Iterator<MultipartFile> files = ((StreamingMultipartRequest) request).getFileIterator();
+		assertThat(files.next()).isSameAs(request.getFile("file1"));
+		MultipartFile file2 = files.next();
+		assertThat(file2).isSameAs(request.getFile("file2"));
+		assertThat(new String(file2.getBytes(), StandardCharsets.UTF_8)).isEqualTo("dolor sit amet");
+		assertThat(files.hasNext()).isFalse();
+	}
+
+	@Test
+	void nonConsecutivePartsWithSameName() throws IOException {
+		String body = "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"tag\"\r\n" +
+				"\r\n" +
+				"a\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n" +
+				"Content-Type: text/plain\r\n" +
+				"\r\n" +
+				"Lorem ipsum\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"other\"\r\n" +
+				"\r\n" +
+				"x\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"tag\"\r\n" +
+				"\r\n" +
+				"b\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"b.txt\"\r\n" +
+				"Content-Type: text/plain\r\n" +
+				"\r\n" +
+				"dolor sit amet\r\n" +
+				"--" + BOUNDARY + "--\r\n";
+		MultipartHttpServletRequest request = resolve(new MockHttpServletRequest("POST", "/upload"), body);
+
+		assertThat(request.getParameter("tag")).isEqualTo("a");
+		assertThat(request.getParameterValues("tag")).containsExactly("a", "b");
+		assertThat(request.getFiles("file")).extracting(MultipartFile::getOriginalFilename)
+				.containsExactly("a.txt", "b.txt");
+	}
+
+	@Test
+	void maxInMemorySizePerRequest() throws IOException {
+		this.resolver.setMaxInMemorySizePerRequest(30);
+		MultipartHttpServletRequest request = resolve();
+
+		assertThat(request.getFileMap()).containsOnlyKeys("file1", "file2");
+		assertThat(((CommonsMultipartFile) request.getFile("file1")).getFileItem().isInMemory()).isTrue();
+		assertThat(((CommonsMultipartFile) request.getFile("file2")).getFileItem().isInMemory()).isFalse();
+		assertThat(fileCount(this.uploadDir)).isEqualTo(1);
+
+		Path dest = this.tempDir.resolve("b.txt");
+		request.getFile("file2").transferTo(dest);
+		assertThat(content(dest)).isEqualTo("dolor sit amet");
+
+		this.resolver.cleanupMultipart(request);
+		assertThat(fileCount(this.uploadDir)).isEqualTo(0);
+	}
+
+	@Test
+	void maxInMemorySizePerRequestExceededByFormField() {
+		this.resolver.setMaxInMemorySizePerRequest(3);
+		MultipartHttpServletRequest request = resolve();
+
+		assertThatExceptionOfType(MaxUploadSizeExceededException.class)
+				.isThrownBy(() -> request.getParameter("title"))
+				.satisfies(ex -> assertThat(ex.getMaxUploadSize()).isEqualTo(3));
+	}
+
+	@Test
+	void maxDiskUsagePerRequest() throws IOException {
+		this.resolver.setMaxInMemorySize(0);
+		this.resolver.setMaxDiskUsagePerRequest(20);
+		MultipartHttpServletRequest request = resolve();
+
+		assertThat(request.getFile("file1")).isNotNull();
+		assertThatExceptionOfType(MaxUploadSizeExceededException.class)
+				.isThrownBy(() -> request.getFile("file2"))
+				.satisfies(ex -> assertThat(ex.getMaxUploadSize()).isEqualTo(20));
+
+		this.resolver.cleanupMultipart(request);
+		assertThat(fileCount(this.uploadDir)).isEqualTo(0);
+	}
+
+	@Test
+	void maxUploadSizePerFile() {
+		this.resolver.setMaxUploadSizePerFile(12);
+		MultipartHttpServletRequest request = resolve();
+		Iterator<MultipartFile> files = ((StreamingMultipartRequest) request).getFileIterator();
+
+		assertThat(files.next().getName()).isEqualTo("file1");
+		MultipartFile file2 = files.next();
+		assertThatExceptionOfType(MaxUploadSizeExceededException.class)
+				.isThrownBy(() -> file2.transferTo(this.tempDir.resolve("b.txt")))
+				.satisfies(ex -> assertThat(ex.getMaxUploadSize()).isEqualTo(12));
+	}
+
+
+	private MultipartHttpServletRequest resolve() {
+		return resolve(new MockHttpServletRequest("POST", "/upload"));
+	}
+
+	private MultipartHttpServletRequest resolve(MockHttpServletRequest request) {
+		return resolve(request, "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"title\"\r\n" +
+				"\r\n" +
+				"Title\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file1\"; filename=\"C:\\\\path\\\\a.txt\"\r\n" +
+				"Content-Type: text/plain\r\n" +
+				"\r\n" +
+				"Lorem ipsum\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"description\"\r\n" +
+				"\r\n" +
+				"Description\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file2\"; filename=\"b.txt\"\r\n" +
+				"Content-Type: text/plain\r\n" +
+				"\r\n" +
+				"dolor sit amet\r\n" +
+				"--" + BOUNDARY + "--\r\n");
+	}
+
+	private MultipartHttpServletRequest resolve(MockHttpServletRequest request, String body) {
+		request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		assertThat(this.resolver.isMultipart(request)).isTrue();
+		return this.resolver.resolveMultipart(request);
+	}
+
+	private static String content(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+
+	private static long fileCount(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.server.PathContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link PathPrefixIndex}.
+ */
+public class PathPrefixIndexTests {
+
+	private final PathPrefixIndex<String> index = new PathPrefixIndex<>();
+
+
+	@Test
+	public void literalPrefix() {
+		this.index.add("resource", Collections.singleton("/api/resource/{id}"));
+		this.index.add("other", Collections.singleton("/api/other/{id}"));
+
+		assertThat(this.index.getCandidates("/api/resource/1")).containsExactly("resource");
+		assertThat(this.index.getCandidates("/api/other/1")).containsExactly("other");
+		assertThat(this.index.getCandidates("/api/unknown/1")).isEmpty();
+		assertThat(this.index.getCandidates("/")).isEmpty();
+	}
+
+	@Test
+	public void lastSegmentNotIndexed() {
+		this.index.add("users", Collections.singleton("/api/users"));
+		this.index.add("catchAll", Collections.singleton("/api/**"));
+
+		assertThat(this.index.getCandidates("/api/users.json")).containsExactlyInAnyOrder("users", "catchAll");
+		assertThat(this.index.getCandidates("/api/users/")).containsExactlyInAnyOrder("users", "catchAll");
+		assertThat(this.index.getCandidates("/api")).containsExactlyInAnyOrder("users", "catchAll");
+	}
+
+	@Test
+	public void lastSegmentIndexed() {
+		PathPrefixIndex<String> index = new PathPrefixIndex<>(true);
+		index.add("users", Collections.singleton("/api/users"));
+		index.add("catchAll", Collections.singleton("/api/**"));
+		index.add("variable", Collections.singleton("/api/{id}"));
+
+		assertThat(index.getCandidates("/api/users")).containsExactlyInAnyOrder("users", "catchAll", "variable");
+		assertThat(index.getCandidates("/api/users/")).containsExactlyInAnyOrder("users", "catchAll", "variable");
+		assertThat(index.getCandidates("/api/users/1")).containsExactlyInAnyOrder("users", "catchAll", "variable");
+		assertThat(index.getCandidates("/api/users.json")).containsExactlyInAnyOrder("catchAll", "variable");
+		assertThat(index.getCandidates("/api")).containsExactlyInAnyOrder("catchAll", "variable");
+	}
+
+	@Test
+	public void prefixEndsAtWildcardOrVariable() {
+		this.index.add("wildcard", Collections.singleton("/api/res*/list"));
+		this.index.add("single", Collections.singleton("/api/?es/list"));
+		this.index.add("variable", Collections.singleton("/api/{type}/list"));
+		this.index.add("root", Collections.singleton("/{type}/list"));
+
+		assertThat(this.index.getCandidates("/api/resource/list"))
+				.containsExactlyInAnyOrder("wildcard", "single", "variable", "root");
+		assertThat(this.index.getCandidates("/other/list")).containsExactly("root");
+	}
+
+	@Test
+	public void trailingDoubleWildcardMatchesPrefixPath() {
+		this.index.add("docs", Collections.singleton("/api/docs/**"));
+
+		assertThat(this.index.getCandidates("/api/docs")).containsExactly("docs");
+		assertThat(this.index.getCandidates("/api/docs/a/b/c")).containsExactly("docs");
+	}
+
+	@Test
+	public void rootPatterns() {
+		this.index.add("empty", Collections.singleton(""));
+		this.index.add("root", Collections.singleton("/"));
+		this.index.add("resource", Collections.singleton("/api/resource/{id}"));
+
+		assertThat(this.index.getCandidates("/")).containsExactlyInAnyOrder("empty", "root");
+		assertThat(this.index.getCandidates("")).containsExactlyInAnyOrder("empty", "root");
+		assertThat(this.index.getCandidates("/api/resource/1")).containsExactlyInAnyOrder("empty", "root", "resource");
+	}
+
+	@Test
+	public void rootPatternsWithLastSegmentIndexed() {
+		PathPrefixIndex<String> index = new PathPrefixIndex<>(true);
+		index.add("empty", Collections.singleton(""));
+		index.add("root", Collections.singleton("/"));
+
+		assertThat(index.getCandidates("/")).containsExactlyInAnyOrder("empty", "root");
+		assertThat(index.getCandidates(PathContainer.parsePath("/api"))).containsExactlyInAnyOrder("empty", "root");
+	}
+
+	@Test
+	public void noPatterns() {
+		this.index.add("any", Collections.emptySet());
+		this.index.add("resource", Collections.singleton("/api/resource/{id}"));
+
+		assertThat(this.index.getCandidates("/api/resource/1")).containsExactlyInAnyOrder("any", "resource");
+		assertThat(this.index.getCandidates("/foo")).containsExactly("any");
+	}
+
+	@Test
+	public void multiplePatternsFoundOnce() {
+		this.index.add("mapping", Arrays.asList("/api/{id}", "/api/resource/{id}", "/api/resource/{id}/{name}"));
+
+		assertThat(this.index.getCandidates("/api/resource/1")).containsExactly("mapping");
+	}
+
+	@Test
+	public void ignoresCaseAndWhitespace() {
+		this.index.add("resource", Collections.singleton("/Api/ resource /{id}"));
+
+		assertThat(this.index.getCandidates("/API/Resource/1")).containsExactly("resource");
+	}
+
+	@Test
+	public void ignoresEmptySegments() {
+		this.index.add("resource", Collections.singleton("/api/resource/{id}"));
+
+		assertThat(this.index.getCandidates("//api//resource/1")).containsExactly("resource");
+		assertThat(this.index.getCandidates(PathContainer.parsePath("//api//resource/1"))).containsExactly("resource");
+	}
+
+	@Test
+	public void pathContainer() {
+		this.index.add("resource", Collections.singleton("/api/café/{id}"));
+
+		assertThat(this.index.getCandidates(PathContainer.parsePath("/api/caf%C3%A9/1"))).containsExactly("resource");
+		assertThat(this.index.getCandidates(PathContainer.parsePath("/api/cafe/1"))).isEmpty();
+	}
+
+	@Test
+	public void remove() {
+		this.index.add("resource", Collections.singleton("/api/resource/{id}"));
+		this.index.add("other", Collections.singleton("/api/resource/{id}/other"));
+		assertThat(this.index.size()).isEqualTo(2);
+
+		this.index.remove("resource");
+		assertThat(this.index.size()).isEqualTo(1);
+		assertThat(this.index.getCandidates("/api/resource/1/other")).containsExactly("other");
+
+		this.index.remove("other");
+		assertThat(this.index.size()).isEqualTo(0);
+		assertThat(this.index.getCandidates("/api/resource/1/other")).isEmpty();
+	}
+
+	@Test
+	public void addReplacesPreviousRegistration() {
+		this.index.add("resource", Collections.singleton("/api/resource/{id}"));
+		this.index.add("resource", Collections.singleton("/api/other/{id}"));
+
+		assertThat(this.index.getCandidates("/api/resource/1")).isEmpty();
+		assertThat(this.index.getCandidates("/api/other/1")).containsExactly("resource");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,16 @@
 
 package org.springframework.web.reactive.function.server;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -29,13 +37,16 @@ import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
 
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.codec.HttpMessageWriter;
 import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.web.reactive.result.view.ViewResolver;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebHandler;
 import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import org.springframework.web.util.PathPrefixIndex;
 
 /**
  * <strong>Central entry point to Spring's functional web framework.</strong>
@@ -183,6 +194,61 @@ public abstract class RouterFunctions {
 		return new ResourcesRouterFunction(lookupFunction);
 	}
 
+	/**
+	 * Optimize the given router function by flattening its
+	 * {@linkplain RouterFunction#and(RouterFunction) composed} routes into a
+	 * table keyed on HTTP method and on the literal prefix of each route's
+	 * path pattern. For a given request, only the routes whose
+	 * {@linkplain RequestPredicates#method(HttpMethod) method} and
+	 * {@linkplain RequestPredicates#path(String) path} predicates may match
+	 * are evaluated, in their original order, so that the first matching
+	 * route still wins. Nested and filtered router functions are optimized
+	 * as well.
+	 * <p>Routes are only skipped if their method or path predicates cannot
+	 * match; routes with other predicates, resource routes, and router
+	 * functions not created through {@code RouterFunctions} are always
+	 * evaluated. The returned router function exposes the same structure to
+	 * a {@link Visitor} as the given one.
+	 * @param routerFunction the router function to optimize
+	 * @param <T> the type of response returned by the router function
+	 * @return the optimized router function
+	 * @since 5.2.4
+	 */
+	public static <T extends ServerResponse> RouterFunction<T> optimize(RouterFunction<T> routerFunction) {
+		Assert.notNull(routerFunction, "RouterFunction must not be null");
+		if (routerFunction instanceof CompiledRouterFunction) {
+			return routerFunction;
+		}
+		List<RouterFunction<?>> routes = new ArrayList<>();
+		flatten(routerFunction, routes);
+		return new CompiledRouterFunction<>(routerFunction, routes);
+	}
+
+	private static void flatten(RouterFunction<?> routerFunction, List<RouterFunction<?>> routes) {
+		if (routerFunction instanceof SameComposedRouterFunction) {
+			SameComposedRouterFunction<?> composed = (SameComposedRouterFunction<?>) routerFunction;
+			flatten(composed.first, routes);
+			flatten(composed.second, routes);
+		}
+		else if (routerFunction instanceof DifferentComposedRouterFunction) {
+			DifferentComposedRouterFunction composed = (DifferentComposedRouterFunction) routerFunction;
+			flatten(composed.first, routes);
+			flatten(composed.second, routes);
+		}
+		else if (routerFunction instanceof CompiledRouterFunction) {
+			flatten(((CompiledRouterFunction<?>) routerFunction).routerFunction, routes);
+		}
+		else if (routerFunction instanceof DefaultNestedRouterFunction) {
+			routes.add(((DefaultNestedRouterFunction<?>) routerFunction).optimize());
+		}
+		else if (routerFunction instanceof FilteredRouterFunction) {
+			routes.add(((FilteredRouterFunction<?, ?>) routerFunction).optimize());
+		}
+		else {
+			routes.add(routerFunction);
+		}
+	}
+
 	/**
 	 * Convert the given {@linkplain RouterFunction router function} into a {@link HttpHandler}.
 	 * This conversion uses {@linkplain HandlerStrategies#builder() default strategies}.
@@ -851,6 +917,10 @@ public abstract class RouterFunctions {
 			return this.routerFunction.route(request).map(this.filterFunction::apply);
 		}
 
+		FilteredRouterFunction<T, S> optimize() {
+			return new FilteredRouterFunction<>(RouterFunctions.optimize(this.routerFunction), this.filterFunction);
+		}
+
 		@Override
 		public void accept(Visitor visitor) {
 			this.routerFunction.accept(visitor);
@@ -930,6 +1000,9 @@ public abstract class RouterFunctions {
 					).orElseGet(Mono::empty);
 		}
 
+		DefaultNestedRouterFunction<T> optimize() {
+			return new DefaultNestedRouterFunction<>(this.predicate, RouterFunctions.optimize(this.routerFunction));
+		}
 
 		@Override
 		public void accept(Visitor visitor) {
@@ -961,6 +1034,244 @@ public abstract class RouterFunctions {
 	}
 
 
+	/**
+	 * A router function that only evaluates the routes of a flattened
+	 * composition whose HTTP method and path predicates may match a request,
+	 * as created by {@link RouterFunctions#optimize(RouterFunction)}.
+	 * @param <T> the server response type
+	 */
+	static final class CompiledRouterFunction<T extends ServerResponse> implements RouterFunction<T> {
+
+		private final RouterFunction<T> routerFunction;
+
+		private final Map<HttpMethod, PathPrefixIndex<Route>> routesByMethod = new EnumMap<>(HttpMethod.class);
+
+		private final PathPrefixIndex<Route> routesForOtherMethods = new PathPrefixIndex<>(true);
+
+		public CompiledRouterFunction(RouterFunction<T> routerFunction, List<RouterFunction<?>> routes) {
+			this.routerFunction = routerFunction;
+			for (HttpMethod method : HttpMethod.values()) {
+				this.routesByMethod.put(method, new PathPrefixIndex<>(true));
+			}
+			for (int i = 0; i < routes.size(); i++) {
+				RouterFunction<?> route = routes.get(i);
+				RouteGuard guard = RouteGuard.of(route);
+				Route value = new Route(i, route);
+				this.routesByMethod.forEach((method, index) -> {
+					if (guard.methods == null || guard.methods.contains(method)) {
+						index.add(value, guard.patterns);
+					}
+				});
+				if (guard.methods == null) {
+					this.routesForOtherMethods.add(value, guard.patterns);
+				}
+			}
+		}
+
+		@Override
+		public Mono<HandlerFunction<T>> route(ServerRequest request) {
+			HttpMethod method = request.method();
+			PathPrefixIndex<Route> index =
+					(method != null ? this.routesByMethod.get(method) : this.routesForOtherMethods);
+			List<Route> candidates = index.getCandidates(request.pathContainer());
+			if (candidates.size() > 1) {
+				candidates = new ArrayList<>(candidates);
+				Collections.sort(candidates);
+			}
+			return route(request, candidates, 0);
+		}
+
+		private Mono<HandlerFunction<T>> route(ServerRequest request, List<Route> candidates, int position) {
+			if (position == candidates.size()) {
+				return Mono.empty();
+			}
+			return candidates.get(position).routerFunction.route(request)
+					.map(this::cast)
+					.switchIfEmpty(Mono.defer(() -> route(request, candidates, position + 1)));
+		}
+
+		@SuppressWarnings("unchecked")
+		private HandlerFunction<T> cast(HandlerFunction<?> handlerFunction) {
+			return (HandlerFunction<T>) handlerFunction;
+		}
+
+		@Override
+		public void accept(Visitor visitor) {
+			this.routerFunction.accept(visitor);
+		}
+
+		@Override
+		public String toString() {
+			return this.routerFunction.toString();
+		}
+
+
+		private static final class Route implements Comparable<Route> {
+
+			private final int order;
+
+			private final RouterFunction<?> routerFunction;
+
+			Route(int order, RouterFunction<?> routerFunction) {
+				this.order = order;
+				this.routerFunction = routerFunction;
+			}
+
+			@Override
+			public int compareTo(Route other) {
+				return Integer.compare(this.order, other.order);
+			}
+		}
+	}
+
+
+	/**
+	 * The HTTP methods and path patterns that a request needs to match for a
+	 * route to possibly apply, as derived from its {@link RequestPredicate}.
+	 */
+	private static final class RouteGuard {
+
+		private static final RouteGuard ANY = new RouteGuard(null, Collections.emptySet());
+
+		@Nullable
+		private final Set<HttpMethod> methods;
+
+		// Empty for any path
+		private final Set<String> patterns;
+
+		RouteGuard(@Nullable Set<HttpMethod> methods, Set<String> patterns) {
+			this.methods = methods;
+			this.patterns = patterns;
+		}
+
+		RouteGuard and(RouteGuard other) {
+			Set<HttpMethod> methods = this.methods;
+			if (methods == null) {
+				methods = other.methods;
+			}
+			else if (other.methods != null) {
+				methods = new HashSet<>(methods);
+				methods.retainAll(other.methods);
+			}
+			return new RouteGuard(methods, (this.patterns.isEmpty() ? other.patterns : this.patterns));
+		}
+
+		RouteGuard or(RouteGuard other) {
+			Set<HttpMethod> methods = null;
+			if (this.methods != null && other.methods != null) {
+				methods = new HashSet<>(this.methods);
+				methods.addAll(other.methods);
+			}
+			Set<String> patterns = Collections.emptySet();
+			if (!this.patterns.isEmpty() && !other.patterns.isEmpty()) {
+				patterns = new LinkedHashSet<>(this.patterns);
+				patterns.addAll(other.patterns);
+			}
+			return new RouteGuard(methods, patterns);
+		}
+
+		static RouteGuard of(RouterFunction<?> routerFunction) {
+			RequestPredicate predicate = null;
+			if (routerFunction instanceof DefaultRouterFunction) {
+				predicate = ((DefaultRouterFunction<?>) routerFunction).predicate;
+			}
+			else if (routerFunction instanceof DefaultNestedRouterFunction) {
+				predicate = ((DefaultNestedRouterFunction<?>) routerFunction).predicate;
+			}
+			if (predicate == null) {
+				return ANY;
+			}
+			RouteGuardVisitor visitor = new RouteGuardVisitor();
+			predicate.accept(visitor);
+			return visitor.getGuard();
+		}
+	}
+
+
+	/**
+	 * {@link RequestPredicates.Visitor} that derives a {@link RouteGuard} from
+	 * a predicate, treating all predicates other than method and path ones,
+	 * as well as negated ones, as matching any request.
+	 */
+	private static final class RouteGuardVisitor implements RequestPredicates.Visitor {
+
+		private final Deque<RouteGuard> guards = new ArrayDeque<>();
+
+		RouteGuard getGuard() {
+			return (this.guards.size() == 1 ? this.guards.peek() : RouteGuard.ANY);
+		}
+
+		@Override
+		public void method(Set<HttpMethod> methods) {
+			this.guards.push(new RouteGuard(methods, Collections.emptySet()));
+		}
+
+		@Override
+		public void path(String pattern) {
+			this.guards.push(pattern.startsWith("/") ?
+					new RouteGuard(null, Collections.singleton(pattern)) : RouteGuard.ANY);
+		}
+
+		@Override
+		public void pathExtension(String extension) {
+			this.guards.push(RouteGuard.ANY);
+		}
+
+		@Override
+		public void header(String name, String value) {
+			this.guards.push(RouteGuard.ANY);
+		}
+
+		@Override
+		public void queryParam(String name, String value) {
+			this.guards.push(RouteGuard.ANY);
+		}
+
+		@Override
+		public void startAnd() {
+		}
+
+		@Override
+		public void and() {
+		}
+
+		@Override
+		public void endAnd() {
+			RouteGuard right = this.guards.pop();
+			this.guards.push(this.guards.pop().and(right));
+		}
+
+		@Override
+		public void startOr() {
+		}
+
+		@Override
+		public void or() {
+		}
+
+		@Override
+		public void endOr() {
+			RouteGuard right = this.guards.pop();
+			this.guards.push(this.guards.pop().or(right));
+		}
+
+		@Override
+		public void startNegate() {
+		}
+
+		@Override
+		public void endNegate() {
+			this.guards.pop();
+			this.guards.push(RouteGuard.ANY);
+		}
+
+		@Override
+		public void unknown(RequestPredicate predicate) {
+			this.guards.push(RouteGuard.ANY);
+		}
+	}
+
+
 	private static class HandlerStrategiesResponseContext implements ServerResponse.Context {
 
 		private final HandlerStrategies strategies;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.web.reactive.function.server;
 
+import java.net.URI;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -24,6 +25,7 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.server.reactive.HttpHandler;
@@ -120,6 +122,89 @@ public class RouterFunctionsTests {
 				.verify();
 	}
 
+	@Test
+	public void optimize() {
+		HandlerFunction<ServerResponse> user = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> api = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> createUser = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> nested = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> fallback = request -> ServerResponse.ok().build();
+
+		RouterFunction<ServerResponse> routerFunction =
+				RouterFunctions.route(RequestPredicates.GET("/api/users/{id}"), user)
+						.andRoute(RequestPredicates.GET("/api/**"), api)
+						.andRoute(RequestPredicates.POST("/api/users"), createUser)
+						.andNest(RequestPredicates.path("/nested"),
+								RouterFunctions.route(RequestPredicates.GET("/foo"), nested))
+						.andRoute(RequestPredicates.all(), fallback);
+		RouterFunction<ServerResponse> result = RouterFunctions.optimize(routerFunction);
+
+		assertRoute(result, HttpMethod.GET, "/api/users/1", user);
+		assertRoute(result, HttpMethod.GET, "/api/users", api);
+		assertRoute(result, HttpMethod.POST, "/api/users", createUser);
+		assertRoute(result, HttpMethod.PUT, "/api/users", fallback);
+		assertRoute(result, HttpMethod.GET, "/nested/foo", nested);
+		assertRoute(result, HttpMethod.GET, "/nested/bar", fallback);
+		assertRoute(result, HttpMethod.GET, "/", fallback);
+	}
+
+	@Test
+	public void optimizeSkipsNonMatchingRoutes() {
+		AtomicBoolean predicateInvoked = new AtomicBoolean();
+		HandlerFunction<ServerResponse> handlerFunction = request -> ServerResponse.ok().build();
+
+		RouterFunction<ServerResponse> routerFunction = RouterFunctions.optimize(RouterFunctions.route()
+				.route(RequestPredicates.path("/foo").and(request -> predicateInvoked.compareAndSet(false, true)),
+						handlerFunction)
+				.GET("/bar", handlerFunction)
+				.build());
+
+		assertRoute(routerFunction, HttpMethod.GET, "/bar", handlerFunction);
+		assertThat(predicateInvoked.get()).isFalse();
+	}
+
+	@Test
+	public void optimizeFiltered() {
+		HandlerFunction<ServerResponse> handlerFunction = request -> ServerResponse.ok().build();
+		RouterFunction<ServerResponse> routerFunction = RouterFunctions.optimize(RouterFunctions.route()
+				.GET("/foo", handlerFunction)
+				.GET("/bar", handlerFunction)
+				.filter((request, next) -> ServerResponse.accepted().build())
+				.build());
+
+		MockServerRequest request = MockServerRequest.builder()
+				.method(HttpMethod.GET).uri(URI.create("https://example.com/bar")).build();
+		Mono<HttpStatus> result = routerFunction.route(request)
+				.flatMap(handler -> handler.handle(request))
+				.map(ServerResponse::statusCode);
+
+		StepVerifier.create(result)
+				.expectNext(HttpStatus.ACCEPTED)
+				.verifyComplete();
+	}
+
+	@Test
+	public void optimizeKeepsStructure() {
+		RouterFunction<ServerResponse> routerFunction = RouterFunctions.route()
+				.GET("/foo", request -> ServerResponse.ok().build())
+				.path("/bar", builder -> builder.POST("/baz", request -> ServerResponse.ok().build()))
+				.build();
+		RouterFunction<ServerResponse> result = RouterFunctions.optimize(routerFunction);
+
+		assertThat(result.toString()).isEqualTo(routerFunction.toString());
+		assertThat(RouterFunctions.optimize(result)).isSameAs(result);
+	}
+
+	private static void assertRoute(RouterFunction<ServerResponse> routerFunction, HttpMethod method,
+			String path, HandlerFunction<ServerResponse> expected) {
+
+		MockServerRequest request = MockServerRequest.builder()
+				.method(method).uri(URI.create("https://example.com" + path)).build();
+		StepVerifier.create(routerFunction.route(request))
+				.expectNext(expected)
+				.verifyComplete();
+	}
+
 	@Test
 	public void toHttpHandlerNormal() {
 		HandlerFunction<ServerResponse> handlerFunction = request -> ServerResponse.accepted().build();
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.lang.reflect.Method;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.testfixture.servlet.MockHttpServletRequest;
+
+/**
+ * Benchmarks for {@code AbstractHandlerMethodMapping#lookupHandlerMethod}
+ * through {@link RequestMappingHandlerMapping}, for requests that hit a
+ * direct path mapping and for requests that require URI template matching.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class RequestMappingHandlerMappingBenchmark {
+
+	@Benchmark
+	public HandlerMethod lookupDirectPath(HandlerMappingState state) throws Exception {
+		return state.handlerMapping.lookup(state.directPathRequest);
+	}
+
+	@Benchmark
+	public HandlerMethod lookupPatternPath(HandlerMappingState state) throws Exception {
+		return state.handlerMapping.lookup(state.patternPathRequest);
+	}
+
+	@Benchmark
+	public HandlerMethod lookupNoMatch(HandlerMappingState state) throws Exception {
+		return state.handlerMapping.lookup(state.noMatchRequest);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class HandlerMappingState {
+
+		@Param({"100", "3000"})
+		public int mappingCount;
+
+		public BenchmarkHandlerMapping handlerMapping;
+
+		public MockHttpServletRequest directPathRequest;
+
+		public MockHttpServletRequest patternPathRequest;
+
+		public MockHttpServletRequest noMatchRequest;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.handlerMapping = new BenchmarkHandlerMapping();
+			Controller controller = new Controller();
+			Method method = Controller.class.getMethod("handle");
+			for (int i = 0; i < this.mappingCount; i++) {
+				this.handlerMapping.registerMapping(RequestMappingInfo.paths("/api/static" + i + "/list")
+						.methods(RequestMethod.GET).build(), controller, method);
+				this.handlerMapping.registerMapping(RequestMappingInfo.paths("/api/resource" + i + "/{id}")
+						.methods(RequestMethod.GET).build(), controller, method);
+				this.handlerMapping.registerMapping(RequestMappingInfo.paths("/api/resource" + i + "/{id}")
+						.methods(RequestMethod.PUT).consumes("application/json").build(), controller, method);
+			}
+			int middle = this.mappingCount / 2;
+			this.directPathRequest = new MockHttpServletRequest("GET", "/api/static" + middle + "/list");
+			this.patternPathRequest = new MockHttpServletRequest("GET", "/api/resource" + middle + "/42");
+			this.noMatchRequest = new MockHttpServletRequest("GET", "/api/unknown/42");
+		}
+	}
+
+
+	public static class BenchmarkHandlerMapping extends RequestMappingHandlerMapping {
+
+		public HandlerMethod lookup(HttpServletRequest request) throws Exception {
+			return lookupHandlerMethod(getUrlPathHelper().getLookupPathForRequest(request), request);
+		}
+	}
+
+
+	public static class Controller {
+
+		public void handle() {
+		}
+	}
+
+}
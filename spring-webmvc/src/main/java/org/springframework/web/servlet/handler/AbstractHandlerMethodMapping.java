@@ -44,6 +44,7 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.KotlinDetector;
 import org.springframework.core.MethodIntrospector;
 import org.springframework.lang.Nullable;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
@@ -52,6 +53,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.PathPrefixIndex;
 
 /**
  * Abstract base class for {@link HandlerMapping} implementations that define
@@ -389,8 +391,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			// Go through all mappings that share a literal path prefix with the lookup path...
+			addMatchingMappings(this.mappingRegistry.getMappingsByPathPrefix(lookupPath), matches, request);
 		}
 
 		if (!matches.isEmpty()) {
@@ -500,6 +502,11 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 	/**
 	 * Extract and return the URL paths contained in the supplied mapping.
+	 * <p>Besides determining direct URL matches, the literal leading segments
+	 * of the returned patterns are used to narrow down the mappings that are
+	 * checked for a given lookup path, provided that the configured
+	 * {@link #getPathMatcher() PathMatcher} is an {@link AntPathMatcher}.
+	 * A mapping that returns no patterns is checked for every lookup path.
 	 */
 	protected abstract Set<String> getMappingPathPatterns(T mapping);
 
@@ -535,6 +542,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final MultiValueMap<String, T> urlLookup = new LinkedMultiValueMap<>();
 
+		private final PathPrefixIndex<T> pathPrefixLookup = new PathPrefixIndex<>();
+
 		private final Map<String, List<HandlerMethod>> nameLookup = new ConcurrentHashMap<>();
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
@@ -558,6 +567,16 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the mappings that may match the given URL path, i.e. the mappings
+		 * whose patterns share a literal path prefix with it. Not thread-safe.
+		 * @since 5.2.4
+		 * @see #acquireReadLock()
+		 */
+		public List<T> getMappingsByPathPrefix(String urlPath) {
+			return this.pathPrefixLookup.getCandidates(urlPath);
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -603,6 +622,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				for (String url : directUrls) {
 					this.urlLookup.add(url, mapping);
 				}
+				this.pathPrefixLookup.add(mapping, getPathPrefixPatterns(mapping));
 
 				String name = null;
 				if (getNamingStrategy() != null) {
@@ -643,6 +663,12 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return urls;
 		}
 
+		private Set<String> getPathPrefixPatterns(T mapping) {
+			// Literal path prefixes are only meaningful for AntPathMatcher-style patterns
+			return (getPathMatcher() instanceof AntPathMatcher ?
+					getMappingPathPatterns(mapping) : Collections.emptySet());
+		}
+
 		private void addMappingName(String name, HandlerMethod handlerMethod) {
 			List<HandlerMethod> oldList = this.nameLookup.get(name);
 			if (oldList == null) {
@@ -670,6 +696,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 
 				this.mappingLookup.remove(definition.getMapping());
+				this.pathPrefixLookup.remove(definition.getMapping());
 
 				for (String url : definition.getDirectUrls()) {
 					List<T> list = this.urlLookup.get(url);
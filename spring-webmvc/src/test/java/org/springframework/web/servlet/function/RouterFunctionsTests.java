@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2020 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,9 +18,11 @@ package org.springframework.web.servlet.function;
 
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.Test;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.web.testfixture.servlet.MockHttpServletRequest;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -101,4 +103,80 @@ public class RouterFunctionsTests {
 		assertThat(resultHandlerFunction.isPresent()).isFalse();
 	}
 
+	@Test
+	public void optimize() {
+		HandlerFunction<ServerResponse> user = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> api = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> createUser = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> nested = request -> ServerResponse.ok().build();
+		HandlerFunction<ServerResponse> fallback = request -> ServerResponse.ok().build();
+
+		RouterFunction<ServerResponse> routerFunction =
+				RouterFunctions.route(RequestPredicates.GET("/api/users/{id}"), user)
+						.andRoute(RequestPredicates.GET("/api/**"), api)
+						.andRoute(RequestPredicates.POST("/api/users"), createUser)
+						.andNest(RequestPredicates.path("/nested"),
+								RouterFunctions.route(RequestPredicates.GET("/foo"), nested))
+						.andRoute(RequestPredicates.all(), fallback);
+		RouterFunction<ServerResponse> result = RouterFunctions.optimize(routerFunction);
+
+		assertThat(route(result, "GET", "/api/users/1")).contains(user);
+		assertThat(route(result, "GET", "/api/users")).contains(api);
+		assertThat(route(result, "POST", "/api/users")).contains(createUser);
+		assertThat(route(result, "PUT", "/api/users")).contains(fallback);
+		assertThat(route(result, "GET", "/nested/foo")).contains(nested);
+		assertThat(route(result, "GET", "/nested/bar")).contains(fallback);
+		assertThat(route(result, "GET", "/")).contains(fallback);
+	}
+
+	@Test
+	public void optimizeSkipsNonMatchingRoutes() {
+		AtomicBoolean predicateInvoked = new AtomicBoolean();
+		HandlerFunction<ServerResponse> handlerFunction = request -> ServerResponse.ok().build();
+
+		RouterFunction<ServerResponse> routerFunction = RouterFunctions.optimize(RouterFunctions.route()
+				.route(RequestPredicates.path("/foo").and(request -> predicateInvoked.compareAndSet(false, true)),
+						handlerFunction)
+				.GET("/bar", handlerFunction)
+				.build());
+
+		assertThat(route(routerFunction, "GET", "/bar")).contains(handlerFunction);
+		assertThat(predicateInvoked.get()).isFalse();
+	}
+
+	@Test
+	public void optimizeFiltered() throws Exception {
+		HandlerFunction<ServerResponse> handlerFunction = request -> ServerResponse.ok().build();
+		RouterFunction<ServerResponse> routerFunction = RouterFunctions.optimize(RouterFunctions.route()
+				.GET("/foo", handlerFunction)
+				.GET("/bar", handlerFunction)
+				.filter((request, next) -> ServerResponse.accepted().build())
+				.build());
+
+		ServerRequest request = new DefaultServerRequest(
+				new MockHttpServletRequest("GET", "/bar"), Collections.emptyList());
+		Optional<HandlerFunction<ServerResponse>> result = routerFunction.route(request);
+		assertThat(result).isPresent();
+		assertThat(result.get().handle(request).statusCode()).isEqualTo(HttpStatus.ACCEPTED);
+	}
+
+	@Test
+	public void optimizeKeepsStructure() {
+		RouterFunction<ServerResponse> routerFunction = RouterFunctions.route()
+				.GET("/foo", request -> ServerResponse.ok().build())
+				.path("/bar", builder -> builder.POST("/baz", request -> ServerResponse.ok().build()))
+				.build();
+		RouterFunction<ServerResponse> result = RouterFunctions.optimize(routerFunction);
+
+		assertThat(result.toString()).isEqualTo(routerFunction.toString());
+		assertThat(RouterFunctions.optimize(result)).isSameAs(result);
+	}
+
+	private static Optional<HandlerFunction<ServerResponse>> route(
+			RouterFunction<ServerResponse> routerFunction, String method, String path) {
+
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest(method, path);
+		return routerFunction.route(new DefaultServerRequest(servletRequest, Collections.emptyList()));
+	}
+
 }